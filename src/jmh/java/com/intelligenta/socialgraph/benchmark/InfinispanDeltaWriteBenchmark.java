@@ -0,0 +1,132 @@
+package com.intelligenta.socialgraph.benchmark;
+
+import com.intelligenta.socialgraph.Verbs;
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import com.intelligenta.socialgraph.persistence.infinispan.InfinispanReactionStore;
+import com.intelligenta.socialgraph.persistence.infinispan.InfinispanRelationStore;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A follow and a like against a user or post that already has
+ * {@code size} followers or likers, on a LOCAL embedded cache: the original
+ * read-copy-write of the whole collection against the functional-map delta
+ * the stores now use. Each invocation adds one member and removes it again,
+ * so the collection stays at {@code size}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InfinispanDeltaWriteBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private EmbeddedCacheManager manager;
+    private InfinispanRelationStore relations;
+    private InfinispanReactionStore reactions;
+    private Cache<String, Map<Relation, HashSet<String>>> legacyRelations;
+    private Cache<String, ArrayList<String>> legacyReactions;
+
+    @Setup
+    public void setUp() {
+        manager = new DefaultCacheManager(new GlobalConfigurationBuilder().nonClusteredDefault().build());
+        Configuration local = new ConfigurationBuilder().clustering().cacheMode(CacheMode.LOCAL).build();
+        for (String name : List.of("relations", "reactions", "reaction-lookups",
+                                   "relations-legacy", "reactions-legacy")) {
+            manager.defineConfiguration(name, local);
+        }
+        relations = new InfinispanRelationStore(manager);
+        reactions = new InfinispanReactionStore(manager);
+        legacyRelations = manager.getCache("relations-legacy");
+        legacyReactions = manager.getCache("reactions-legacy");
+
+        HashSet<String> followers = new HashSet<>();
+        ArrayList<String> likers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String uid = "user-" + i;
+            relations.add("star", Relation.FOLLOWERS, uid);
+            reactions.add(Verbs.Action.LIKE, "post", uid);
+            followers.add(uid);
+            likers.add(0, uid);
+        }
+        Map<Relation, HashSet<String>> star = new LinkedHashMap<>();
+        star.put(Relation.FOLLOWERS, followers);
+        legacyRelations.put("star", star);
+        legacyReactions.put("post:like", likers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.stop();
+    }
+
+    @Benchmark
+    public boolean followLegacy() {
+        legacyRelationWrite("newcomer", true);
+        return legacyRelationWrite("newcomer", false);
+    }
+
+    @Benchmark
+    public boolean followDelta() {
+        relations.add("star", Relation.FOLLOWERS, "newcomer");
+        return relations.remove("star", Relation.FOLLOWERS, "newcomer");
+    }
+
+    @Benchmark
+    public int likeLegacy() {
+        ArrayList<String> actors = legacyReactions.get("post:like");
+        ArrayList<String> added = new ArrayList<>(actors);
+        added.add(0, "newcomer");
+        legacyReactions.put("post:like", added);
+        ArrayList<String> removed = new ArrayList<>(added);
+        removed.remove("newcomer");
+        legacyReactions.put("post:like", removed);
+        return removed.size();
+    }
+
+    @Benchmark
+    public boolean likeDelta() {
+        reactions.add(Verbs.Action.LIKE, "post", "newcomer");
+        reactions.remove(Verbs.Action.LIKE, "post", "newcomer");
+        return reactions.contains(Verbs.Action.LIKE, "post", "newcomer");
+    }
+
+    /** {@code InfinispanRelationStore.add/remove} as it was: copy the set and the user map. */
+    private boolean legacyRelationWrite(String otherUid, boolean add) {
+        Map<Relation, HashSet<String>> user = legacyRelations.get("star");
+        HashSet<String> next = new HashSet<>(user.get(Relation.FOLLOWERS));
+        boolean changed = add ? next.add(otherUid) : next.remove(otherUid);
+        Map<Relation, HashSet<String>> nextUser = new LinkedHashMap<>(user);
+        nextUser.put(Relation.FOLLOWERS, next);
+        legacyRelations.put("star", nextUser);
+        return changed;
+    }
+}
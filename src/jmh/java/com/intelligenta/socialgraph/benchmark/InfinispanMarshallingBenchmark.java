@@ -0,0 +1,114 @@
+package com.intelligenta.socialgraph.benchmark;
+
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import com.intelligenta.socialgraph.persistence.infinispan.FieldHash;
+import com.intelligenta.socialgraph.persistence.infinispan.RankedTimeline;
+import com.intelligenta.socialgraph.persistence.infinispan.RelationSets;
+import com.intelligenta.socialgraph.persistence.infinispan.SocialGraphSchema;
+import com.intelligenta.socialgraph.persistence.infinispan.SocialGraphSchemaImpl;
+import org.infinispan.protostream.ProtobufUtil;
+import org.infinispan.protostream.SerializationContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marshalling one cache value of each large kind: a ranked timeline of
+ * {@code size} entries, a user with {@code size} followers and a 12-field
+ * user hash with the generated ProtoStream marshallers. Each benchmark
+ * writes a value or reads back pre-written bytes. Payload sizes are bounded
+ * by {@code SocialGraphSchemaTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InfinispanMarshallingBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private SerializationContext ctx;
+    private RankedTimeline timeline;
+    private RelationSets relations;
+    private FieldHash user;
+    private byte[] timelineProto;
+    private byte[] relationsProto;
+    private byte[] userProto;
+
+    @Setup
+    public void setUp() throws IOException {
+        ctx = ProtobufUtil.newSerializationContext();
+        SocialGraphSchema schema = new SocialGraphSchemaImpl();
+        schema.registerSchema(ctx);
+        schema.registerMarshallers(ctx);
+
+        SplittableRandom random = new SplittableRandom(42);
+        timeline = new RankedTimeline();
+        relations = new RelationSets();
+        for (int i = 0; i < size; i++) {
+            timeline.put("post-" + i, random.nextDouble());
+            relations.members(Relation.FOLLOWERS).add("user-" + i);
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (String name : new String[]{"username", "uuid", "fullname", "email", "bio", "location", "website",
+                                        "profilePicture", "coverPicture", "birthdate", "polyCount", "activated"}) {
+            fields.put(name, name + "-value-" + random.nextInt(1_000_000));
+        }
+        user = new FieldHash(fields);
+
+        timelineProto = protoWrite(timeline);
+        relationsProto = protoWrite(relations);
+        userProto = protoWrite(user);
+    }
+
+    @Benchmark
+    public byte[] timelineWriteProto() throws IOException {
+        return protoWrite(timeline);
+    }
+
+    @Benchmark
+    public Object timelineReadProto() throws IOException {
+        return ProtobufUtil.fromWrappedByteArray(ctx, timelineProto);
+    }
+
+    @Benchmark
+    public byte[] relationsWriteProto() throws IOException {
+        return protoWrite(relations);
+    }
+
+    @Benchmark
+    public Object relationsReadProto() throws IOException {
+        return ProtobufUtil.fromWrappedByteArray(ctx, relationsProto);
+    }
+
+    @Benchmark
+    public byte[] userWriteProto() throws IOException {
+        return protoWrite(user);
+    }
+
+    @Benchmark
+    public Object userReadProto() throws IOException {
+        return ProtobufUtil.fromWrappedByteArray(ctx, userProto);
+    }
+
+    private byte[] protoWrite(Object value) throws IOException {
+        return ProtobufUtil.toWrappedByteArray(ctx, value);
+    }
+}
@@ -0,0 +1,114 @@
+package com.intelligenta.socialgraph.benchmark;
+
+import com.intelligenta.socialgraph.persistence.TimelineStore.Entry;
+import com.intelligenta.socialgraph.persistence.infinispan.RankedTimeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One user's ranked Infinispan timeline: the original
+ * {@code LinkedHashMap<postId, score>} value, copied on every push and
+ * sorted on every read, against {@link RankedTimeline}. Sizes are well past
+ * the default caps, as for an uncapped outbox or a raised
+ * {@code timeline.max-length}. A page is 20 entries; the seek starts from
+ * the middle of the timeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankedTimelineBenchmark {
+
+    private static final int PAGE = 20;
+
+    @Param({"10000", "100000"})
+    public int entries;
+
+    private LinkedHashMap<String, Double> legacy;
+    private RankedTimeline ranked;
+    private Entry middle;
+    private int pushed;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        legacy = new LinkedHashMap<>();
+        ranked = new RankedTimeline();
+        for (int i = 0; i < entries; i++) {
+            String postId = "post-" + i;
+            double score = random.nextDouble();
+            legacy.put(postId, score);
+            ranked.put(postId, score);
+        }
+        middle = ranked.slice(entries / 2, 1).getFirst();
+    }
+
+    /** Push before: copy the stored map, add, write the copy back. */
+    @Benchmark
+    public Map<String, Double> pushLegacy() {
+        LinkedHashMap<String, Double> next = new LinkedHashMap<>(legacy);
+        next.put("pushed-" + pushed++, 0.5);
+        return next;
+    }
+
+    /** Push now: insert in place; the new id is removed again to hold the size. */
+    @Benchmark
+    public RankedTimeline pushRanked() {
+        String postId = "pushed-" + pushed++;
+        ranked.put(postId, 0.5);
+        ranked.remove(postId);
+        return ranked;
+    }
+
+    @Benchmark
+    public List<Entry> firstPageLegacy() {
+        List<Entry> all = new ArrayList<>(legacy.size());
+        legacy.forEach((id, score) -> all.add(new Entry(id, score)));
+        all.sort(Entry.DESCENDING);
+        return new ArrayList<>(all.subList(0, Math.min(PAGE, all.size())));
+    }
+
+    @Benchmark
+    public List<Entry> firstPageRanked() {
+        return ranked.slice(0, PAGE);
+    }
+
+    /** Seek before: a bounded heap over every entry. */
+    @Benchmark
+    public List<Entry> seekLegacy() {
+        PriorityQueue<Entry> top = new PriorityQueue<>(PAGE + 1, Entry.DESCENDING.reversed());
+        for (Map.Entry<String, Double> e : legacy.entrySet()) {
+            Entry candidate = new Entry(e.getKey(), e.getValue());
+            if (Entry.DESCENDING.compare(candidate, middle) <= 0) continue;
+            top.add(candidate);
+            if (top.size() > PAGE) top.poll();
+        }
+        List<Entry> out = new ArrayList<>(top);
+        out.sort(Entry.DESCENDING);
+        return out;
+    }
+
+    @Benchmark
+    public List<Entry> seekRanked() {
+        return ranked.after(middle, PAGE);
+    }
+}
@@ -0,0 +1,100 @@
+package com.intelligenta.socialgraph.benchmark;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.config.TimelineResponseConverter;
+import com.intelligenta.socialgraph.model.TimelineEntry;
+import com.intelligenta.socialgraph.model.TimelineResponse;
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.service.PostFragments;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Writing a timeline page: Jackson over every {@link TimelineEntry} against
+ * {@link TimelineResponseConverter} copying cached {@link PostFragments} and
+ * serializing only the actor names. Run with {@code -prof gc} to compare
+ * allocation as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimelineRenderBenchmark {
+
+    @Param({"20", "100"})
+    public int entries;
+
+    private final JsonMapper json = JsonMapper.builder().build();
+    private TimelineResponseConverter converter;
+    private TimelineResponse plain;
+    private TimelineResponse withFragments;
+
+    @Setup
+    public void setUp() {
+        converter = new TimelineResponseConverter(json);
+        PostFragments fragments = new PostFragments(json, new NoBus(), new TimelineProperties());
+        List<TimelineEntry> plainEntries = new ArrayList<>(entries);
+        List<TimelineEntry> fragmentEntries = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            plainEntries.add(entry(i));
+            TimelineEntry e = entry(i);
+            e.setFragment(fragments.fragment(e, fragments.stamp()));
+            fragmentEntries.add(e);
+        }
+        plain = new TimelineResponse(plainEntries, entries, 3);
+        withFragments = new TimelineResponse(fragmentEntries, entries, 3);
+    }
+
+    /** The path before fragments: Spring's Jackson converter serializes the whole response. */
+    @Benchmark
+    public byte[] jackson() {
+        return json.writeValueAsBytes(plain);
+    }
+
+    @Benchmark
+    public byte[] fragments() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512 * entries);
+        converter.write(withFragments, out);
+        return out.toByteArray();
+    }
+
+    private static TimelineEntry entry(int i) {
+        TimelineEntry e = new TimelineEntry();
+        e.setUuid("6f1c2d3e-0000-4000-8000-" + String.format("%012d", i));
+        e.setType(i % 3 == 0 ? "photo" : "text");
+        e.setContent("Shipped the new timeline cache today, latency is down and the team is happy #" + i);
+        if (i % 3 == 0) {
+            e.setUrl("https://cdn.example.com/images/" + i + ".webp");
+            e.setImageUrls(List.of(e.getUrl(), "https://cdn.example.com/images/" + i + "-2.webp"));
+        }
+        e.setCreated(Long.toString(1_717_171_717L + i));
+        e.setActorUid("uid-" + (i % 7));
+        e.setActorUsername("user" + (i % 7));
+        e.setActorFullname("User Number " + (i % 7));
+        return e;
+    }
+
+    private static final class NoBus implements InvalidationBus {
+        @Override public void publish(String cache, String key) {}
+        @Override public void subscribe(String cache, Consumer<String> invalidate) {}
+    }
+}
@@ -0,0 +1,114 @@
+package com.intelligenta.socialgraph.benchmark;
+
+import com.intelligenta.socialgraph.service.ShareService;
+import com.intelligenta.socialgraph.util.TermFingerprint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Post tokenization and read-time keyword filtering: the original
+ * {@code BreakIterator} + {@code List.contains} tokenizer against
+ * {@link TermFingerprint}. The filter benchmarks model a viewer with a few
+ * negative keywords, none of which occur in the post (the common case, and
+ * the worst case for the lookup).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private static final String[] VOCABULARY = {
+        "timeline", "follower", "post", "weekend", "coffee", "release", "deploy", "graph",
+        "redis", "cache", "latency", "throughput", "morning", "launch", "team", "review",
+        "music", "travel", "photo", "update", "friday", "match", "score", "city",
+    };
+
+    @Param({"12", "60", "240"})
+    public int words;
+
+    private String text;
+    private long[] storedTerms;
+    private Set<String> keywords;
+    private long[] keywordHashes;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(i % 9 == 0 ? ". " : " ");
+            sb.append(VOCABULARY[(i * 7) % VOCABULARY.length]);
+            if (i % 5 == 0) sb.append(i);
+        }
+        text = sb.toString();
+        storedTerms = TermFingerprint.of(text);
+        keywords = Set.of("spoiler", "election", "crypto", "giveaway");
+        keywordHashes = keywords.stream().mapToLong(TermFingerprint::hash).sorted().toArray();
+    }
+
+    @Benchmark
+    public List<String> tokenizeLegacy() {
+        return legacyGetWords(text);
+    }
+
+    @Benchmark
+    public List<String> tokenizeGetWords() {
+        return ShareService.getWords(text);
+    }
+
+    @Benchmark
+    public long[] tokenizeFingerprint() {
+        return TermFingerprint.of(text);
+    }
+
+    /** Read path before fingerprints: re-tokenize, then one lookup per word. */
+    @Benchmark
+    public boolean filterLegacy() {
+        for (String word : legacyGetWords(text)) {
+            if (keywords.contains(word)) return true;
+        }
+        return false;
+    }
+
+    /** Read path with the stored fingerprint: one merge over two sorted arrays. */
+    @Benchmark
+    public boolean filterFingerprint() {
+        return TermFingerprint.intersects(storedTerms, keywordHashes);
+    }
+
+    /** {@code ShareService.getWords} as it was before term fingerprints. */
+    static List<String> legacyGetWords(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+
+        BreakIterator breakIterator = BreakIterator.getWordInstance();
+        breakIterator.setText(text);
+        int lastIndex = breakIterator.first();
+        while (BreakIterator.DONE != lastIndex) {
+            int firstIndex = lastIndex;
+            lastIndex = breakIterator.next();
+            if (lastIndex != BreakIterator.DONE && Character.isLetterOrDigit(text.charAt(firstIndex))) {
+                String word = text.substring(firstIndex, lastIndex);
+                if (!words.contains(word)) words.add(word);
+            }
+        }
+        return words;
+    }
+}
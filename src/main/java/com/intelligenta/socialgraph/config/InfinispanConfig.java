@@ -1,11 +1,15 @@
 package com.intelligenta.socialgraph.config;
 
+import com.intelligenta.socialgraph.persistence.infinispan.SocialGraphSchema;
+import com.intelligenta.socialgraph.persistence.infinispan.SocialGraphSchemaImpl;
 import org.infinispan.client.hotrod.RemoteCacheManager;
 import org.infinispan.client.hotrod.RemoteCounterManagerFactory;
 import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
 import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.StorageType;
 import org.infinispan.configuration.global.GlobalConfigurationBuilder;
 import org.infinispan.counter.api.CounterManager;
+import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.manager.DefaultCacheManager;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.slf4j.Logger;
@@ -14,6 +18,11 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Infinispan wiring. Active only when {@code persistence.provider=infinispan}.
  *
@@ -30,13 +39,12 @@ import org.springframework.context.annotation.Configuration;
  *   <li>{@link CounterManager} — derived from the remote manager so
  *   services can request strong/weak counters without handing them the
  *   underlying client.</li>
- *   <li>{@link EmbeddedCacheManager} — in-process local cache manager for
- *   the ephemeral tier (tokens, sessions, activation codes). Currently
- *   configured in LOCAL mode; the JGroups transport that lets app instances
- *   join the cluster and replicate short-lived data is added when the first
- *   ephemeral-tier store lands in phase I-E. The decoupling is deliberate:
- *   I-C proves the beans wire and one HotRod round-trip works; I-E picks
- *   the replication topology that fits the first real consumer.</li>
+ *   <li>{@link EmbeddedCacheManager} — the embedded caches behind the
+ *   native stores: the ephemeral tier (tokens, sessions, activation codes)
+ *   and the long-lived tier (users, posts, relations, timelines). LOCAL by
+ *   default; with {@code persistence.infinispan.cluster.enabled} the app
+ *   nodes form a JGroups cluster, long-lived caches are distributed and the
+ *   ephemeral tier is replicated.</li>
  * </ul>
  *
  * <p>Matches the AI-phase pattern of nested {@code @Configuration} classes
@@ -50,6 +58,21 @@ public class InfinispanConfig {
 
     private static final Logger log = LoggerFactory.getLogger(InfinispanConfig.class);
 
+    /** Read by the bundled {@code jgroups-tcp.xml} TCPPING discovery. */
+    static final String INITIAL_HOSTS_PROPERTY = "jgroups.tcpping.initial_hosts";
+
+    /**
+     * The cluster tier. The timeline caches share one topology, so a user's
+     * timelines are all owned by the same members (see
+     * InfinispanFanoutPartitioner).
+     */
+    static final List<String> LONG_LIVED_CACHES = List.of(
+        "users", "user-uid-index", "user-activity", "relations", "content-filters",
+        "posts", "post-replies", "post-images", "reactions", "reaction-lookups",
+        "timelines-fifo", "timelines-personal", "timelines-everyone", "timelines-fifo-ts",
+        "timelines-outbox", "timeline-pull-authors", "timelines-version", "timelines-outbox-version",
+        "fanout-jobs", "fanout-jobs-dlq", "devices");
+
     @Configuration
     @ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode", havingValue = "native")
     static class Native {
@@ -88,59 +111,140 @@ public class InfinispanConfig {
         }
 
         /**
-         * Embedded cache manager for the ephemeral tier (short-lived data:
-         * tokens, sessions, activation codes). LOCAL mode for phase I-C — no
-         * JGroups transport, single-JVM caching only. Phase I-E upgrades this
-         * to REPL/DIST with a JGroups transport once real services depend on
-         * it, at which point app instances join the same cluster as the
-         * dedicated Infinispan Server nodes and short-lived data replicates
-         * out for durability.
+         * Embedded cache manager for both tiers. With
+         * {@code persistence.infinispan.cluster.enabled=false} (the default)
+         * every cache is LOCAL and nothing is shared between app nodes.
+         * Enabled, the manager joins the JGroups cluster named
+         * {@code cluster-name} using {@code jgroups.stack-file}: long-lived
+         * caches become {@code DIST_SYNC} with {@code cluster.owners} copies
+         * of each entry, and tokens / sessions / activations are replicated
+         * (or distributed) according to {@code cluster.ephemeral-mode}.
+         * Long-lived caches are held within their {@code memory} budgets and,
+         * with {@code file-store.enabled}, passivate to a local file store
+         * (see {@link #longLived}).
          */
         @Bean(destroyMethod = "stop")
         public EmbeddedCacheManager embeddedCacheManager(PersistenceProperties props) {
             PersistenceProperties.Infinispan ispn = props.getInfinispan();
-            GlobalConfigurationBuilder global = new GlobalConfigurationBuilder();
+            PersistenceProperties.Infinispan.Cluster cluster = ispn.getCluster();
+            GlobalConfigurationBuilder global = cluster.isEnabled()
+                ? GlobalConfigurationBuilder.defaultClusteredBuilder()
+                : new GlobalConfigurationBuilder();
             global.cacheContainer().statistics(true);
             global.cacheManagerName(ispn.getClusterName() + "-embedded");
+            global.serialization().addContextInitializer(new SocialGraphSchemaImpl());
+            if (ispn.getFileStore().isEnabled()) {
+                global.globalState().persistentLocation(ispn.getFileStore().getLocation());
+            }
+            if (cluster.isEnabled()) transport(global, ispn);
 
-            EmbeddedCacheManager manager = new DefaultCacheManager(global.build());
+            CacheMode longLived = cluster.isEnabled() ? CacheMode.DIST_SYNC : CacheMode.LOCAL;
+            CacheMode shortLived = !cluster.isEnabled() ? CacheMode.LOCAL
+                : cluster.getEphemeralMode() == PersistenceProperties.Infinispan.Cluster.EphemeralMode.DIST
+                    ? CacheMode.DIST_SYNC : CacheMode.REPL_SYNC;
 
-            org.infinispan.configuration.cache.Configuration ephemeral =
-                new org.infinispan.configuration.cache.ConfigurationBuilder()
-                    .clustering().cacheMode(CacheMode.LOCAL)
-                    .expiration().lifespan(ispn.getEphemeralTtl().toMillis())
-                    .build();
+            org.infinispan.configuration.cache.ConfigurationBuilder ephemeralBuilder = topology(shortLived, cluster);
+            ephemeralBuilder.expiration().lifespan(ispn.getEphemeralTtl().toMillis());
+            org.infinispan.configuration.cache.Configuration ephemeral = ephemeralBuilder.build();
 
-            org.infinispan.configuration.cache.Configuration persistent =
-                new org.infinispan.configuration.cache.ConfigurationBuilder()
-                    .clustering().cacheMode(CacheMode.LOCAL)
-                    .build();
+            for (String name : ispn.getMemory().getCaches().keySet()) {
+                if (!LONG_LIVED_CACHES.contains(name)) {
+                    throw new IllegalStateException("persistence.infinispan.memory.caches." + name
+                        + " is not a long-lived cache; expected one of " + LONG_LIVED_CACHES);
+                }
+            }
+            Map<String, org.infinispan.configuration.cache.Configuration> persistent = new LinkedHashMap<>();
+            for (String name : LONG_LIVED_CACHES) persistent.put(name, longLived(name, longLived, ispn));
+
+            EmbeddedCacheManager manager = new DefaultCacheManager(global.build());
 
             // Ephemeral tier
             manager.defineConfiguration("tokens", ephemeral);
             manager.defineConfiguration("sessions", ephemeral);
             manager.defineConfiguration("activations", ephemeral);
 
-            // Cluster tier (LOCAL in phase I-D foundation; REPL/DIST when the
-            // JGroups transport is wired in the next phase-refresh).
-            manager.defineConfiguration("users", persistent);
-            manager.defineConfiguration("user-uid-index", persistent);
-            manager.defineConfiguration("relations", persistent);
-            manager.defineConfiguration("content-filters", persistent);
-            manager.defineConfiguration("posts", persistent);
-            manager.defineConfiguration("post-replies", persistent);
-            manager.defineConfiguration("post-images", persistent);
-            manager.defineConfiguration("reactions", persistent);
-            manager.defineConfiguration("reaction-lookups", persistent);
-            manager.defineConfiguration("timelines-fifo", persistent);
-            manager.defineConfiguration("timelines-personal", persistent);
-            manager.defineConfiguration("timelines-everyone", persistent);
-            manager.defineConfiguration("devices", persistent);
-            manager.defineConfiguration("counters", persistent);
-
-            log.info("Infinispan embedded cache manager started (LOCAL, ephemeral-ttl={})",
-                ispn.getEphemeralTtl());
+            // Cluster tier
+            persistent.forEach(manager::defineConfiguration);
+
+            log.info("Infinispan embedded cache manager started (long-lived={}, ephemeral={}, owners={}, "
+                    + "segments={}, ephemeral-ttl={}, file-store={})", longLived, shortLived, cluster.getOwners(),
+                cluster.getSegments(), ispn.getEphemeralTtl(),
+                ispn.getFileStore().isEnabled() ? ispn.getFileStore().getLocation() : "off");
             return manager;
         }
+
+        /**
+         * JGroups transport from {@code jgroups.stack-file}. The bundled
+         * {@code jgroups-tcp.xml} discovers members with TCPPING and reads
+         * its host list from the {@code jgroups.tcpping.initial_hosts}
+         * system property, which is set here from {@code jgroups.initial-hosts}.
+         * Cache values and write functions travel as ProtoStream, using the
+         * {@link SocialGraphSchema} registered for every manager.
+         */
+        private static void transport(GlobalConfigurationBuilder global, PersistenceProperties.Infinispan ispn) {
+            PersistenceProperties.Infinispan.JGroups jgroups = ispn.getJgroups();
+            if (!jgroups.getInitialHosts().isEmpty()) {
+                System.setProperty(INITIAL_HOSTS_PROPERTY, String.join(",", jgroups.getInitialHosts()));
+            }
+            global.transport()
+                .clusterName(ispn.getClusterName())
+                .addProperty("configurationFile", jgroups.getStackFile());
+        }
+
+        /**
+         * One long-lived cache: the shared topology, then the cache's memory
+         * budget and the file store. A {@code max-size} budget keeps entries
+         * off-heap as ProtoStream bytes, since only marshalled entries have a
+         * size to count; {@code max-count} keeps them as objects on the heap.
+         * Either evicts the least recently used entries once full. With the
+         * file store on, eviction is passivation: the entry moves to
+         * {@code <file-store.location>/<cache>} and is loaded back by the next
+         * read or write of its key. Memory settings don't affect which
+         * members own a key, so a user's timelines stay together whatever
+         * their budgets.
+         */
+        static org.infinispan.configuration.cache.Configuration longLived(
+                String name, CacheMode mode, PersistenceProperties.Infinispan ispn) {
+            org.infinispan.configuration.cache.ConfigurationBuilder builder = topology(mode, ispn.getCluster());
+            PersistenceProperties.Infinispan.Memory.Budget budget = ispn.getMemory().budget(name);
+            boolean fileStore = ispn.getFileStore().isEnabled();
+            if (budget.isBounded()) {
+                if (!fileStore) {
+                    throw new IllegalStateException("persistence.infinispan.memory budget for cache '" + name
+                        + "' requires persistence.infinispan.file-store.enabled; evicted entries would be lost");
+                }
+                if (budget.getMaxCount() > 0 && budget.getMaxSize() != null) {
+                    throw new IllegalStateException("persistence.infinispan.memory budget for cache '" + name
+                        + "' sets both max-count and max-size");
+                }
+                if (budget.getMaxSize() != null) {
+                    builder.memory().storage(StorageType.OFF_HEAP)
+                        .maxSize(String.valueOf(budget.getMaxSize().toBytes()));
+                } else {
+                    builder.memory().maxCount(budget.getMaxCount());
+                }
+                builder.memory().whenFull(EvictionStrategy.REMOVE);
+            }
+            if (fileStore) {
+                // Relative locations resolve against the global persistent location.
+                builder.persistence().passivation(true)
+                    .addSoftIndexFileStore()
+                    .dataLocation(Path.of(name, "data").toString())
+                    .indexLocation(Path.of(name, "index").toString())
+                    .shared(false)
+                    .purgeOnStartup(false);
+            }
+            return builder.build();
+        }
+
+        private static org.infinispan.configuration.cache.ConfigurationBuilder topology(
+                CacheMode mode, PersistenceProperties.Infinispan.Cluster cluster) {
+            org.infinispan.configuration.cache.ConfigurationBuilder builder =
+                new org.infinispan.configuration.cache.ConfigurationBuilder();
+            builder.clustering().cacheMode(mode);
+            if (mode.isClustered()) builder.clustering().hash().numSegments(cluster.getSegments());
+            if (mode.isDistributed()) builder.clustering().hash().numOwners(cluster.getOwners());
+            return builder;
+        }
     }
 }
@@ -2,10 +2,13 @@ package com.intelligenta.socialgraph.config;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Persistence backend selection. Routes the app between the default Redis Stack
@@ -23,9 +26,26 @@ import org.springframework.context.annotation.Configuration;
  *     resp-password: ""
  *     ephemeral-ttl: PT24H
  *     transactional-by-default: false
+ *     cluster:                       # embedded cache topology (native mode)
+ *       enabled: false               # LOCAL caches when false
+ *       owners: 2                    # copies of each long-lived entry (DIST_SYNC)
+ *       segments: 256
+ *       ephemeral-mode: repl         # tokens / sessions / activations: repl or dist
  *     jgroups:
  *       stack-file: jgroups-tcp.xml
  *       initial-hosts: host1[7800],host2[7800]
+ *     file-store:                    # passivation tier of the long-lived caches
+ *       enabled: false
+ *       location: data/infinispan
+ *     memory:                        # per-cache in-memory budgets (need file-store)
+ *       defaults: { max-count: -1 }  # -1 and no max-size: unbounded
+ *       caches:
+ *         posts:              { max-size: 256MB }
+ *         timelines-personal: { max-count: 100000 }
+ *   near-cache:                      # in-process read caches in front of the stores
+ *     posts:     { enabled: true,  max-size: 50000, ttl: PT1M }
+ *     users:     { enabled: true,  max-size: 50000, ttl: PT5M }
+ *     relations: { enabled: false, max-size: 10000, ttl: PT1M }
  * </pre>
  *
  * <p>Every field is env-overridable via {@code PERSISTENCE_*} and
@@ -45,6 +65,7 @@ public class PersistenceProperties {
 
     private Provider provider = Provider.REDIS;
     private Infinispan infinispan = new Infinispan();
+    private NearCache nearCache = new NearCache();
 
     public Provider getProvider() { return provider; }
     public void setProvider(Provider provider) { this.provider = provider; }
@@ -52,6 +73,9 @@ public class PersistenceProperties {
     public Infinispan getInfinispan() { return infinispan; }
     public void setInfinispan(Infinispan infinispan) { this.infinispan = infinispan; }
 
+    public NearCache getNearCache() { return nearCache; }
+    public void setNearCache(NearCache nearCache) { this.nearCache = nearCache; }
+
     public enum Provider {
         /** Redis Stack via Lettuce (current behaviour, default). */
         REDIS,
@@ -74,7 +98,10 @@ public class PersistenceProperties {
         private String embeddedConfigFile = "infinispan-embedded.xml";
         private Duration ephemeralTtl = Duration.ofHours(24);
         private boolean transactionalByDefault = false;
+        private Cluster cluster = new Cluster();
         private JGroups jgroups = new JGroups();
+        private FileStore fileStore = new FileStore();
+        private Memory memory = new Memory();
 
         public ClientMode getClientMode() { return clientMode; }
         public void setClientMode(ClientMode clientMode) { this.clientMode = clientMode; }
@@ -118,9 +145,18 @@ public class PersistenceProperties {
         public boolean isTransactionalByDefault() { return transactionalByDefault; }
         public void setTransactionalByDefault(boolean transactionalByDefault) { this.transactionalByDefault = transactionalByDefault; }
 
+        public Cluster getCluster() { return cluster; }
+        public void setCluster(Cluster cluster) { this.cluster = cluster; }
+
         public JGroups getJgroups() { return jgroups; }
         public void setJgroups(JGroups jgroups) { this.jgroups = jgroups; }
 
+        public FileStore getFileStore() { return fileStore; }
+        public void setFileStore(FileStore fileStore) { this.fileStore = fileStore; }
+
+        public Memory getMemory() { return memory; }
+        public void setMemory(Memory memory) { this.memory = memory; }
+
         public enum ClientMode {
             /**
              * Drop-in Redis compatibility — existing Lettuce client talks to
@@ -139,6 +175,40 @@ public class PersistenceProperties {
             NATIVE
         }
 
+        /**
+         * Topology of the embedded caches. Disabled, every cache is LOCAL and
+         * app nodes share nothing. Enabled, the manager joins the JGroups
+         * cluster {@code cluster-name}: long-lived caches are
+         * {@code DIST_SYNC} with {@code owners} copies of each entry, and
+         * the ephemeral tier is replicated to every node (or distributed,
+         * for large deployments).
+         */
+        public static class Cluster {
+            private boolean enabled = false;
+            private int owners = 2;
+            private int segments = 256;
+            private EphemeralMode ephemeralMode = EphemeralMode.REPL;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public int getOwners() { return owners; }
+            public void setOwners(int owners) { this.owners = owners; }
+
+            public int getSegments() { return segments; }
+            public void setSegments(int segments) { this.segments = segments; }
+
+            public EphemeralMode getEphemeralMode() { return ephemeralMode; }
+            public void setEphemeralMode(EphemeralMode ephemeralMode) { this.ephemeralMode = ephemeralMode; }
+
+            public enum EphemeralMode {
+                /** {@code REPL_SYNC}: every node holds every token and session. */
+                REPL,
+                /** {@code DIST_SYNC} with the same owner count as the long-lived tier. */
+                DIST
+            }
+        }
+
         public static class JGroups {
             private String stackFile = "jgroups-tcp.xml";
             private List<String> initialHosts = new ArrayList<>();
@@ -149,5 +219,111 @@ public class PersistenceProperties {
             public List<String> getInitialHosts() { return initialHosts; }
             public void setInitialHosts(List<String> initialHosts) { this.initialHosts = initialHosts; }
         }
+
+        /**
+         * Local {@code SoftIndexFileStore} behind every long-lived cache, with
+         * passivation: an entry evicted by its {@link Memory} budget is
+         * written here and read back on the next access, and a clean shutdown
+         * writes out whatever is still in memory. Each node keeps its own
+         * store under {@code location}, one directory per cache; with
+         * clustering on, it holds the segments that node owns.
+         */
+        public static class FileStore {
+            private boolean enabled = false;
+            private String location = "data/infinispan";
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public String getLocation() { return location; }
+            public void setLocation(String location) { this.location = location; }
+        }
+
+        /**
+         * In-memory budgets of the long-lived caches. {@code caches} entries,
+         * keyed by cache name, replace {@code defaults} for that cache. A
+         * budget evicts the least recently used entries, so it needs the
+         * {@link FileStore}: without it an evicted post or timeline would be
+         * gone.
+         */
+        public static class Memory {
+            private Budget defaults = new Budget();
+            private Map<String, Budget> caches = new LinkedHashMap<>();
+
+            public Budget getDefaults() { return defaults; }
+            public void setDefaults(Budget defaults) { this.defaults = defaults; }
+
+            public Map<String, Budget> getCaches() { return caches; }
+            public void setCaches(Map<String, Budget> caches) { this.caches = caches; }
+
+            public Budget budget(String cache) { return caches.getOrDefault(cache, defaults); }
+
+            /**
+             * At most one of {@code max-count} (entries, kept on heap) and
+             * {@code max-size} (bytes, kept off-heap in marshalled form, which
+             * is what makes the size measurable). Neither: unbounded.
+             */
+            public static class Budget {
+                private long maxCount = -1;
+                private DataSize maxSize;
+
+                public Budget() { }
+
+                public Budget(long maxCount, DataSize maxSize) {
+                    this.maxCount = maxCount;
+                    this.maxSize = maxSize;
+                }
+
+                public long getMaxCount() { return maxCount; }
+                public void setMaxCount(long maxCount) { this.maxCount = maxCount; }
+
+                public DataSize getMaxSize() { return maxSize; }
+                public void setMaxSize(DataSize maxSize) { this.maxSize = maxSize; }
+
+                public boolean isBounded() { return maxCount > 0 || maxSize != null; }
+            }
+        }
+    }
+
+    /**
+     * Per-store near caches. Relation sets can be large (a popular user's
+     * followers), so that cache is off unless sized deliberately.
+     */
+    public static class NearCache {
+        private Store posts = new Store(true, 50_000, Duration.ofMinutes(1));
+        private Store users = new Store(true, 50_000, Duration.ofMinutes(5));
+        private Store relations = new Store(false, 10_000, Duration.ofMinutes(1));
+
+        public Store getPosts() { return posts; }
+        public void setPosts(Store posts) { this.posts = posts; }
+
+        public Store getUsers() { return users; }
+        public void setUsers(Store users) { this.users = users; }
+
+        public Store getRelations() { return relations; }
+        public void setRelations(Store relations) { this.relations = relations; }
+
+        public static class Store {
+            private boolean enabled;
+            private int maxSize;
+            private Duration ttl;
+
+            public Store() { this(false, 10_000, Duration.ofMinutes(1)); }
+
+            public Store(boolean enabled, int maxSize, Duration ttl) {
+                this.enabled = enabled;
+                this.maxSize = maxSize;
+                this.ttl = ttl;
+            }
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public int getMaxSize() { return maxSize; }
+            public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+            public Duration getTtl() { return ttl; }
+            public void setTtl(Duration ttl) { this.ttl = ttl; }
+        }
     }
 }
@@ -0,0 +1,306 @@
+package com.intelligenta.socialgraph.config;
+
+import java.time.Duration;
+
+import com.intelligenta.socialgraph.persistence.TimelineStore;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Timeline delivery and read-path tuning.
+ *
+ * <pre>
+ * timeline:
+ *   pipeline-batch-size: 1000      # recipients per Redis pipeline flush in pushMany
+ *   fanout:
+ *     async: true                  # false = deliver inline on the request thread
+ *     chunk-size: 500              # followers per delivery chunk
+ *     max-concurrency: 8           # chunks in flight across all posts
+ *     progress-retention: 1000     # completed per-post progress records kept in memory
+ *     shutdown-timeout: PT30S
+ *     queue:
+ *       enabled: false             # true = durable, resumable jobs when the backend supports them
+ *       workers: 2                 # jobs consumed concurrently per instance
+ *       lease: PT1M                # a job with no checkpoint for this long is taken over
+ *       max-attempts: 5            # then the job is dead-lettered
+ *       poll-interval: PT1S
+ *   pull:
+ *     follower-threshold: 10000    # authors at/above this are pulled at read time; 0 = always push
+ *     registry-refresh: PT10S      # how long reads reuse the pull-author registry before re-reading it
+ *   max-length:                    # per-kind cap enforced on every push; 0 = unbounded
+ *     fifo: 1000
+ *     personal-importance: 1000
+ *     everyone-importance: 1000
+ *     outbox: 1000                 # posts kept per author outbox (read when pulling)
+ *   compaction:
+ *     enabled: true                # background trim of timelines that predate the caps
+ *     initial-delay: PT5M
+ *     interval: PT6H
+ *     parallelism: 8               # timelines trimmed concurrently
+ *   keyword-filter:
+ *     cache-size: 10000            # users whose compiled negative keywords are kept in memory
+ *     ttl: PT5M                    # bounds staleness of keywords added on another instance
+ *   policy:
+ *     reply-audience: true         # replies reach only followers who also follow the parent's author
+ *     reshare-dedupe: true         # reshares skip timelines that already hold the original
+ *   fragments:
+ *     enabled: true                # cache each post's rendered JSON for timeline responses
+ *     max-size: 100000             # posts whose fragment is kept in memory
+ *     ttl: PT10M                   # bounds staleness if an edit's invalidation is missed
+ *   fill:
+ *     max-rounds: 3                # reads per cursor page while filtered entries leave it short; 1 = no refill
+ *     max-over-fetch: 4.0          # cap on the learned over-fetch factor; 1 = read exactly count
+ *     cache-size: 10000            # viewers whose filter rate is kept in memory
+ *     ttl: PT30M                   # idle viewers start again without over-fetch
+ *   hydration:
+ *     parallel: false              # true = one virtual thread per entry instead of batched reads
+ *     parallelism: 16              # entries hydrated at once per request in parallel mode
+ *     deadline: PT2S               # entries still loading after this are left out of the page
+ *   stream:
+ *     chunk-size: 5                # entries hydrated per batch before streamed responses write them
+ * </pre>
+ *
+ * <p>Every field is env-overridable via {@code TIMELINE_*} environment
+ * variables (uppercase, hyphens → underscores).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "timeline")
+public class TimelineProperties {
+
+    private int pipelineBatchSize = 1000;
+    private Fanout fanout = new Fanout();
+    private Pull pull = new Pull();
+    private MaxLength maxLength = new MaxLength();
+    private Compaction compaction = new Compaction();
+    private KeywordFilter keywordFilter = new KeywordFilter();
+    private Policy policy = new Policy();
+    private Fragments fragments = new Fragments();
+    private Fill fill = new Fill();
+    private Hydration hydration = new Hydration();
+    private Stream stream = new Stream();
+
+    public int getPipelineBatchSize() { return pipelineBatchSize; }
+    public void setPipelineBatchSize(int pipelineBatchSize) { this.pipelineBatchSize = pipelineBatchSize; }
+
+    public Fanout getFanout() { return fanout; }
+    public void setFanout(Fanout fanout) { this.fanout = fanout; }
+
+    public Pull getPull() { return pull; }
+    public void setPull(Pull pull) { this.pull = pull; }
+
+    public MaxLength getMaxLength() { return maxLength; }
+    public void setMaxLength(MaxLength maxLength) { this.maxLength = maxLength; }
+
+    public Compaction getCompaction() { return compaction; }
+    public void setCompaction(Compaction compaction) { this.compaction = compaction; }
+
+    public KeywordFilter getKeywordFilter() { return keywordFilter; }
+    public void setKeywordFilter(KeywordFilter keywordFilter) { this.keywordFilter = keywordFilter; }
+
+    public Policy getPolicy() { return policy; }
+    public void setPolicy(Policy policy) { this.policy = policy; }
+
+    public Fragments getFragments() { return fragments; }
+    public void setFragments(Fragments fragments) { this.fragments = fragments; }
+
+    public Fill getFill() { return fill; }
+    public void setFill(Fill fill) { this.fill = fill; }
+
+    public Hydration getHydration() { return hydration; }
+    public void setHydration(Hydration hydration) { this.hydration = hydration; }
+
+    public Stream getStream() { return stream; }
+    public void setStream(Stream stream) { this.stream = stream; }
+
+    public static class Fanout {
+        private boolean async = true;
+        private int chunkSize = 500;
+        private int maxConcurrency = 8;
+        private int progressRetention = 1000;
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+        private Queue queue = new Queue();
+
+        public boolean isAsync() { return async; }
+        public void setAsync(boolean async) { this.async = async; }
+
+        public int getChunkSize() { return chunkSize; }
+        public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+        public int getMaxConcurrency() { return maxConcurrency; }
+        public void setMaxConcurrency(int maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+
+        public int getProgressRetention() { return progressRetention; }
+        public void setProgressRetention(int progressRetention) { this.progressRetention = progressRetention; }
+
+        public Duration getShutdownTimeout() { return shutdownTimeout; }
+        public void setShutdownTimeout(Duration shutdownTimeout) { this.shutdownTimeout = shutdownTimeout; }
+
+        public Queue getQueue() { return queue; }
+        public void setQueue(Queue queue) { this.queue = queue; }
+    }
+
+    /**
+     * Durable fan-out jobs. Off by default: a queued job runs on whichever
+     * instance claims it, and {@code GET /api/posts/{postId}/fanout} only
+     * sees jobs run by the instance that serves the request.
+     */
+    public static class Queue {
+        private boolean enabled = false;
+        private int workers = 2;
+        private Duration lease = Duration.ofMinutes(1);
+        private int maxAttempts = 5;
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getWorkers() { return workers; }
+        public void setWorkers(int workers) { this.workers = workers; }
+
+        public Duration getLease() { return lease; }
+        public void setLease(Duration lease) { this.lease = lease; }
+
+        public int getMaxAttempts() { return maxAttempts; }
+        public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+
+        public Duration getPollInterval() { return pollInterval; }
+        public void setPollInterval(Duration pollInterval) { this.pollInterval = pollInterval; }
+    }
+
+    public static class Pull {
+        private long followerThreshold = 10_000;
+        private Duration registryRefresh = Duration.ofSeconds(10);
+
+        public long getFollowerThreshold() { return followerThreshold; }
+        public void setFollowerThreshold(long followerThreshold) { this.followerThreshold = followerThreshold; }
+
+        public Duration getRegistryRefresh() { return registryRefresh; }
+        public void setRegistryRefresh(Duration registryRefresh) { this.registryRefresh = registryRefresh; }
+    }
+
+    public static class MaxLength {
+        private int fifo = 1000;
+        private int personalImportance = 1000;
+        private int everyoneImportance = 1000;
+        private int outbox = 1000;
+
+        public int getFifo() { return fifo; }
+        public void setFifo(int fifo) { this.fifo = fifo; }
+
+        public int getPersonalImportance() { return personalImportance; }
+        public void setPersonalImportance(int personalImportance) { this.personalImportance = personalImportance; }
+
+        public int getEveryoneImportance() { return everyoneImportance; }
+        public void setEveryoneImportance(int everyoneImportance) { this.everyoneImportance = everyoneImportance; }
+
+        /** Cap on each author's outbox; {@code 0} or negative means unbounded. */
+        public int getOutbox() { return outbox; }
+        public void setOutbox(int outbox) { this.outbox = outbox; }
+
+        /** Cap for {@code kind}; {@code 0} or negative means unbounded. */
+        public int forKind(TimelineStore.Kind kind) {
+            return switch (kind) {
+                case FIFO -> fifo;
+                case PERSONAL_IMPORTANCE -> personalImportance;
+                case EVERYONE_IMPORTANCE -> everyoneImportance;
+            };
+        }
+    }
+
+    public static class Compaction {
+        private boolean enabled = true;
+        private Duration initialDelay = Duration.ofMinutes(5);
+        private Duration interval = Duration.ofHours(6);
+        private int parallelism = 8;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public Duration getInitialDelay() { return initialDelay; }
+        public void setInitialDelay(Duration initialDelay) { this.initialDelay = initialDelay; }
+
+        public Duration getInterval() { return interval; }
+        public void setInterval(Duration interval) { this.interval = interval; }
+
+        public int getParallelism() { return parallelism; }
+        public void setParallelism(int parallelism) { this.parallelism = parallelism; }
+    }
+
+    public static class KeywordFilter {
+        private int cacheSize = 10_000;
+        private Duration ttl = Duration.ofMinutes(5);
+
+        public int getCacheSize() { return cacheSize; }
+        public void setCacheSize(int cacheSize) { this.cacheSize = cacheSize; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+    }
+
+    public static class Policy {
+        private boolean replyAudience = true;
+        private boolean reshareDedupe = true;
+
+        public boolean isReplyAudience() { return replyAudience; }
+        public void setReplyAudience(boolean replyAudience) { this.replyAudience = replyAudience; }
+
+        public boolean isReshareDedupe() { return reshareDedupe; }
+        public void setReshareDedupe(boolean reshareDedupe) { this.reshareDedupe = reshareDedupe; }
+    }
+
+    public static class Fragments {
+        private boolean enabled = true;
+        private int maxSize = 100_000;
+        private Duration ttl = Duration.ofMinutes(10);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMaxSize() { return maxSize; }
+        public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+    }
+
+    public static class Fill {
+        private int maxRounds = 3;
+        private double maxOverFetch = 4.0;
+        private int cacheSize = 10_000;
+        private Duration ttl = Duration.ofMinutes(30);
+
+        public int getMaxRounds() { return maxRounds; }
+        public void setMaxRounds(int maxRounds) { this.maxRounds = maxRounds; }
+
+        public double getMaxOverFetch() { return maxOverFetch; }
+        public void setMaxOverFetch(double maxOverFetch) { this.maxOverFetch = maxOverFetch; }
+
+        public int getCacheSize() { return cacheSize; }
+        public void setCacheSize(int cacheSize) { this.cacheSize = cacheSize; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+    }
+
+    public static class Hydration {
+        private boolean parallel = false;
+        private int parallelism = 16;
+        private Duration deadline = Duration.ofSeconds(2);
+
+        public boolean isParallel() { return parallel; }
+        public void setParallel(boolean parallel) { this.parallel = parallel; }
+
+        public int getParallelism() { return parallelism; }
+        public void setParallelism(int parallelism) { this.parallelism = parallelism; }
+
+        public Duration getDeadline() { return deadline; }
+        public void setDeadline(Duration deadline) { this.deadline = deadline; }
+    }
+
+    public static class Stream {
+        private int chunkSize = 5;
+
+        public int getChunkSize() { return chunkSize; }
+        public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+    }
+}
@@ -0,0 +1,108 @@
+package com.intelligenta.socialgraph.config;
+
+import com.intelligenta.socialgraph.model.TimelineEntry;
+import com.intelligenta.socialgraph.model.TimelineResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes {@link TimelineResponse} bodies. Entries that carry a cached
+ * fragment (see {@code PostFragments}) are copied to the output as bytes and
+ * only the actor's username and full name are serialized; entries without
+ * one go through Jackson as before. The JSON is the same either way.
+ * Registered ahead of the default Jackson converter by being a bean.
+ */
+@Component
+public class TimelineResponseConverter extends AbstractHttpMessageConverter<TimelineResponse> {
+
+    private static final byte[] ENTITIES = bytes("{\"entities\":");
+    private static final byte[] COUNT = bytes(",\"count\":");
+    private static final byte[] DURATION = bytes(",\"duration\":");
+    private static final byte[] NEXT_CURSOR = bytes(",\"nextCursor\":");
+    private static final byte[] ACTOR_USERNAME = bytes(",\"actorUsername\":");
+    private static final byte[] ACTOR_FULLNAME = bytes(",\"actorFullname\":");
+
+    private final JsonMapper json;
+
+    public TimelineResponseConverter(JsonMapper json) {
+        super(MediaType.APPLICATION_JSON);
+        this.json = json;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return TimelineResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected TimelineResponse readInternal(Class<? extends TimelineResponse> clazz, HttpInputMessage input) {
+        throw new HttpMessageNotReadableException("TimelineResponse is write-only", input);
+    }
+
+    @Override
+    protected void writeInternal(TimelineResponse response, HttpOutputMessage output) throws IOException {
+        write(response, output.getBody());
+    }
+
+    public void write(TimelineResponse response, OutputStream out) throws IOException {
+        out.write(ENTITIES);
+        List<TimelineEntry> entities = response.getEntities();
+        if (entities == null) {
+            out.write(json.writeValueAsBytes(null));
+        } else {
+            out.write('[');
+            for (int i = 0; i < entities.size(); i++) {
+                if (i > 0) out.write(',');
+                writeEntry(entities.get(i), out);
+            }
+            out.write(']');
+        }
+        out.write(COUNT);
+        out.write(bytes(Integer.toString(response.getCount())));
+        out.write(DURATION);
+        out.write(bytes(Long.toString(response.getDuration())));
+        if (response.getNextCursor() != null) {
+            out.write(NEXT_CURSOR);
+            out.write(json.writeValueAsBytes(response.getNextCursor()));
+        }
+        out.write('}');
+    }
+
+    /** One entry's JSON object, from its fragment when it has one. */
+    public void writeEntry(TimelineEntry entry, OutputStream out) throws IOException {
+        byte[] fragment = entry.getFragment();
+        if (fragment == null) {
+            out.write(json.writeValueAsBytes(entry));
+            return;
+        }
+        out.write(fragment);
+        if (entry.getActorUsername() != null) {
+            out.write(ACTOR_USERNAME);
+            out.write(json.writeValueAsBytes(entry.getActorUsername()));
+        }
+        if (entry.getActorFullname() != null) {
+            out.write(ACTOR_FULLNAME);
+            out.write(json.writeValueAsBytes(entry.getActorFullname()));
+        }
+        out.write('}');
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
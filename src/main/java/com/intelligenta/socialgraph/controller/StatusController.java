@@ -1,9 +1,13 @@
 package com.intelligenta.socialgraph.controller;
 
 import com.intelligenta.socialgraph.config.EmbeddingProperties;
+import com.intelligenta.socialgraph.model.FanoutProgress;
+import com.intelligenta.socialgraph.persistence.cache.NearCache;
+import com.intelligenta.socialgraph.persistence.cache.NearCacheStores;
 import com.intelligenta.socialgraph.security.AuthenticatedUser;
 import com.intelligenta.socialgraph.service.ShareService;
 import com.intelligenta.socialgraph.service.TimelineService;
+import com.intelligenta.socialgraph.service.UserService;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -26,17 +30,23 @@ public class StatusController {
 
     private final ShareService shareService;
     private final TimelineService timelineService;
+    private final UserService userService;
     private final StringRedisTemplate redisTemplate;
     private final EmbeddingProperties embeddingProperties;
+    private final NearCacheStores nearCaches;
 
     public StatusController(ShareService shareService,
                             TimelineService timelineService,
+                            UserService userService,
                             StringRedisTemplate redisTemplate,
-                            EmbeddingProperties embeddingProperties) {
+                            EmbeddingProperties embeddingProperties,
+                            NearCacheStores nearCaches) {
         this.shareService = shareService;
         this.timelineService = timelineService;
+        this.userService = userService;
         this.redisTemplate = redisTemplate;
         this.embeddingProperties = embeddingProperties;
+        this.nearCaches = nearCaches;
     }
 
     /**
@@ -150,6 +160,24 @@ public class StatusController {
         return ResponseEntity.ok(timelineService.getReplies(user.getUid(), postId, index, count));
     }
 
+    /**
+     * Follower fan-out progress for one of the caller's own posts.
+     */
+    @GetMapping("/posts/{postId}/fanout")
+    public ResponseEntity<FanoutProgress> getFanoutProgress(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @PathVariable String postId) {
+        return ResponseEntity.ok(shareService.getFanoutProgress(user.getUid(), postId));
+    }
+
+    /**
+     * Hit, miss and invalidation counts of this instance's near caches.
+     */
+    @GetMapping("/status/caches")
+    public ResponseEntity<List<NearCache.Stats>> getCacheStats() {
+        return ResponseEntity.ok(nearCaches.stats());
+    }
+
     /**
      * Reply to a post.
      */
@@ -233,13 +261,8 @@ public class StatusController {
         Map<String, String> response = new HashMap<>();
         response.put("keyword", keyword);
         
-        Boolean added = redisTemplate.opsForHash().putIfAbsent(
-            "user:" + user.getUid() + ":negative:keywords", 
-            keyword, 
-            keyword
-        );
-        
-        response.put("added", Boolean.TRUE.equals(added) ? "true" : "false");
+        boolean added = userService.addNegativeKeyword(user.getUid(), keyword);
+        response.put("added", String.valueOf(added));
         return ResponseEntity.ok(response);
     }
 
@@ -266,13 +289,8 @@ public class StatusController {
         Map<String, String> response = new HashMap<>();
         response.put("imageHash", imageHash);
         
-        Boolean added = redisTemplate.opsForHash().putIfAbsent(
-            "user:" + user.getUid() + ":images:blocked:md5", 
-            imageHash,
-            imageHash
-        );
-        
-        response.put("added", Boolean.TRUE.equals(added) ? "true" : "false");
+        boolean added = userService.blockImage(user.getUid(), imageHash);
+        response.put("added", String.valueOf(added));
         return ResponseEntity.ok(response);
     }
 }
@@ -1,14 +1,26 @@
 package com.intelligenta.socialgraph.controller;
 
 import com.intelligenta.socialgraph.model.TimelineResponse;
+import com.intelligenta.socialgraph.model.TimelineUpdates;
 import com.intelligenta.socialgraph.security.AuthenticatedUser;
 import com.intelligenta.socialgraph.service.TimelineService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 /**
- * Controller for timeline endpoints.
+ * Controller for timeline endpoints. Each list endpoint pages either by
+ * {@code index}/{@code count} (the original contract) or, when {@code cursor}
+ * is sent or {@code index} is omitted, by cursor: the response's
+ * {@code nextCursor} is passed back as {@code cursor} for the next page.
+ *
+ * <p>The viewer's timelines carry a weak {@code ETag} of their timeline
+ * version and the request's ordering and page, so a tag only matches the
+ * page it came from. A request whose {@code If-None-Match} still matches
+ * gets {@code 304 Not Modified} before anything is read from the timeline
+ * or post stores.
  */
 @RestController
 @RequestMapping("/api")
@@ -26,10 +38,16 @@ public class TimelineController {
     @GetMapping("/timeline")
     public ResponseEntity<TimelineResponse> getTimeline(
             @AuthenticationPrincipal AuthenticatedUser user,
-            @RequestParam int index,
-            @RequestParam int count) {
-        TimelineResponse response = timelineService.getFifoTimeline(user.getUid(), index, count);
-        return ResponseEntity.ok(response);
+            @RequestParam(required = false) Integer index,
+            @RequestParam int count,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etag(user.getUid(), "fifo", index, cursor, count);
+        if (matches(ifNoneMatch, etag)) return notModified(etag);
+        TimelineResponse response = offsetPaged(index, cursor)
+            ? timelineService.getFifoTimeline(user.getUid(), index, count)
+            : timelineService.getFifoTimeline(user.getUid(), cursor, count);
+        return ResponseEntity.ok().eTag(etag).body(response);
     }
 
     /**
@@ -38,11 +56,18 @@ public class TimelineController {
     @GetMapping("/timeline/personal")
     public ResponseEntity<TimelineResponse> getPersonalTimeline(
             @AuthenticationPrincipal AuthenticatedUser user,
-            @RequestParam int index,
-            @RequestParam int count) {
-        TimelineResponse response = timelineService.getSocialImportanceTimeline(
-            user.getUid(), index, count, TimelineService.Importance.PERSONAL);
-        return ResponseEntity.ok(response);
+            @RequestParam(required = false) Integer index,
+            @RequestParam int count,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etag(user.getUid(), "personal", index, cursor, count);
+        if (matches(ifNoneMatch, etag)) return notModified(etag);
+        TimelineResponse response = offsetPaged(index, cursor)
+            ? timelineService.getSocialImportanceTimeline(
+                user.getUid(), index, count, TimelineService.Importance.PERSONAL)
+            : timelineService.getSocialImportanceTimeline(
+                user.getUid(), cursor, count, TimelineService.Importance.PERSONAL);
+        return ResponseEntity.ok().eTag(etag).body(response);
     }
 
     /**
@@ -51,10 +76,81 @@ public class TimelineController {
     @GetMapping("/timeline/everyone")
     public ResponseEntity<TimelineResponse> getEveryoneTimeline(
             @AuthenticationPrincipal AuthenticatedUser user,
-            @RequestParam int index,
-            @RequestParam int count) {
-        TimelineResponse response = timelineService.getSocialImportanceTimeline(
-            user.getUid(), index, count, TimelineService.Importance.EVERYONE);
+            @RequestParam(required = false) Integer index,
+            @RequestParam int count,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etag(user.getUid(), "everyone", index, cursor, count);
+        if (matches(ifNoneMatch, etag)) return notModified(etag);
+        TimelineResponse response = offsetPaged(index, cursor)
+            ? timelineService.getSocialImportanceTimeline(
+                user.getUid(), index, count, TimelineService.Importance.EVERYONE)
+            : timelineService.getSocialImportanceTimeline(
+                user.getUid(), cursor, count, TimelineService.Importance.EVERYONE);
+        return ResponseEntity.ok().eTag(etag).body(response);
+    }
+
+    /**
+     * How many entries have reached the caller's timeline since
+     * {@code since}, a version taken from a timeline {@code ETag} (its
+     * leading number) or an earlier call.
+     */
+    @GetMapping("/timeline/updates")
+    public ResponseEntity<TimelineUpdates> getTimelineUpdates(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(defaultValue = "0") long since) {
+        return ResponseEntity.ok(timelineService.updatesSince(user.getUid(), since));
+    }
+
+    /**
+     * List a user's own posts, newest first.
+     */
+    @GetMapping("/users/{uid}/posts")
+    public ResponseEntity<TimelineResponse> getUserPosts(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @PathVariable String uid,
+            @RequestParam(required = false) Integer index,
+            @RequestParam int count,
+            @RequestParam(required = false) String cursor) {
+        TimelineResponse response = offsetPaged(index, cursor)
+            ? timelineService.getUserPosts(user.getUid(), uid, index, count)
+            : timelineService.getUserPosts(user.getUid(), uid, cursor, count);
         return ResponseEntity.ok(response);
     }
+
+    private static boolean offsetPaged(Integer index, String cursor) {
+        return index != null && cursor == null;
+    }
+
+    /**
+     * {@code W/"<tag>-<page>"}: the viewer's {@link TimelineService#timelineTag}
+     * and a hash of the ordering, the page ({@code index} or {@code cursor})
+     * and {@code count}.
+     */
+    static String etagOf(String tag, String ordering, Integer index, String cursor, int count) {
+        String page = offsetPaged(index, cursor) ? "i" + index : "c" + (cursor == null ? "" : cursor);
+        String request = ordering + ":" + page + ":" + count;
+        return "W/\"" + tag + "-" + Integer.toHexString(request.hashCode()) + "\"";
+    }
+
+    private String etag(String viewer, String ordering, Integer index, String cursor, int count) {
+        return etagOf(timelineService.timelineTag(viewer), ordering, index, cursor, count);
+    }
+
+    /** Weak comparison against each tag in {@code If-None-Match}, as RFC 9110 asks for GET. */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+        String opaque = etag.substring(2);
+        for (String tag : ifNoneMatch.split(",")) {
+            String t = tag.trim();
+            if (t.equals("*")) return true;
+            if (t.startsWith("W/")) t = t.substring(2);
+            if (t.equals(opaque)) return true;
+        }
+        return false;
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
 }
@@ -0,0 +1,188 @@
+package com.intelligenta.socialgraph.controller;
+
+import com.intelligenta.socialgraph.config.TimelineResponseConverter;
+import com.intelligenta.socialgraph.model.TimelineEntry;
+import com.intelligenta.socialgraph.security.AuthenticatedUser;
+import com.intelligenta.socialgraph.service.TimelineCursor;
+import com.intelligenta.socialgraph.service.TimelineService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Streaming variants of the timeline and replies endpoints, at the same
+ * paths plus {@code /stream}. Entries are written as they are hydrated, one
+ * JSON object per line ({@code application/x-ndjson}), or as server-sent
+ * events when the request accepts {@code text/event-stream}. The last line
+ * (or {@code end} event) carries what {@code TimelineResponse} would have:
+ * {@code {"end":true,"count":..,"duration":..,"nextCursor":..}}.
+ *
+ * <p>Cursors are checked before the response starts, so a malformed one is
+ * still a {@code 400}. Errors after the first entry end the stream early.
+ */
+@RestController
+@RequestMapping("/api")
+public class TimelineStreamController {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private static final byte[] SSE_ENTRY = bytes("event: entry\ndata: ");
+    private static final byte[] SSE_END = bytes("event: end\ndata: ");
+
+    private final TimelineService timelineService;
+    private final TimelineResponseConverter converter;
+    private final JsonMapper json;
+
+    public TimelineStreamController(TimelineService timelineService, TimelineResponseConverter converter,
+                                    JsonMapper json) {
+        this.timelineService = timelineService;
+        this.converter = converter;
+        this.json = json;
+    }
+
+    /**
+     * Stream the user timeline (FIFO order).
+     */
+    @GetMapping("/timeline/stream")
+    public ResponseEntity<StreamingResponseBody> streamTimeline(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam int count,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        TimelineCursor.decode(cursor);
+        String viewer = user.getUid();
+        return stream(accept, sink -> timelineService.streamFifoTimeline(viewer, cursor, count, sink));
+    }
+
+    /**
+     * Stream the timeline sorted by personal importance.
+     */
+    @GetMapping("/timeline/personal/stream")
+    public ResponseEntity<StreamingResponseBody> streamPersonalTimeline(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam int count,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        TimelineCursor.decode(cursor);
+        String viewer = user.getUid();
+        return stream(accept, sink -> timelineService.streamSocialImportanceTimeline(
+            viewer, cursor, count, TimelineService.Importance.PERSONAL, sink));
+    }
+
+    /**
+     * Stream the timeline sorted by global importance.
+     */
+    @GetMapping("/timeline/everyone/stream")
+    public ResponseEntity<StreamingResponseBody> streamEveryoneTimeline(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam int count,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        TimelineCursor.decode(cursor);
+        String viewer = user.getUid();
+        return stream(accept, sink -> timelineService.streamSocialImportanceTimeline(
+            viewer, cursor, count, TimelineService.Importance.EVERYONE, sink));
+    }
+
+    /**
+     * Stream a user's own posts, newest first.
+     */
+    @GetMapping("/users/{uid}/posts/stream")
+    public ResponseEntity<StreamingResponseBody> streamUserPosts(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @PathVariable String uid,
+            @RequestParam int count,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        TimelineCursor.decode(cursor);
+        String viewer = user.getUid();
+        return stream(accept, sink -> timelineService.streamUserPosts(viewer, uid, cursor, count, sink));
+    }
+
+    /**
+     * Stream replies for a post.
+     */
+    @GetMapping("/posts/{postId}/replies/stream")
+    public ResponseEntity<StreamingResponseBody> streamReplies(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @PathVariable String postId,
+            @RequestParam int index,
+            @RequestParam int count,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        String viewer = user.getUid();
+        return stream(accept, sink -> {
+            timelineService.streamReplies(viewer, postId, index, count, sink);
+            return null;
+        });
+    }
+
+    /**
+     * A response that runs {@code page} with a sink writing each entry as
+     * it arrives; {@code page} returns the next cursor or null.
+     */
+    private ResponseEntity<StreamingResponseBody> stream(String accept,
+                                                         Function<Consumer<TimelineEntry>, String> page) {
+        boolean sse = acceptsEventStream(accept);
+        StreamingResponseBody body = out -> {
+            long startTime = System.currentTimeMillis();
+            int[] sent = {0};
+            String nextCursor;
+            try {
+                nextCursor = page.apply(entry -> {
+                    try {
+                        if (sse) out.write(SSE_ENTRY);
+                        converter.writeEntry(entry, out);
+                        endFrame(out, sse);
+                        sent[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Map<String, Object> end = new LinkedHashMap<>();
+            end.put("end", true);
+            end.put("count", sent[0]);
+            end.put("duration", System.currentTimeMillis() - startTime);
+            if (nextCursor != null) end.put("nextCursor", nextCursor);
+            if (sse) out.write(SSE_END);
+            out.write(json.writeValueAsBytes(end));
+            endFrame(out, sse);
+        };
+        return ResponseEntity.ok()
+            .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.parseMediaType(NDJSON_VALUE))
+            .body(body);
+    }
+
+    private static void endFrame(OutputStream out, boolean sse) throws IOException {
+        out.write('\n');
+        if (sse) out.write('\n');
+        out.flush();
+    }
+
+    private static boolean acceptsEventStream(String accept) {
+        if (accept == null || accept.isBlank()) return false;
+        for (MediaType type : MediaType.parseMediaTypes(accept)) {
+            if (type.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM)) return true;
+        }
+        return false;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
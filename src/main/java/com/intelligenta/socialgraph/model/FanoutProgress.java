@@ -0,0 +1,29 @@
+package com.intelligenta.socialgraph.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Point-in-time view of one follower fan-out job, as reported by
+ * {@code GET /api/posts/{postId}/fanout}. {@code processed} counts followers
+ * that have been evaluated (delivered + skipped); {@code chunksCompleted}
+ * counts delivered chunks only, and {@code state} ends as {@code failed}
+ * when any chunk failed. {@code completedAt} stays null until the last chunk
+ * finishes.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FanoutProgress(
+    String jobId,
+    String postId,
+    String authorUid,
+    String state,
+    int totalRecipients,
+    int processed,
+    int delivered,
+    int skipped,
+    int chunksTotal,
+    int chunksCompleted,
+    int chunksFailed,
+    long startedAt,
+    Long completedAt,
+    long durationMs) {
+}
@@ -1,5 +1,6 @@
 package com.intelligenta.socialgraph.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.util.List;
@@ -26,6 +27,10 @@ public class TimelineEntry {
     private String actorUsername;
     private String actorFullname;
 
+    // Pre-rendered JSON of the fields above minus the actor names; see PostFragments
+    @JsonIgnore
+    private byte[] fragment;
+
     public TimelineEntry() {}
 
     public String getUuid() {
@@ -123,4 +128,12 @@ public class TimelineEntry {
     public void setActorFullname(String actorFullname) {
         this.actorFullname = actorFullname;
     }
+
+    public byte[] getFragment() {
+        return fragment;
+    }
+
+    public void setFragment(byte[] fragment) {
+        this.fragment = fragment;
+    }
 }
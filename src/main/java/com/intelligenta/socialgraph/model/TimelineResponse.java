@@ -1,5 +1,7 @@
 package com.intelligenta.socialgraph.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 /**
@@ -10,6 +12,8 @@ public class TimelineResponse {
     private List<TimelineEntry> entities;
     private int count;
     private long duration;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 
     public TimelineResponse() {}
 
@@ -42,4 +46,13 @@ public class TimelineResponse {
     public void setDuration(long duration) {
         this.duration = duration;
     }
+
+    /** Cursor of the next page on cursor-paged endpoints; absent on the last page and on offset pages. */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
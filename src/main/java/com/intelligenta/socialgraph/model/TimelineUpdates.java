@@ -0,0 +1,9 @@
+package com.intelligenta.socialgraph.model;
+
+/**
+ * Reply to {@code GET /api/timeline/updates}: the viewer's current timeline
+ * version (the leading number of the timeline endpoints' {@code ETag}) and
+ * how many entries have been delivered since the version the client sent.
+ */
+public record TimelineUpdates(long version, long newEntries) {
+}
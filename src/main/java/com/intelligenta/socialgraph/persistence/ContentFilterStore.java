@@ -1,12 +1,31 @@
 package com.intelligenta.socialgraph.persistence;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.Set;
 
-/** Per-user content filters (negative keywords + blocked image hashes). Long-lived. */
+/**
+ * Per-user content filters (negative keywords + blocked image hashes). Long-lived.
+ * The add methods return {@code false} when the entry was already present.
+ */
 public interface ContentFilterStore {
-    void addNegativeKeyword(String uid, String keyword);
-    boolean hasAnyNegativeKeyword(String uid, List<String> keywords);
+    boolean addNegativeKeyword(String uid, String keyword);
 
-    void blockImage(String uid, String md5);
+    /** All of {@code uid}'s negative keywords and phrases; compiled by {@code NegativeKeywordMatcher}. */
+    Set<String> negativeKeywords(String uid);
+
+    boolean blockImage(String uid, String md5);
     boolean isImageBlocked(String uid, String md5);
+
+    /**
+     * The subset of {@code md5s} that {@code uid} has blocked, in one read.
+     * Null and blank hashes are never blocked.
+     */
+    Set<String> blockedImages(String uid, Collection<String> md5s);
+
+    /**
+     * The subset of {@code uids} that have at least one negative keyword (when
+     * {@code keywords}) or blocked image (when {@code images}). Lets fan-out
+     * run per-user filter checks only for users who could possibly match.
+     */
+    Set<String> usersWithFilters(Collection<String> uids, boolean keywords, boolean images);
 }
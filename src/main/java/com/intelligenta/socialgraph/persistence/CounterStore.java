@@ -1,14 +1,23 @@
 package com.intelligenta.socialgraph.persistence;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Global per-user counters: {@code photos}, {@code videos}, {@code posts}.
  * Redis implementation uses {@code HINCRBY} on three flat hashes. Infinispan
- * backs them with strong counters inside the post-create transaction so they
- * stay accurate under concurrent writes across the cluster.
+ * keeps one clustered counter per kind and user (weak for posts, strong for
+ * photos and videos), so an increment never contends with other users'.
  */
 public interface CounterStore {
     enum Kind { PHOTOS, VIDEOS, POSTS }
 
     void increment(Kind kind, String uid, long delta);
     long get(Kind kind, String uid);
+
+    /**
+     * The user's count for each of {@code kinds}, 0 when never incremented,
+     * in one batched read (one pipeline on Redis).
+     */
+    Map<Kind, Long> getMany(String uid, Collection<Kind> kinds);
 }
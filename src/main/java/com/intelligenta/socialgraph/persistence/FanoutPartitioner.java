@@ -0,0 +1,40 @@
+package com.intelligenta.socialgraph.persistence;
+
+import java.util.List;
+
+/**
+ * Routes a fan-out chunk to the app instance that owns each recipient's
+ * timeline, so timeline writes stay node-local and fan-out throughput scales
+ * with the number of instances. Every instance registers the same local
+ * {@link Handler} at startup; {@link #deliver} groups the recipients by
+ * owner and runs each group's handler on its owner.
+ *
+ * <p>Redis impl has no notion of ownership on the app side (the server or
+ * Redis Cluster owns the data) and runs the handler in-process; Infinispan
+ * impl partitions by the primary owner of each recipient's
+ * {@code timelines-fifo} key and ships the other groups to their owners
+ * through the cluster executor.
+ */
+public interface FanoutPartitioner {
+
+    /**
+     * Everything a remote member needs to deliver one post. Shipped across
+     * the cluster, so it carries the post's fields rather than a callback.
+     * {@code parentAuthorUid} is set for replies and {@code originalPostId}
+     * for reshares (the reshared post's id); both are null otherwise.
+     */
+    record Delivery(String postId, String authorUid, String content, long[] terms, String imageHash,
+                    String parentAuthorUid, String originalPostId) {}
+
+    /** Delivers {@code delivery} to the given recipients on this instance; returns how many received it. */
+    @FunctionalInterface
+    interface Handler {
+        int deliver(Delivery delivery, List<String> recipients);
+    }
+
+    /** Registers this instance's handler. Called once at startup. */
+    void register(Handler handler);
+
+    /** Delivers to {@code recipients}, each group on its owner. Returns the total delivered. */
+    int deliver(Delivery delivery, List<String> recipients);
+}
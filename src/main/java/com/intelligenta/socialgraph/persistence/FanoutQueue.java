@@ -0,0 +1,44 @@
+package com.intelligenta.socialgraph.persistence;
+
+import java.util.function.Consumer;
+
+/**
+ * Durable, at-least-once queue of follower fan-out jobs. A job is
+ * (postId, authorUid, cursor): the cursor is the last follower UID — in
+ * sorted order — whose chunk has been delivered, so a job picked up after a
+ * crash resumes from its last checkpoint instead of restarting. Every app
+ * instance consumes from the same queue, which spreads fan-out across the
+ * deployment.
+ *
+ * <p>Redis impl uses a Redis Stream + consumer group, reclaiming jobs whose
+ * worker stopped checkpointing with {@code XCLAIM}; Infinispan impl keeps
+ * jobs in a cache and hands them out through lease-stamped conditional
+ * {@code replace}. Modelled on {@link EmbeddingQueue}.
+ */
+public interface FanoutQueue {
+
+    /** One fan-out job. {@code cursor} is empty until the first checkpoint. */
+    record Job(String id, String postId, String authorUid, String cursor, int attempts) {}
+
+    void enqueue(String postId, String authorUid);
+
+    /**
+     * Register a consumer. Called once at startup; the implementation spins
+     * {@code workers} threads that deliver jobs to the handler until
+     * {@link #stop} is called. A handler that returns normally completes the
+     * job; one that throws leaves it for a retry from its last checkpoint,
+     * and after {@code timeline.fanout.queue.max-attempts} it is dead-lettered.
+     */
+    void consume(int workers, Consumer<Job> handler);
+
+    /** Record that every follower up to and including {@code cursor} has been delivered. */
+    void checkpoint(Job job, String cursor);
+
+    void stop();
+
+    /** Send a failed job to the dead-letter queue. */
+    void deadLetter(Job job, String reason);
+
+    /** True when the queue is wired to a real backend (i.e. provider-gated). */
+    boolean enabled();
+}
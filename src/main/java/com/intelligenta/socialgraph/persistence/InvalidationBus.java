@@ -0,0 +1,25 @@
+package com.intelligenta.socialgraph.persistence;
+
+import java.util.function.Consumer;
+
+/**
+ * Tells every app instance that an entry it may hold in a near cache has
+ * changed. Caches and keys are named the way the Infinispan caches are
+ * ({@code posts} by post id, {@code users} by username,
+ * {@code user-uid-index} by uid, {@code relations} and
+ * {@code content-filters} by uid), so both
+ * implementations agree on what a key means.
+ *
+ * <p>Redis impl broadcasts over a pub/sub channel; Infinispan impl listens to
+ * the caches themselves, so {@link #publish} has nothing to do there.
+ * Delivery is best-effort: the near cache TTL bounds how long a missed
+ * message can leave a stale entry behind.
+ */
+public interface InvalidationBus {
+
+    /** Announce that {@code key} in {@code cache} was written or removed. */
+    void publish(String cache, String key);
+
+    /** Call {@code invalidate} with the key whenever an entry of {@code cache} changes on any instance. */
+    void subscribe(String cache, Consumer<String> invalidate);
+}
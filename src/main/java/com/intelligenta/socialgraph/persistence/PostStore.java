@@ -16,6 +16,13 @@ public interface PostStore {
                   String authorUid, String type);
 
     Optional<Map<String, Object>> get(String postId);
+
+    /**
+     * {@link #get} for a whole page in one round-trip (a pipeline of
+     * {@code HGETALL}s on Redis, {@code getAll} on Infinispan). Keyed by post
+     * id; posts that do not exist are absent.
+     */
+    Map<String, Map<String, Object>> getMany(List<String> postIds);
     boolean exists(String postId);
     void update(String postId, Map<String, String> updates);
     void delete(String postId);
@@ -24,4 +31,7 @@ public interface PostStore {
     List<String> replies(String postId, int offset, int limit);
 
     List<String> images(String postId);
+
+    /** {@link #images} for several posts in one round-trip. Posts without images are absent. */
+    Map<String, List<String>> imagesMany(List<String> postIds);
 }
@@ -1,5 +1,6 @@
 package com.intelligenta.socialgraph.persistence;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -15,4 +16,18 @@ public interface RelationStore {
     boolean remove(String uid, Relation relation, String otherUid);
     boolean contains(String uid, Relation relation, String otherUid);
     Set<String> members(String uid, Relation relation);
+
+    /**
+     * {@code members(uid, from)} minus every {@code members(uid, s)} for
+     * {@code s} in {@code subtract}, evaluated in a single store operation
+     * ({@code SDIFF} on Redis).
+     */
+    Set<String> difference(String uid, Relation from, Relation... subtract);
+
+    /**
+     * The {@code candidates} that are in {@code members(uid, relation)},
+     * checked in a single store operation ({@code SMISMEMBER} on Redis)
+     * without reading the whole set.
+     */
+    Set<String> retainMembers(String uid, Relation relation, Collection<String> candidates);
 }
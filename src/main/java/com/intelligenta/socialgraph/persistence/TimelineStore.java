@@ -1,20 +1,135 @@
 package com.intelligenta.socialgraph.persistence;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Three parallel per-user timelines: FIFO list, personal-importance zset,
- * everyone-importance zset. Infinispan impl emulates the ranked reads via an
- * Ickle {@code ORDER BY score DESC LIMIT} query on a cache of entries.
+ * everyone-importance zset. Infinispan impl keeps each ranked timeline as a
+ * {@code RankedTimeline} value held in score order, so ranked reads and seeks
+ * need no query or sort.
+ *
+ * <p>Alongside the materialized timelines, every author has an outbox (their
+ * own posts, scored by creation time) and high-follower authors are recorded
+ * as <em>pull authors</em>: their posts are not fanned out, and readers merge
+ * those outboxes into their timeline at read time.
+ *
+ * <p>Each kind is capped at {@code timeline.max-length.<kind>} entries; pushes
+ * trim in the same batch as the write, so the oldest (FIFO) or lowest-scored
+ * (ranked) entries fall off.
+ *
+ * <p>Every timeline and outbox also has a version: a counter bumped once per
+ * entry pushed, never decremented by trims. Two reads of the same version
+ * saw the same pushes, and the difference between two versions is the number
+ * of entries delivered in between.
  */
 public interface TimelineStore {
     enum Kind { FIFO, PERSONAL_IMPORTANCE, EVERYONE_IMPORTANCE }
 
+    /** A timeline member and the score it is ordered by (FIFO: delivery time in seconds). */
+    record Entry(String postId, double score) {
+        /** Score descending, ties by post id descending: the order of a Redis {@code ZREVRANGE}. */
+        public static final Comparator<Entry> DESCENDING = Comparator.comparingDouble(Entry::score).reversed()
+            .thenComparing(Entry::postId, Comparator.reverseOrder());
+    }
+
     void push(String uid, String postId, double fifoTimestamp, double personalScore, double everyoneScore);
 
     List<String> range(String uid, Kind kind, int offset, int limit);
 
-    /** Bulk fan-out for follower lists. */
+    /** As {@link #range}, with each entry's score, highest first. */
+    List<Entry> rangeWithScores(String uid, Kind kind, int offset, int limit);
+
+    /**
+     * Up to {@code limit} entries that come after {@code after} in
+     * {@link Entry#DESCENDING} order; the first {@code limit} when
+     * {@code after} is null. A seek rather than an offset: a deep page costs
+     * what the first one does, and entries pushed meanwhile do not shift it.
+     * FIFO is read from the delivery-timestamp index; entries delivered
+     * before that index existed are returned once {@link #trim} has
+     * backfilled them.
+     */
+    List<Entry> rangeAfter(String uid, Kind kind, Entry after, int limit);
+
+    /**
+     * Bulk fan-out for follower lists. {@code personalScores[i]} is the
+     * personal-importance score for {@code recipientUids.get(i)}; the FIFO
+     * timestamp and everyone score are shared by every recipient.
+     * Implementations batch the writes rather than issuing one round-trip
+     * per recipient.
+     */
     void pushMany(List<String> recipientUids, String postId,
-                  double fifoTimestamp, double personalScore, double everyoneScore);
+                  double fifoTimestamp, double[] personalScores, double everyoneScore);
+
+    /** How many entries have ever been pushed to {@code uid}'s timelines; 0 if none. */
+    long version(String uid);
+
+    /** The sum of the outbox versions (posts ever recorded) of {@code authorUids}, in one batch. */
+    long outboxVersion(Collection<String> authorUids);
+
+    /**
+     * The {@code uids} whose FIFO timeline currently holds {@code postId},
+     * answered in one batch (a pipeline of {@code ZSCORE}s against each
+     * timeline's {@code fifo:ts} zset on Redis, one {@code getAll} on
+     * Infinispan). Entries delivered before the timestamp index existed are
+     * not seen.
+     */
+    Set<String> holding(Collection<String> uids, String postId);
+
+    /**
+     * Trims all of {@code uid}'s timelines and outbox to their caps, and adds FIFO
+     * entries missing from the delivery-timestamp index to it (see
+     * {@link #backfillScores}). Returns how many entries were removed. Used
+     * by background compaction for timelines written before the caps were
+     * set or lowered, or before the index existed.
+     */
+    long trim(String uid);
+
+    /**
+     * Index entries for the FIFO {@code ids} (newest first) that have no
+     * delivery timestamp, {@code scores.get(i)} being null. Each takes a
+     * score just below its newer neighbour's, or below {@code newest} at the
+     * head, so seeks return them in list order.
+     */
+    static List<Entry> backfillScores(List<String> ids, List<Double> scores, double newest) {
+        List<Entry> missing = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        double carried = newest;
+        for (int i = 0; i < ids.size(); i++) {
+            Double s = scores == null ? null : scores.get(i);
+            if (s != null) {
+                carried = Math.min(carried, s);
+            } else if (seen.add(ids.get(i))) {
+                carried = Math.nextDown(carried);
+                missing.add(new Entry(ids.get(i), carried));
+            }
+        }
+        return missing;
+    }
+
+    /** UIDs that own a timeline. Backed by a cursor; close the stream. */
+    Stream<String> timelineOwners();
+
+    /**
+     * Records {@code postId} in the author's outbox, scored by
+     * {@code timestamp} (seconds), and drops the oldest posts past
+     * {@code timeline.max-length.outbox} in the same batch.
+     */
+    void pushOutbox(String authorUid, String postId, double timestamp);
+
+    /** The author's outbox, newest first. */
+    List<Entry> outbox(String authorUid, int offset, int limit);
+
+    /** {@link #outbox} as a seek past {@code after}, like {@link #rangeAfter}. */
+    List<Entry> outboxAfter(String authorUid, Entry after, int limit);
+
+    /** Flags the author as pull-only. Membership is sticky. */
+    void markPullAuthor(String authorUid);
+    boolean isPullAuthor(String authorUid);
+    Set<String> pullAuthors();
 }
@@ -1,6 +1,7 @@
 package com.intelligenta.socialgraph.persistence;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -12,6 +13,9 @@ import java.util.Optional;
  */
 public interface UserStore {
 
+    /** The display fields shown next to a user's posts, reactions and memberships. */
+    record Profile(String username, String fullname, String profilePicture) {}
+
     /** Atomic register. Must fail if the username is taken. Returns activation token. */
     String register(String username, Map<String, String> userHash, String uid,
                     String token, Duration tokenTtl);
@@ -19,6 +23,15 @@ public interface UserStore {
     Optional<Map<String, String>> find(String username);
     Optional<String> findUsernameByUid(String uid);
     Optional<String> findUidByUsername(String username);
+
+    /**
+     * Display profiles for {@code uids}, keyed by uid; unknown uids are
+     * absent. Resolved in a constant number of round-trips whatever the
+     * number of uids (Redis: one {@code HMGET} on the uid index, then one
+     * pipeline of {@code HMGET}s on the user hashes; Infinispan: two
+     * {@code getAll}s).
+     */
+    Map<String, Profile> findProfilesByUids(Collection<String> uids);
     boolean exists(String username);
     boolean uidExists(String uid);
 
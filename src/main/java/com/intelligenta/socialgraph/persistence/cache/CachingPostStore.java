@@ -0,0 +1,104 @@
+package com.intelligenta.socialgraph.persistence.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.persistence.PostStore;
+
+/**
+ * {@link PostStore} with a {@link NearCache} of post hashes. Single and page
+ * reads are served from the cache; {@link #update} and {@link #delete} drop
+ * the local entry and announce it on the {@link InvalidationBus}. Reply
+ * lists and image lists are not cached. Callers get their own copy of each
+ * hash.
+ */
+public class CachingPostStore implements PostStore {
+
+    static final String CACHE = "posts";
+
+    private final PostStore delegate;
+    private final NearCache<String, Map<String, Object>> posts;
+    private final InvalidationBus bus;
+
+    public CachingPostStore(PostStore delegate, NearCache<String, Map<String, Object>> posts,
+                            InvalidationBus bus) {
+        this.delegate = delegate;
+        this.posts = posts;
+        this.bus = bus;
+        bus.subscribe(CACHE, posts::invalidate);
+    }
+
+    @Override
+    public String create(String postId, Map<String, String> postFields, List<String> imageUrls,
+                         String authorUid, String type) {
+        return delegate.create(postId, postFields, imageUrls, authorUid, type);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> get(String postId) {
+        Map<String, Object> post = posts.get(postId, id -> delegate.get(id).map(CachingPostStore::frozen).orElse(null));
+        return Optional.ofNullable(post).map(LinkedHashMap::new);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> getMany(List<String> postIds) {
+        Map<String, Map<String, Object>> found = posts.getAll(postIds, missing -> {
+            Map<String, Map<String, Object>> loaded = new LinkedHashMap<>();
+            delegate.getMany(missing).forEach((id, post) -> loaded.put(id, frozen(post)));
+            return loaded;
+        });
+        Map<String, Map<String, Object>> out = new LinkedHashMap<>();
+        found.forEach((id, post) -> out.put(id, new LinkedHashMap<>(post)));
+        return out;
+    }
+
+    @Override
+    public boolean exists(String postId) {
+        return posts.getIfPresent(postId) != null || delegate.exists(postId);
+    }
+
+    @Override
+    public void update(String postId, Map<String, String> updates) {
+        delegate.update(postId, updates);
+        invalidate(postId);
+    }
+
+    @Override
+    public void delete(String postId) {
+        delegate.delete(postId);
+        invalidate(postId);
+    }
+
+    @Override
+    public void addReply(String parentPostId, String replyPostId) {
+        delegate.addReply(parentPostId, replyPostId);
+    }
+
+    @Override
+    public List<String> replies(String postId, int offset, int limit) {
+        return delegate.replies(postId, offset, limit);
+    }
+
+    @Override
+    public List<String> images(String postId) {
+        return delegate.images(postId);
+    }
+
+    @Override
+    public Map<String, List<String>> imagesMany(List<String> postIds) {
+        return delegate.imagesMany(postIds);
+    }
+
+    private void invalidate(String postId) {
+        posts.invalidate(postId);
+        bus.publish(CACHE, postId);
+    }
+
+    private static Map<String, Object> frozen(Map<String, Object> post) {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(post));
+    }
+}
@@ -0,0 +1,87 @@
+package com.intelligenta.socialgraph.persistence.cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.persistence.RelationStore;
+
+/**
+ * {@link RelationStore} with a {@link NearCache} of whole relation sets.
+ * {@link #members} fills it; {@link #contains} and {@link #retainMembers}
+ * answer from a cached set when there is one and otherwise ask the store
+ * without reading the set. {@link #add} and {@link #remove} drop every
+ * cached set of that user here and on every other instance.
+ */
+public class CachingRelationStore implements RelationStore {
+
+    static final String CACHE = "relations";
+
+    record Key(String uid, Relation relation) {}
+
+    private final RelationStore delegate;
+    private final NearCache<Key, Set<String>> sets;
+    private final InvalidationBus bus;
+
+    public CachingRelationStore(RelationStore delegate, NearCache<Key, Set<String>> sets,
+                                InvalidationBus bus) {
+        this.delegate = delegate;
+        this.sets = sets;
+        this.bus = bus;
+        bus.subscribe(CACHE, this::invalidateLocally);
+    }
+
+    @Override
+    public boolean add(String uid, Relation relation, String otherUid) {
+        boolean added = delegate.add(uid, relation, otherUid);
+        invalidate(uid);
+        return added;
+    }
+
+    @Override
+    public boolean remove(String uid, Relation relation, String otherUid) {
+        boolean removed = delegate.remove(uid, relation, otherUid);
+        invalidate(uid);
+        return removed;
+    }
+
+    @Override
+    public boolean contains(String uid, Relation relation, String otherUid) {
+        Set<String> cached = sets.getIfPresent(new Key(uid, relation));
+        return cached != null ? cached.contains(otherUid) : delegate.contains(uid, relation, otherUid);
+    }
+
+    @Override
+    public Set<String> members(String uid, Relation relation) {
+        Set<String> cached = sets.get(new Key(uid, relation),
+            k -> Set.copyOf(delegate.members(k.uid(), k.relation())));
+        return new HashSet<>(cached);
+    }
+
+    @Override
+    public Set<String> difference(String uid, Relation from, Relation... subtract) {
+        return delegate.difference(uid, from, subtract);
+    }
+
+    @Override
+    public Set<String> retainMembers(String uid, Relation relation, Collection<String> candidates) {
+        Set<String> cached = sets.getIfPresent(new Key(uid, relation));
+        if (cached == null) return delegate.retainMembers(uid, relation, candidates);
+        Set<String> out = new LinkedHashSet<>();
+        for (String c : candidates) {
+            if (cached.contains(c)) out.add(c);
+        }
+        return out;
+    }
+
+    private void invalidate(String uid) {
+        invalidateLocally(uid);
+        bus.publish(CACHE, uid);
+    }
+
+    private void invalidateLocally(String uid) {
+        for (Relation relation : Relation.values()) sets.invalidate(new Key(uid, relation));
+    }
+}
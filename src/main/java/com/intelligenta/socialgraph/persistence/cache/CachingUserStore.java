@@ -0,0 +1,201 @@
+package com.intelligenta.socialgraph.persistence.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.persistence.UserStore;
+
+/**
+ * {@link UserStore} with three {@link NearCache}s: user hashes and display
+ * profiles by username, and the uid to username index. Lookups by username,
+ * field reads and profile hydration are served from them; every write to a
+ * user hash drops that user's entries here and on every other instance. Activation tokens,
+ * RSA keys and the admin listing go straight to the store.
+ *
+ * <p>The request filter bumps {@code polyCount} on every authenticated call.
+ * Counting it through the cache would drop the caller's hash and broadcast
+ * an invalidation per request, so {@link #STORE_ONLY_FIELDS} are left out of
+ * the cached hashes: they are written to and read from the store directly.
+ */
+public class CachingUserStore implements UserStore {
+
+    static final String USERS = "users";
+    static final String UID_INDEX = "user-uid-index";
+
+    /** Counters bumped far more often than they are read; never cached. */
+    static final Set<String> STORE_ONLY_FIELDS = Set.of("polyCount");
+
+    private final UserStore delegate;
+    private final NearCache<String, Map<String, String>> users;
+    private final NearCache<String, Profile> profiles;
+    private final NearCache<String, String> usernames;
+    private final InvalidationBus bus;
+
+    public CachingUserStore(UserStore delegate, NearCache<String, Map<String, String>> users,
+                            NearCache<String, Profile> profiles, NearCache<String, String> usernames,
+                            InvalidationBus bus) {
+        this.delegate = delegate;
+        this.users = users;
+        this.profiles = profiles;
+        this.usernames = usernames;
+        this.bus = bus;
+        bus.subscribe(USERS, username -> {
+            users.invalidate(username);
+            profiles.invalidate(username);
+        });
+        bus.subscribe(UID_INDEX, usernames::invalidate);
+    }
+
+    @Override
+    public String register(String username, Map<String, String> userHash, String uid,
+                           String token, Duration tokenTtl) {
+        String activation = delegate.register(username, userHash, uid, token, tokenTtl);
+        invalidateUser(username);
+        usernames.invalidate(uid);
+        bus.publish(UID_INDEX, uid);
+        return activation;
+    }
+
+    @Override
+    public Optional<Map<String, String>> find(String username) {
+        Map<String, String> hash = hash(username);
+        if (hash == null) return Optional.empty();
+        Map<String, String> out = new LinkedHashMap<>(hash);
+        List<String> live = List.copyOf(STORE_ONLY_FIELDS);
+        List<Optional<String>> values = delegate.getFields(username, live);
+        for (int i = 0; i < live.size(); i++) {
+            String field = live.get(i);
+            values.get(i).ifPresent(value -> out.put(field, value));
+        }
+        return Optional.of(out);
+    }
+
+    @Override
+    public Optional<String> findUsernameByUid(String uid) {
+        return Optional.ofNullable(usernames.get(uid, u -> delegate.findUsernameByUid(u).orElse(null)));
+    }
+
+    @Override
+    public Optional<String> findUidByUsername(String username) {
+        return getField(username, "uuid");
+    }
+
+    /**
+     * Served from the uid index and the profile cache, falling back to a
+     * cached user hash; whatever is left is loaded in one store call, and
+     * both the uid mapping and the profile are cached for the next page.
+     */
+    @Override
+    public Map<String, Profile> findProfilesByUids(Collection<String> uids) {
+        if (uids.isEmpty()) return Collections.emptyMap();
+        Map<String, Profile> out = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String uid : new LinkedHashSet<>(uids)) {
+            Profile profile = cachedProfile(usernames.getIfPresent(uid));
+            if (profile == null) missing.add(uid);
+            else out.put(uid, profile);
+        }
+        if (missing.isEmpty()) return out;
+        long usernameStamp = usernames.stamp();
+        long profileStamp = profiles.stamp();
+        Map<String, Profile> loaded = delegate.findProfilesByUids(missing);
+        loaded.forEach((uid, profile) -> {
+            usernames.put(uid, profile.username(), usernameStamp);
+            profiles.put(profile.username(), profile, profileStamp);
+        });
+        out.putAll(loaded);
+        return out;
+    }
+
+    @Override
+    public boolean exists(String username) {
+        return users.getIfPresent(username) != null || delegate.exists(username);
+    }
+
+    @Override
+    public boolean uidExists(String uid) {
+        return usernames.getIfPresent(uid) != null || delegate.uidExists(uid);
+    }
+
+    @Override
+    public Optional<String> getField(String username, String field) {
+        if (STORE_ONLY_FIELDS.contains(field)) return delegate.getField(username, field);
+        Map<String, String> hash = hash(username);
+        return hash == null ? Optional.empty() : Optional.ofNullable(hash.get(field));
+    }
+
+    @Override
+    public List<Optional<String>> getFields(String username, List<String> fields) {
+        if (fields.stream().anyMatch(STORE_ONLY_FIELDS::contains)) return delegate.getFields(username, fields);
+        Map<String, String> hash = hash(username);
+        List<Optional<String>> out = new ArrayList<>(fields.size());
+        for (String f : fields) out.add(hash == null ? Optional.empty() : Optional.ofNullable(hash.get(f)));
+        return out;
+    }
+
+    @Override
+    public void putField(String username, String field, String value) {
+        delegate.putField(username, field, value);
+        if (!STORE_ONLY_FIELDS.contains(field)) invalidateUser(username);
+    }
+
+    @Override
+    public void putAll(String username, Map<String, String> fields) {
+        delegate.putAll(username, fields);
+        invalidateUser(username);
+    }
+
+    @Override
+    public void incrementField(String username, String field, long delta) {
+        delegate.incrementField(username, field, delta);
+        if (!STORE_ONLY_FIELDS.contains(field)) invalidateUser(username);
+    }
+
+    @Override
+    public Map<String, String> allUidToUsername() {
+        return delegate.allUidToUsername();
+    }
+
+    @Override
+    public Optional<String> getPublicRsaKey(String uid) {
+        return delegate.getPublicRsaKey(uid);
+    }
+
+    @Override
+    public Optional<String> consumeActivationToken(String activationToken) {
+        return delegate.consumeActivationToken(activationToken);
+    }
+
+    private Map<String, String> hash(String username) {
+        return users.get(username, u -> delegate.find(u).map(CachingUserStore::cacheable).orElse(null));
+    }
+
+    private Profile cachedProfile(String username) {
+        if (username == null) return null;
+        Profile profile = profiles.getIfPresent(username);
+        if (profile != null) return profile;
+        Map<String, String> hash = users.getIfPresent(username);
+        return hash == null ? null : new Profile(username, hash.get("fullname"), hash.get("profilePicture"));
+    }
+
+    private static Map<String, String> cacheable(Map<String, String> hash) {
+        Map<String, String> copy = new LinkedHashMap<>(hash);
+        copy.keySet().removeAll(STORE_ONLY_FIELDS);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private void invalidateUser(String username) {
+        users.invalidate(username);
+        profiles.invalidate(username);
+        bus.publish(USERS, username);
+    }
+}
@@ -0,0 +1,176 @@
+package com.intelligenta.socialgraph.persistence.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A bounded, in-process read cache in front of a store: least-recently-used
+ * eviction once {@code maxSize} entries are held, and entries older than
+ * {@code ttl} are treated as absent. Absent keys are never cached, so a miss
+ * for something that does not exist always reaches the store.
+ *
+ * <p>A load that started before an {@link #invalidate} of its key is not
+ * cached when it finishes, so a reader racing a writer cannot put the value
+ * the writer just replaced back into the cache. Invalidations are tracked per
+ * stripe of keys, so a steady stream of writes to some keys costs loads of
+ * unrelated keys at most the occasional stripe collision.
+ */
+public class NearCache<K, V> {
+
+    /** Hit, miss and invalidation counts since startup, plus the current size. */
+    public record Stats(String name, long hits, long misses, long invalidations, int size) {
+        @JsonProperty
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private record Entry<V>(V value, long loadedAt) {}
+
+    private static final int STRIPES = 256;
+
+    private final String name;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<K, Entry<V>> entries;
+    /** Ticks once per invalidation; a stamp is its value when a load starts. */
+    private final AtomicLong clock = new AtomicLong();
+    /** Clock value of the latest invalidation of any key in each stripe. */
+    private final AtomicLongArray invalidatedAt = new AtomicLongArray(STRIPES);
+    private volatile long clearedAt;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public NearCache(String name, int maxSize, Duration ttl) {
+        this(name, maxSize, ttl, System::nanoTime);
+    }
+
+    NearCache(String name, int maxSize, Duration ttl, LongSupplier nanoClock) {
+        this.name = name;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /** The cached value, or {@code null} on a miss. Counts toward the hit ratio. */
+    public V getIfPresent(K key) {
+        V value = fresh(key);
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    /** The cached value, or {@code loader}'s, which is cached unless it is null. */
+    public V get(K key, Function<K, V> loader) {
+        V value = fresh(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        long stamp = clock.get();
+        V loaded = loader.apply(key);
+        if (loaded != null) putIfCurrent(key, loaded, stamp);
+        return loaded;
+    }
+
+    /**
+     * Cached values for {@code keys} plus whatever {@code loader} returns for
+     * the rest, in one call to the loader. Keys neither cached nor loaded are
+     * absent from the result.
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, V> out = new LinkedHashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        for (K key : keys) {
+            if (out.containsKey(key) || missing.contains(key)) continue;
+            V value = fresh(key);
+            if (value != null) out.put(key, value);
+            else missing.add(key);
+        }
+        hits.add(out.size());
+        if (missing.isEmpty()) return out;
+        misses.add(missing.size());
+        long stamp = clock.get();
+        Map<K, V> loaded = loader.apply(new ArrayList<>(missing));
+        for (Map.Entry<K, V> e : loaded.entrySet()) {
+            if (e.getValue() == null) continue;
+            out.put(e.getKey(), e.getValue());
+            putIfCurrent(e.getKey(), e.getValue(), stamp);
+        }
+        return out;
+    }
+
+    /** Cache {@code value} for {@code key}, e.g. after reading it by another route. */
+    public void put(K key, V value, long stamp) {
+        putIfCurrent(key, value, stamp);
+    }
+
+    /**
+     * Token to pass to {@link #put}: a value read after taking it may be
+     * cached unless its key is invalidated in the meantime.
+     */
+    public long stamp() {
+        return clock.get();
+    }
+
+    public void invalidate(K key) {
+        long now = clock.incrementAndGet();
+        invalidatedAt.accumulateAndGet(stripe(key), now, Math::max);
+        invalidations.increment();
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        clearedAt = clock.incrementAndGet();
+        invalidations.increment();
+        entries.clear();
+    }
+
+    public Stats stats() {
+        return new Stats(name, hits.sum(), misses.sum(), invalidations.sum(), entries.size());
+    }
+
+    private V fresh(K key) {
+        Entry<V> e = entries.get(key);
+        if (e == null) return null;
+        if (nanoClock.getAsLong() - e.loadedAt() > ttlNanos) {
+            entries.remove(key, e);
+            return null;
+        }
+        return e.value();
+    }
+
+    private void putIfCurrent(K key, V value, long stamp) {
+        synchronized (entries) {
+            if (stamp >= clearedAt && stamp >= invalidatedAt.get(stripe(key))) {
+                entries.put(key, new Entry<>(value, nanoClock.getAsLong()));
+            }
+        }
+    }
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
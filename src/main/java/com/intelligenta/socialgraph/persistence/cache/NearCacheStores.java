@@ -0,0 +1,82 @@
+package com.intelligenta.socialgraph.persistence.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.intelligenta.socialgraph.config.PersistenceProperties;
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.persistence.PostStore;
+import com.intelligenta.socialgraph.persistence.RelationStore;
+import com.intelligenta.socialgraph.persistence.UserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps the {@link PostStore}, {@link UserStore} and {@link RelationStore}
+ * beans of whichever provider is active in their caching decorators, per
+ * {@code persistence.near-cache.<store>.enabled}. Services keep injecting
+ * the store interfaces and never see the difference. {@link #stats()}
+ * reports every cache that was created; {@code GET /api/status/caches}
+ * serves it.
+ */
+@Component
+public class NearCacheStores implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(NearCacheStores.class);
+
+    private final ObjectProvider<PersistenceProperties> properties;
+    private final ObjectProvider<InvalidationBus> bus;
+    private final List<NearCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+
+    public NearCacheStores(ObjectProvider<PersistenceProperties> properties,
+                           ObjectProvider<InvalidationBus> bus) {
+        this.properties = properties;
+        this.bus = bus;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof PostStore posts && !(bean instanceof CachingPostStore)) {
+            PersistenceProperties.NearCache.Store cfg = config().getPosts();
+            if (cfg.isEnabled()) {
+                return new CachingPostStore(posts, this.<String, Map<String, Object>>cache("posts", cfg), bus.getObject());
+            }
+        } else if (bean instanceof UserStore users && !(bean instanceof CachingUserStore)) {
+            PersistenceProperties.NearCache.Store cfg = config().getUsers();
+            if (cfg.isEnabled()) {
+                return new CachingUserStore(users,
+                    this.<String, Map<String, String>>cache("users", cfg),
+                    this.<String, UserStore.Profile>cache("user-profiles", cfg),
+                    this.<String, String>cache("user-uid-index", cfg),
+                    bus.getObject());
+            }
+        } else if (bean instanceof RelationStore relations && !(bean instanceof CachingRelationStore)) {
+            PersistenceProperties.NearCache.Store cfg = config().getRelations();
+            if (cfg.isEnabled()) {
+                return new CachingRelationStore(relations,
+                    this.<CachingRelationStore.Key, Set<String>>cache("relations", cfg), bus.getObject());
+            }
+        }
+        return bean;
+    }
+
+    public List<NearCache.Stats> stats() {
+        return caches.stream().map(NearCache::stats).toList();
+    }
+
+    private PersistenceProperties.NearCache config() {
+        return properties.getObject().getNearCache();
+    }
+
+    private <K, V> NearCache<K, V> cache(String name, PersistenceProperties.NearCache.Store cfg) {
+        NearCache<K, V> cache = new NearCache<>(name, cfg.getMaxSize(), cfg.getTtl());
+        caches.add(cache);
+        log.info("Near cache {} enabled: max-size={}, ttl={}", name, cfg.getMaxSize(), cfg.getTtl());
+        return cache;
+    }
+}
@@ -0,0 +1,89 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The actors who reacted to a post with one verb, newest first. Each actor
+ * gets an increasing sequence number; the skip list orders actors by it,
+ * descending, and the map answers membership. Add, remove and contains are
+ * O(log n) or better and change nothing else, where the {@code ArrayList}
+ * this replaces was copied and scanned on every write. Offset reads walk
+ * from the head, O(offset + limit).
+ *
+ * <p>Written only inside a functional-map {@code eval}, one writer per key
+ * at a time; readers iterate concurrently. Marshalled as
+ * {@code socialgraph.ActorList}: the actors newest first, the next
+ * sequence number and the ids of the last writes that changed it (see
+ * {@link AppliedWrites}).
+ */
+public final class ActorList {
+
+    private final ConcurrentSkipListMap<Long, String> bySequence =
+        new ConcurrentSkipListMap<>(Collections.reverseOrder());
+    private final ConcurrentHashMap<String, Long> sequences = new ConcurrentHashMap<>();
+    private long next;
+    private final AppliedWrites applied = new AppliedWrites();
+
+    /** Puts {@code actorUid} at the head; false if it is already listed. */
+    public boolean addFirst(String actorUid) {
+        if (sequences.containsKey(actorUid)) return false;
+        long sequence = ++next;
+        sequences.put(actorUid, sequence);
+        bySequence.put(sequence, actorUid);
+        return true;
+    }
+
+    public boolean remove(String actorUid) {
+        Long sequence = sequences.remove(actorUid);
+        if (sequence == null) return false;
+        bySequence.remove(sequence);
+        return true;
+    }
+
+    public boolean contains(String actorUid) {
+        return sequences.containsKey(actorUid);
+    }
+
+    public int size() {
+        return sequences.size();
+    }
+
+    long next() {
+        return next;
+    }
+
+    AppliedWrites applied() {
+        return applied;
+    }
+
+    /**
+     * The list {@code actors} (newest first) came from, with {@code next} as
+     * its last sequence number. The original sequence numbers are not kept;
+     * the order is.
+     */
+    static ActorList restore(List<String> actors, long next, List<Long> writeIds) {
+        ActorList list = new ActorList();
+        list.next = Math.max(next, actors.size());
+        long sequence = list.next;
+        for (String actorUid : actors) {
+            if (list.sequences.putIfAbsent(actorUid, sequence) == null) list.bySequence.put(sequence--, actorUid);
+        }
+        list.applied.restore(writeIds);
+        return list;
+    }
+
+    /** Actors {@code [offset, offset + limit)}, newest first. */
+    public List<String> slice(int offset, int limit) {
+        if (limit <= 0 || offset >= sequences.size()) return Collections.emptyList();
+        List<String> out = new ArrayList<>(Math.min(limit, sequences.size()));
+        Iterator<String> it = bySequence.values().iterator();
+        for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) it.next();
+        while (it.hasNext() && out.size() < limit) out.add(it.next());
+        return out;
+    }
+}
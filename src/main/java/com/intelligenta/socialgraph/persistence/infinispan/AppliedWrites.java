@@ -0,0 +1,50 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The ids of the last {@value #KEPT} delta writes that changed a value. A
+ * non-transactional write that meets a topology change is retried, and the
+ * first attempt may already have been applied where the entry lives; the
+ * write functions check their id here first and, when it is listed, report
+ * the change again instead of applying it twice. Synchronized, as a value
+ * can be marshalled while a write changes it in place.
+ *
+ * <p>Write ids are random 64-bit values drawn once per call to a store;
+ * 0 means none, and such a write is applied as it comes.
+ */
+final class AppliedWrites {
+
+    static final int KEPT = 8;
+
+    private final ArrayDeque<Long> ids = new ArrayDeque<>(KEPT);
+
+    /** A fresh write id. */
+    static long next() {
+        long id;
+        do id = ThreadLocalRandom.current().nextLong(); while (id == 0);
+        return id;
+    }
+
+    synchronized boolean contains(long writeId) {
+        return writeId != 0 && ids.contains(writeId);
+    }
+
+    synchronized void add(long writeId) {
+        if (writeId == 0) return;
+        ids.addLast(writeId);
+        while (ids.size() > KEPT) ids.removeFirst();
+    }
+
+    /** Oldest first. */
+    synchronized List<Long> snapshot() {
+        return new ArrayList<>(ids);
+    }
+
+    void restore(List<Long> writeIds) {
+        if (writeIds != null) writeIds.forEach(this::add);
+    }
+}
@@ -0,0 +1,34 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.io.Serial;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A string-to-string hash: a user, a post, a session key pair or a fan-out
+ * job. Concurrent, so a functional-map write can change it in place while
+ * readers iterate. Marshalled as {@code socialgraph.FieldHash}, a list of
+ * name/value pairs and the ids of the last increments applied to it (see
+ * {@link AppliedWrites}).
+ */
+public final class FieldHash extends ConcurrentHashMap<String, String> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final transient AppliedWrites applied = new AppliedWrites();
+
+    public FieldHash() {}
+
+    /** Copies {@code fields}; null names and values are left out, as a concurrent map holds neither. */
+    public FieldHash(Map<String, String> fields) {
+        super(Math.max(16, fields.size() * 2));
+        fields.forEach((name, value) -> {
+            if (name != null && value != null) put(name, value);
+        });
+    }
+
+    AppliedWrites applied() {
+        return applied;
+    }
+}
@@ -0,0 +1,29 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import org.infinispan.Cache;
+import org.infinispan.functional.FunctionalMap;
+import org.infinispan.functional.impl.FunctionalMapImpl;
+import org.infinispan.functional.impl.ReadWriteMapImpl;
+
+/**
+ * Functional-map views over embedded caches, for stores that mutate a
+ * collection value by delta. A read-write {@code eval} runs its function
+ * under the key's lock where the entry lives, so the function sees the
+ * current value, changes it in place and sets it; concurrent writers to the
+ * same key are applied one after another instead of overwriting each
+ * other's copies. In a clustered cache only the key, the function and its
+ * argument travel, never the collection.
+ *
+ * <p>Functions passed to {@code eval} are enum constants that take their
+ * input as the argument and capture nothing. Both the enums and the
+ * argument types are in {@link SocialGraphSchema}, so a clustered write
+ * sends a few bytes of ProtoStream rather than a serialized lambda.
+ */
+final class FunctionalCaches {
+
+    private FunctionalCaches() {}
+
+    static <K, V> FunctionalMap.ReadWriteMap<K, V> readWrite(Cache<K, V> cache) {
+        return ReadWriteMapImpl.create(FunctionalMapImpl.create(cache.getAdvancedCache()));
+    }
+}
@@ -0,0 +1,22 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * An ordered list of ids, newest first: a FIFO timeline, a post's replies
+ * or its image URLs. Replaced as a whole on write, never changed in place.
+ * Marshalled as {@code socialgraph.IdList}.
+ */
+public final class IdList extends ArrayList<String> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public IdList() {}
+
+    public IdList(Collection<String> ids) {
+        super(ids);
+    }
+}
@@ -0,0 +1,21 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.io.Serial;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * An unordered set of ids, such as a user's registered devices. Replaced as
+ * a whole on write. Marshalled as {@code socialgraph.IdSet}.
+ */
+public final class IdSet extends HashSet<String> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public IdSet() {}
+
+    public IdSet(Collection<String> ids) {
+        super(ids);
+    }
+}
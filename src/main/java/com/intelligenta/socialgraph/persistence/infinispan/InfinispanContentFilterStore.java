@@ -1,9 +1,9 @@
 package com.intelligenta.socialgraph.persistence.infinispan;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 import com.intelligenta.socialgraph.persistence.ContentFilterStore;
 import org.infinispan.manager.EmbeddedCacheManager;
@@ -18,47 +18,68 @@ public class InfinispanContentFilterStore implements ContentFilterStore {
 
     public InfinispanContentFilterStore(EmbeddedCacheManager manager) { this.manager = manager; }
 
-    @SuppressWarnings("unchecked")
-    private org.infinispan.Cache<String, Map<String, HashSet<String>>> cache() {
-        return (org.infinispan.Cache<String, Map<String, HashSet<String>>>)
-            (org.infinispan.Cache<?, ?>) manager.getCache("content-filters");
+    private org.infinispan.Cache<String, KeyedSets> cache() {
+        return manager.getCache("content-filters");
     }
 
-    private HashSet<String> readSet(String uid, String kind) {
-        Map<String, HashSet<String>> user = cache().get(uid);
+    private Set<String> readSet(String uid, String kind) {
+        KeyedSets user = cache().get(uid);
         if (user == null) return new HashSet<>();
-        HashSet<String> s = user.get(kind);
+        Set<String> s = user.get(kind);
         return s == null ? new HashSet<>() : s;
     }
 
-    private void writeSet(String uid, String kind, HashSet<String> s) {
-        Map<String, HashSet<String>> user = cache().get(uid);
-        Map<String, HashSet<String>> next = user == null ? new LinkedHashMap<>() : new LinkedHashMap<>(user);
+    private void writeSet(String uid, String kind, Set<String> s) {
+        KeyedSets user = cache().get(uid);
+        KeyedSets next = user == null ? new KeyedSets() : new KeyedSets(user);
         next.put(kind, s);
         cache().put(uid, next);
     }
 
-    @Override public void addNegativeKeyword(String uid, String keyword) {
-        HashSet<String> s = readSet(uid, "keywords");
-        s.add(keyword);
+    @Override public boolean addNegativeKeyword(String uid, String keyword) {
+        Set<String> s = new HashSet<>(readSet(uid, "keywords"));
+        if (!s.add(keyword)) return false;
         writeSet(uid, "keywords", s);
+        return true;
     }
 
-    @Override public boolean hasAnyNegativeKeyword(String uid, List<String> keywords) {
-        if (keywords == null || keywords.isEmpty()) return false;
-        HashSet<String> s = readSet(uid, "keywords");
-        for (String k : keywords) if (s.contains(k)) return true;
-        return false;
+    @Override public Set<String> negativeKeywords(String uid) {
+        return readSet(uid, "keywords");
     }
 
-    @Override public void blockImage(String uid, String md5) {
-        HashSet<String> s = readSet(uid, "images");
-        s.add(md5);
+    @Override public boolean blockImage(String uid, String md5) {
+        Set<String> s = new HashSet<>(readSet(uid, "images"));
+        if (!s.add(md5)) return false;
         writeSet(uid, "images", s);
+        return true;
     }
 
     @Override public boolean isImageBlocked(String uid, String md5) {
         if (md5 == null || md5.isBlank()) return false;
         return readSet(uid, "images").contains(md5);
     }
+
+    /** All of a user's filters are one entry, so one {@code get} answers every hash. */
+    @Override public Set<String> blockedImages(String uid, Collection<String> md5s) {
+        if (md5s.isEmpty()) return Collections.emptySet();
+        Set<String> blocked = readSet(uid, "images");
+        if (blocked.isEmpty()) return Collections.emptySet();
+        Set<String> out = new HashSet<>();
+        for (String md5 : md5s) if (md5 != null && blocked.contains(md5)) out.add(md5);
+        return out;
+    }
+
+    /** Entries only exist for users who have added a filter, so one {@code getAll} finds them. */
+    @Override public Set<String> usersWithFilters(Collection<String> uids, boolean keywords, boolean images) {
+        if (uids.isEmpty() || (!keywords && !images)) return Collections.emptySet();
+        Set<String> out = new HashSet<>();
+        cache().getAll(new HashSet<>(uids)).forEach((uid, kinds) -> {
+            if ((keywords && notEmpty(kinds.get("keywords"))) || (images && notEmpty(kinds.get("images")))) {
+                out.add(uid);
+            }
+        });
+        return out;
+    }
+
+    private static boolean notEmpty(Set<String> s) { return s != null && !s.isEmpty(); }
 }
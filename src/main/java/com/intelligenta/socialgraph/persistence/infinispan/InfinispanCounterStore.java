@@ -1,41 +1,104 @@
 package com.intelligenta.socialgraph.persistence.infinispan;
 
-import java.util.LinkedHashMap;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.intelligenta.socialgraph.persistence.CounterStore;
-import org.infinispan.Cache;
-import org.infinispan.manager.EmbeddedCacheManager;
+import com.intelligenta.socialgraph.persistence.cache.NearCache;
+import org.infinispan.counter.api.CounterConfiguration;
+import org.infinispan.counter.api.CounterManager;
+import org.infinispan.counter.api.CounterType;
+import org.infinispan.counter.api.Storage;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+/**
+ * One clustered counter per (kind, user), named {@code <kind>:<uid>}, from
+ * the {@link CounterManager} bean. An increment touches only that user's
+ * counter, so there is no shared hot key. {@code posts} moves with every
+ * text post, reply and reshare and is a weak counter: increments are spread
+ * over several cells and never contend, and a read sums them. Photo and
+ * video counts change less often and are strong counters, exact on every
+ * read.
+ *
+ * <p>Counters are defined on first increment. Names known to be defined are
+ * remembered locally, so a steady-state increment is a single call; reads of
+ * a counter that was never defined return 0 without defining it.
+ */
 @Component
 @ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode", havingValue = "native")
 public class InfinispanCounterStore implements CounterStore {
 
-    private final EmbeddedCacheManager manager;
+    private static final CounterConfiguration WEAK = CounterConfiguration.builder(CounterType.WEAK)
+        .storage(Storage.PERSISTENT)
+        .concurrencyLevel(16)
+        .build();
+    private static final CounterConfiguration STRONG = CounterConfiguration.builder(CounterType.UNBOUNDED_STRONG)
+        .storage(Storage.PERSISTENT)
+        .build();
 
-    public InfinispanCounterStore(EmbeddedCacheManager manager) { this.manager = manager; }
+    // Definitions are never removed, so a remembered name cannot go stale;
+    // the bound only caps memory.
+    private static final int DEFINED_NAMES = 100_000;
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, Map<String, Long>> cache() {
-        return (Cache<String, Map<String, Long>>) (Cache<?, ?>) manager.getCache("counters");
-    }
+    private final CounterManager counters;
+    private final NearCache<String, Boolean> defined =
+        new NearCache<>("counter-definitions", DEFINED_NAMES, Duration.ofDays(1));
+
+    public InfinispanCounterStore(CounterManager counters) { this.counters = counters; }
 
-    private String bucket(Kind kind) {
+    private static String bucket(Kind kind) {
         return switch (kind) { case PHOTOS -> "photos"; case VIDEOS -> "videos"; case POSTS -> "posts"; };
     }
 
+    static String counterName(Kind kind, String uid) {
+        return bucket(kind) + ":" + uid;
+    }
+
+    static boolean weak(Kind kind) {
+        return kind == Kind.POSTS;
+    }
+
     @Override public void increment(Kind kind, String uid, long delta) {
-        String b = bucket(kind);
-        Map<String, Long> existing = cache().get(b);
-        Map<String, Long> next = existing == null ? new LinkedHashMap<>() : new LinkedHashMap<>(existing);
-        next.merge(uid, delta, Long::sum);
-        cache().put(b, next);
+        String name = counterName(kind, uid);
+        if (defined.getIfPresent(name) == null) {
+            counters.defineCounter(name, weak(kind) ? WEAK : STRONG);
+            defined.put(name, Boolean.TRUE, defined.stamp());
+        }
+        if (weak(kind)) {
+            counters.getWeakCounter(name).sync().add(delta);
+        } else {
+            counters.getStrongCounter(name).sync().addAndGet(delta);
+        }
     }
 
     @Override public long get(Kind kind, String uid) {
-        Map<String, Long> v = cache().get(bucket(kind));
-        return v == null ? 0L : v.getOrDefault(uid, 0L);
+        return getMany(uid, List.of(kind)).get(kind);
+    }
+
+    /** Strong-counter reads are issued together and awaited once; weak counters read synchronously. */
+    @Override public Map<Kind, Long> getMany(String uid, Collection<Kind> kinds) {
+        Map<Kind, Long> out = new EnumMap<>(Kind.class);
+        Map<Kind, CompletableFuture<Long>> pending = new EnumMap<>(Kind.class);
+        for (Kind kind : kinds) {
+            String name = counterName(kind, uid);
+            if (!isDefined(name)) {
+                out.put(kind, 0L);
+            } else if (weak(kind)) {
+                out.put(kind, counters.getWeakCounter(name).getValue());
+            } else {
+                pending.put(kind, counters.getStrongCounter(name).getValue());
+            }
+        }
+        pending.forEach((kind, value) -> out.put(kind, value.join()));
+        return out;
+    }
+
+    private boolean isDefined(String name) {
+        return defined.get(name, n -> counters.isDefined(n) ? Boolean.TRUE : null) != null;
     }
 }
@@ -17,37 +17,35 @@ public class InfinispanDeviceStore implements DeviceStore {
 
     public InfinispanDeviceStore(EmbeddedCacheManager manager) { this.manager = manager; }
 
-    @SuppressWarnings("unchecked")
-    private org.infinispan.Cache<String, HashSet<String>> cache() {
-        return (org.infinispan.Cache<String, HashSet<String>>)
-            (org.infinispan.Cache<?, ?>) manager.getCache("devices");
+    private org.infinispan.Cache<String, IdSet> cache() {
+        return manager.getCache("devices");
     }
 
     @Override public boolean add(String username, String deviceId) {
-        HashSet<String> existing = cache().getOrDefault(username, new HashSet<>());
+        IdSet existing = cache().getOrDefault(username, new IdSet());
         if (existing.contains(deviceId)) return false;
-        HashSet<String> next = new HashSet<>(existing);
+        IdSet next = new IdSet(existing);
         next.add(deviceId);
         cache().put(username, next);
         return true;
     }
 
     @Override public boolean remove(String username, String deviceId) {
-        HashSet<String> existing = cache().get(username);
+        IdSet existing = cache().get(username);
         if (existing == null || !existing.contains(deviceId)) return false;
-        HashSet<String> next = new HashSet<>(existing);
+        IdSet next = new IdSet(existing);
         next.remove(deviceId);
         cache().put(username, next);
         return true;
     }
 
     @Override public boolean contains(String username, String deviceId) {
-        HashSet<String> s = cache().get(username);
+        IdSet s = cache().get(username);
         return s != null && s.contains(deviceId);
     }
 
     @Override public Set<String> list(String username) {
-        HashSet<String> s = cache().get(username);
+        IdSet s = cache().get(username);
         return s == null ? Collections.emptySet() : new HashSet<>(s);
     }
 }
@@ -0,0 +1,139 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner;
+import jakarta.annotation.PreDestroy;
+import org.infinispan.Cache;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.LocalizedCacheTopology;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.protostream.annotations.ProtoField;
+import org.infinispan.remoting.transport.Address;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Infinispan implementation of {@link FanoutPartitioner}. Recipients are
+ * grouped by the primary owner of their {@code timelines-fifo} key; the
+ * timeline caches share one configuration, so the same member owns all four
+ * of a user's timelines. The local group is delivered in-process and every
+ * other group is sent to its owner with the cluster executor, where the
+ * owner's registered handler writes to data it holds locally.
+ *
+ * <p>A group whose owner cannot be reached (it left, or the call timed out)
+ * is delivered from here instead — the writes are then remote, but nobody
+ * is skipped. With a LOCAL cache manager there are no owners and everything
+ * is delivered in-process.
+ *
+ * <p>The executor ships a {@link RemoteDelivery}, marshalled by
+ * {@link SocialGraphSchema}; the receiving member finds its handler by cache
+ * manager, so several managers can share one JVM.
+ */
+@Component
+@ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode", havingValue = "native")
+public class InfinispanFanoutPartitioner implements FanoutPartitioner {
+
+    private static final Logger log = LoggerFactory.getLogger(InfinispanFanoutPartitioner.class);
+
+    private static final Map<EmbeddedCacheManager, Handler> HANDLERS = new ConcurrentHashMap<>();
+
+    private final EmbeddedCacheManager manager;
+
+    public InfinispanFanoutPartitioner(EmbeddedCacheManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public void register(Handler handler) {
+        HANDLERS.put(manager, handler);
+    }
+
+    @PreDestroy
+    void unregister() {
+        HANDLERS.remove(manager);
+    }
+
+    @Override
+    public int deliver(Delivery delivery, List<String> recipients) {
+        if (recipients.isEmpty()) return 0;
+        Map<Address, List<String>> groups = partition(recipients);
+        Address self = manager.getAddress();
+
+        List<CompletableFuture<Integer>> remote = new ArrayList<>(groups.size());
+        List<String> local = List.of();
+        for (Map.Entry<Address, List<String>> group : groups.entrySet()) {
+            if (group.getKey() == null || group.getKey().equals(self)) local = group.getValue();
+            else remote.add(submit(group.getKey(), delivery, group.getValue()));
+        }
+
+        int delivered = local.isEmpty() ? 0 : handler(manager).deliver(delivery, local);
+        for (CompletableFuture<Integer> f : remote) delivered += f.join();
+        return delivered;
+    }
+
+    /** Recipients keyed by the primary owner of their timelines; a single null key when not clustered. */
+    Map<Address, List<String>> partition(List<String> recipients) {
+        Cache<String, ?> timelines = manager.getCache("timelines-fifo");
+        DistributionManager dm = timelines.getAdvancedCache().getDistributionManager();
+        Map<Address, List<String>> groups = new HashMap<>();
+        if (dm == null || manager.getAddress() == null) {
+            groups.put(null, recipients);
+            return groups;
+        }
+        LocalizedCacheTopology topology = dm.getCacheTopology();
+        for (String uid : recipients) {
+            Address owner = topology.getDistribution(uid).primary();
+            groups.computeIfAbsent(owner, a -> new ArrayList<>()).add(uid);
+        }
+        return groups;
+    }
+
+    private CompletableFuture<Integer> submit(Address owner, Delivery delivery, List<String> group) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        manager.executor()
+            .filterTargets(Set.of(owner))
+            .submitConsumer(new RemoteDelivery(delivery, new ArrayList<>(group)), (address, delivered, error) -> {
+                if (error != null) result.completeExceptionally(error);
+                else result.complete(delivered);
+            })
+            .whenComplete((ignored, error) -> {
+                if (error != null) result.completeExceptionally(error);
+                else if (!result.isDone()) result.completeExceptionally(
+                    new IllegalStateException("no fan-out result from " + owner));
+            });
+        return result.exceptionally(error -> {
+            log.warn("Fan-out of post {} to {} recipients owned by {} failed; delivering from {}",
+                delivery.postId(), group.size(), owner, manager.getAddress(), error);
+            return handler(manager).deliver(delivery, group);
+        });
+    }
+
+    private static Handler handler(EmbeddedCacheManager manager) {
+        Handler handler = HANDLERS.get(manager);
+        if (handler == null) {
+            throw new IllegalStateException("No fan-out handler registered on " + manager.getAddress());
+        }
+        return handler;
+    }
+
+    /** Runs on the owning member: delivers its group through that member's handler. */
+    record RemoteDelivery(@ProtoField(number = 1) Delivery delivery,
+                          @ProtoField(number = 2) List<String> recipients)
+        implements Function<EmbeddedCacheManager, Integer> {
+
+        @Override
+        public Integer apply(EmbeddedCacheManager owner) {
+            return handler(owner).deliver(delivery, recipients);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.FanoutQueue;
+import org.infinispan.Cache;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Infinispan embedded-cache implementation of {@link FanoutQueue}. Each job
+ * is one {@code fanout-jobs} entry keyed by {@code <enqueuedAtMillis>-<uuid>}
+ * (so key order is FIFO) holding {@code postId}, {@code authorUid},
+ * {@code cursor}, {@code attempts}, and — while a worker holds it —
+ * {@code owner} and {@code leaseUntil}.
+ *
+ * <p>Each consuming member keeps a local index of job keys, in key order,
+ * with the time each one's lease runs out. A clustered listener, registered
+ * with {@code includeCurrentState} when consumption starts, seeds it once and
+ * then follows every create, checkpoint, and removal, so a poll reads only
+ * the index and the one entry it tries to lease rather than iterating the
+ * cache (and, with passivation, the file store behind it). Workers take the
+ * oldest job with no live lease with a conditional
+ * {@code replace(key, expected, leased)}, so two workers never run the same
+ * job. Checkpoints renew the lease. A worker that dies simply
+ * stops renewing; once {@code timeline.fanout.queue.lease} passes, another
+ * worker takes the job over from its cursor. Failed jobs land in
+ * {@code fanout-jobs-dlq}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode", havingValue = "native")
+public class InfinispanFanoutQueue implements FanoutQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(InfinispanFanoutQueue.class);
+
+    private final EmbeddedCacheManager manager;
+    private final TimelineProperties.Queue props;
+    private final String consumerName = "fanout-" + UUID.randomUUID().toString().substring(0, 8);
+    private final List<Thread> workers = new ArrayList<>();
+    /** Job key to the time its current lease runs out; 0 when nobody holds it. */
+    private final ConcurrentSkipListMap<String, Long> pending = new ConcurrentSkipListMap<>();
+    private final PendingIndexer indexer = new PendingIndexer();
+    private volatile boolean consuming;
+
+    public InfinispanFanoutQueue(EmbeddedCacheManager manager, TimelineProperties timelineProperties) {
+        this.manager = manager;
+        this.props = timelineProperties.getFanout().getQueue();
+    }
+
+    private Cache<String, FieldHash> jobs() {
+        return manager.getCache("fanout-jobs");
+    }
+
+    private Cache<String, FieldHash> deadLetters() {
+        return manager.getCache("fanout-jobs-dlq");
+    }
+
+    @Override
+    public void enqueue(String postId, String authorUid) {
+        FieldHash job = new FieldHash();
+        job.put("postId", postId);
+        job.put("authorUid", authorUid);
+        job.put("cursor", "");
+        job.put("attempts", "0");
+        jobs().put(System.currentTimeMillis() + "-" + UUID.randomUUID(), job);
+    }
+
+    @Override
+    public void consume(int workerCount, Consumer<Job> handler) {
+        jobs().addListener(indexer);
+        consuming = true;
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            workers.add(Thread.ofPlatform().name("fanout-queue-" + i).daemon().start(() -> loop(handler)));
+        }
+        log.info("InfinispanFanoutQueue consuming fanout-jobs as {} ({} workers)", consumerName, workers.size());
+    }
+
+    @Override
+    public void checkpoint(Job job, String cursor) {
+        Cache<String, FieldHash> cache = jobs();
+        FieldHash current = cache.get(job.id());
+        if (current == null || !consumerName.equals(current.get("owner"))) return;
+        FieldHash next = new FieldHash(current);
+        next.put("cursor", cursor);
+        next.put("leaseUntil", String.valueOf(System.currentTimeMillis() + props.getLease().toMillis()));
+        if (!cache.replace(job.id(), current, next)) {
+            log.warn("Lost the lease on fan-out job {} before checkpointing '{}'", job.id(), cursor);
+        }
+    }
+
+    @Override
+    public void stop() {
+        consuming = false;
+        for (Thread t : workers) {
+            try {
+                t.join(Duration.ofSeconds(10).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        jobs().removeListener(indexer);
+        pending.clear();
+    }
+
+    @Override
+    public void deadLetter(Job job, String reason) {
+        FieldHash entry = new FieldHash();
+        entry.put("postId", job.postId());
+        entry.put("authorUid", job.authorUid());
+        entry.put("cursor", job.cursor());
+        entry.put("attempts", String.valueOf(job.attempts()));
+        entry.put("reason", String.valueOf(reason));
+        deadLetters().put(job.id(), entry);
+        jobs().remove(job.id());
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    private void loop(Consumer<Job> handler) {
+        while (consuming) {
+            try {
+                Job job = claimNext();
+                if (job == null) {
+                    sleep(props.getPollInterval().toMillis());
+                    continue;
+                }
+                handle(job, handler);
+            } catch (Exception e) {
+                if (!consuming) break;
+                log.error("fan-out queue loop error", e);
+                sleep(props.getPollInterval().toMillis());
+            }
+        }
+    }
+
+    private void handle(Job job, Consumer<Job> handler) {
+        try {
+            handler.accept(job);
+            complete(job);
+        } catch (RuntimeException e) {
+            log.warn("fan-out attempt {} failed for post {} (job {}, cursor '{}')",
+                job.attempts(), job.postId(), job.id(), job.cursor(), e);
+            if (job.attempts() >= props.getMaxAttempts()) deadLetter(job, e.toString());
+            // Otherwise the lease lapses and the job is retried from its checkpoint.
+        }
+    }
+
+    /** Removes the job unless its lease was lost to another worker meanwhile. */
+    private void complete(Job job) {
+        Cache<String, FieldHash> cache = jobs();
+        FieldHash current = cache.get(job.id());
+        if (current != null && consumerName.equals(current.get("owner"))) cache.remove(job.id(), current);
+    }
+
+    /** Leases the oldest job nobody holds a live lease on, or returns null. */
+    private Job claimNext() {
+        Cache<String, FieldHash> cache = jobs();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Long> indexed : pending.entrySet()) {
+            if (indexed.getValue() > now) continue;
+            String key = indexed.getKey();
+            FieldHash current = cache.get(key);
+            if (current == null) {
+                pending.remove(key, indexed.getValue());
+                continue;
+            }
+            if (!leaseExpired(current, now)) {
+                pending.replace(key, indexed.getValue(), leaseUntil(current));
+                continue;
+            }
+            FieldHash leased = new FieldHash(current);
+            int attempts = Integer.parseInt(current.getOrDefault("attempts", "0")) + 1;
+            leased.put("attempts", String.valueOf(attempts));
+            leased.put("owner", consumerName);
+            leased.put("leaseUntil", String.valueOf(now + props.getLease().toMillis()));
+            if (!cache.replace(key, current, leased)) continue;
+            pending.replace(key, indexed.getValue(), now + props.getLease().toMillis());
+            if (current.containsKey("owner")) {
+                log.info("Took over fan-out job {} from {}", key, current.get("owner"));
+            }
+            return new Job(key, current.get("postId"), current.get("authorUid"),
+                current.getOrDefault("cursor", ""), attempts);
+        }
+        return null;
+    }
+
+    private static long leaseUntil(Map<String, String> job) {
+        String until = job.get("leaseUntil");
+        return until == null ? 0L : Long.parseLong(until);
+    }
+
+    private static boolean leaseExpired(Map<String, String> job, long now) {
+        return leaseUntil(job) <= now;
+    }
+
+    /** Keeps {@link #pending} in step with {@code fanout-jobs} on every member. */
+    @Listener(clustered = true, includeCurrentState = true)
+    public class PendingIndexer {
+
+        @CacheEntryCreated
+        @CacheEntryModified
+        public void written(CacheEntryEvent<String, FieldHash> event) {
+            if (event.isPre() || event.getValue() == null) return;
+            pending.put(event.getKey(), leaseUntil(event.getValue()));
+        }
+
+        @CacheEntryRemoved
+        @CacheEntryExpired
+        public void removed(CacheEntryEvent<String, FieldHash> event) {
+            if (!event.isPre()) pending.remove(event.getKey());
+        }
+    }
+
+    private static void sleep(long ms) {
+        try { Thread.sleep(ms); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+    }
+}
@@ -0,0 +1,58 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.function.Consumer;
+
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Infinispan implementation of {@link InvalidationBus}. Every write already
+ * goes through the shared caches, so nothing is published: each subscriber
+ * gets a listener on the cache it mirrors. The listener is declared
+ * clustered, so on a clustered cache every member hears about writes to
+ * entries it does not own; on a local cache it behaves as a plain listener.
+ * Creations count as changes: a near cache may hold an empty value (a
+ * relation set) for an entry that did not exist yet.
+ */
+@Component
+@ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode", havingValue = "native")
+public class InfinispanInvalidationBus implements InvalidationBus {
+
+    private final EmbeddedCacheManager manager;
+
+    public InfinispanInvalidationBus(EmbeddedCacheManager manager) { this.manager = manager; }
+
+    @Override
+    public void publish(String cache, String key) {
+        // The cache listeners see the write itself.
+    }
+
+    @Override
+    public void subscribe(String cache, Consumer<String> invalidate) {
+        manager.getCache(cache).addListener(new Invalidator(invalidate));
+    }
+
+    @Listener(clustered = true)
+    public static class Invalidator {
+
+        private final Consumer<String> invalidate;
+
+        Invalidator(Consumer<String> invalidate) { this.invalidate = invalidate; }
+
+        @CacheEntryCreated
+        @CacheEntryModified
+        @CacheEntryRemoved
+        @CacheEntryExpired
+        public void changed(CacheEntryEvent<Object, Object> event) {
+            if (!event.isPre() && event.getKey() instanceof String key) invalidate.accept(key);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.intelligenta.socialgraph.persistence.infinispan;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,27 +28,24 @@ public class InfinispanPostStore implements PostStore {
         this.counters = counters;
     }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, Map<String, String>> posts() {
-        return (Cache<String, Map<String, String>>) (Cache<?, ?>) manager.getCache("posts");
+    private Cache<String, FieldHash> posts() {
+        return manager.getCache("posts");
     }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, ArrayList<String>> replies() {
-        return (Cache<String, ArrayList<String>>) (Cache<?, ?>) manager.getCache("post-replies");
+    private Cache<String, IdList> replies() {
+        return manager.getCache("post-replies");
     }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, ArrayList<String>> images() {
-        return (Cache<String, ArrayList<String>>) (Cache<?, ?>) manager.getCache("post-images");
+    private Cache<String, IdList> images() {
+        return manager.getCache("post-images");
     }
 
     @Override
     public String create(String postId, Map<String, String> postFields, List<String> imageUrls,
                          String authorUid, String type) {
-        posts().put(postId, new LinkedHashMap<>(postFields));
+        posts().put(postId, new FieldHash(postFields));
         if (imageUrls != null && !imageUrls.isEmpty()) {
-            images().put(postId, new ArrayList<>(imageUrls));
+            images().put(postId, new IdList(imageUrls));
         }
         switch (type) {
             case "photo"   -> counters.increment(CounterStore.Kind.PHOTOS, authorUid, 1);
@@ -65,26 +64,35 @@ public class InfinispanPostStore implements PostStore {
         return Optional.of(out);
     }
 
+    @Override public Map<String, Map<String, Object>> getMany(List<String> postIds) {
+        if (postIds.isEmpty()) return Collections.emptyMap();
+        Map<String, Map<String, Object>> out = new HashMap<>(postIds.size() * 2);
+        posts().getAll(new HashSet<>(postIds)).forEach((id, v) -> {
+            if (v != null) out.put(id, new LinkedHashMap<>(v));
+        });
+        return out;
+    }
+
     @Override public boolean exists(String postId) { return posts().containsKey(postId); }
 
     @Override public void update(String postId, Map<String, String> updates) {
-        Map<String, String> existing = posts().get(postId);
-        Map<String, String> next = existing == null ? new LinkedHashMap<>() : new LinkedHashMap<>(existing);
-        next.putAll(updates);
+        FieldHash existing = posts().get(postId);
+        FieldHash next = existing == null ? new FieldHash() : new FieldHash(existing);
+        next.putAll(new FieldHash(updates));
         posts().put(postId, next);
     }
 
     @Override public void delete(String postId) { posts().remove(postId); }
 
     @Override public void addReply(String parentPostId, String replyPostId) {
-        ArrayList<String> list = replies().getOrDefault(parentPostId, new ArrayList<>());
-        ArrayList<String> next = new ArrayList<>(list);
+        IdList list = replies().getOrDefault(parentPostId, new IdList());
+        IdList next = new IdList(list);
         next.add(0, replyPostId);
         replies().put(parentPostId, next);
     }
 
     @Override public List<String> replies(String postId, int offset, int limit) {
-        ArrayList<String> list = replies().get(postId);
+        IdList list = replies().get(postId);
         if (list == null || list.isEmpty()) return Collections.emptyList();
         int from = Math.max(0, offset);
         int to = Math.min(list.size(), offset + limit);
@@ -92,7 +100,16 @@ public class InfinispanPostStore implements PostStore {
     }
 
     @Override public List<String> images(String postId) {
-        ArrayList<String> list = images().get(postId);
+        IdList list = images().get(postId);
         return list == null ? Collections.emptyList() : new ArrayList<>(list);
     }
+
+    @Override public Map<String, List<String>> imagesMany(List<String> postIds) {
+        if (postIds.isEmpty()) return Collections.emptyMap();
+        Map<String, List<String>> out = new HashMap<>(postIds.size() * 2);
+        images().getAll(new HashSet<>(postIds)).forEach((id, list) -> {
+            if (list != null && !list.isEmpty()) out.put(id, new ArrayList<>(list));
+        });
+        return out;
+    }
 }
@@ -1,90 +1,149 @@
 package com.intelligenta.socialgraph.persistence.infinispan;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 
 import com.intelligenta.socialgraph.Verbs;
 import com.intelligenta.socialgraph.persistence.ReactionStore;
 import org.infinispan.Cache;
+import org.infinispan.functional.EntryView.ReadWriteEntryView;
+import org.infinispan.functional.FunctionalMap;
 import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.protostream.annotations.ProtoEnumValue;
+import org.infinispan.protostream.annotations.ProtoField;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+/**
+ * Per post and verb, an {@link ActorList}; per post, actor → verbs
+ * ({@link KeyedSets}) for the {@code contains} check. Both are changed by
+ * one actor at a time through {@link FunctionalCaches#readWrite}. A list
+ * write carries an id (see {@link AppliedWrites}), so one retried after a
+ * topology change still reports the change its first attempt made and the
+ * lookup is written too.
+ */
 @Component
 @ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode", havingValue = "native")
 public class InfinispanReactionStore implements ReactionStore {
 
     private final EmbeddedCacheManager manager;
+    private final FunctionalMap.ReadWriteMap<String, ActorList> listWrites;
+    private final FunctionalMap.ReadWriteMap<String, KeyedSets> lookupWrites;
 
-    public InfinispanReactionStore(EmbeddedCacheManager manager) { this.manager = manager; }
+    public InfinispanReactionStore(EmbeddedCacheManager manager) {
+        this.manager = manager;
+        this.listWrites = FunctionalCaches.readWrite(list());
+        this.lookupWrites = FunctionalCaches.readWrite(lookup());
+    }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, ArrayList<String>> list() {
-        return (Cache<String, ArrayList<String>>) (Cache<?, ?>) manager.getCache("reactions");
+    private Cache<String, ActorList> list() {
+        return manager.getCache("reactions");
     }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, Map<String, HashSet<String>>> lookup() {
-        return (Cache<String, Map<String, HashSet<String>>>)
-            (Cache<?, ?>) manager.getCache("reaction-lookups");
+    private Cache<String, KeyedSets> lookup() {
+        return manager.getCache("reaction-lookups");
     }
 
     private String listKey(String postId, Verbs.Action action) {
         return postId + ":" + action.noun();
     }
 
-    @Override public void add(Verbs.Action action, String postId, String actorUid) {
-        ArrayList<String> actors = list().getOrDefault(listKey(postId, action), new ArrayList<>());
-        if (actors.contains(actorUid)) return;
-        ArrayList<String> next = new ArrayList<>(actors);
-        next.add(0, actorUid);
-        list().put(listKey(postId, action), next);
-
-        Map<String, HashSet<String>> perPost = lookup().getOrDefault(postId, new LinkedHashMap<>());
-        Map<String, HashSet<String>> nextPost = new LinkedHashMap<>(perPost);
-        HashSet<String> verbsForActor = new HashSet<>(nextPost.getOrDefault(actorUid, new HashSet<>()));
-        verbsForActor.add(action.noun());
-        nextPost.put(actorUid, verbsForActor);
-        lookup().put(postId, nextPost);
-    }
+    record Reaction(@ProtoField(number = 1) String actorUid, @ProtoField(number = 2) String verb,
+                    @ProtoField(number = 3) long writeId) {}
 
-    @Override public void remove(Verbs.Action action, String postId, String actorUid) {
-        ArrayList<String> actors = list().get(listKey(postId, action));
-        if (actors != null && actors.contains(actorUid)) {
-            ArrayList<String> next = new ArrayList<>(actors);
-            next.remove(actorUid);
-            list().put(listKey(postId, action), next);
+    /**
+     * Writes to one post and verb's {@link ActorList}, by actor uid; each
+     * returns whether it changed the list, or true if the list has already
+     * applied that write.
+     */
+    enum ActorWrite implements BiFunction<Reaction, ReadWriteEntryView<String, ActorList>, Boolean> {
+        @ProtoEnumValue(0) ADD,
+        @ProtoEnumValue(1) REMOVE;
+
+        @Override
+        public Boolean apply(Reaction reaction, ReadWriteEntryView<String, ActorList> view) {
+            return switch (this) {
+                case ADD -> addActor(reaction, view);
+                case REMOVE -> removeActor(reaction, view);
+            };
         }
-        Map<String, HashSet<String>> perPost = lookup().get(postId);
-        if (perPost != null && perPost.containsKey(actorUid)) {
-            Map<String, HashSet<String>> nextPost = new LinkedHashMap<>(perPost);
-            HashSet<String> verbsForActor = new HashSet<>(nextPost.getOrDefault(actorUid, new HashSet<>()));
-            verbsForActor.remove(action.noun());
-            if (verbsForActor.isEmpty()) {
-                nextPost.remove(actorUid);
-            } else {
-                nextPost.put(actorUid, verbsForActor);
+    }
+
+    /** Writes to one post's actor → verbs lookup. */
+    enum VerbWrite implements BiFunction<Reaction, ReadWriteEntryView<String, KeyedSets>, Void> {
+        @ProtoEnumValue(0) ADD,
+        @ProtoEnumValue(1) REMOVE;
+
+        @Override
+        public Void apply(Reaction reaction, ReadWriteEntryView<String, KeyedSets> view) {
+            switch (this) {
+                case ADD -> addVerb(reaction, view);
+                case REMOVE -> removeVerb(reaction, view);
             }
-            lookup().put(postId, nextPost);
+            return null;
         }
     }
 
+    private static boolean addActor(Reaction reaction, ReadWriteEntryView<String, ActorList> view) {
+        ActorList actors = view.find().orElseGet(ActorList::new);
+        if (actors.applied().contains(reaction.writeId())) return true;
+        if (!actors.addFirst(reaction.actorUid())) return false;
+        actors.applied().add(reaction.writeId());
+        view.set(actors);
+        return true;
+    }
+
+    private static boolean removeActor(Reaction reaction, ReadWriteEntryView<String, ActorList> view) {
+        ActorList actors = view.find().orElse(null);
+        if (actors == null) return false;
+        if (actors.applied().contains(reaction.writeId())) return true;
+        if (!actors.remove(reaction.actorUid())) return false;
+        actors.applied().add(reaction.writeId());
+        view.set(actors);
+        return true;
+    }
+
+    private static void addVerb(Reaction reaction, ReadWriteEntryView<String, KeyedSets> view) {
+        KeyedSets perPost = view.find().orElseGet(KeyedSets::new);
+        perPost.computeIfAbsent(reaction.actorUid(), a -> ConcurrentHashMap.newKeySet()).add(reaction.verb());
+        view.set(perPost);
+    }
+
+    private static void removeVerb(Reaction reaction, ReadWriteEntryView<String, KeyedSets> view) {
+        KeyedSets perPost = view.find().orElse(null);
+        Set<String> verbs = perPost == null ? null : perPost.get(reaction.actorUid());
+        if (verbs == null) return;
+        verbs.remove(reaction.verb());
+        if (verbs.isEmpty()) perPost.remove(reaction.actorUid());
+        view.set(perPost);
+    }
+
+    @Override public void add(Verbs.Action action, String postId, String actorUid) {
+        Reaction reaction = new Reaction(actorUid, action.noun(), AppliedWrites.next());
+        if (!listWrites.eval(listKey(postId, action), reaction, ActorWrite.ADD).join()) return;
+        lookupWrites.eval(postId, reaction, VerbWrite.ADD).join();
+    }
+
+    @Override public void remove(Verbs.Action action, String postId, String actorUid) {
+        Reaction reaction = new Reaction(actorUid, action.noun(), AppliedWrites.next());
+        listWrites.eval(listKey(postId, action), reaction, ActorWrite.REMOVE).join();
+        lookupWrites.eval(postId, reaction, VerbWrite.REMOVE).join();
+    }
+
     @Override public boolean contains(Verbs.Action action, String postId, String actorUid) {
-        Map<String, HashSet<String>> perPost = lookup().get(postId);
+        Map<String, Set<String>> perPost = lookup().get(postId);
         if (perPost == null) return false;
-        HashSet<String> verbs = perPost.get(actorUid);
+        Set<String> verbs = perPost.get(actorUid);
         return verbs != null && verbs.contains(action.noun());
     }
 
     @Override public List<String> listActors(Verbs.Action action, String postId, int offset, int limit) {
-        ArrayList<String> actors = list().get(listKey(postId, action));
-        if (actors == null || actors.isEmpty()) return Collections.emptyList();
-        int from = Math.max(0, offset);
-        int to = Math.min(actors.size(), offset + limit);
-        return from >= actors.size() ? Collections.emptyList() : new ArrayList<>(actors.subList(from, to));
+        ActorList actors = list().get(listKey(postId, action));
+        if (actors == null) return Collections.emptyList();
+        return actors.slice(Math.max(0, offset), limit);
     }
 }
@@ -1,63 +1,101 @@
 package com.intelligenta.socialgraph.persistence.infinispan;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 import com.intelligenta.socialgraph.persistence.RelationStore;
 import org.infinispan.Cache;
+import org.infinispan.functional.EntryView.ReadWriteEntryView;
+import org.infinispan.functional.FunctionalMap;
 import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.protostream.annotations.ProtoEnumValue;
+import org.infinispan.protostream.annotations.ProtoField;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+/**
+ * One {@link RelationSets} entry per user. {@code add} and {@code remove}
+ * change one member in place through {@link FunctionalCaches#readWrite};
+ * reads iterate the stored sets directly. Each write carries an id (see
+ * {@link AppliedWrites}), so one retried after a topology change still
+ * reports the change its first attempt made, and callers that count
+ * followers off that answer count it once.
+ */
 @Component
 @ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode", havingValue = "native")
 public class InfinispanRelationStore implements RelationStore {
 
     private final EmbeddedCacheManager manager;
+    private final FunctionalMap.ReadWriteMap<String, RelationSets> writes;
 
-    public InfinispanRelationStore(EmbeddedCacheManager manager) { this.manager = manager; }
+    public InfinispanRelationStore(EmbeddedCacheManager manager) {
+        this.manager = manager;
+        this.writes = FunctionalCaches.readWrite(cache());
+    }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, Map<Relation, HashSet<String>>> cache() {
-        return (Cache<String, Map<Relation, HashSet<String>>>)
-            (Cache<?, ?>) manager.getCache("relations");
+    private Cache<String, RelationSets> cache() {
+        return manager.getCache("relations");
     }
 
-    private HashSet<String> readSet(String uid, Relation rel) {
-        Map<Relation, HashSet<String>> user = cache().get(uid);
-        if (user == null) return new HashSet<>();
-        HashSet<String> s = user.get(rel);
-        return s == null ? new HashSet<>() : s;
+    private Set<String> readSet(String uid, Relation rel) {
+        Map<Relation, Set<String>> user = cache().get(uid);
+        if (user == null) return Collections.emptySet();
+        Set<String> s = user.get(rel);
+        return s == null ? Collections.emptySet() : s;
     }
 
-    private void writeSet(String uid, Relation rel, HashSet<String> s) {
-        Map<Relation, HashSet<String>> user = cache().get(uid);
-        Map<Relation, HashSet<String>> next = user == null ? new LinkedHashMap<>() : new LinkedHashMap<>(user);
-        next.put(rel, s);
-        cache().put(uid, next);
+    record Member(@ProtoField(number = 1) Relation relation, @ProtoField(number = 2) String uid,
+                  @ProtoField(number = 3) long writeId) {}
+
+    /**
+     * The writes {@code add} and {@code remove} send to where the user's
+     * entry lives; each returns whether it changed the set, or true if the
+     * entry has already applied that write.
+     */
+    enum RelationWrite implements BiFunction<Member, ReadWriteEntryView<String, RelationSets>, Boolean> {
+        @ProtoEnumValue(0) ADD,
+        @ProtoEnumValue(1) REMOVE;
+
+        @Override
+        public Boolean apply(Member member, ReadWriteEntryView<String, RelationSets> view) {
+            return switch (this) {
+                case ADD -> addMember(member, view);
+                case REMOVE -> removeMember(member, view);
+            };
+        }
     }
 
-    @Override public boolean add(String uid, Relation relation, String otherUid) {
-        HashSet<String> s = readSet(uid, relation);
-        if (s.contains(otherUid)) return false;
-        HashSet<String> next = new HashSet<>(s);
-        next.add(otherUid);
-        writeSet(uid, relation, next);
+    private static boolean addMember(Member member, ReadWriteEntryView<String, RelationSets> view) {
+        RelationSets user = view.find().orElseGet(RelationSets::new);
+        if (user.applied().contains(member.writeId())) return true;
+        if (!user.members(member.relation()).add(member.uid())) return false;
+        user.applied().add(member.writeId());
+        view.set(user);
         return true;
     }
 
-    @Override public boolean remove(String uid, Relation relation, String otherUid) {
-        HashSet<String> s = readSet(uid, relation);
-        if (!s.contains(otherUid)) return false;
-        HashSet<String> next = new HashSet<>(s);
-        next.remove(otherUid);
-        writeSet(uid, relation, next);
+    private static boolean removeMember(Member member, ReadWriteEntryView<String, RelationSets> view) {
+        RelationSets user = view.find().orElse(null);
+        if (user != null && user.applied().contains(member.writeId())) return true;
+        Set<String> s = user == null ? null : user.get(member.relation());
+        if (s == null || !s.remove(member.uid())) return false;
+        user.applied().add(member.writeId());
+        view.set(user);
         return true;
     }
 
+    @Override public boolean add(String uid, Relation relation, String otherUid) {
+        return writes.eval(uid, new Member(relation, otherUid, AppliedWrites.next()), RelationWrite.ADD).join();
+    }
+
+    @Override public boolean remove(String uid, Relation relation, String otherUid) {
+        return writes.eval(uid, new Member(relation, otherUid, AppliedWrites.next()), RelationWrite.REMOVE).join();
+    }
+
     @Override public boolean contains(String uid, Relation relation, String otherUid) {
         return readSet(uid, relation).contains(otherUid);
     }
@@ -65,4 +103,22 @@ public class InfinispanRelationStore implements RelationStore {
     @Override public Set<String> members(String uid, Relation relation) {
         return Collections.unmodifiableSet(new HashSet<>(readSet(uid, relation)));
     }
+
+    @Override public Set<String> difference(String uid, Relation from, Relation... subtract) {
+        Map<Relation, Set<String>> user = cache().get(uid);
+        if (user == null || user.get(from) == null) return Collections.emptySet();
+        HashSet<String> out = new HashSet<>(user.get(from));
+        for (Relation r : subtract) {
+            Set<String> s = user.get(r);
+            if (s != null) out.removeAll(s);
+        }
+        return Collections.unmodifiableSet(out);
+    }
+
+    @Override public Set<String> retainMembers(String uid, Relation relation, Collection<String> candidates) {
+        Set<String> s = readSet(uid, relation);
+        HashSet<String> out = new HashSet<>();
+        for (String candidate : candidates) if (s.contains(candidate)) out.add(candidate);
+        return Collections.unmodifiableSet(out);
+    }
 }
@@ -1,6 +1,5 @@
 package com.intelligenta.socialgraph.persistence.infinispan;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -17,10 +16,8 @@ public class InfinispanSessionStore implements SessionStore {
 
     public InfinispanSessionStore(EmbeddedCacheManager manager) { this.manager = manager; }
 
-    @SuppressWarnings("unchecked")
-    private org.infinispan.Cache<String, Map<String, String>> cache() {
-        return (org.infinispan.Cache<String, Map<String, String>>)
-            (org.infinispan.Cache<?, ?>) manager.getCache("sessions");
+    private org.infinispan.Cache<String, FieldHash> cache() {
+        return manager.getCache("sessions");
     }
 
     @Override public boolean exists(String sessionId) {
@@ -28,7 +25,7 @@ public class InfinispanSessionStore implements SessionStore {
     }
 
     @Override public void put(String sessionId, Map<String, String> keyPair) {
-        cache().put(sessionId, new LinkedHashMap<>(keyPair));
+        cache().put(sessionId, new FieldHash(keyPair));
     }
 
     @Override public Optional<Map<String, String>> get(String sessionId) {
@@ -1,101 +1,413 @@
 package com.intelligenta.socialgraph.persistence.infinispan;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.intelligenta.socialgraph.config.TimelineProperties;
 import com.intelligenta.socialgraph.persistence.TimelineStore;
 import org.infinispan.Cache;
+import org.infinispan.commons.util.CloseableIterator;
+import org.infinispan.functional.EntryView.ReadWriteEntryView;
+import org.infinispan.functional.FunctionalMap;
 import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.protostream.annotations.ProtoEnumValue;
+import org.infinispan.protostream.annotations.ProtoField;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 /**
- * Infinispan embedded-cache implementation of {@link TimelineStore}. Stores a
- * LinkedHashMap of (postId → score) per user per timeline kind; reads iterate
- * the map, sort by score DESC, and slice. Phase I-H promotes the ranked reads
- * to an Ickle {@code ORDER BY} query against an indexed cache of timeline
- * entries for cluster-scale workloads.
+ * Infinispan embedded-cache implementation of {@link TimelineStore}. The
+ * FIFO timeline is a newest-first {@link IdList} of post ids; every scored
+ * view (personal and everyone rankings, the FIFO timestamp index, outboxes)
+ * is a {@link RankedTimeline}, kept in score order as it is written. Pushes
+ * update those in place through {@link FunctionalCaches#readWrite}, O(log n)
+ * each, and ranked reads take the first {@code limit} entries or seek past
+ * a cursor without sorting.
  */
 @Component
 @ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode", havingValue = "native")
 public class InfinispanTimelineStore implements TimelineStore {
 
     private final EmbeddedCacheManager manager;
+    private final TimelineProperties.MaxLength caps;
+    private final FunctionalMap.ReadWriteMap<String, IdList> fifoWrites;
+    private final FunctionalMap.ReadWriteMap<String, RankedTimeline> fifoTsWrites;
+    private final FunctionalMap.ReadWriteMap<String, RankedTimeline> personalWrites;
+    private final FunctionalMap.ReadWriteMap<String, RankedTimeline> everyoneWrites;
+    private final FunctionalMap.ReadWriteMap<String, RankedTimeline> outboxWrites;
+    private final FunctionalMap.ReadWriteMap<String, Tally> versionWrites;
+    private final FunctionalMap.ReadWriteMap<String, Tally> outboxVersionWrites;
 
-    public InfinispanTimelineStore(EmbeddedCacheManager manager) { this.manager = manager; }
+    public InfinispanTimelineStore(EmbeddedCacheManager manager, TimelineProperties timelineProperties) {
+        this.manager = manager;
+        this.caps = timelineProperties.getMaxLength();
+        this.fifoWrites = FunctionalCaches.readWrite(fifo());
+        this.fifoTsWrites = FunctionalCaches.readWrite(fifoTs());
+        this.personalWrites = FunctionalCaches.readWrite(personal());
+        this.everyoneWrites = FunctionalCaches.readWrite(everyone());
+        this.outboxWrites = FunctionalCaches.readWrite(outboxes());
+        this.versionWrites = FunctionalCaches.readWrite(versions());
+        this.outboxVersionWrites = FunctionalCaches.readWrite(outboxVersions());
+    }
+
+    private Cache<String, IdList> fifo() {
+        return manager.getCache("timelines-fifo");
+    }
+
+    private Cache<String, RankedTimeline> personal() {
+        return manager.getCache("timelines-personal");
+    }
+
+    private Cache<String, RankedTimeline> everyone() {
+        return manager.getCache("timelines-everyone");
+    }
+
+    private Cache<String, RankedTimeline> fifoTs() {
+        return manager.getCache("timelines-fifo-ts");
+    }
+
+    private Cache<String, RankedTimeline> outboxes() {
+        return manager.getCache("timelines-outbox");
+    }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, ArrayList<String>> fifo() {
-        return (Cache<String, ArrayList<String>>) (Cache<?, ?>) manager.getCache("timelines-fifo");
+    private Cache<String, Tally> versions() {
+        return manager.getCache("timelines-version");
     }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, LinkedHashMap<String, Double>> personal() {
-        return (Cache<String, LinkedHashMap<String, Double>>)
-            (Cache<?, ?>) manager.getCache("timelines-personal");
+    private Cache<String, Tally> outboxVersions() {
+        return manager.getCache("timelines-outbox-version");
     }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, LinkedHashMap<String, Double>> everyone() {
-        return (Cache<String, LinkedHashMap<String, Double>>)
-            (Cache<?, ?>) manager.getCache("timelines-everyone");
+    private Cache<String, Boolean> pullAuthorCache() {
+        return manager.getCache("timeline-pull-authors");
     }
 
     @Override
     public void push(String uid, String postId, double fifoTimestamp,
                      double personalScore, double everyoneScore) {
-        ArrayList<String> fifoList = fifo().getOrDefault(uid, new ArrayList<>());
-        ArrayList<String> nextFifo = new ArrayList<>(fifoList);
-        nextFifo.add(0, postId);
-        fifo().put(uid, nextFifo);
-
-        LinkedHashMap<String, Double> p = personal().getOrDefault(uid, new LinkedHashMap<>());
-        LinkedHashMap<String, Double> pNext = new LinkedHashMap<>(p);
-        pNext.put(postId, personalScore);
-        personal().put(uid, pNext);
-
-        LinkedHashMap<String, Double> e = everyone().getOrDefault(uid, new LinkedHashMap<>());
-        LinkedHashMap<String, Double> eNext = new LinkedHashMap<>(e);
-        eNext.put(postId, everyoneScore);
-        everyone().put(uid, eNext);
+        pushMany(List.of(uid), postId, fifoTimestamp, new double[]{personalScore}, everyoneScore);
     }
 
+    /**
+     * One {@code evalMany} per timeline cache for the whole batch, which
+     * Infinispan splits into one command per owning member, instead of a
+     * synchronous round trip per recipient and cache. The scored views take
+     * the new entry and drop any past their cap in O(log n); only the FIFO
+     * list is copied, and it is bounded by its cap. The list holds each post
+     * id once (a repeat moves it to the front, as its new score does in the
+     * timestamp index), so capping the index by count drops the same oldest
+     * entries as the list. A recipient listed twice gets the post once, but
+     * both pushes count towards its version. The version bumps carry one
+     * write id, so a bump retried after a topology change counts once.
+     */
     @Override
     public void pushMany(List<String> recipientUids, String postId,
-                         double fifoTimestamp, double personalScore, double everyoneScore) {
-        for (String uid : recipientUids) {
-            push(uid, postId, fifoTimestamp, personalScore, everyoneScore);
+                         double fifoTimestamp, double[] personalScores, double everyoneScore) {
+        if (recipientUids.isEmpty()) return;
+        TimelinePush fifo = new TimelinePush(postId, fifoTimestamp, caps.forKind(Kind.FIFO));
+        TimelinePush everyone = new TimelinePush(postId, everyoneScore, caps.forKind(Kind.EVERYONE_IMPORTANCE));
+        int personalCap = caps.forKind(Kind.PERSONAL_IMPORTANCE);
+        Map<String, TimelinePush> fifoPushes = new LinkedHashMap<>();
+        Map<String, TimelinePush> personalPushes = new LinkedHashMap<>();
+        Map<String, TimelinePush> everyonePushes = new LinkedHashMap<>();
+        Map<String, Tally.Delta> versionBumps = new LinkedHashMap<>();
+        long writeId = AppliedWrites.next();
+        for (int i = 0; i < recipientUids.size(); i++) {
+            String uid = recipientUids.get(i);
+            fifoPushes.put(uid, fifo);
+            personalPushes.put(uid, new TimelinePush(postId, personalScores[i], personalCap));
+            everyonePushes.put(uid, everyone);
+            versionBumps.merge(uid, new Tally.Delta(writeId, 1),
+                (a, b) -> new Tally.Delta(writeId, a.amount() + b.amount()));
+        }
+        // evalMany returns once the writes are applied; draining the results
+        // rethrows a failed write here rather than dropping it.
+        fifoWrites.evalMany(fifoPushes, FifoWrite.PUSH).forEach(dropped -> { });
+        fifoTsWrites.evalMany(fifoPushes, RankedWrite.PUT).forEach(dropped -> { });
+        personalWrites.evalMany(personalPushes, RankedWrite.PUT).forEach(dropped -> { });
+        everyoneWrites.evalMany(everyonePushes, RankedWrite.PUT).forEach(dropped -> { });
+        versionWrites.evalMany(versionBumps, VersionWrite.INCREMENT).forEach(version -> { });
+    }
+
+    /** A post and its score for one timeline, and that timeline's cap; a cap-only write has no post. */
+    record TimelinePush(@ProtoField(number = 1) String postId,
+                        @ProtoField(number = 2) double score,
+                        @ProtoField(number = 3) int cap) {
+
+        static TimelinePush capOnly(int cap) {
+            return new TimelinePush(null, 0, cap);
+        }
+    }
+
+    /**
+     * Writes to a {@link RankedTimeline}; each returns how many entries the
+     * cap dropped. {@code PUT_IF_ABSENT} leaves an entry that is already
+     * there, score and all; {@code REMOVE} drops the post and returns 1 if it
+     * was there.
+     */
+    enum RankedWrite implements BiFunction<TimelinePush, ReadWriteEntryView<String, RankedTimeline>, Integer> {
+        @ProtoEnumValue(0) PUT,
+        @ProtoEnumValue(1) CAP,
+        @ProtoEnumValue(2) PUT_IF_ABSENT,
+        @ProtoEnumValue(3) REMOVE;
+
+        @Override
+        public Integer apply(TimelinePush push, ReadWriteEntryView<String, RankedTimeline> view) {
+            RankedTimeline timeline = view.find().orElse(null);
+            if (this == REMOVE) {
+                if (timeline == null || !timeline.remove(push.postId())) return 0;
+                view.set(timeline);
+                return 1;
+            }
+            if (timeline == null) {
+                if (this == CAP) return 0;
+                timeline = new RankedTimeline();
+            }
+            boolean added = this == PUT || (this == PUT_IF_ABSENT && !timeline.contains(push.postId()));
+            if (added) timeline.put(push.postId(), push.score());
+            int removed = timeline.cap(push.cap());
+            if (added || removed > 0) view.set(timeline);
+            return removed;
+        }
+    }
+
+    /**
+     * Writes to a FIFO {@link IdList}; both return how many entries they
+     * dropped. {@code PUSH} removes an earlier occurrence of the post before
+     * adding it at the front; {@code CAP} also drops repeats left by older
+     * writes, keeping the newest occurrence. The list is copied rather than
+     * changed in place, as readers take sub-lists of the stored one.
+     */
+    enum FifoWrite implements BiFunction<TimelinePush, ReadWriteEntryView<String, IdList>, Integer> {
+        @ProtoEnumValue(0) PUSH,
+        @ProtoEnumValue(1) CAP;
+
+        @Override
+        public Integer apply(TimelinePush push, ReadWriteEntryView<String, IdList> view) {
+            IdList current = view.find().orElse(null);
+            int cap = push.cap();
+            if (this == CAP && current == null) return 0;
+            IdList next;
+            int dropped = 0;
+            if (this == PUSH) {
+                next = current == null ? new IdList() : new IdList(current);
+                next.remove(push.postId());
+                next.add(0, push.postId());
+            } else {
+                next = new IdList(new LinkedHashSet<>(current));
+                dropped = current.size() - next.size();
+            }
+            int over = cap > 0 ? Math.max(0, next.size() - cap) : 0;
+            if (over > 0) next.subList(cap, next.size()).clear();
+            if (this == CAP && dropped + over == 0) return 0;
+            view.set(next);
+            return dropped + over;
         }
     }
 
+    /**
+     * Adds the delta to a version counter and returns the new value; a
+     * delta whose write was already applied returns the value unchanged.
+     */
+    enum VersionWrite implements BiFunction<Tally.Delta, ReadWriteEntryView<String, Tally>, Long> {
+        @ProtoEnumValue(0) INCREMENT;
+
+        @Override
+        public Long apply(Tally.Delta delta, ReadWriteEntryView<String, Tally> view) {
+            Tally current = view.find().orElse(null);
+            Tally next = (current == null ? new Tally(0, List.of()) : current).plus(delta);
+            if (next != current) view.set(next);
+            return next.value();
+        }
+    }
+
+    @Override
+    public long version(String uid) {
+        return Tally.valueOf(versions().get(uid));
+    }
+
+    @Override
+    public long outboxVersion(Collection<String> authorUids) {
+        if (authorUids.isEmpty()) return 0;
+        long sum = 0;
+        for (Tally v : outboxVersions().getAll(new HashSet<>(authorUids)).values()) sum += Tally.valueOf(v);
+        return sum;
+    }
+
     @Override
     public List<String> range(String uid, Kind kind, int offset, int limit) {
         return switch (kind) {
             case FIFO -> {
-                ArrayList<String> list = fifo().get(uid);
+                IdList list = fifo().get(uid);
                 if (list == null || list.isEmpty()) yield Collections.emptyList();
                 int from = Math.max(0, offset);
                 int to = Math.min(list.size(), offset + limit);
                 yield from >= list.size() ? Collections.emptyList() : new ArrayList<>(list.subList(from, to));
             }
-            case PERSONAL_IMPORTANCE -> sortedSlice(personal().get(uid), offset, limit);
-            case EVERYONE_IMPORTANCE -> sortedSlice(everyone().get(uid), offset, limit);
+            case PERSONAL_IMPORTANCE -> postIds(slice(personal().get(uid), offset, limit));
+            case EVERYONE_IMPORTANCE -> postIds(slice(everyone().get(uid), offset, limit));
         };
     }
 
-    private List<String> sortedSlice(Map<String, Double> scores, int offset, int limit) {
-        if (scores == null || scores.isEmpty()) return Collections.emptyList();
-        List<Map.Entry<String, Double>> sorted = new ArrayList<>(scores.entrySet());
-        sorted.sort(Comparator.<Map.Entry<String, Double>, Double>comparing(Map.Entry::getValue).reversed());
-        int from = Math.max(0, offset);
-        int to = Math.min(sorted.size(), offset + limit);
-        if (from >= sorted.size()) return Collections.emptyList();
-        List<String> out = new ArrayList<>(to - from);
-        for (int i = from; i < to; i++) out.add(sorted.get(i).getKey());
+    @Override
+    public List<Entry> rangeWithScores(String uid, Kind kind, int offset, int limit) {
+        if (kind == Kind.FIFO) {
+            List<String> ids = range(uid, kind, offset, limit);
+            if (ids.isEmpty()) return Collections.emptyList();
+            RankedTimeline ts = fifoTs().get(uid);
+            List<Entry> out = new ArrayList<>(ids.size());
+            double carried = Double.MAX_VALUE;
+            for (String id : ids) {
+                Double s = ts == null ? null : ts.score(id);
+                if (s != null) carried = s;
+                out.add(new Entry(id, carried));
+            }
+            return out;
+        }
+        return slice(kind == Kind.PERSONAL_IMPORTANCE ? personal().get(uid) : everyone().get(uid), offset, limit);
+    }
+
+    @Override
+    public List<Entry> rangeAfter(String uid, Kind kind, Entry after, int limit) {
+        return seek(switch (kind) {
+            case FIFO -> fifoTs().get(uid);
+            case PERSONAL_IMPORTANCE -> personal().get(uid);
+            case EVERYONE_IMPORTANCE -> everyone().get(uid);
+        }, after, limit);
+    }
+
+    @Override
+    public Set<String> holding(Collection<String> uids, String postId) {
+        if (uids.isEmpty()) return Collections.emptySet();
+        Set<String> out = new HashSet<>();
+        fifoTs().getAll(new HashSet<>(uids)).forEach((uid, ts) -> {
+            if (ts != null && ts.contains(postId)) out.add(uid);
+        });
+        return out;
+    }
+
+    /**
+     * Drops repeats from the FIFO list and caps it, removes the timestamp
+     * index entries the list no longer holds, and caps each ranked view.
+     */
+    @Override
+    public long trim(String uid) {
+        long removed = 0;
+        int fifoCap = caps.forKind(Kind.FIFO);
+        IdList f = fifo().get(uid);
+        if (f != null && (fifoCap > 0 && f.size() > fifoCap || new HashSet<>(f).size() < f.size())) {
+            removed += fifoWrites.eval(uid, TimelinePush.capOnly(fifoCap), FifoWrite.CAP).join();
+        }
+        retainListedInFifoIndex(uid);
+        backfillFifoIndex(uid, fifoCap);
+        removed += trimRanked(personal(), personalWrites, uid, caps.forKind(Kind.PERSONAL_IMPORTANCE));
+        removed += trimRanked(everyone(), everyoneWrites, uid, caps.forKind(Kind.EVERYONE_IMPORTANCE));
+        removed += trimRanked(outboxes(), outboxWrites, uid, caps.getOutbox());
+        return removed;
+    }
+
+    /** One {@code REMOVE} per timestamp-index entry that is no longer in the FIFO list. */
+    private void retainListedInFifoIndex(String uid) {
+        RankedTimeline ts = fifoTs().get(uid);
+        if (ts == null) return;
+        IdList list = fifo().get(uid);
+        Set<String> listed = list == null ? Set.of() : new HashSet<>(list);
+        for (Entry e : ts.slice(0, ts.size())) {
+            if (!listed.contains(e.postId())) {
+                fifoTsWrites.eval(uid, new TimelinePush(e.postId(), 0, 0), RankedWrite.REMOVE).join();
+            }
+        }
+    }
+
+    /**
+     * Adds FIFO entries delivered before the timestamp index existed to it.
+     * A delivery racing the backfill keeps its real timestamp.
+     */
+    private void backfillFifoIndex(String uid, int fifoCap) {
+        IdList list = fifo().get(uid);
+        if (list == null || list.isEmpty()) return;
+        RankedTimeline ts = fifoTs().get(uid);
+        if (ts != null && ts.size() >= list.size()) return;
+        List<Double> scores = new ArrayList<>(list.size());
+        for (String id : list) scores.add(ts == null ? null : ts.score(id));
+        for (Entry e : TimelineStore.backfillScores(list, scores, System.currentTimeMillis() / 1000.0)) {
+            fifoTsWrites.eval(uid, new TimelinePush(e.postId(), e.score(), fifoCap), RankedWrite.PUT_IF_ABSENT).join();
+        }
+    }
+
+    /**
+     * The FIFO timeline owners, iterated here: a cache stream would run the
+     * caller's operations on the other members.
+     */
+    @Override
+    public Stream<String> timelineOwners() {
+        CloseableIterator<String> owners = fifo().keySet().iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(owners, Spliterator.DISTINCT), false)
+            .onClose(owners::close);
+    }
+
+    private static int trimRanked(Cache<String, RankedTimeline> cache,
+                                  FunctionalMap.ReadWriteMap<String, RankedTimeline> writes, String uid, int cap) {
+        RankedTimeline current = cache.get(uid);
+        if (current == null || cap <= 0 || current.size() <= cap) return 0;
+        return writes.eval(uid, TimelinePush.capOnly(cap), RankedWrite.CAP).join();
+    }
+
+    @Override
+    public void pushOutbox(String authorUid, String postId, double timestamp) {
+        outboxWrites.eval(authorUid, new TimelinePush(postId, timestamp, caps.getOutbox()), RankedWrite.PUT).join();
+        outboxVersionWrites.eval(authorUid, new Tally.Delta(AppliedWrites.next(), 1), VersionWrite.INCREMENT).join();
+    }
+
+    @Override
+    public List<Entry> outbox(String authorUid, int offset, int limit) {
+        return slice(outboxes().get(authorUid), offset, limit);
+    }
+
+    @Override
+    public List<Entry> outboxAfter(String authorUid, Entry after, int limit) {
+        return seek(outboxes().get(authorUid), after, limit);
+    }
+
+    @Override
+    public void markPullAuthor(String authorUid) {
+        pullAuthorCache().put(authorUid, Boolean.TRUE);
+    }
+
+    @Override
+    public boolean isPullAuthor(String authorUid) {
+        return pullAuthorCache().containsKey(authorUid);
+    }
+
+    @Override
+    public Set<String> pullAuthors() {
+        return new HashSet<>(pullAuthorCache().keySet());
+    }
+
+    /** The first {@code limit} entries past {@code after}: O(log n + limit). */
+    private static List<Entry> seek(RankedTimeline timeline, Entry after, int limit) {
+        return timeline == null ? Collections.emptyList() : timeline.after(after, limit);
+    }
+
+    private static List<Entry> slice(RankedTimeline timeline, int offset, int limit) {
+        return timeline == null ? Collections.emptyList() : timeline.slice(Math.max(0, offset), limit);
+    }
+
+    private static List<String> postIds(List<Entry> entries) {
+        List<String> out = new ArrayList<>(entries.size());
+        for (Entry e : entries) out.add(e.postId());
         return out;
     }
 }
@@ -2,30 +2,64 @@ package com.intelligenta.socialgraph.persistence.infinispan;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 import com.intelligenta.socialgraph.persistence.UserStore;
 import com.intelligenta.socialgraph.util.Util;
 import org.infinispan.Cache;
+import org.infinispan.functional.EntryView.ReadWriteEntryView;
+import org.infinispan.functional.FunctionalMap;
 import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.protostream.annotations.ProtoEnumValue;
+import org.infinispan.protostream.annotations.ProtoField;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+/**
+ * One {@link FieldHash} per username. Field writes and increments change
+ * the stored hash in place through {@link FunctionalCaches#readWrite}, so
+ * concurrent increments are not lost.
+ *
+ * <p>{@code polyCount}, bumped on every authenticated request, is the
+ * exception: increments go to the {@code user-activity} cache and are added
+ * to the hash's value on read. Writing them to {@code users} would fire the
+ * near-cache invalidation listener on every member once per request.
+ *
+ * <p>Increments carry a write id (see {@link AppliedWrites}), so one retried
+ * after a topology change is counted once.
+ */
 @Component
 @ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode", havingValue = "native")
 public class InfinispanUserStore implements UserStore {
 
+    static final String POLY_COUNT = "polyCount";
+
     private final EmbeddedCacheManager manager;
+    private final FunctionalMap.ReadWriteMap<String, FieldHash> userWrites;
+    private final FunctionalMap.ReadWriteMap<String, Tally> activityWrites;
 
-    public InfinispanUserStore(EmbeddedCacheManager manager) { this.manager = manager; }
+    public InfinispanUserStore(EmbeddedCacheManager manager) {
+        this.manager = manager;
+        this.userWrites = FunctionalCaches.readWrite(users());
+        this.activityWrites = FunctionalCaches.readWrite(activity());
+    }
 
-    @SuppressWarnings("unchecked")
-    private Cache<String, Map<String, String>> users() {
-        return (Cache<String, Map<String, String>>) (Cache<?, ?>) manager.getCache("users");
+    private Cache<String, FieldHash> users() {
+        return manager.getCache("users");
+    }
+
+    /** Request counts since the {@code polyCount} in the user's hash was last set. */
+    private Cache<String, Tally> activity() {
+        return manager.getCache("user-activity");
     }
 
     @SuppressWarnings("unchecked")
@@ -47,9 +81,11 @@ public class InfinispanUserStore implements UserStore {
     public String register(String username, Map<String, String> userHash, String uid,
                            String token, Duration tokenTtl) {
         String activationToken = Util.UUID();
-        Map<String, String> stored = new LinkedHashMap<>(userHash);
-        stored.put("polyCount", "1");
+        // A null field is left unset.
+        FieldHash stored = new FieldHash(userHash);
+        stored.put(POLY_COUNT, "1");
         users().put(username, stored);
+        activity().remove(username);
         uidIndex().put(uid, username);
         activations().put(activationToken, uid);
         tokens().put(token, uid, tokenTtl.toMillis(), TimeUnit.MILLISECONDS);
@@ -58,7 +94,11 @@ public class InfinispanUserStore implements UserStore {
 
     @Override public Optional<Map<String, String>> find(String username) {
         Map<String, String> v = users().get(username);
-        return v == null ? Optional.empty() : Optional.of(new LinkedHashMap<>(v));
+        if (v == null) return Optional.empty();
+        Map<String, String> out = new LinkedHashMap<>(v);
+        String polyCount = polyCount(username, v);
+        if (polyCount != null) out.put(POLY_COUNT, polyCount);
+        return Optional.of(out);
     }
 
     @Override public Optional<String> findUsernameByUid(String uid) {
@@ -70,12 +110,28 @@ public class InfinispanUserStore implements UserStore {
         return v == null ? Optional.empty() : Optional.ofNullable(v.get("uuid"));
     }
 
+    @Override public Map<String, Profile> findProfilesByUids(Collection<String> uids) {
+        if (uids.isEmpty()) return Collections.emptyMap();
+        Map<String, String> usernames = uidIndex().getAll(new HashSet<>(uids));
+        Map<String, FieldHash> hashes = users().getAll(new HashSet<>(usernames.values()));
+        Map<String, Profile> out = new HashMap<>(usernames.size() * 2);
+        usernames.forEach((uid, username) -> {
+            if (username == null) return;
+            Map<String, String> v = hashes.get(username);
+            out.put(uid, v == null
+                ? new Profile(username, null, null)
+                : new Profile(username, v.get("fullname"), v.get("profilePicture")));
+        });
+        return out;
+    }
+
     @Override public boolean exists(String username) { return users().containsKey(username); }
     @Override public boolean uidExists(String uid)   { return uidIndex().containsKey(uid); }
 
     @Override public Optional<String> getField(String username, String field) {
         Map<String, String> v = users().get(username);
-        return v == null ? Optional.empty() : Optional.ofNullable(v.get(field));
+        if (v == null) return Optional.empty();
+        return Optional.ofNullable(POLY_COUNT.equals(field) ? polyCount(username, v) : v.get(field));
     }
 
     @Override public List<Optional<String>> getFields(String username, List<String> fields) {
@@ -84,33 +140,86 @@ public class InfinispanUserStore implements UserStore {
         if (v == null) {
             for (int i = 0; i < fields.size(); i++) out.add(Optional.empty());
         } else {
-            for (String f : fields) out.add(Optional.ofNullable(v.get(f)));
+            for (String f : fields) {
+                out.add(Optional.ofNullable(POLY_COUNT.equals(f) ? polyCount(username, v) : v.get(f)));
+            }
         }
         return out;
     }
 
+    /** The hash's {@code polyCount} plus the increments counted since it was set. */
+    private String polyCount(String username, Map<String, String> user) {
+        Tally since = activity().get(username);
+        if (since == null) return user.get(POLY_COUNT);
+        return Long.toString(parseOrZero(user.get(POLY_COUNT)) + since.value());
+    }
+
+    /** Fields to write and the id of the write; puts carry none. */
+    record FieldUpdate(@ProtoField(number = 1) long writeId, @ProtoField(number = 2) FieldHash fields) {}
+
+    /**
+     * Writes to a user hash. {@code PUT} sets each field of the argument;
+     * {@code INCREMENT} adds each field's value, a long, to the stored one
+     * (a missing or non-numeric stored value counts as 0), unless the hash
+     * has already applied that write.
+     */
+    enum FieldWrite implements BiFunction<FieldUpdate, ReadWriteEntryView<String, FieldHash>, Void> {
+        @ProtoEnumValue(0) PUT,
+        @ProtoEnumValue(1) INCREMENT;
+
+        @Override
+        public Void apply(FieldUpdate update, ReadWriteEntryView<String, FieldHash> view) {
+            FieldHash user = view.find().orElseGet(FieldHash::new);
+            switch (this) {
+                case PUT -> user.putAll(update.fields());
+                case INCREMENT -> {
+                    if (user.applied().contains(update.writeId())) return null;
+                    update.fields().forEach((field, delta) -> user.put(field,
+                        Long.toString(parseOrZero(user.get(field)) + Long.parseLong(delta))));
+                    user.applied().add(update.writeId());
+                }
+            }
+            view.set(user);
+            return null;
+        }
+    }
+
+    /** Adds the delta to a request count, unless that write was already applied. */
+    enum ActivityWrite implements BiFunction<Tally.Delta, ReadWriteEntryView<String, Tally>, Void> {
+        @ProtoEnumValue(0) ADD;
+
+        @Override
+        public Void apply(Tally.Delta delta, ReadWriteEntryView<String, Tally> view) {
+            Tally current = view.find().orElse(null);
+            Tally next = (current == null ? new Tally(0, List.of()) : current).plus(delta);
+            if (next != current) view.set(next);
+            return null;
+        }
+    }
+
+    private static long parseOrZero(String value) {
+        if (value == null) return 0L;
+        try { return Long.parseLong(value); }
+        catch (NumberFormatException e) { return 0L; }
+    }
+
     @Override public void putField(String username, String field, String value) {
-        Map<String, String> existing = users().get(username);
-        Map<String, String> next = existing == null ? new LinkedHashMap<>() : new LinkedHashMap<>(existing);
-        next.put(field, value);
-        users().put(username, next);
+        userWrites.eval(username, new FieldUpdate(0, new FieldHash(Map.of(field, value))), FieldWrite.PUT).join();
+        if (POLY_COUNT.equals(field)) activity().remove(username);
     }
 
     @Override public void putAll(String username, Map<String, String> fields) {
-        Map<String, String> existing = users().get(username);
-        Map<String, String> next = existing == null ? new LinkedHashMap<>() : new LinkedHashMap<>(existing);
-        next.putAll(fields);
-        users().put(username, next);
+        userWrites.eval(username, new FieldUpdate(0, new FieldHash(fields)), FieldWrite.PUT).join();
+        if (fields.containsKey(POLY_COUNT)) activity().remove(username);
     }
 
     @Override public void incrementField(String username, String field, long delta) {
-        Map<String, String> existing = users().get(username);
-        Map<String, String> next = existing == null ? new LinkedHashMap<>() : new LinkedHashMap<>(existing);
-        long current = 0L;
-        try { current = Long.parseLong(next.getOrDefault(field, "0")); }
-        catch (NumberFormatException e) { current = 0L; }
-        next.put(field, Long.toString(current + delta));
-        users().put(username, next);
+        if (POLY_COUNT.equals(field)) {
+            activityWrites.eval(username, new Tally.Delta(AppliedWrites.next(), delta), ActivityWrite.ADD).join();
+            return;
+        }
+        FieldUpdate update = new FieldUpdate(AppliedWrites.next(), new FieldHash(Map.of(field, Long.toString(delta))));
+        userWrites.eval(username, update, FieldWrite.INCREMENT).join();
     }
 
     @Override public Map<String, String> allUidToUsername() {
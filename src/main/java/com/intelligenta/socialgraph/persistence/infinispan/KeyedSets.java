@@ -0,0 +1,25 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.io.Serial;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named sets of strings under one cache key: per post, each actor's
+ * reaction verbs; per user, the negative keywords and blocked image hashes.
+ * Marshalled as {@code socialgraph.KeyedSets}; unmarshalled sets are
+ * concurrent.
+ */
+public final class KeyedSets extends ConcurrentHashMap<String, Set<String>> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public KeyedSets() {}
+
+    /** A shallow copy: the sets themselves are shared. */
+    public KeyedSets(Map<String, Set<String>> sets) {
+        super(sets);
+    }
+}
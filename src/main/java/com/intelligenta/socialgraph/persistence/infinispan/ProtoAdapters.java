@@ -0,0 +1,277 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner.Delivery;
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import com.intelligenta.socialgraph.persistence.TimelineStore.Entry;
+import org.infinispan.protostream.annotations.ProtoAdapter;
+import org.infinispan.protostream.annotations.ProtoEnumValue;
+import org.infinispan.protostream.annotations.ProtoFactory;
+import org.infinispan.protostream.annotations.ProtoField;
+import org.infinispan.protostream.annotations.ProtoName;
+import org.infinispan.protostream.descriptors.Type;
+
+/**
+ * ProtoStream adapters for the cache value types, and the types shared with
+ * the rest of the application that travel between nodes. The marshallers
+ * themselves are generated from these at compile time (see
+ * {@link SocialGraphSchema}).
+ *
+ * <p>Each getter takes one snapshot of the value, so a value changed in
+ * place while it is marshalled is written consistently.
+ */
+final class ProtoAdapters {
+
+    private ProtoAdapters() {}
+
+    /** One field of a {@link FieldHash}. */
+    record Field(@ProtoField(number = 1) String name, @ProtoField(number = 2) String value) {}
+
+    /** One named set of a {@link KeyedSets}. */
+    record KeyedSet(@ProtoField(number = 1) String key, @ProtoField(number = 2) List<String> members) {}
+
+    @ProtoAdapter(FieldHash.class)
+    static final class FieldHashAdapter {
+
+        @ProtoFactory
+        FieldHash create(List<Field> fields, List<Long> writeIds) {
+            FieldHash hash = new FieldHash();
+            for (Field f : fields) hash.put(f.name(), f.value());
+            hash.applied().restore(writeIds);
+            return hash;
+        }
+
+        @ProtoField(number = 1)
+        List<Field> getFields(FieldHash hash) {
+            List<Field> fields = new ArrayList<>(hash.size());
+            hash.forEach((name, value) -> fields.add(new Field(name, value)));
+            return fields;
+        }
+
+        @ProtoField(number = 2, type = Type.SFIXED64)
+        List<Long> getWriteIds(FieldHash hash) { return hash.applied().snapshot(); }
+    }
+
+    @ProtoAdapter(IdList.class)
+    static final class IdListAdapter {
+
+        @ProtoFactory
+        IdList create(List<String> ids) {
+            return new IdList(ids);
+        }
+
+        @ProtoField(number = 1)
+        List<String> getIds(IdList list) {
+            return list;
+        }
+    }
+
+    @ProtoAdapter(IdSet.class)
+    static final class IdSetAdapter {
+
+        @ProtoFactory
+        IdSet create(List<String> ids) {
+            return new IdSet(ids);
+        }
+
+        @ProtoField(number = 1)
+        List<String> getIds(IdSet set) {
+            return new ArrayList<>(set);
+        }
+    }
+
+    @ProtoAdapter(KeyedSets.class)
+    static final class KeyedSetsAdapter {
+
+        @ProtoFactory
+        KeyedSets create(List<KeyedSet> sets) {
+            KeyedSets out = new KeyedSets();
+            for (KeyedSet s : sets) {
+                Set<String> members = ConcurrentHashMap.newKeySet();
+                members.addAll(s.members());
+                out.put(s.key(), members);
+            }
+            return out;
+        }
+
+        @ProtoField(number = 1)
+        List<KeyedSet> getSets(KeyedSets sets) {
+            List<KeyedSet> out = new ArrayList<>(sets.size());
+            for (Map.Entry<String, Set<String>> e : sets.entrySet()) {
+                out.add(new KeyedSet(e.getKey(), new ArrayList<>(e.getValue())));
+            }
+            return out;
+        }
+    }
+
+    @ProtoAdapter(RelationSets.class)
+    static final class RelationSetsAdapter {
+
+        @ProtoFactory
+        RelationSets create(List<String> followers, List<String> following, List<String> blocked,
+                            List<String> blockers, List<String> muted, List<String> muters,
+                            List<Long> writeIds) {
+            RelationSets sets = new RelationSets();
+            restore(sets, Relation.FOLLOWERS, followers);
+            restore(sets, Relation.FOLLOWING, following);
+            restore(sets, Relation.BLOCKED, blocked);
+            restore(sets, Relation.BLOCKERS, blockers);
+            restore(sets, Relation.MUTED, muted);
+            restore(sets, Relation.MUTERS, muters);
+            sets.applied().restore(writeIds);
+            return sets;
+        }
+
+        private static void restore(RelationSets sets, Relation relation, List<String> members) {
+            if (members != null && !members.isEmpty()) sets.members(relation).addAll(members);
+        }
+
+        private static List<String> snapshot(RelationSets sets, Relation relation) {
+            Set<String> members = sets.get(relation);
+            return members == null ? List.of() : new ArrayList<>(members);
+        }
+
+        @ProtoField(number = 1)
+        List<String> getFollowers(RelationSets sets) { return snapshot(sets, Relation.FOLLOWERS); }
+
+        @ProtoField(number = 2)
+        List<String> getFollowing(RelationSets sets) { return snapshot(sets, Relation.FOLLOWING); }
+
+        @ProtoField(number = 3)
+        List<String> getBlocked(RelationSets sets) { return snapshot(sets, Relation.BLOCKED); }
+
+        @ProtoField(number = 4)
+        List<String> getBlockers(RelationSets sets) { return snapshot(sets, Relation.BLOCKERS); }
+
+        @ProtoField(number = 5)
+        List<String> getMuted(RelationSets sets) { return snapshot(sets, Relation.MUTED); }
+
+        @ProtoField(number = 6)
+        List<String> getMuters(RelationSets sets) { return snapshot(sets, Relation.MUTERS); }
+
+        @ProtoField(number = 7, type = Type.SFIXED64)
+        List<Long> getWriteIds(RelationSets sets) { return sets.applied().snapshot(); }
+    }
+
+    @ProtoAdapter(Entry.class)
+    @ProtoName("TimelineEntry")
+    static final class TimelineEntryAdapter {
+
+        @ProtoFactory
+        Entry create(String postId, double score) {
+            return new Entry(postId, score);
+        }
+
+        @ProtoField(number = 1)
+        String getPostId(Entry entry) { return entry.postId(); }
+
+        @ProtoField(number = 2)
+        double getScore(Entry entry) { return entry.score(); }
+    }
+
+    @ProtoAdapter(RankedTimeline.class)
+    static final class RankedTimelineAdapter {
+
+        @ProtoFactory
+        RankedTimeline create(List<Entry> entries) {
+            RankedTimeline timeline = new RankedTimeline();
+            for (Entry e : entries) timeline.put(e.postId(), e.score());
+            return timeline;
+        }
+
+        /** Highest first, as the timeline is read. */
+        @ProtoField(number = 1)
+        List<Entry> getEntries(RankedTimeline timeline) {
+            return timeline.slice(0, Integer.MAX_VALUE);
+        }
+    }
+
+    @ProtoAdapter(ActorList.class)
+    static final class ActorListAdapter {
+
+        @ProtoFactory
+        ActorList create(List<String> actors, long next, List<Long> writeIds) {
+            return ActorList.restore(actors, next, writeIds);
+        }
+
+        /** Newest first. */
+        @ProtoField(number = 1)
+        List<String> getActors(ActorList list) { return list.slice(0, Integer.MAX_VALUE); }
+
+        @ProtoField(number = 2)
+        long getNext(ActorList list) { return list.next(); }
+
+        @ProtoField(number = 3, type = Type.SFIXED64)
+        List<Long> getWriteIds(ActorList list) { return list.applied().snapshot(); }
+    }
+
+    @ProtoAdapter(Tally.class)
+    static final class TallyAdapter {
+
+        @ProtoFactory
+        Tally create(long value, List<Long> writeIds) {
+            return new Tally(value, writeIds);
+        }
+
+        @ProtoField(number = 1)
+        long getValue(Tally tally) { return tally.value(); }
+
+        /** Write ids are random 64-bit values: fixed width is shorter than a varint. */
+        @ProtoField(number = 2, type = Type.SFIXED64)
+        List<Long> getWriteIds(Tally tally) { return tally.writeIds(); }
+    }
+
+    @ProtoAdapter(Relation.class)
+    enum RelationAdapter {
+        @ProtoEnumValue(0) FOLLOWERS,
+        @ProtoEnumValue(1) FOLLOWING,
+        @ProtoEnumValue(2) BLOCKED,
+        @ProtoEnumValue(3) BLOCKERS,
+        @ProtoEnumValue(4) MUTED,
+        @ProtoEnumValue(5) MUTERS
+    }
+
+    /** A post on its way to another member's fan-out handler. */
+    @ProtoAdapter(Delivery.class)
+    static final class DeliveryAdapter {
+
+        @ProtoFactory
+        Delivery create(String postId, String authorUid, String content, List<Long> terms, String imageHash,
+                        String parentAuthorUid, String originalPostId) {
+            long[] t = new long[terms.size()];
+            for (int i = 0; i < t.length; i++) t[i] = terms.get(i);
+            return new Delivery(postId, authorUid, content, t, imageHash, parentAuthorUid, originalPostId);
+        }
+
+        @ProtoField(number = 1)
+        String getPostId(Delivery d) { return d.postId(); }
+
+        @ProtoField(number = 2)
+        String getAuthorUid(Delivery d) { return d.authorUid(); }
+
+        @ProtoField(number = 3)
+        String getContent(Delivery d) { return d.content(); }
+
+        /** Term hashes are uniformly spread 64-bit values: fixed width is shorter than a varint. */
+        @ProtoField(number = 4, type = Type.SFIXED64)
+        List<Long> getTerms(Delivery d) {
+            List<Long> terms = new ArrayList<>(d.terms().length);
+            for (long term : d.terms()) terms.add(term);
+            return terms;
+        }
+
+        @ProtoField(number = 5)
+        String getImageHash(Delivery d) { return d.imageHash(); }
+
+        @ProtoField(number = 6)
+        String getParentAuthorUid(Delivery d) { return d.parentAuthorUid(); }
+
+        @ProtoField(number = 7)
+        String getOriginalPostId(Delivery d) { return d.originalPostId(); }
+    }
+}
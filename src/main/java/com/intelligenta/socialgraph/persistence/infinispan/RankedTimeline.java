@@ -0,0 +1,92 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.intelligenta.socialgraph.persistence.TimelineStore.Entry;
+
+/**
+ * One scored timeline (ranked timeline, FIFO timestamp index or outbox):
+ * post id → score, plus the same entries kept in {@link Entry#DESCENDING}
+ * order in a skip list. Inserts, rescores, removals and seeks are
+ * O(log n); the top {@code k} are the first {@code k} of the ordered set, so
+ * no read sorts. Offset reads walk from the head, O(offset + limit).
+ *
+ * <p>Updated in place inside a functional-map {@code eval}, so there is one
+ * writer per key at a time; readers iterate concurrently and see each entry
+ * either before or after a write, never a torn one. Marshalled as
+ * {@code socialgraph.RankedTimeline}, its entries in order.
+ */
+public final class RankedTimeline {
+
+    private final ConcurrentHashMap<String, Double> scores = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ordered = new ConcurrentSkipListSet<>(Entry.DESCENDING);
+
+    /** Adds {@code postId} or moves it to {@code score}. */
+    public void put(String postId, double score) {
+        Double previous = scores.put(postId, score);
+        if (previous != null) {
+            if (previous == score) return;
+            ordered.remove(new Entry(postId, previous));
+        }
+        ordered.add(new Entry(postId, score));
+    }
+
+    public boolean remove(String postId) {
+        Double previous = scores.remove(postId);
+        if (previous == null) return false;
+        ordered.remove(new Entry(postId, previous));
+        return true;
+    }
+
+    public Double score(String postId) {
+        return scores.get(postId);
+    }
+
+    public boolean contains(String postId) {
+        return scores.containsKey(postId);
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    /** Drops the lowest-ordered entries past {@code cap}; 0 or negative means unbounded. */
+    public int cap(int cap) {
+        int removed = 0;
+        while (cap > 0 && scores.size() > cap) {
+            Entry last = ordered.pollLast();
+            if (last == null) break;
+            scores.remove(last.postId());
+            removed++;
+        }
+        return removed;
+    }
+
+    /** Entries {@code [offset, offset + limit)} in descending order. */
+    public List<Entry> slice(int offset, int limit) {
+        if (limit <= 0 || offset >= scores.size()) return Collections.emptyList();
+        List<Entry> out = new ArrayList<>(Math.min(limit, scores.size()));
+        Iterator<Entry> it = ordered.iterator();
+        for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) it.next();
+        while (it.hasNext() && out.size() < limit) out.add(it.next());
+        return out;
+    }
+
+    /** Up to {@code limit} entries after {@code after}; from the top when it is null. */
+    public List<Entry> after(Entry after, int limit) {
+        if (limit <= 0 || scores.isEmpty()) return Collections.emptyList();
+        NavigableSet<Entry> tail = after == null ? ordered : ordered.tailSet(after, false);
+        List<Entry> out = new ArrayList<>(Math.min(limit, scores.size()));
+        for (Entry e : tail) {
+            if (out.size() == limit) break;
+            out.add(e);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,31 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.io.Serial;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+
+/**
+ * One user's six relation sets. The sets are concurrent and changed one
+ * member at a time in place (see {@link InfinispanRelationStore}).
+ * Marshalled as {@code socialgraph.RelationSets}, one repeated field per
+ * relation and the ids of the last writes that changed them (see
+ * {@link AppliedWrites}).
+ */
+public final class RelationSets extends ConcurrentHashMap<Relation, Set<String>> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final transient AppliedWrites applied = new AppliedWrites();
+
+    /** The set for {@code relation}, created empty if absent. */
+    public Set<String> members(Relation relation) {
+        return computeIfAbsent(relation, r -> ConcurrentHashMap.newKeySet());
+    }
+
+    AppliedWrites applied() {
+        return applied;
+    }
+}
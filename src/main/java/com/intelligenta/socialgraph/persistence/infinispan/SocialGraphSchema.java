@@ -0,0 +1,58 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import org.infinispan.protostream.GeneratedSchema;
+import org.infinispan.protostream.annotations.ProtoSchema;
+import org.infinispan.protostream.annotations.ProtoSyntax;
+
+/**
+ * The ProtoStream schema of everything the native stores keep in, or send
+ * between, embedded caches: the cache values, the arguments and functions
+ * of the functional-map writes, and the fan-out partitioner's remote task.
+ * The {@code protostream-processor} annotation processor generates
+ * {@code SocialGraphSchemaImpl}, the {@code socialgraph.proto} file and a
+ * marshaller per type at compile time; {@code InfinispanConfig} registers it
+ * with the embedded cache manager.
+ *
+ * <p>Field and enum numbers are part of the stored format: add new ones,
+ * never renumber.
+ */
+@ProtoSchema(
+    schemaFileName = "socialgraph.proto",
+    schemaFilePath = "proto/",
+    schemaPackageName = "socialgraph",
+    syntax = ProtoSyntax.PROTO3,
+    includeClasses = {
+        // Cache values
+        ProtoAdapters.FieldHashAdapter.class,
+        ProtoAdapters.Field.class,
+        ProtoAdapters.IdListAdapter.class,
+        ProtoAdapters.IdSetAdapter.class,
+        ProtoAdapters.KeyedSetsAdapter.class,
+        ProtoAdapters.KeyedSet.class,
+        ProtoAdapters.RelationSetsAdapter.class,
+        ProtoAdapters.TimelineEntryAdapter.class,
+        ProtoAdapters.RankedTimelineAdapter.class,
+        ProtoAdapters.ActorListAdapter.class,
+        ProtoAdapters.TallyAdapter.class,
+        // Functional-map writes
+        ProtoAdapters.RelationAdapter.class,
+        InfinispanRelationStore.Member.class,
+        InfinispanRelationStore.RelationWrite.class,
+        InfinispanReactionStore.Reaction.class,
+        InfinispanReactionStore.ActorWrite.class,
+        InfinispanReactionStore.VerbWrite.class,
+        InfinispanUserStore.FieldUpdate.class,
+        InfinispanUserStore.FieldWrite.class,
+        InfinispanUserStore.ActivityWrite.class,
+        InfinispanTimelineStore.TimelinePush.class,
+        InfinispanTimelineStore.RankedWrite.class,
+        InfinispanTimelineStore.FifoWrite.class,
+        InfinispanTimelineStore.VersionWrite.class,
+        Tally.Delta.class,
+        // Cluster executor
+        ProtoAdapters.DeliveryAdapter.class,
+        InfinispanFanoutPartitioner.RemoteDelivery.class
+    }
+)
+public interface SocialGraphSchema extends GeneratedSchema {
+}
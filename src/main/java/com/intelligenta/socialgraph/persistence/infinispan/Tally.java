@@ -0,0 +1,48 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.List;
+
+import org.infinispan.protostream.annotations.ProtoField;
+
+/**
+ * A count changed only by delta writes (timeline and outbox versions,
+ * request counts), with the ids of the last writes applied to it; see
+ * {@link AppliedWrites}. Immutable: a write sets a new tally, so the value
+ * and its ids are always marshalled together. Marshalled as
+ * {@code socialgraph.Tally}.
+ */
+public final class Tally {
+
+    private final long value;
+    private final AppliedWrites applied;
+
+    /** A delta and the id of the write that carries it. */
+    record Delta(@ProtoField(number = 1) long writeId, @ProtoField(number = 2) long amount) {}
+
+    Tally(long value, List<Long> writeIds) {
+        this.value = value;
+        this.applied = new AppliedWrites();
+        applied.restore(writeIds);
+    }
+
+    public long value() {
+        return value;
+    }
+
+    List<Long> writeIds() {
+        return applied.snapshot();
+    }
+
+    /** This tally plus the delta, or this tally if that write was already applied. */
+    Tally plus(Delta delta) {
+        if (applied.contains(delta.writeId())) return this;
+        List<Long> ids = applied.snapshot();
+        ids.add(delta.writeId());
+        return new Tally(value + delta.amount(), ids);
+    }
+
+    /** The value of a stored tally; 0 if there is none. */
+    static long valueOf(Tally tally) {
+        return tally == null ? 0 : tally.value;
+    }
+}
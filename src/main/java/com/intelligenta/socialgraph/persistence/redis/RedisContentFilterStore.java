@@ -1,17 +1,42 @@
 package com.intelligenta.socialgraph.persistence.redis;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.intelligenta.socialgraph.persistence.ContentFilterStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
+/**
+ * Filters live in per-user hashes. Two registry sets —
+ * {@code filters:keywords:users} and {@code filters:images:users} — record
+ * which users have any filter at all, so fan-out can find the handful of
+ * followers worth checking with one {@code SMISMEMBER}. Registries are
+ * maintained on add and backfilled from a {@code SCAN} once at startup for
+ * filters written before they existed.
+ */
 @Component
 @ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode",
     havingValue = "resp", matchIfMissing = true)
 public class RedisContentFilterStore implements ContentFilterStore {
 
+    private static final Logger log = LoggerFactory.getLogger(RedisContentFilterStore.class);
+
+    static final String KEYWORD_USERS = "filters:keywords:users";
+    static final String IMAGE_USERS = "filters:images:users";
+
     private final StringRedisTemplate redis;
 
     public RedisContentFilterStore(StringRedisTemplate redis) {
@@ -22,22 +47,26 @@ public class RedisContentFilterStore implements ContentFilterStore {
     private String imagesKey(String uid)   { return "user:" + uid + ":images:blocked:md5"; }
 
     @Override
-    public void addNegativeKeyword(String uid, String keyword) {
-        redis.opsForHash().put(keywordsKey(uid), keyword, keyword);
+    public boolean addNegativeKeyword(String uid, String keyword) {
+        Boolean added = redis.opsForHash().putIfAbsent(keywordsKey(uid), keyword, keyword);
+        redis.opsForSet().add(KEYWORD_USERS, uid);
+        return Boolean.TRUE.equals(added);
     }
 
     @Override
-    public boolean hasAnyNegativeKeyword(String uid, List<String> keywords) {
-        if (keywords == null || keywords.isEmpty()) return false;
-        for (String k : keywords) {
-            if (Boolean.TRUE.equals(redis.opsForHash().hasKey(keywordsKey(uid), k))) return true;
-        }
-        return false;
+    public Set<String> negativeKeywords(String uid) {
+        Set<Object> keys = redis.opsForHash().keys(keywordsKey(uid));
+        if (keys == null || keys.isEmpty()) return Collections.emptySet();
+        Set<String> out = new HashSet<>(keys.size());
+        for (Object k : keys) out.add((String) k);
+        return out;
     }
 
     @Override
-    public void blockImage(String uid, String md5) {
-        redis.opsForHash().put(imagesKey(uid), md5, md5);
+    public boolean blockImage(String uid, String md5) {
+        Boolean added = redis.opsForHash().putIfAbsent(imagesKey(uid), md5, md5);
+        redis.opsForSet().add(IMAGE_USERS, uid);
+        return Boolean.TRUE.equals(added);
     }
 
     @Override
@@ -45,4 +74,60 @@ public class RedisContentFilterStore implements ContentFilterStore {
         if (md5 == null || md5.isBlank()) return false;
         return Boolean.TRUE.equals(redis.opsForHash().hasKey(imagesKey(uid), md5));
     }
+
+    /** One {@code HMGET} of the hashes against the user's blocked-image hash. */
+    @Override
+    public Set<String> blockedImages(String uid, Collection<String> md5s) {
+        List<Object> fields = new ArrayList<>(md5s.size());
+        for (String md5 : md5s) if (md5 != null && !md5.isBlank()) fields.add(md5);
+        if (fields.isEmpty()) return Collections.emptySet();
+        List<Object> hits = redis.opsForHash().multiGet(imagesKey(uid), fields);
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (hits != null && hits.get(i) != null) out.add((String) fields.get(i));
+        }
+        return out;
+    }
+
+    @Override
+    public Set<String> usersWithFilters(Collection<String> uids, boolean keywords, boolean images) {
+        if (uids.isEmpty() || (!keywords && !images)) return Collections.emptySet();
+        Object[] members = uids.toArray();
+        Set<String> out = new HashSet<>();
+        if (keywords) collectMembers(KEYWORD_USERS, members, out);
+        if (images) collectMembers(IMAGE_USERS, members, out);
+        return out;
+    }
+
+    private void collectMembers(String registry, Object[] members, Set<String> out) {
+        Map<Object, Boolean> hits = redis.opsForSet().isMember(registry, members);
+        if (hits == null) return;
+        hits.forEach((uid, member) -> { if (Boolean.TRUE.equals(member)) out.add((String) uid); });
+    }
+
+    /** Registers users whose filters predate the registry sets. Runs off the startup thread. */
+    @EventListener(ApplicationReadyEvent.class)
+    void backfillRegistries() {
+        Thread.ofVirtual().name("filter-registry-backfill").start(() -> {
+            try {
+                long k = backfill("user:*:negative:keywords", ":negative:keywords", KEYWORD_USERS);
+                long i = backfill("user:*:images:blocked:md5", ":images:blocked:md5", IMAGE_USERS);
+                log.info("Content-filter registries backfilled: {} keyword users, {} image users", k, i);
+            } catch (RuntimeException e) {
+                log.warn("Content-filter registry backfill failed; fan-out may skip filters set before upgrade", e);
+            }
+        });
+    }
+
+    private long backfill(String pattern, String suffix, String registry) {
+        long n = 0;
+        try (Cursor<String> keys = redis.scan(ScanOptions.scanOptions().match(pattern).count(1000).build())) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                redis.opsForSet().add(registry, key.substring("user:".length(), key.length() - suffix.length()));
+                n++;
+            }
+        }
+        return n;
+    }
 }
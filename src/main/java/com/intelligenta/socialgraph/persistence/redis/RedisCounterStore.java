@@ -1,7 +1,15 @@
 package com.intelligenta.socialgraph.persistence.redis;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 import com.intelligenta.socialgraph.persistence.CounterStore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
@@ -27,7 +35,23 @@ public class RedisCounterStore implements CounterStore {
 
     @Override
     public long get(Kind kind, String uid) {
-        Object v = redis.opsForHash().get(bucket(kind), uid);
+        return parse(redis.opsForHash().get(bucket(kind), uid));
+    }
+
+    @Override
+    public Map<Kind, Long> getMany(String uid, Collection<Kind> kinds) {
+        List<Kind> order = new ArrayList<>(kinds);
+        List<Object> values = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Kind kind : order) conn.hGet(bucket(kind), uid);
+            return null;
+        });
+        Map<Kind, Long> out = new EnumMap<>(Kind.class);
+        for (int i = 0; i < order.size(); i++) out.put(order.get(i), parse(values.get(i)));
+        return out;
+    }
+
+    private static long parse(Object v) {
         if (v == null) return 0L;
         try { return Long.parseLong(String.valueOf(v)); }
         catch (NumberFormatException e) { return 0L; }
@@ -0,0 +1,31 @@
+package com.intelligenta.socialgraph.persistence.redis;
+
+import java.util.List;
+
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis implementation of {@link FanoutPartitioner}: every instance writes
+ * to the same server, so recipients are delivered in-process. Spreading
+ * fan-out across instances on Redis goes through {@link RedisFanoutQueue}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode",
+    havingValue = "resp", matchIfMissing = true)
+public class RedisFanoutPartitioner implements FanoutPartitioner {
+
+    private volatile Handler handler;
+
+    @Override
+    public void register(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public int deliver(Delivery delivery, List<String> recipients) {
+        if (recipients.isEmpty()) return 0;
+        return handler.deliver(delivery, recipients);
+    }
+}
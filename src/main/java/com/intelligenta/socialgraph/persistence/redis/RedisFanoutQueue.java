@@ -0,0 +1,213 @@
+package com.intelligenta.socialgraph.persistence.redis;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.intelligenta.socialgraph.config.PersistenceProperties;
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.FanoutQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis Streams implementation of {@link FanoutQueue}. Jobs are entries on
+ * {@code fanout:queue}, consumed through the {@code fanout-workers} group by
+ * every app instance (one consumer name per process). Checkpoints live in a
+ * {@code fanout:job:<entryId>} hash ({@code cursor}, {@code checkpointedAt}).
+ *
+ * <p>A pending entry whose last delivery and last checkpoint are both older
+ * than {@code timeline.fanout.queue.lease} belongs to a dead worker; any
+ * instance takes it over with {@code XCLAIM ... min-idle-time}, which only one
+ * claimant can win. The entry's delivery count is the attempt number.
+ *
+ * <p>Streams are not served by Infinispan's RESP endpoint, so
+ * {@link #enabled()} is false unless {@code persistence.provider=redis};
+ * {@code ShareService} then falls back to in-process fan-out.
+ */
+@Component
+@ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode",
+    havingValue = "resp", matchIfMissing = true)
+public class RedisFanoutQueue implements FanoutQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisFanoutQueue.class);
+
+    static final String STREAM = "fanout:queue";
+    static final String DLQ_STREAM = "fanout:queue:dlq";
+    static final String GROUP = "fanout-workers";
+
+    private final StringRedisTemplate redis;
+    private final TimelineProperties.Queue props;
+    private final boolean enabled;
+    private final String consumerName = "fanout-" + UUID.randomUUID().toString().substring(0, 8);
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean consuming;
+
+    public RedisFanoutQueue(StringRedisTemplate redis,
+                            TimelineProperties timelineProperties,
+                            PersistenceProperties persistenceProperties) {
+        this.redis = redis;
+        this.props = timelineProperties.getFanout().getQueue();
+        this.enabled = persistenceProperties.getProvider() == PersistenceProperties.Provider.REDIS;
+    }
+
+    private static String jobKey(String id) { return "fanout:job:" + id; }
+
+    @Override
+    public void enqueue(String postId, String authorUid) {
+        redis.opsForStream().add(MapRecord.create(STREAM, Map.of("postId", postId, "authorUid", authorUid)));
+    }
+
+    @Override
+    public void consume(int workerCount, Consumer<Job> handler) {
+        ensureGroup();
+        consuming = true;
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            workers.add(Thread.ofPlatform().name("fanout-queue-" + i).daemon().start(() -> loop(handler)));
+        }
+        log.info("RedisFanoutQueue consuming {} on group {} as {} ({} workers)",
+            STREAM, GROUP, consumerName, workers.size());
+    }
+
+    @Override
+    public void checkpoint(Job job, String cursor) {
+        redis.opsForHash().putAll(jobKey(job.id()), Map.of(
+            "cursor", cursor,
+            "checkpointedAt", String.valueOf(System.currentTimeMillis())));
+    }
+
+    @Override
+    public void stop() {
+        consuming = false;
+        for (Thread t : workers) {
+            try {
+                t.join(Duration.ofSeconds(10).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void deadLetter(Job job, String reason) {
+        redis.opsForStream().add(MapRecord.create(DLQ_STREAM, Map.of(
+            "postId", job.postId(),
+            "authorUid", job.authorUid(),
+            "cursor", job.cursor(),
+            "attempts", String.valueOf(job.attempts()),
+            "reason", String.valueOf(reason))));
+        complete(job);
+    }
+
+    @Override
+    public boolean enabled() {
+        return enabled;
+    }
+
+    private void ensureGroup() {
+        try {
+            redis.opsForStream().createGroup(STREAM, ReadOffset.from("0-0"), GROUP);
+        } catch (RuntimeException e) {
+            String msg = e.getMessage() == null ? "" : e.getMessage();
+            if (!msg.contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    private void loop(Consumer<Job> handler) {
+        while (consuming) {
+            try {
+                Job job = reclaimStale();
+                if (job == null) job = readNext();
+                if (job != null) handle(job, handler);
+            } catch (Exception e) {
+                if (!consuming) break;
+                log.error("fan-out queue loop error", e);
+                sleep(props.getPollInterval().toMillis());
+            }
+        }
+    }
+
+    private void handle(Job job, Consumer<Job> handler) {
+        running.add(job.id());
+        try {
+            handler.accept(job);
+            complete(job);
+        } catch (RuntimeException e) {
+            log.warn("fan-out attempt {} failed for post {} (job {}, cursor '{}')",
+                job.attempts(), job.postId(), job.id(), job.cursor(), e);
+            if (job.attempts() >= props.getMaxAttempts()) deadLetter(job, e.toString());
+            // Otherwise left pending; reclaimed from its checkpoint once the lease lapses.
+        } finally {
+            running.remove(job.id());
+        }
+    }
+
+    private Job readNext() {
+        List<MapRecord<String, Object, Object>> records = redis.opsForStream().read(
+            org.springframework.data.redis.connection.stream.Consumer.from(GROUP, consumerName),
+            StreamReadOptions.empty().block(props.getPollInterval()).count(1),
+            StreamOffset.create(STREAM, ReadOffset.lastConsumed()));
+        if (records == null || records.isEmpty()) return null;
+        return toJob(records.get(0), 1);
+    }
+
+    /** Takes over the oldest pending job whose worker has stopped checkpointing, if any. */
+    private Job reclaimStale() {
+        PendingMessages pending = redis.opsForStream().pending(STREAM, GROUP, Range.unbounded(), 10);
+        if (pending == null) return null;
+        Duration lease = props.getLease();
+        long now = System.currentTimeMillis();
+        for (PendingMessage pm : pending) {
+            if (running.contains(pm.getIdAsString())) continue;
+            if (pm.getElapsedTimeSinceLastDelivery().compareTo(lease) < 0) continue;
+            Object at = redis.opsForHash().get(jobKey(pm.getIdAsString()), "checkpointedAt");
+            if (at != null && now - Long.parseLong(at.toString()) < lease.toMillis()) continue;
+
+            List<MapRecord<String, Object, Object>> claimed =
+                redis.opsForStream().claim(STREAM, GROUP, consumerName, lease, pm.getId());
+            if (claimed == null || claimed.isEmpty()) continue;
+            log.info("Reclaimed fan-out job {} from consumer {}", pm.getIdAsString(), pm.getConsumerName());
+            return toJob(claimed.get(0), (int) pm.getTotalDeliveryCount() + 1);
+        }
+        return null;
+    }
+
+    private Job toJob(MapRecord<String, Object, Object> rec, int attempts) {
+        String id = rec.getId().getValue();
+        Object cursor = attempts > 1 ? redis.opsForHash().get(jobKey(id), "cursor") : null;
+        return new Job(id,
+            String.valueOf(rec.getValue().get("postId")),
+            String.valueOf(rec.getValue().get("authorUid")),
+            cursor == null ? "" : cursor.toString(),
+            attempts);
+    }
+
+    private void complete(Job job) {
+        redis.opsForStream().acknowledge(STREAM, GROUP, job.id());
+        redis.opsForStream().delete(STREAM, job.id());
+        redis.delete(jobKey(job.id()));
+    }
+
+    private static void sleep(long ms) {
+        try { Thread.sleep(ms); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+    }
+}
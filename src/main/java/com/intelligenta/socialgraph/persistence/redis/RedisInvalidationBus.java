@@ -0,0 +1,91 @@
+package com.intelligenta.socialgraph.persistence.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis implementation of {@link InvalidationBus}: one pub/sub channel,
+ * {@value #CHANNEL}, carrying {@code <cache>:<key>} messages. Every instance
+ * receives its own messages too, which costs one redundant local
+ * invalidation. The listener container starts on the first subscription, so
+ * an instance with every near cache disabled never opens the subscriber
+ * connection.
+ */
+@Component
+@ConditionalOnProperty(prefix = "persistence.infinispan", name = "client-mode",
+    havingValue = "resp", matchIfMissing = true)
+public class RedisInvalidationBus implements InvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisInvalidationBus.class);
+
+    static final String CHANNEL = "nearcache:invalidate";
+
+    private final StringRedisTemplate redis;
+    private final RedisConnectionFactory connectionFactory;
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+    private RedisMessageListenerContainer container;
+
+    public RedisInvalidationBus(StringRedisTemplate redis, RedisConnectionFactory connectionFactory) {
+        this.redis = redis;
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public void publish(String cache, String key) {
+        try {
+            redis.convertAndSend(CHANNEL, cache + ":" + key);
+        } catch (RuntimeException e) {
+            log.warn("Could not publish invalidation of {} {}: {}", cache, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(String cache, Consumer<String> invalidate) {
+        subscribers.computeIfAbsent(cache, c -> new CopyOnWriteArrayList<>()).add(invalidate);
+        startListening();
+    }
+
+    private synchronized void startListening() {
+        if (container != null) return;
+        RedisMessageListenerContainer c = new RedisMessageListenerContainer();
+        c.setConnectionFactory(connectionFactory);
+        c.addMessageListener(this::onMessage, new ChannelTopic(CHANNEL));
+        c.afterPropertiesSet();
+        c.start();
+        container = c;
+    }
+
+    void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf(':');
+        if (sep <= 0) return;
+        List<Consumer<String>> targets = subscribers.get(body.substring(0, sep));
+        if (targets == null) return;
+        String key = body.substring(sep + 1);
+        for (Consumer<String> target : targets) target.accept(key);
+    }
+
+    @PreDestroy
+    synchronized void stop() throws Exception {
+        if (container != null) {
+            container.destroy();
+            container = null;
+        }
+    }
+}
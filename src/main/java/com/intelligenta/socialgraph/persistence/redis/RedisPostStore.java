@@ -1,6 +1,7 @@
 package com.intelligenta.socialgraph.persistence.redis;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,6 +10,8 @@ import java.util.Optional;
 import com.intelligenta.socialgraph.persistence.CounterStore;
 import com.intelligenta.socialgraph.persistence.PostStore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
@@ -62,6 +65,25 @@ public class RedisPostStore implements PostStore {
         return Optional.of(typed);
     }
 
+    /** One pipeline of {@code HGETALL}s, replies in request order. */
+    @Override
+    public Map<String, Map<String, Object>> getMany(List<String> postIds) {
+        if (postIds.isEmpty()) return Collections.emptyMap();
+        List<Object> replies = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (String postId : postIds) conn.hGetAll(postKey(postId));
+            return null;
+        });
+        Map<String, Map<String, Object>> out = new HashMap<>(postIds.size() * 2);
+        for (int i = 0; i < postIds.size(); i++) {
+            if (!(replies.get(i) instanceof Map<?, ?> raw) || raw.isEmpty()) continue;
+            Map<String, Object> typed = new LinkedHashMap<>();
+            raw.forEach((k, v) -> typed.put(String.valueOf(k), v));
+            out.put(postIds.get(i), typed);
+        }
+        return out;
+    }
+
     @Override
     public boolean exists(String postId) {
         return Boolean.TRUE.equals(redis.hasKey(postKey(postId)));
@@ -93,4 +115,23 @@ public class RedisPostStore implements PostStore {
         List<String> out = redis.opsForList().range(imagesKey(postId), 0, -1);
         return out == null ? Collections.emptyList() : out;
     }
+
+    /** One pipeline of {@code LRANGE 0 -1}s. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, List<String>> imagesMany(List<String> postIds) {
+        if (postIds.isEmpty()) return Collections.emptyMap();
+        List<Object> replies = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (String postId : postIds) conn.lRange(imagesKey(postId), 0, -1);
+            return null;
+        });
+        Map<String, List<String>> out = new HashMap<>(postIds.size() * 2);
+        for (int i = 0; i < postIds.size(); i++) {
+            if (replies.get(i) instanceof List<?> urls && !urls.isEmpty()) {
+                out.put(postIds.get(i), (List<String>) urls);
+            }
+        }
+        return out;
+    }
 }
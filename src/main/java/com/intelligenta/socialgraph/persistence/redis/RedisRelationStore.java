@@ -1,6 +1,11 @@
 package com.intelligenta.socialgraph.persistence.redis;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.intelligenta.socialgraph.persistence.RelationStore;
@@ -52,4 +57,24 @@ public class RedisRelationStore implements RelationStore {
         Set<String> s = redis.opsForSet().members(key(uid, relation));
         return s == null ? Collections.emptySet() : s;
     }
+
+    @Override
+    public Set<String> difference(String uid, Relation from, Relation... subtract) {
+        List<String> others = new ArrayList<>(subtract.length);
+        for (Relation r : subtract) others.add(key(uid, r));
+        Set<String> s = redis.opsForSet().difference(key(uid, from), others);
+        return s == null ? Collections.emptySet() : s;
+    }
+
+    @Override
+    public Set<String> retainMembers(String uid, Relation relation, Collection<String> candidates) {
+        if (candidates.isEmpty()) return Collections.emptySet();
+        Map<Object, Boolean> flags = redis.opsForSet().isMember(key(uid, relation), candidates.toArray());
+        if (flags == null) return Collections.emptySet();
+        Set<String> out = new HashSet<>();
+        flags.forEach((member, present) -> {
+            if (Boolean.TRUE.equals(present)) out.add((String) member);
+        });
+        return out;
+    }
 }
@@ -1,11 +1,23 @@
 package com.intelligenta.socialgraph.persistence.redis;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import com.intelligenta.socialgraph.config.TimelineProperties;
 import com.intelligenta.socialgraph.persistence.TimelineStore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -14,28 +26,195 @@ import org.springframework.stereotype.Component;
 public class RedisTimelineStore implements TimelineStore {
 
     private final StringRedisTemplate redis;
+    private final int batchSize;
+    private final int fifoCap;
+    private final int personalCap;
+    private final int everyoneCap;
+    private final int outboxCap;
 
-    public RedisTimelineStore(StringRedisTemplate redis) {
+    public RedisTimelineStore(StringRedisTemplate redis, TimelineProperties timelineProperties) {
         this.redis = redis;
+        this.batchSize = Math.max(1, timelineProperties.getPipelineBatchSize());
+        TimelineProperties.MaxLength caps = timelineProperties.getMaxLength();
+        this.fifoCap = caps.forKind(Kind.FIFO);
+        this.personalCap = caps.forKind(Kind.PERSONAL_IMPORTANCE);
+        this.everyoneCap = caps.forKind(Kind.EVERYONE_IMPORTANCE);
+        this.outboxCap = caps.getOutbox();
     }
 
     private static String fifoKey(String uid)     { return "user:" + uid + ":timeline"; }
     private static String personalKey(String uid) { return "user:" + uid + ":timeline:personal:importance"; }
     private static String everyoneKey(String uid) { return "user:" + uid + ":timeline:everyone:importance"; }
+    private static String fifoTsKey(String uid)   { return "user:" + uid + ":timeline:fifo:ts"; }
+    private static String outboxKey(String uid)   { return "user:" + uid + ":outbox"; }
+    private static String versionKey(String uid)  { return "user:" + uid + ":timeline:version"; }
+    private static String outboxVersionKey(String uid) { return "user:" + uid + ":outbox:version"; }
+    private static final String PULL_AUTHORS = "timeline:pull:authors";
+
+    /**
+     * Compaction trim of one timeline. KEYS: list, fifo:ts, personal,
+     * everyone, outbox; ARGV: their caps. Drops repeats of a post id from the
+     * list (older occurrence first) before capping it, then removes every
+     * fifo:ts member the list no longer holds. Returns {entries removed,
+     * list length, fifo:ts size}.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TRIM = RedisScript.of("""
+        local removed = 0
+        local listed = {}
+        local repeats = {}
+        for _, id in ipairs(redis.call('LRANGE', KEYS[1], 0, -1)) do
+          if listed[id] then repeats[#repeats + 1] = id else listed[id] = true end
+        end
+        for _, id in ipairs(repeats) do
+          removed = removed + redis.call('LREM', KEYS[1], -1, id)
+        end
+        local fifoCap = tonumber(ARGV[1])
+        if fifoCap > 0 then
+          local dropped = redis.call('LRANGE', KEYS[1], fifoCap, -1)
+          redis.call('LTRIM', KEYS[1], 0, fifoCap - 1)
+          for _, id in ipairs(dropped) do listed[id] = nil end
+          removed = removed + #dropped
+        end
+        for _, id in ipairs(redis.call('ZRANGE', KEYS[2], 0, -1)) do
+          if not listed[id] then redis.call('ZREM', KEYS[2], id) end
+        end
+        for i = 3, 5 do
+          local cap = tonumber(ARGV[i - 1])
+          if cap > 0 then removed = removed + redis.call('ZREMRANGEBYRANK', KEYS[i], 0, -(cap + 1)) end
+        end
+        return {removed, redis.call('LLEN', KEYS[1]), redis.call('ZCARD', KEYS[2])}
+        """, List.class);
 
     @Override
     public void push(String uid, String postId, double fifoTimestamp, double personalScore, double everyoneScore) {
-        redis.opsForList().leftPush(fifoKey(uid), postId);
-        redis.opsForZSet().add(personalKey(uid), postId, personalScore);
-        redis.opsForZSet().add(everyoneKey(uid), postId, everyoneScore);
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            write((StringRedisConnection) connection, uid, postId, fifoTimestamp, personalScore, everyoneScore);
+            return null;
+        });
     }
 
+    /**
+     * Sends the LREM + LPUSH + ZADDs (and their trims) for every recipient
+     * through one Lettuce pipeline per {@code timeline.pipeline-batch-size}
+     * recipients, so a chunk costs one round-trip rather than several per
+     * follower.
+     */
     @Override
     public void pushMany(List<String> recipientUids, String postId,
-                         double fifoTimestamp, double personalScore, double everyoneScore) {
-        for (String uid : recipientUids) {
-            push(uid, postId, fifoTimestamp, personalScore, everyoneScore);
+                         double fifoTimestamp, double[] personalScores, double everyoneScore) {
+        for (int from = 0; from < recipientUids.size(); from += batchSize) {
+            int start = from;
+            int end = Math.min(recipientUids.size(), from + batchSize);
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (int i = start; i < end; i++) {
+                    write(conn, recipientUids.get(i), postId, fifoTimestamp, personalScores[i], everyoneScore);
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * One recipient's writes, each followed by the trim that keeps it within
+     * its cap, then the version bump. {@code LREM} first keeps each post id
+     * in the list once, so a repeated delivery moves it to the front, as the
+     * {@code ZADD} does in {@code fifo:ts}, and both hold the same ids when
+     * capped by count. It is O(list length), bounded by the FIFO cap.
+     */
+    private void write(StringRedisConnection conn, String uid, String postId,
+                       double fifoTimestamp, double personalScore, double everyoneScore) {
+        conn.lRem(fifoKey(uid), 0, postId);
+        conn.lPush(fifoKey(uid), postId);
+        conn.zAdd(fifoTsKey(uid), fifoTimestamp, postId);
+        conn.zAdd(personalKey(uid), personalScore, postId);
+        conn.zAdd(everyoneKey(uid), everyoneScore, postId);
+        trim(conn, uid);
+        conn.incr(versionKey(uid));
+    }
+
+    @Override
+    public long version(String uid) {
+        return parseVersion(redis.opsForValue().get(versionKey(uid)));
+    }
+
+    /** One {@code MGET} across the authors' {@code :outbox:version} counters. */
+    @Override
+    public long outboxVersion(Collection<String> authorUids) {
+        if (authorUids.isEmpty()) return 0;
+        List<String> keys = new ArrayList<>(authorUids.size());
+        for (String uid : authorUids) keys.add(outboxVersionKey(uid));
+        List<String> values = redis.opsForValue().multiGet(keys);
+        long sum = 0;
+        if (values != null) for (String v : values) sum += parseVersion(v);
+        return sum;
+    }
+
+    private static long parseVersion(String value) {
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private void trim(StringRedisConnection conn, String uid) {
+        if (fifoCap > 0) {
+            conn.lTrim(fifoKey(uid), 0, fifoCap - 1);
+            conn.zRemRange(fifoTsKey(uid), 0, -(fifoCap + 1));
+        }
+        if (personalCap > 0) conn.zRemRange(personalKey(uid), 0, -(personalCap + 1));
+        if (everyoneCap > 0) conn.zRemRange(everyoneKey(uid), 0, -(everyoneCap + 1));
+    }
+
+    @Override
+    public Set<String> holding(Collection<String> uids, String postId) {
+        if (uids.isEmpty()) return Collections.emptySet();
+        List<String> ordered = List.copyOf(uids);
+        List<Object> scores = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (String uid : ordered) conn.zScore(fifoTsKey(uid), postId);
+            return null;
+        });
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            if (scores.get(i) != null) out.add(ordered.get(i));
         }
+        return out;
+    }
+
+    /** One {@link #TRIM} script: the caps, then the sizes that tell whether fifo:ts needs a backfill. */
+    @Override
+    public long trim(String uid) {
+        List<?> result = redis.execute(TRIM,
+            List.of(fifoKey(uid), fifoTsKey(uid), personalKey(uid), everyoneKey(uid), outboxKey(uid)),
+            String.valueOf(fifoCap), String.valueOf(personalCap), String.valueOf(everyoneCap), String.valueOf(outboxCap));
+        if (result == null || result.size() < 3) return 0;
+        long removed = (Long) result.get(0);
+        if ((Long) result.get(2) < (Long) result.get(1)) backfillFifoIndex(uid);
+        return removed;
+    }
+
+    /**
+     * Adds list entries delivered before {@code fifo:ts} existed to it, with
+     * {@code ZADD NX} so a delivery racing the backfill keeps its real
+     * timestamp.
+     */
+    private void backfillFifoIndex(String uid) {
+        List<String> ids = redis.opsForList().range(fifoKey(uid), 0, -1);
+        if (ids == null || ids.isEmpty()) return;
+        List<Double> scores = redis.opsForZSet().score(fifoTsKey(uid), ids.toArray());
+        List<Entry> missing = TimelineStore.backfillScores(ids, scores, System.currentTimeMillis() / 1000.0);
+        if (missing.isEmpty()) return;
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(missing.size() * 2);
+        for (Entry e : missing) tuples.add(ZSetOperations.TypedTuple.of(e.postId(), e.score()));
+        redis.opsForZSet().addIfAbsent(fifoTsKey(uid), tuples);
+    }
+
+    /** {@code SCAN MATCH user:*:timeline} — the FIFO list marks every timeline owner. */
+    @Override
+    public Stream<String> timelineOwners() {
+        Cursor<String> cursor = redis.scan(ScanOptions.scanOptions().match("user:*:timeline").count(1000).build());
+        return cursor.stream()
+            .map(key -> key.substring("user:".length(), key.length() - ":timeline".length()))
+            .onClose(cursor::close);
     }
 
     @Override
@@ -55,4 +234,109 @@ public class RedisTimelineStore implements TimelineStore {
             }
         };
     }
+
+    /**
+     * FIFO order is the list; scores come from the companion
+     * {@code :timeline:fifo:ts} zset. Entries delivered before that zset
+     * existed have no score and inherit their newer neighbour's, which keeps
+     * the list order intact when merged with outboxes.
+     */
+    @Override
+    public List<Entry> rangeWithScores(String uid, Kind kind, int offset, int limit) {
+        if (kind == Kind.FIFO) {
+            List<String> ids = range(uid, kind, offset, limit);
+            if (ids.isEmpty()) return Collections.emptyList();
+            List<Double> scores = redis.opsForZSet().score(fifoTsKey(uid), ids.toArray());
+            List<Entry> out = new ArrayList<>(ids.size());
+            double carried = Double.MAX_VALUE;
+            for (int i = 0; i < ids.size(); i++) {
+                Double s = scores == null ? null : scores.get(i);
+                if (s != null) carried = s;
+                out.add(new Entry(ids.get(i), carried));
+            }
+            return out;
+        }
+        String key = kind == Kind.PERSONAL_IMPORTANCE ? personalKey(uid) : everyoneKey(uid);
+        return entries(redis.opsForZSet().reverseRangeWithScores(key, offset, offset + limit - 1));
+    }
+
+    @Override
+    public List<Entry> rangeAfter(String uid, Kind kind, Entry after, int limit) {
+        String key = switch (kind) {
+            case FIFO -> fifoTsKey(uid);
+            case PERSONAL_IMPORTANCE -> personalKey(uid);
+            case EVERYONE_IMPORTANCE -> everyoneKey(uid);
+        };
+        return seek(key, after, limit);
+    }
+
+    /**
+     * Reads the page after {@code after} in O(log n + limit). While the
+     * cursor's member still holds the cursor's score, {@code ZREVRANK} finds
+     * it and {@code ZREVRANGE} reads on from the next rank, which keeps ties
+     * in order. Once it has been trimmed, deleted or rescored,
+     * {@code ZREVRANGEBYSCORE ... LIMIT} continues from just below its
+     * score; members that tied with it are skipped in that case.
+     */
+    private List<Entry> seek(String key, Entry after, int limit) {
+        if (limit <= 0) return Collections.emptyList();
+        if (after == null) return entries(redis.opsForZSet().reverseRangeWithScores(key, 0, limit - 1));
+        List<Object> probe = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            conn.zRevRank(key, after.postId());
+            conn.zScore(key, after.postId());
+            return null;
+        });
+        if (probe.get(0) instanceof Long rank && probe.get(1) instanceof Double score && score == after.score()) {
+            return entries(redis.opsForZSet().reverseRangeWithScores(key, rank + 1, rank + limit));
+        }
+        return entries(redis.opsForZSet().reverseRangeByScoreWithScores(
+            key, Double.NEGATIVE_INFINITY, Math.nextDown(after.score()), 0, limit));
+    }
+
+    @Override
+    public void pushOutbox(String authorUid, String postId, double timestamp) {
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            conn.zAdd(outboxKey(authorUid), timestamp, postId);
+            if (outboxCap > 0) conn.zRemRange(outboxKey(authorUid), 0, -(outboxCap + 1));
+            conn.incr(outboxVersionKey(authorUid));
+            return null;
+        });
+    }
+
+    @Override
+    public List<Entry> outbox(String authorUid, int offset, int limit) {
+        return entries(redis.opsForZSet().reverseRangeWithScores(outboxKey(authorUid), offset, offset + limit - 1));
+    }
+
+    @Override
+    public List<Entry> outboxAfter(String authorUid, Entry after, int limit) {
+        return seek(outboxKey(authorUid), after, limit);
+    }
+
+    @Override
+    public void markPullAuthor(String authorUid) {
+        redis.opsForSet().add(PULL_AUTHORS, authorUid);
+    }
+
+    @Override
+    public boolean isPullAuthor(String authorUid) {
+        return Boolean.TRUE.equals(redis.opsForSet().isMember(PULL_AUTHORS, authorUid));
+    }
+
+    @Override
+    public Set<String> pullAuthors() {
+        Set<String> members = redis.opsForSet().members(PULL_AUTHORS);
+        return members == null ? Collections.emptySet() : members;
+    }
+
+    private static List<Entry> entries(Set<ZSetOperations.TypedTuple<String>> tuples) {
+        if (tuples == null || tuples.isEmpty()) return Collections.emptyList();
+        List<Entry> out = new ArrayList<>(tuples.size());
+        for (ZSetOperations.TypedTuple<String> t : tuples) {
+            out.add(new Entry(t.getValue(), t.getScore() == null ? 0.0 : t.getScore()));
+        }
+        return out;
+    }
 }
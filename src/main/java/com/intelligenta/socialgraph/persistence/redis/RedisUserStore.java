@@ -2,6 +2,9 @@ package com.intelligenta.socialgraph.persistence.redis;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +13,8 @@ import java.util.Optional;
 import com.intelligenta.socialgraph.persistence.UserStore;
 import com.intelligenta.socialgraph.util.Util;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
@@ -28,6 +33,8 @@ public class RedisUserStore implements UserStore {
 
     private static String userKey(String username) { return "user:" + username; }
 
+    private static final String[] PROFILE_FIELDS = { "fullname", "profilePicture" };
+
     @Override
     public String register(String username, Map<String, String> userHash, String uid,
                            String token, Duration tokenTtl) {
@@ -64,6 +71,34 @@ public class RedisUserStore implements UserStore {
         return Optional.ofNullable((String) v);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Profile> findProfilesByUids(Collection<String> uids) {
+        if (uids.isEmpty()) return Collections.emptyMap();
+        List<Object> ids = new ArrayList<>(uids);
+        List<Object> names = redis.opsForHash().multiGet(UID_INDEX, ids);
+        List<String> found = new ArrayList<>(ids.size());
+        List<String> usernames = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (names.get(i) == null) continue;
+            found.add((String) ids.get(i));
+            usernames.add((String) names.get(i));
+        }
+        if (found.isEmpty()) return Collections.emptyMap();
+
+        List<Object> fields = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (String username : usernames) conn.hMGet(userKey(username), PROFILE_FIELDS);
+            return null;
+        });
+        Map<String, Profile> out = new HashMap<>(found.size() * 2);
+        for (int i = 0; i < found.size(); i++) {
+            List<String> values = (List<String>) fields.get(i);
+            out.put(found.get(i), new Profile(usernames.get(i), values.get(0), values.get(1)));
+        }
+        return out;
+    }
+
     @Override
     public boolean exists(String username) {
         return Boolean.TRUE.equals(redis.hasKey(userKey(username)));
@@ -2,6 +2,7 @@ package com.intelligenta.socialgraph.service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import com.intelligenta.socialgraph.Verbs;
 import com.intelligenta.socialgraph.exception.PostNotFoundException;
@@ -9,6 +10,7 @@ import com.intelligenta.socialgraph.model.ActionActor;
 import com.intelligenta.socialgraph.model.ActionResponse;
 import com.intelligenta.socialgraph.persistence.PostStore;
 import com.intelligenta.socialgraph.persistence.ReactionStore;
+import com.intelligenta.socialgraph.persistence.UserStore;
 import org.springframework.stereotype.Service;
 
 /** Social actions (like, love, fav, share) backed by {@link ReactionStore}. */
@@ -31,11 +33,13 @@ public class ActionService {
         long startTime = System.currentTimeMillis();
         List<String> actorUids = reactions.listActors(action, postId, index, count);
 
+        Map<String, UserStore.Profile> profiles = userService.findProfiles(actorUids);
         List<ActionActor> actors = new ArrayList<>();
         for (String uid : actorUids) {
-            String username = userService.getUsername(uid);
-            String fullname = userService.getUserField(uid, "fullname");
-            actors.add(new ActionActor(uid, username, fullname));
+            UserStore.Profile profile = profiles.get(uid);
+            actors.add(profile == null
+                ? new ActionActor(uid, null, null)
+                : new ActionActor(uid, profile.username(), profile.fullname()));
         }
         return new ActionResponse(action, postId, actors, actors.size(),
             System.currentTimeMillis() - startTime);
@@ -0,0 +1,327 @@
+package com.intelligenta.socialgraph.service;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.model.FanoutProgress;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Follower fan-out engine. {@link ShareService} hands it the follower set of
+ * a freshly written post plus a {@link ChunkDelivery} callback; the engine
+ * splits the followers into {@code timeline.fanout.chunk-size} slices and
+ * runs the callback for each slice on virtual threads, with at most
+ * {@code timeline.fanout.max-concurrency} chunks in flight across all posts.
+ * The HTTP request returns as soon as the job is submitted.
+ *
+ * <p>With {@code timeline.fanout.async=false} the chunks run inline on the
+ * caller's thread — same chunking and progress accounting, no executor.
+ *
+ * <p>{@link #deliver} is the blocking form used by the durable
+ * {@link com.intelligenta.socialgraph.persistence.FanoutQueue} workers: same
+ * chunking and concurrency, but it returns only when every chunk has run and
+ * reports a {@link Checkpoint} each time the prefix of completed chunks grows.
+ *
+ * <p>Each fan-out is a job with its own id, so a post reshared by several
+ * users, which fans out once per resharer under the original's id, has one
+ * job per resharer. Progress is kept in memory while a job runs and for the
+ * last {@code timeline.fanout.progress-retention} completed jobs afterwards.
+ * A chunk counts as completed only if it was delivered; failed chunks are
+ * counted separately and finish the job as {@code failed}.
+ * Aggregate counters are exposed through {@link #metrics()}.
+ */
+@Service
+public class FanoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(FanoutService.class);
+
+    /** Delivers one chunk of followers; returns how many actually received the post. */
+    @FunctionalInterface
+    public interface ChunkDelivery {
+        int deliver(List<String> chunk);
+    }
+
+    /**
+     * Receives the last recipient of the longest run of successfully delivered
+     * chunks, counted from the first. Chunks finish out of order, so this only
+     * advances once every earlier chunk has also been delivered.
+     */
+    @FunctionalInterface
+    public interface Checkpoint {
+        void reached(String lastRecipient);
+    }
+
+    public record Metrics(long postsSubmitted, long postsCompleted, int postsInFlight,
+                          long recipientsDelivered, long recipientsSkipped,
+                          long chunksFailed, long totalCompletionMillis) {
+        public double averageCompletionMillis() {
+            return postsCompleted == 0 ? 0.0 : (double) totalCompletionMillis / postsCompleted;
+        }
+    }
+
+    private final TimelineProperties.Fanout props;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    /** Running jobs by job id. */
+    private final Map<String, Job> inFlight = new ConcurrentHashMap<>();
+    /** Finished jobs by job id, in completion order. */
+    private final Map<String, FanoutProgress> completed;
+
+    private final LongAdder postsSubmitted = new LongAdder();
+    private final LongAdder postsCompleted = new LongAdder();
+    private final LongAdder recipientsDelivered = new LongAdder();
+    private final LongAdder recipientsSkipped = new LongAdder();
+    private final LongAdder chunksFailed = new LongAdder();
+    private final LongAdder totalCompletionMillis = new LongAdder();
+
+    public FanoutService(TimelineProperties timelineProperties) {
+        this.props = timelineProperties.getFanout();
+        this.executor = props.isAsync()
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fanout-", 0).factory())
+            : null;
+        this.permits = new Semaphore(Math.max(1, props.getMaxConcurrency()));
+        int retention = Math.max(0, props.getProgressRetention());
+        this.completed = Collections.synchronizedMap(new LinkedHashMap<String, FanoutProgress>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FanoutProgress> eldest) {
+                return size() > retention;
+            }
+        });
+    }
+
+    /**
+     * Start delivering {@code postId} to {@code recipients}. Returns the
+     * initial progress snapshot; in synchronous mode the returned snapshot is
+     * already complete.
+     */
+    public FanoutProgress submit(String postId, String authorUid, Collection<String> recipients,
+                                 ChunkDelivery delivery) {
+        List<List<String>> chunks = partition(recipients, Math.max(1, props.getChunkSize()));
+        Job job = new Job(postId, authorUid, recipients.size(), chunks.size());
+        postsSubmitted.increment();
+        inFlight.put(job.id, job);
+
+        if (executor == null || chunks.isEmpty()) {
+            run(job, chunks, delivery, null);
+            return job.snapshot();
+        }
+        FanoutProgress initial = job.snapshot();
+        executor.submit(() -> run(job, chunks, delivery, null));
+        return initial;
+    }
+
+    /**
+     * Deliver {@code postId} to {@code recipients} and return once every chunk
+     * has run, reporting progress to {@code checkpoint} in recipient order.
+     * The returned snapshot is complete; callers check
+     * {@link FanoutProgress#chunksFailed()} to decide whether to retry.
+     */
+    public FanoutProgress deliver(String postId, String authorUid, List<String> recipients,
+                                  ChunkDelivery delivery, Checkpoint checkpoint) {
+        List<List<String>> chunks = partition(recipients, Math.max(1, props.getChunkSize()));
+        Job job = new Job(postId, authorUid, recipients.size(), chunks.size());
+        postsSubmitted.increment();
+        inFlight.put(job.id, job);
+        run(job, chunks, delivery, checkpoint);
+        return job.snapshot();
+    }
+
+    /** The most recent fan-out of {@code postId}, by any author. */
+    public Optional<FanoutProgress> progress(String postId) {
+        return latest(postId, null);
+    }
+
+    /**
+     * The most recent fan-out of {@code postId} by {@code authorUid}: the
+     * author's own post, or their reshare of someone else's.
+     */
+    public Optional<FanoutProgress> progress(String postId, String authorUid) {
+        return latest(postId, authorUid);
+    }
+
+    /** Running jobs win over finished ones; both are bounded, so a scan is cheap. */
+    private Optional<FanoutProgress> latest(String postId, String authorUid) {
+        Job newest = null;
+        for (Job job : inFlight.values()) {
+            if (!job.postId.equals(postId) || (authorUid != null && !job.authorUid.equals(authorUid))) continue;
+            if (newest == null || job.startedAt >= newest.startedAt) newest = job;
+        }
+        if (newest != null) return Optional.of(newest.snapshot());
+        FanoutProgress last = null;
+        synchronized (completed) {
+            for (FanoutProgress done : completed.values()) {
+                if (done.postId().equals(postId) && (authorUid == null || done.authorUid().equals(authorUid))) {
+                    last = done;
+                }
+            }
+        }
+        return Optional.ofNullable(last);
+    }
+
+    public Metrics metrics() {
+        return new Metrics(postsSubmitted.sum(), postsCompleted.sum(), inFlight.size(),
+            recipientsDelivered.sum(), recipientsSkipped.sum(), chunksFailed.sum(),
+            totalCompletionMillis.sum());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (executor == null) return;
+        executor.shutdown();
+        if (!executor.awaitTermination(props.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Fan-out executor did not drain within {}; {} posts still in flight",
+                props.getShutdownTimeout(), inFlight.size());
+            executor.shutdownNow();
+        }
+    }
+
+    private void run(Job job, List<List<String>> chunks, ChunkDelivery delivery, Checkpoint checkpoint) {
+        if (executor == null || chunks.isEmpty()) {
+            for (int i = 0; i < chunks.size(); i++) deliverChunk(job, chunks, i, delivery, checkpoint);
+        } else {
+            List<Future<?>> pending = new ArrayList<>(chunks.size());
+            try {
+                for (int i = 0; i < chunks.size(); i++) {
+                    int index = i;
+                    permits.acquire();
+                    pending.add(executor.submit(() -> {
+                        try {
+                            deliverChunk(job, chunks, index, delivery, checkpoint);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                for (Future<?> f : pending) f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Fan-out for post {} interrupted after {} of {} chunks",
+                    job.postId, job.chunksCompleted.get(), job.chunksTotal);
+            } catch (Exception e) {
+                log.error("Fan-out for post {} failed", job.postId, e);
+            }
+        }
+        finish(job);
+    }
+
+    private void deliverChunk(Job job, List<List<String>> chunks, int index,
+                              ChunkDelivery delivery, Checkpoint checkpoint) {
+        List<String> chunk = chunks.get(index);
+        try {
+            int delivered = delivery.deliver(chunk);
+            int skipped = chunk.size() - delivered;
+            job.delivered.addAndGet(delivered);
+            job.skipped.addAndGet(skipped);
+            recipientsDelivered.add(delivered);
+            recipientsSkipped.add(skipped);
+            job.chunksCompleted.incrementAndGet();
+        } catch (RuntimeException e) {
+            job.chunksFailed.incrementAndGet();
+            chunksFailed.increment();
+            log.error("Fan-out chunk of {} recipients failed for post {}", chunk.size(), job.postId, e);
+            return;
+        }
+        if (checkpoint == null) return;
+        // Held across the callback so concurrent chunks can't report cursors out of order.
+        synchronized (job) {
+            int watermark = job.markDelivered(index);
+            if (watermark < 0) return;
+            try {
+                checkpoint.reached(chunks.get(watermark).getLast());
+            } catch (RuntimeException e) {
+                log.warn("Fan-out checkpoint for post {} failed; a retry will resume from the previous one",
+                    job.postId, e);
+            }
+        }
+    }
+
+    private void finish(Job job) {
+        job.completedAt = System.currentTimeMillis();
+        FanoutProgress done = job.snapshot();
+        completed.put(job.id, done);
+        inFlight.remove(job.id, job);
+        postsCompleted.increment();
+        totalCompletionMillis.add(done.durationMs());
+        log.info("Fan-out for post {} complete: {} delivered, {} skipped, {} failed chunks in {}ms",
+            job.postId, done.delivered(), done.skipped(), done.chunksFailed(), done.durationMs());
+    }
+
+    static List<List<String>> partition(Collection<String> recipients, int chunkSize) {
+        List<List<String>> chunks = new ArrayList<>((recipients.size() + chunkSize - 1) / chunkSize);
+        List<String> current = new ArrayList<>(Math.min(chunkSize, recipients.size()));
+        for (String uid : recipients) {
+            current.add(uid);
+            if (current.size() == chunkSize) {
+                chunks.add(current);
+                current = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!current.isEmpty()) chunks.add(current);
+        return chunks;
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String postId;
+        final String authorUid;
+        final int totalRecipients;
+        final int chunksTotal;
+        final long startedAt = System.currentTimeMillis();
+        final AtomicInteger delivered = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger chunksCompleted = new AtomicInteger();
+        final AtomicInteger chunksFailed = new AtomicInteger();
+        volatile Long completedAt;
+        private boolean[] deliveredChunks;
+        private int contiguous;
+
+        Job(String postId, String authorUid, int totalRecipients, int chunksTotal) {
+            this.postId = postId;
+            this.authorUid = authorUid;
+            this.totalRecipients = totalRecipients;
+            this.chunksTotal = chunksTotal;
+        }
+
+        /**
+         * Marks chunk {@code index} delivered. Returns the index of the last
+         * chunk in the now-longer delivered prefix, or -1 if the prefix did
+         * not grow.
+         */
+        synchronized int markDelivered(int index) {
+            if (deliveredChunks == null) deliveredChunks = new boolean[chunksTotal];
+            deliveredChunks[index] = true;
+            int before = contiguous;
+            while (contiguous < chunksTotal && deliveredChunks[contiguous]) contiguous++;
+            return contiguous > before ? contiguous - 1 : -1;
+        }
+
+        FanoutProgress snapshot() {
+            Long done = completedAt;
+            int d = delivered.get();
+            int s = skipped.get();
+            long end = done == null ? System.currentTimeMillis() : done;
+            String state = done == null ? "running" : chunksFailed.get() > 0 ? "failed" : "completed";
+            return new FanoutProgress(id, postId, authorUid, state,
+                totalRecipients, d + s, d, s, chunksTotal, chunksCompleted.get(),
+                chunksFailed.get(), startedAt, done, end - startedAt);
+        }
+    }
+}
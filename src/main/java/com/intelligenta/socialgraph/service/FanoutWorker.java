@@ -0,0 +1,52 @@
+package com.intelligenta.socialgraph.service;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.FanoutQueue;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumes the durable {@link FanoutQueue} on this instance. Each job is
+ * handed to {@link ShareService#resumeFanout}, with every chunk checkpoint
+ * written back to the queue. Runs on every instance, so fan-out load spreads
+ * across the deployment. Idle when the queue has no backend or
+ * {@code timeline.fanout.queue.enabled=false}.
+ */
+@Component
+public class FanoutWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(FanoutWorker.class);
+
+    private final FanoutQueue queue;
+    private final ShareService shareService;
+    private final TimelineProperties.Queue props;
+    private boolean started;
+
+    public FanoutWorker(FanoutQueue queue, ShareService shareService, TimelineProperties timelineProperties) {
+        this.queue = queue;
+        this.shareService = shareService;
+        this.props = timelineProperties.getFanout().getQueue();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!props.isEnabled() || !queue.enabled()) {
+            log.info("Durable fan-out queue disabled; fan-out runs in-process on the posting instance");
+            return;
+        }
+        queue.consume(props.getWorkers(), this::process);
+        started = true;
+    }
+
+    @PreDestroy
+    void stop() {
+        if (started) queue.stop();
+    }
+
+    void process(FanoutQueue.Job job) {
+        shareService.resumeFanout(job, cursor -> queue.checkpoint(job, cursor));
+    }
+}
@@ -0,0 +1,47 @@
+package com.intelligenta.socialgraph.service;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.cache.NearCache;
+
+/**
+ * Each viewer's recent share of timeline entries dropped at hydration
+ * (missing, blocked, muted keyword, blocked image), smoothed across pages.
+ * {@link TimelineService} reads {@code need / (1 - rate)} entries to end up
+ * with {@code need} visible ones, capped at {@code timeline.fill.max-over-fetch}
+ * times {@code need}. Viewers nobody has read for {@code timeline.fill.ttl}
+ * start again at zero.
+ */
+class FilterRates {
+
+    /** Weight of the newest page in the running rate. */
+    static final double WEIGHT = 0.3;
+
+    private final NearCache<String, Double> rates;
+    private final double maxOverFetch;
+
+    FilterRates(TimelineProperties.Fill cfg) {
+        this.rates = new NearCache<>("timeline-filter-rates", cfg.getCacheSize(), cfg.getTtl());
+        this.maxOverFetch = Math.max(1.0, cfg.getMaxOverFetch());
+    }
+
+    /** Entries to read for {@code viewer} to expect {@code need} visible ones. */
+    int fetchSize(String viewer, int need) {
+        Double rate = rates.getIfPresent(viewer);
+        double factor = rate == null || rate <= 0 ? 1.0 : Math.min(maxOverFetch, 1.0 / (1.0 - rate));
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(need * factor));
+    }
+
+    /** Folds one read of {@code fetched} entries, {@code visible} of which survived, into the rate. */
+    void record(String viewer, int fetched, int visible) {
+        if (fetched <= 0) return;
+        double observed = (double) (fetched - visible) / fetched;
+        Double previous = rates.getIfPresent(viewer);
+        double rate = previous == null ? observed : previous + WEIGHT * (observed - previous);
+        rates.put(viewer, rate, rates.stamp());
+    }
+
+    double rate(String viewer) {
+        Double rate = rates.getIfPresent(viewer);
+        return rate == null ? 0.0 : rate;
+    }
+}
@@ -0,0 +1,93 @@
+package com.intelligenta.socialgraph.service;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.ContentFilterStore;
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.persistence.cache.NearCache;
+import com.intelligenta.socialgraph.util.KeywordAutomaton;
+import com.intelligenta.socialgraph.util.TermFingerprint;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Matches post text against a user's negative keywords in memory. Each user's
+ * keywords are loaded once and compiled: single-word keywords into a sorted
+ * array of {@link TermFingerprint} hashes, phrases (anything with a space or
+ * punctuation) into a {@link KeywordAutomaton}. A check is then a
+ * merge-intersection with the post's stored term fingerprint plus, only for
+ * users with phrases, one pass over the text.
+ *
+ * <p>Compiled keywords are kept in a {@link NearCache} of
+ * {@code timeline.keyword-filter.cache-size} users. {@link #invalidate} drops
+ * a user's entry here and, through the {@link InvalidationBus}, on every
+ * other instance; {@code timeline.keyword-filter.ttl} bounds how long a lost
+ * invalidation leaves stale keywords behind.
+ */
+@Component
+public class NegativeKeywordMatcher {
+
+    /** Named after the Infinispan cache the keywords live in, keyed by uid. */
+    static final String CACHE = "content-filters";
+
+    private record Compiled(long[] terms, KeywordAutomaton phrases) {
+
+        static Compiled of(Set<String> keywords) {
+            long[] terms = new long[keywords.size()];
+            int n = 0;
+            List<String> phrases = new ArrayList<>();
+            for (String keyword : keywords) {
+                String k = keyword.strip();
+                if (TermFingerprint.isSingleTerm(k)) terms[n++] = TermFingerprint.hash(k);
+                else phrases.add(k);
+            }
+            terms = Arrays.copyOf(terms, n);
+            Arrays.sort(terms);
+            return new Compiled(terms, KeywordAutomaton.compile(phrases));
+        }
+
+        boolean matches(String text, long[] textTerms) {
+            if (terms.length > 0) {
+                if (textTerms == null) textTerms = TermFingerprint.of(text);
+                if (TermFingerprint.intersects(terms, textTerms)) return true;
+            }
+            return phrases.matches(text);
+        }
+    }
+
+    private final ContentFilterStore filters;
+    private final InvalidationBus bus;
+    private final NearCache<String, Compiled> cache;
+
+    public NegativeKeywordMatcher(ContentFilterStore filters, InvalidationBus bus,
+                                  TimelineProperties timelineProperties) {
+        this.filters = filters;
+        this.bus = bus;
+        TimelineProperties.KeywordFilter props = timelineProperties.getKeywordFilter();
+        this.cache = new NearCache<>(CACHE, Math.max(0, props.getCacheSize()), props.getTtl());
+        bus.subscribe(CACHE, cache::invalidate);
+    }
+
+    /**
+     * True when {@code text} contains any of {@code uid}'s negative keywords or
+     * phrases. {@code terms} is the text's stored {@link TermFingerprint};
+     * when null (posts written before fingerprints) it is computed here.
+     */
+    public boolean matches(String uid, String text, long[] terms) {
+        if (text == null || text.isBlank()) return false;
+        return compiled(uid).matches(text, terms);
+    }
+
+    /** Drops {@code uid}'s compiled keywords on every instance; call after changing them. */
+    public void invalidate(String uid) {
+        cache.invalidate(uid);
+        bus.publish(CACHE, uid);
+    }
+
+    private Compiled compiled(String uid) {
+        return cache.get(uid, u -> Compiled.of(filters.negativeKeywords(u)));
+    }
+}
@@ -0,0 +1,84 @@
+package com.intelligenta.socialgraph.service;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.model.TimelineEntry;
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.persistence.cache.NearCache;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Arrays;
+
+/**
+ * Caches the viewer-independent JSON of each post as it appears in a
+ * timeline: every {@link TimelineEntry} field except the actor's username
+ * and full name, which are looked up per request. The fragment is an open
+ * JSON object (no closing brace) so the response writer can append the
+ * actor fields and close it without re-serializing the post.
+ *
+ * <p>Edits and deletes call {@link #invalidate}, which also announces the
+ * post on the {@link InvalidationBus} so other instances drop their copy.
+ * Toggled and sized with {@code timeline.fragments.*}.
+ */
+@Component
+public class PostFragments {
+
+    static final String CACHE = "posts";
+
+    private final JsonMapper json;
+    private final InvalidationBus bus;
+    private final NearCache<String, byte[]> cache;
+
+    public PostFragments(JsonMapper json, InvalidationBus bus, TimelineProperties timelineProperties) {
+        this.json = json;
+        this.bus = bus;
+        TimelineProperties.Fragments cfg = timelineProperties.getFragments();
+        this.cache = cfg.isEnabled() ? new NearCache<>("post-fragments", cfg.getMaxSize(), cfg.getTtl()) : null;
+        if (cache != null) bus.subscribe(CACHE, cache::invalidate);
+    }
+
+    /** Take before reading the posts a page's fragments will be rendered from. */
+    public long stamp() {
+        return cache == null ? 0 : cache.stamp();
+    }
+
+    /**
+     * The fragment for {@code entry}, rendered and cached on first use;
+     * null when fragments are disabled. A fragment rendered from a post read
+     * before an invalidation newer than {@code stamp} is returned but not
+     * cached.
+     */
+    public byte[] fragment(TimelineEntry entry, long stamp) {
+        if (cache == null) return null;
+        byte[] cached = cache.getIfPresent(entry.getUuid());
+        if (cached != null) return cached;
+        byte[] rendered = render(json, entry);
+        cache.put(entry.getUuid(), rendered, stamp);
+        return rendered;
+    }
+
+    public void invalidate(String postId) {
+        if (cache != null) cache.invalidate(postId);
+        bus.publish(CACHE, postId);
+    }
+
+    public NearCache.Stats stats() {
+        return cache == null ? null : cache.stats();
+    }
+
+    static byte[] render(JsonMapper json, TimelineEntry entry) {
+        TimelineEntry shared = new TimelineEntry();
+        shared.setUuid(entry.getUuid());
+        shared.setType(entry.getType());
+        shared.setContent(entry.getContent());
+        shared.setUrl(entry.getUrl());
+        shared.setImageUrls(entry.getImageUrls());
+        shared.setCreated(entry.getCreated());
+        shared.setUpdated(entry.getUpdated());
+        shared.setParentUuid(entry.getParentUuid());
+        shared.setSharedPostUuid(entry.getSharedPostUuid());
+        shared.setActorUid(entry.getActorUid());
+        byte[] closed = json.writeValueAsBytes(shared);
+        return Arrays.copyOf(closed, closed.length - 1);
+    }
+}
@@ -3,15 +3,21 @@ package com.intelligenta.socialgraph.service;
 import com.intelligenta.socialgraph.ai.ContentModerator;
 import com.intelligenta.socialgraph.config.EmbeddingProperties;
 import com.intelligenta.socialgraph.config.PersistenceProperties;
+import com.intelligenta.socialgraph.config.TimelineProperties;
 import com.intelligenta.socialgraph.exception.ContentBlockedException;
 import com.intelligenta.socialgraph.exception.PostNotFoundException;
+import com.intelligenta.socialgraph.model.FanoutProgress;
 import com.intelligenta.socialgraph.model.StoredObject;
 import com.intelligenta.socialgraph.model.moderation.ModerationDecision;
 import com.intelligenta.socialgraph.persistence.CounterStore;
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner;
+import com.intelligenta.socialgraph.persistence.FanoutQueue;
 import com.intelligenta.socialgraph.persistence.PostStore;
 import com.intelligenta.socialgraph.persistence.TimelineStore;
+import com.intelligenta.socialgraph.service.delivery.DeliveryPolicies;
 import com.intelligenta.socialgraph.service.storage.ObjectStorageService;
 import com.intelligenta.socialgraph.util.ImagePayloads;
+import com.intelligenta.socialgraph.util.TermFingerprint;
 import com.intelligenta.socialgraph.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,8 +27,10 @@ import org.springframework.stereotype.Service;
 
 import java.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,10 +39,36 @@ import java.util.Set;
  * Post sharing / fan-out. Refactored in phase I-D to persist through the
  * {@link PostStore}, {@link TimelineStore}, {@link CounterStore}, and the
  * user / content-filter / relation stores via {@link UserService}. Redis
- * Streams + a couple of read-only score lookups (edge scores, global social
- * importance) stay on the direct {@link StringRedisTemplate} for now — they
- * migrate to Infinispan-native primitives in phases I-H (scores) and I-J
- * (streams).
+ * Streams stay on the direct {@link StringRedisTemplate} for now, and the
+ * read-only score lookups (edge scores, global social importance) go through
+ * {@link TimelineScores} — they migrate to Infinispan-native primitives in
+ * phases I-H (scores) and I-J (streams).
+ *
+ * <p>Follower delivery is handed to {@link FanoutService}: the request returns
+ * once the post and the author's own timeline entry are written, and the
+ * followers are filtered and delivered chunk by chunk in the background.
+ * Blocks and mutes are removed up front with one set difference
+ * ({@link UserService#deliverableFollowers}); content filters are checked per
+ * chunk, and only for followers that have any filters registered.
+ * Each chunk's survivors are written with one {@link TimelineStore#pushMany}
+ * call, which the stores batch (a Redis pipeline, or Infinispan
+ * {@code getAll}/{@code putAll}).
+ *
+ * <p>Before content filters, each chunk goes through the
+ * {@link DeliveryPolicies}: replies reach only followers who also follow the
+ * parent's author, and reshares skip timelines that already hold the
+ * original.
+ *
+ * <p>When a durable {@link FanoutQueue} is available and
+ * {@code timeline.fanout.queue.enabled} is set, {@code pushGraph} only
+ * enqueues a job; {@link FanoutWorker}s on every instance pick jobs up and run
+ * them through {@link #resumeFanout}, checkpointing per chunk so a job
+ * interrupted by a crash resumes where it stopped.
+ *
+ * <p>Every post is also recorded in its author's outbox. Authors with at least
+ * {@code timeline.pull.follower-threshold} followers are switched to pull
+ * delivery: their posts go to the outbox only, and {@link TimelineService}
+ * merges those outboxes into followers' timelines at read time.
  */
 @Service
 public class ShareService {
@@ -42,6 +76,8 @@ public class ShareService {
     private static final Logger log = LoggerFactory.getLogger(ShareService.class);
 
     static final String EMBEDDING_QUEUE = "embedding:queue";
+    /** Post field holding the content's {@link TermFingerprint}; internal, stripped from responses. */
+    static final String TERMS_FIELD = "terms";
 
     private final PostStore postStore;
     private final TimelineStore timelineStore;
@@ -51,6 +87,14 @@ public class ShareService {
     private final UserService userService;
     private final EmbeddingProperties embeddingProperties;
     private final ContentModerator moderator;
+    private final FanoutService fanoutService;
+    private final FanoutQueue fanoutQueue;
+    private final FanoutPartitioner fanoutPartitioner;
+    private final DeliveryPolicies deliveryPolicies;
+    private final PostFragments postFragments;
+    private final boolean durableFanout;
+    private final TimelineScores timelineScores;
+    private final long pullFollowerThreshold;
     private final boolean embeddingQueueEnabled;
 
     public ShareService(PostStore postStore,
@@ -61,6 +105,13 @@ public class ShareService {
                         UserService userService,
                         EmbeddingProperties embeddingProperties,
                         ContentModerator moderator,
+                        FanoutService fanoutService,
+                        FanoutQueue fanoutQueue,
+                        FanoutPartitioner fanoutPartitioner,
+                        DeliveryPolicies deliveryPolicies,
+                        PostFragments postFragments,
+                        TimelineScores timelineScores,
+                        TimelineProperties timelineProperties,
                         PersistenceProperties persistenceProperties) {
         this.postStore = postStore;
         this.timelineStore = timelineStore;
@@ -70,13 +121,23 @@ public class ShareService {
         this.userService = userService;
         this.embeddingProperties = embeddingProperties;
         this.moderator = moderator;
+        this.fanoutService = fanoutService;
+        this.fanoutQueue = fanoutQueue;
+        this.fanoutPartitioner = fanoutPartitioner;
+        this.deliveryPolicies = deliveryPolicies;
+        this.postFragments = postFragments;
+        this.durableFanout = timelineProperties.getFanout().getQueue().isEnabled() && fanoutQueue.enabled();
+        this.timelineScores = timelineScores;
+        this.pullFollowerThreshold = timelineProperties.getPull().getFollowerThreshold();
         this.embeddingQueueEnabled =
             persistenceProperties.getProvider() == PersistenceProperties.Provider.REDIS;
+        // Last: other members may hand this instance chunks as soon as it is registered.
+        fanoutPartitioner.register(this::deliverOwned);
     }
 
     public Map<String, String> sharePhoto(String user, String content, String url) {
         List<String> urls = url == null ? null : List.of(url);
-        return createStatusUpdate(user, content, "photo", urls, null, null, null);
+        return createStatusUpdate(user, content, "photo", urls, null, null, null, null);
     }
 
     public Map<String, String> sharePhoto(String user, String content, byte[] bytes) {
@@ -92,13 +153,13 @@ public class ShareService {
             StoredObject so = objectStorageService.upload(bytes, p.extension(), p.mimeType());
             urls = List.of(so.objectUrl());
         }
-        return createStatusUpdate(user, content, "photo", urls, imageHash, null, null);
+        return createStatusUpdate(user, content, "photo", urls, imageHash, null, null, null);
     }
 
     public Map<String, String> sharePhotos(String user, String content,
                                            List<byte[]> imageBytes, List<String> contentTypes) {
         if (imageBytes == null || imageBytes.isEmpty()) {
-            return createStatusUpdate(user, content, "photo", null, null, null, null);
+            return createStatusUpdate(user, content, "photo", null, null, null, null, null);
         }
         int max = embeddingProperties.getMaxImagesPerPost();
         if (imageBytes.size() > max) {
@@ -116,29 +177,31 @@ public class ShareService {
             StoredObject so = objectStorageService.upload(b, p.extension(), p.mimeType());
             urls.add(so.objectUrl());
         }
-        return createStatusUpdate(user, content, "photo", urls, firstHash, null, null);
+        return createStatusUpdate(user, content, "photo", urls, firstHash, null, null, null);
     }
 
     public Map<String, String> shareVideo(String user, String content, String url) {
-        return createStatusUpdate(user, content, "video", url == null ? null : List.of(url), null, null, null);
+        return createStatusUpdate(user, content, "video", url == null ? null : List.of(url),
+            null, null, null, null);
     }
 
     public Map<String, String> shareAudio(String user, String content, String url) {
-        return createStatusUpdate(user, content, "audio", url == null ? null : List.of(url), null, null, null);
+        return createStatusUpdate(user, content, "audio", url == null ? null : List.of(url),
+            null, null, null, null);
     }
 
     public Map<String, String> shareText(String user, String content) {
-        return createStatusUpdate(user, content, "text", null, null, null, null);
+        return createStatusUpdate(user, content, "text", null, null, null, null, null);
     }
 
     public Map<String, String> replyToPost(String user, String parentPostId, String content) {
-        ensurePostExists(parentPostId);
-        return createStatusUpdate(user, content, "reply", null, null, parentPostId, null);
+        String parentAuthorUid = postAuthor(parentPostId);
+        return createStatusUpdate(user, content, "reply", null, null, parentPostId, parentAuthorUid, null);
     }
 
     public Map<String, String> resharePost(String user, String postId, String content) {
         ensurePostExists(postId);
-        return createStatusUpdate(user, content, "reshare", null, null, null, postId);
+        return createStatusUpdate(user, content, "reshare", null, null, null, null, postId);
     }
 
     int getMaxImagesPerPost() {
@@ -154,8 +217,9 @@ public class ShareService {
         postObj.forEach((k, v) -> post.put(k, v == null ? null : String.valueOf(v)));
 
         if (!post.isEmpty()) {
-            List<String> keywords = getWords(post.get("content"));
-            pushGraph(authenticatedUser, postId, keywords, readImageHash(post));
+            pushGraph(new FanoutPartitioner.Delivery(postId, authenticatedUser, post.get("content"),
+                readTerms(post), readImageHash(post), null, postId));
+            post.remove(TERMS_FIELD);
             post.put("duration", String.valueOf(System.currentTimeMillis() - startTime));
         }
         return post;
@@ -166,9 +230,19 @@ public class ShareService {
             .orElseThrow(() -> new PostNotFoundException("Post not found"));
         Map<String, String> post = new HashMap<>();
         raw.forEach((k, v) -> post.put(k, v == null ? null : String.valueOf(v)));
+        post.remove(TERMS_FIELD);
         return post;
     }
 
+    /** Progress of the caller's latest fan-out of {@code postId}: their own post or their reshare of it. */
+    public FanoutProgress getFanoutProgress(String user, String postId) {
+        FanoutProgress progress = fanoutService.progress(postId, user)
+            .or(() -> fanoutService.progress(postId))
+            .orElseThrow(() -> new PostNotFoundException("No fan-out recorded for post"));
+        userService.ensureAuthor(user, progress.authorUid());
+        return progress;
+    }
+
     public Map<String, String> updatePost(String user, String postId, String content) {
         Map<String, String> post = getPost(postId);
         userService.ensureAuthor(user, post.get("uid"));
@@ -176,8 +250,10 @@ public class ShareService {
         String updated = Util.unixtime();
         Map<String, String> updates = new LinkedHashMap<>();
         updates.put("content", content);
+        updates.put(TERMS_FIELD, TermFingerprint.encode(TermFingerprint.of(content)));
         updates.put("updated", updated);
         postStore.update(postId, updates);
+        postFragments.invalidate(postId);
 
         post.put("content", content);
         post.put("updated", updated);
@@ -189,6 +265,7 @@ public class ShareService {
         userService.ensureAuthor(user, post.get("uid"));
 
         postStore.delete(postId);
+        postFragments.invalidate(postId);
 
         Map<String, String> response = new HashMap<>();
         response.put("deleted", "true");
@@ -198,7 +275,8 @@ public class ShareService {
 
     private Map<String, String> createStatusUpdate(String authenticatedUser, String content,
                                                    String type, List<String> imageUrls, String imageHash,
-                                                   String parentPostId, String sharedPostId) {
+                                                   String parentPostId, String parentAuthorUid,
+                                                   String sharedPostId) {
         if (authenticatedUser == null) return null;
 
         if (moderator.enabled() && content != null && !content.isBlank()) {
@@ -223,8 +301,8 @@ public class ShareService {
         if (imageHash != null)    post.put("imageHash", imageHash);
         if (parentPostId != null) post.put("parentId", parentPostId);
         if (sharedPostId != null) post.put("sharedPostId", sharedPostId);
-
-        List<String> keywords = getWords(content);
+        long[] terms = TermFingerprint.of(content);
+        if (content != null)      post.put(TERMS_FIELD, TermFingerprint.encode(terms));
 
         log.info("Creating status update: {}", post);
 
@@ -238,7 +316,8 @@ public class ShareService {
             postStore.addReply(parentPostId, postId);
         }
 
-        pushGraph(authenticatedUser, postId, keywords, imageHash);
+        pushGraph(new FanoutPartitioner.Delivery(postId, authenticatedUser, content, terms, imageHash,
+            parentAuthorUid, sharedPostId));
 
         if (embeddingQueueEnabled && shouldEmitEmbedding(type, content, imageCount)) {
             redisTemplate.opsForStream().add(MapRecord.create(
@@ -247,6 +326,7 @@ public class ShareService {
         }
 
         post.remove("imageHash");
+        post.remove(TERMS_FIELD);
         post.put("duration", String.valueOf(System.currentTimeMillis() - startTime));
         return post;
     }
@@ -257,56 +337,144 @@ public class ShareService {
         return hasContent || imageCount > 0;
     }
 
-    private void pushGraph(String authenticatedUser, String postId, List<String> keywords, String imageHash) {
-        Set<String> followers = userService.followerUids(authenticatedUser);
-        for (String followerUid : followers) {
-            if (shouldDeliver(followerUid, authenticatedUser, keywords, imageHash)) {
-                addPostToTimeline(followerUid, postId, authenticatedUser);
-            }
+    private void pushGraph(FanoutPartitioner.Delivery delivery) {
+        String authenticatedUser = delivery.authorUid();
+        timelineStore.pushOutbox(authenticatedUser, delivery.postId(), System.currentTimeMillis() / 1000.0);
+        if (deliversByPull(authenticatedUser)) return;
+        if (durableFanout) {
+            fanoutQueue.enqueue(delivery.postId(), authenticatedUser);
+            return;
         }
+
+        Set<String> followers = userService.deliverableFollowers(authenticatedUser);
+        fanoutService.submit(delivery.postId(), authenticatedUser, followers,
+            chunk -> fanoutPartitioner.deliver(delivery, chunk));
     }
 
-    private Double getConnectionZScore(String authenticatedUser, String targetUid) {
-        String edgeScore = redisTemplate.opsForValue().get(
-            "user:" + authenticatedUser + ":connection:edgescore:" + targetUid);
-        return edgeScore != null ? Double.parseDouble(edgeScore) : 0.0;
+    /**
+     * Runs one durable fan-out job on the calling thread. The deliverable
+     * followers are recomputed and sorted by UID so the job's cursor is
+     * stable across attempts; only followers after the cursor are delivered.
+     * Throws if any chunk did not complete, leaving the job to be retried
+     * from its last checkpoint. A job for a since-deleted post is dropped.
+     */
+    public FanoutProgress resumeFanout(FanoutQueue.Job job, FanoutService.Checkpoint checkpoint) {
+        Map<String, Object> post = postStore.get(job.postId()).orElse(null);
+        if (post == null) {
+            log.info("Dropping fan-out job {} for deleted post {}", job.id(), job.postId());
+            return null;
+        }
+        Map<String, String> fields = new HashMap<>();
+        post.forEach((k, v) -> fields.put(k, v == null ? null : String.valueOf(v)));
+        FanoutPartitioner.Delivery delivery = storedDelivery(job, fields);
+
+        List<String> followers = new ArrayList<>(userService.deliverableFollowers(job.authorUid()));
+        Collections.sort(followers);
+        List<String> remaining = followers;
+        if (!job.cursor().isEmpty()) {
+            int at = Collections.binarySearch(followers, job.cursor());
+            remaining = followers.subList(at >= 0 ? at + 1 : -at - 1, followers.size());
+        }
+
+        FanoutProgress progress = fanoutService.deliver(job.postId(), job.authorUid(), remaining,
+            chunk -> fanoutPartitioner.deliver(delivery, chunk), checkpoint);
+        if (progress.chunksFailed() > 0 || progress.chunksCompleted() < progress.chunksTotal()) {
+            throw new IllegalStateException("fan-out of " + job.postId() + " incomplete: "
+                + progress.chunksFailed() + " of " + progress.chunksTotal() + " chunks failed");
+        }
+        return progress;
     }
 
-    private Double getSocialImportance(String uid) {
-        return redisTemplate.opsForZSet().score("user:social:importance", uid);
+    /**
+     * True when the author's posts should be pulled by readers rather than
+     * fanned out. The first post at or above the threshold registers the
+     * author; registration is sticky so their outbox stays merged even if the
+     * follower count later dips.
+     */
+    private boolean deliversByPull(String authorUid) {
+        if (pullFollowerThreshold <= 0) return false;
+        if (timelineStore.isPullAuthor(authorUid)) return true;
+        if (userService.followerCount(authorUid) < pullFollowerThreshold) return false;
+        timelineStore.markPullAuthor(authorUid);
+        log.info("Author {} reached {} followers; switching to pull delivery", authorUid, pullFollowerThreshold);
+        return true;
     }
 
-    private void addPostToTimeline(String recipientUid, String postId, String authorUid) {
-        Double ever = getSocialImportance(authorUid);
-        double everyoneScore = ever == null ? 0.0 : ever;
-        double personalScore = getConnectionZScore(authorUid, recipientUid);
+    /**
+     * The {@link FanoutPartitioner.Delivery} for a queued job, rebuilt from
+     * the stored post. A job whose author is not the post's author is a plain
+     * reshare of that post.
+     */
+    private FanoutPartitioner.Delivery storedDelivery(FanoutQueue.Job job, Map<String, String> post) {
+        String parentId = post.get("parentId");
+        String parentAuthorUid = parentId == null ? null
+            : postStore.get(parentId).map(p -> p.get("uid")).map(String::valueOf).orElse(null);
+        String uid = post.get("uid");
+        String originalPostId = uid != null && !uid.equals(job.authorUid())
+            ? job.postId() : post.get("sharedPostId");
+        return new FanoutPartitioner.Delivery(job.postId(), job.authorUid(), post.get("content"),
+            readTerms(post), readImageHash(post), parentAuthorUid, originalPostId);
+    }
+
+    /**
+     * Runs on the instance that owns {@code chunk}'s timelines (see
+     * {@link FanoutPartitioner}). Applies the {@link DeliveryPolicies}, drops
+     * recipients whose content filters match the post, then delivers to the
+     * survivors with a single MGET for their edge scores and a single
+     * {@link TimelineStore#pushMany} call. Block and mute relations were
+     * already subtracted by {@link UserService#deliverableFollowers}.
+     */
+    private int deliverOwned(FanoutPartitioner.Delivery delivery, List<String> chunk) {
+        List<String> audience = deliveryPolicies.apply(delivery, chunk);
+        if (audience.isEmpty()) return 0;
+        List<String> recipients = userService.withoutFilteredContent(
+            audience, delivery.content(), delivery.terms(), delivery.imageHash());
+        if (recipients.isEmpty()) return 0;
+
+        String authorUid = delivery.authorUid();
+        double everyoneScore = timelineScores.socialImportance(authorUid);
+        double[] personalScores = timelineScores.edgeScores(authorUid, recipients);
         double fifoTs = System.currentTimeMillis() / 1000.0;
-        timelineStore.push(recipientUid, postId, fifoTs, personalScore, everyoneScore);
+        timelineStore.pushMany(recipients, delivery.postId(), fifoTs, personalScores, everyoneScore);
+        return recipients.size();
     }
 
-    private boolean shouldDeliver(String recipientUid, String authorUid, List<String> keywords, String imageHash) {
-        if (!userService.canViewContent(recipientUid, authorUid)) return false;
-        if (userService.hasMuted(recipientUid, authorUid)) return false;
-        if (userService.hasNegativeKeyword(recipientUid, keywords)) return false;
-        return !userService.isImageBlocked(recipientUid, imageHash);
+    private void addPostToTimeline(String recipientUid, String postId, String authorUid) {
+        double everyoneScore = timelineScores.socialImportance(authorUid);
+        double personalScore = timelineScores.edgeScore(authorUid, recipientUid);
+        double fifoTs = System.currentTimeMillis() / 1000.0;
+        timelineStore.push(recipientUid, postId, fifoTs, personalScore, everyoneScore);
     }
 
     private void ensurePostExists(String postId) {
         if (!postStore.exists(postId)) throw new PostNotFoundException("Post not found");
     }
 
+    private String postAuthor(String postId) {
+        Map<String, Object> post = postStore.get(postId)
+            .orElseThrow(() -> new PostNotFoundException("Post not found"));
+        Object uid = post.get("uid");
+        return uid == null ? null : String.valueOf(uid);
+    }
+
     private String readImageHash(Map<String, String> post) {
         String imageHash = post.get("imageHash");
         return imageHash != null ? imageHash : post.get("md5");
     }
 
+    /** The post's stored term fingerprint, computed from its content for posts that predate it. */
+    private long[] readTerms(Map<String, String> post) {
+        long[] terms = TermFingerprint.decode(post.get(TERMS_FIELD));
+        return terms != null ? terms : TermFingerprint.of(post.get("content"));
+    }
+
     private void putIfPresent(Map<String, String> target, String key, String value) {
         if (value != null) target.put(key, value);
     }
 
     public static List<String> getWords(String text) {
-        List<String> words = new ArrayList<>();
-        if (text == null) return words;
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) return new ArrayList<>();
 
         BreakIterator breakIterator = BreakIterator.getWordInstance();
         breakIterator.setText(text);
@@ -315,11 +483,10 @@ public class ShareService {
             int firstIndex = lastIndex;
             lastIndex = breakIterator.next();
             if (lastIndex != BreakIterator.DONE && Character.isLetterOrDigit(text.charAt(firstIndex))) {
-                String word = text.substring(firstIndex, lastIndex);
-                if (!words.contains(word)) words.add(word);
+                words.add(text.substring(firstIndex, lastIndex));
             }
         }
-        return words;
+        return new ArrayList<>(words);
     }
 
     public static List<String> getHashTags(String text) {
@@ -0,0 +1,111 @@
+package com.intelligenta.socialgraph.service;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.TimelineStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Background trim of timelines that are over their
+ * {@code timeline.max-length.*} caps — timelines written before the caps
+ * existed, or after a cap was lowered — which also indexes FIFO entries
+ * delivered before the delivery-timestamp index existed, so cursor pages
+ * reach them. New pushes trim and index themselves, so in steady state a
+ * pass finds nothing to do.
+ *
+ * <p>Every {@code timeline.compaction.interval} the compactor walks
+ * {@link TimelineStore#timelineOwners()} and calls
+ * {@link TimelineStore#trim} for each owner on virtual threads, at most
+ * {@code timeline.compaction.parallelism} at a time. Passes never overlap.
+ */
+@Component
+public class TimelineCompactor {
+
+    private static final Logger log = LoggerFactory.getLogger(TimelineCompactor.class);
+
+    public record Result(long timelines, long trimmed, long entriesRemoved, long failed, long durationMs) {}
+
+    private final TimelineStore timelines;
+    private final TimelineProperties.Compaction props;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+
+    public TimelineCompactor(TimelineStore timelines, TimelineProperties timelineProperties) {
+        this.timelines = timelines;
+        this.props = timelineProperties.getCompaction();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!props.isEnabled()) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("timeline-compactor").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::runScheduled,
+            props.getInitialDelay().toMillis(), props.getInterval().toMillis(), TimeUnit.MILLISECONDS);
+        log.info("TimelineCompactor scheduled every {} (parallelism {})", props.getInterval(), props.getParallelism());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private void runScheduled() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.error("timeline compaction pass failed", e);
+        }
+    }
+
+    /** Runs one pass now. Returns {@code null} if a pass is already running. */
+    public Result compact() {
+        if (!running.compareAndSet(false, true)) return null;
+        long start = System.currentTimeMillis();
+        LongAdder scanned = new LongAdder();
+        LongAdder trimmed = new LongAdder();
+        LongAdder removed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        Semaphore permits = new Semaphore(Math.max(1, props.getParallelism()));
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+             Stream<String> owners = timelines.timelineOwners()) {
+            owners.forEach(uid -> {
+                permits.acquireUninterruptibly();
+                scanned.increment();
+                workers.submit(() -> {
+                    try {
+                        long n = timelines.trim(uid);
+                        if (n > 0) {
+                            trimmed.increment();
+                            removed.add(n);
+                        }
+                    } catch (RuntimeException e) {
+                        failed.increment();
+                        log.warn("failed to trim timelines of {}", uid, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            });
+        } finally {
+            running.set(false);
+        }
+        Result result = new Result(scanned.sum(), trimmed.sum(), removed.sum(), failed.sum(),
+            System.currentTimeMillis() - start);
+        log.info("Timeline compaction: {} timelines scanned, {} trimmed, {} entries removed, {} failed in {}ms",
+            result.timelines(), result.trimmed(), result.entriesRemoved(), result.failed(), result.durationMs());
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+package com.intelligenta.socialgraph.service;
+
+import com.intelligenta.socialgraph.exception.SocialGraphException;
+import com.intelligenta.socialgraph.persistence.TimelineStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in a paged timeline, handed to clients as
+ * {@code nextCursor} and sent back as {@code cursor}. Usually a seek
+ * position (the last entry's score and post id). Ranked timelines merged
+ * with pull-author outboxes have no single score order to seek in, so they
+ * page by offset instead. A scroll keeps the form its first page had.
+ */
+public record TimelineCursor(TimelineStore.Entry after, int offset) {
+
+    /** The first page. */
+    public static final TimelineCursor START = new TimelineCursor(null, 0);
+
+    public static TimelineCursor after(TimelineStore.Entry last) {
+        return new TimelineCursor(last, 0);
+    }
+
+    public static TimelineCursor at(int offset) {
+        return new TimelineCursor(null, offset);
+    }
+
+    public boolean isOffset() {
+        return after == null && offset > 0;
+    }
+
+    public String encode() {
+        String raw = after != null ? "s|" + after.score() + "|" + after.postId() : "o|" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Parses a client-supplied cursor; null or blank means {@link #START}. */
+    public static TimelineCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return START;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (raw.startsWith("o|")) {
+                int offset = Integer.parseInt(raw.substring(2));
+                if (offset < 0) throw new IllegalArgumentException("negative offset");
+                return at(offset);
+            }
+            if (raw.startsWith("s|")) {
+                int sep = raw.indexOf('|', 2);
+                if (sep > 2 && sep < raw.length() - 1) {
+                    double score = Double.parseDouble(raw.substring(2, sep));
+                    return after(new TimelineStore.Entry(raw.substring(sep + 1), score));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed; reported below.
+        }
+        throw new SocialGraphException("invalid_cursor", "Timeline cursor is malformed");
+    }
+}
@@ -0,0 +1,53 @@
+package com.intelligenta.socialgraph.service;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only score lookups shared by the write path ({@link ShareService}
+ * scores each delivered entry) and the read path ({@link TimelineService}
+ * scores pulled outbox entries the same way at read time). Both inputs are
+ * populated by an external system; missing values score {@code 0.0}.
+ */
+@Component
+public class TimelineScores {
+
+    private final StringRedisTemplate redisTemplate;
+
+    public TimelineScores(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    private static String edgeScoreKey(String authorUid, String recipientUid) {
+        return "user:" + authorUid + ":connection:edgescore:" + recipientUid;
+    }
+
+    /** {@code ZSCORE user:social:importance <authorUid>}. */
+    public double socialImportance(String authorUid) {
+        Double score = redisTemplate.opsForZSet().score("user:social:importance", authorUid);
+        return score == null ? 0.0 : score;
+    }
+
+    /** {@code GET user:<authorUid>:connection:edgescore:<recipientUid>}. */
+    public double edgeScore(String authorUid, String recipientUid) {
+        String edgeScore = redisTemplate.opsForValue().get(edgeScoreKey(authorUid, recipientUid));
+        return edgeScore != null ? Double.parseDouble(edgeScore) : 0.0;
+    }
+
+    /** Edge scores for many recipients in one {@code MGET}, parallel to {@code recipientUids}. */
+    public double[] edgeScores(String authorUid, List<String> recipientUids) {
+        List<String> keys = new ArrayList<>(recipientUids.size());
+        for (String recipient : recipientUids) keys.add(edgeScoreKey(authorUid, recipient));
+        List<String> raw = redisTemplate.opsForValue().multiGet(keys);
+        double[] scores = new double[recipientUids.size()];
+        if (raw == null) return scores;
+        for (int i = 0; i < scores.length && i < raw.size(); i++) {
+            String v = raw.get(i);
+            if (v != null) scores[i] = Double.parseDouble(v);
+        }
+        return scores;
+    }
+}
@@ -1,18 +1,70 @@
 package com.intelligenta.socialgraph.service;
 
+import com.intelligenta.socialgraph.config.TimelineProperties;
 import com.intelligenta.socialgraph.model.TimelineEntry;
 import com.intelligenta.socialgraph.model.TimelineResponse;
+import com.intelligenta.socialgraph.model.TimelineUpdates;
 import com.intelligenta.socialgraph.persistence.PostStore;
 import com.intelligenta.socialgraph.persistence.TimelineStore;
+import com.intelligenta.socialgraph.persistence.UserStore;
+import com.intelligenta.socialgraph.util.TermFingerprint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
-/** Timeline generation backed by {@link TimelineStore} + {@link PostStore}. */
+/**
+ * Timeline generation backed by {@link TimelineStore} + {@link PostStore}.
+ *
+ * <p>Timelines are hybrid push/pull. The viewer's materialized timeline holds
+ * everything fanned out to them; posts from pull authors (see
+ * {@link ShareService}) the viewer follows live only in those authors'
+ * outboxes and are k-way merged in at read time, scored the same way the
+ * write path would have scored them.
+ *
+ * <p>Pages are addressed either by {@code index}/{@code count} offsets or by
+ * an opaque {@link TimelineCursor}. Cursor pages seek past the previous
+ * page's last entry, so a deep page costs what the first one does and new
+ * posts do not shift it. Cursor pages are also filled to {@code count}:
+ * entries the viewer's filters drop are made up by reading further, with
+ * each read over-fetching by the viewer's recent filter rate
+ * ({@link FilterRates}), so a viewer with many blocks still gets full pages
+ * in one request.
+ *
+ * <p>Every page is hydrated with batched reads: one
+ * {@link PostStore#getMany} for the posts, one block check and one
+ * blocked-image lookup for their distinct authors and image hashes, one
+ * {@link PostStore#imagesMany} for their image lists and one profile lookup
+ * for their distinct authors.
+ * Each entry carries its post's cached JSON fragment ({@link PostFragments}),
+ * so writing the response serializes only the actor names. Stores whose
+ * batch reads are no cheaper than single ones can hydrate each entry on its
+ * own virtual thread instead ({@code timeline.hydration.parallel}).
+ *
+ * <p>{@link #timelineVersion} changes only when something is delivered to
+ * the viewer, so clients can revalidate a page (or ask how many entries are
+ * new) without it being read or hydrated.
+ *
+ * <p>The {@code stream*} variants hand entries to a sink as each chunk of
+ * {@code timeline.stream.chunk-size} is hydrated rather than building the
+ * whole page, so the first entry can be written before the last is read.
+ */
 @Service
 public class TimelineService {
 
@@ -21,11 +73,30 @@ public class TimelineService {
     private final TimelineStore timelines;
     private final PostStore posts;
     private final UserService userService;
+    private final TimelineScores scores;
+    private final PostFragments fragments;
+    private final FilterRates filterRates;
+    private final int maxFillRounds;
+    private final TimelineProperties.Hydration hydration;
+    private final int streamChunkSize;
+    private final long pullRegistryRefreshNanos;
+    private volatile PullRegistry pullRegistry;
 
-    public TimelineService(TimelineStore timelines, PostStore posts, UserService userService) {
+    /** The pull-author registry as last read, and when. */
+    private record PullRegistry(Set<String> authors, long readAt) {}
+
+    public TimelineService(TimelineStore timelines, PostStore posts, UserService userService,
+                           TimelineScores scores, PostFragments fragments, TimelineProperties timelineProperties) {
         this.timelines = timelines;
         this.posts = posts;
         this.userService = userService;
+        this.scores = scores;
+        this.fragments = fragments;
+        this.filterRates = new FilterRates(timelineProperties.getFill());
+        this.maxFillRounds = Math.max(1, timelineProperties.getFill().getMaxRounds());
+        this.hydration = timelineProperties.getHydration();
+        this.streamChunkSize = Math.max(1, timelineProperties.getStream().getChunkSize());
+        this.pullRegistryRefreshNanos = timelineProperties.getPull().getRegistryRefresh().toNanos();
     }
 
     public enum Importance {
@@ -41,64 +112,559 @@ public class TimelineService {
         }
     }
 
+    /**
+     * Post ids read after a cursor, with what it takes to resume after any
+     * one of them: their seek entries, or the offset of the first. {@code more}
+     * is false once the timeline has run out.
+     */
+    private record Page(List<String> postIds, List<TimelineStore.Entry> seek, int offset, boolean more) {
+        TimelineCursor after(int i) {
+            return seek != null ? TimelineCursor.after(seek.get(i)) : TimelineCursor.at(offset + i + 1);
+        }
+    }
+
     public TimelineResponse getFifoTimeline(String authenticatedUser, int index, int count) {
         long startTime = System.currentTimeMillis();
-        List<String> postIds = timelines.range(authenticatedUser, TimelineStore.Kind.FIFO, index, count);
+        List<String> postIds = mergedRange(authenticatedUser, pulledAuthors(authenticatedUser),
+            TimelineStore.Kind.FIFO, index, count);
 
-        List<TimelineEntry> entries = new ArrayList<>();
-        for (String postId : postIds) {
-            TimelineEntry entry = generatePost(authenticatedUser, postId);
-            if (entry != null) entries.add(entry);
-        }
+        List<TimelineEntry> entries = hydrate(authenticatedUser, postIds);
         return new TimelineResponse(entries, entries.size(), System.currentTimeMillis() - startTime);
     }
 
     public TimelineResponse getSocialImportanceTimeline(String authenticatedUser, int index, int count,
                                                          Importance importanceType) {
         long startTime = System.currentTimeMillis();
-        List<String> postIds = timelines.range(authenticatedUser, importanceType.toKind(), index, count);
+        List<String> postIds = mergedRange(authenticatedUser, pulledAuthors(authenticatedUser),
+            importanceType.toKind(), index, count);
 
-        List<TimelineEntry> entries = new ArrayList<>();
-        for (String postId : postIds) {
-            TimelineEntry entry = generatePost(authenticatedUser, postId);
-            if (entry != null) entries.add(entry);
-        }
+        List<TimelineEntry> entries = hydrate(authenticatedUser, postIds);
         return new TimelineResponse(entries, entries.size(), System.currentTimeMillis() - startTime);
     }
 
+    /** FIFO timeline page after {@code cursor} (null or blank for the first page). */
+    public TimelineResponse getFifoTimeline(String authenticatedUser, String cursor, int count) {
+        long startTime = System.currentTimeMillis();
+        TimelineCursor position = TimelineCursor.decode(cursor);
+        return fill(authenticatedUser, position, count, startTime,
+            timelineReader(authenticatedUser, TimelineStore.Kind.FIFO));
+    }
+
+    /** Ranked timeline page after {@code cursor} (null or blank for the first page). */
+    public TimelineResponse getSocialImportanceTimeline(String authenticatedUser, String cursor, int count,
+                                                         Importance importanceType) {
+        long startTime = System.currentTimeMillis();
+        TimelineCursor position = TimelineCursor.decode(cursor);
+        return fill(authenticatedUser, position, count, startTime,
+            timelineReader(authenticatedUser, importanceType.toKind()));
+    }
+
+    /** An author's own posts, newest first, read from their outbox. */
+    public TimelineResponse getUserPosts(String authenticatedUser, String authorUid, int index, int count) {
+        long startTime = System.currentTimeMillis();
+        List<String> postIds = new ArrayList<>();
+        for (TimelineStore.Entry e : timelines.outbox(authorUid, index, count)) postIds.add(e.postId());
+
+        List<TimelineEntry> entries = hydrate(authenticatedUser, postIds);
+        return new TimelineResponse(entries, entries.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /** An author's outbox page after {@code cursor} (null or blank for the first page). */
+    public TimelineResponse getUserPosts(String authenticatedUser, String authorUid, String cursor, int count) {
+        long startTime = System.currentTimeMillis();
+        return fill(authenticatedUser, TimelineCursor.decode(cursor), count, startTime, outboxReader(authorUid));
+    }
+
+    /**
+     * Streams the FIFO page after {@code cursor} to {@code sink}, chunk by
+     * chunk as it is hydrated. Returns the next cursor, or null at the end.
+     */
+    public String streamFifoTimeline(String authenticatedUser, String cursor, int count,
+                                     Consumer<TimelineEntry> sink) {
+        TimelineCursor position = TimelineCursor.decode(cursor);
+        return encode(fill(authenticatedUser, position, count,
+            timelineReader(authenticatedUser, TimelineStore.Kind.FIFO), streamChunkSize, sink));
+    }
+
+    /** {@link #streamFifoTimeline} for a ranked timeline. */
+    public String streamSocialImportanceTimeline(String authenticatedUser, String cursor, int count,
+                                                 Importance importanceType, Consumer<TimelineEntry> sink) {
+        TimelineCursor position = TimelineCursor.decode(cursor);
+        return encode(fill(authenticatedUser, position, count,
+            timelineReader(authenticatedUser, importanceType.toKind()), streamChunkSize, sink));
+    }
+
+    /** {@link #streamFifoTimeline} for an author's outbox. */
+    public String streamUserPosts(String authenticatedUser, String authorUid, String cursor, int count,
+                                  Consumer<TimelineEntry> sink) {
+        return encode(fill(authenticatedUser, TimelineCursor.decode(cursor), count,
+            outboxReader(authorUid), streamChunkSize, sink));
+    }
+
+    /** Streams replies {@code [index, index + count)} to {@code sink}, chunk by chunk. */
+    public void streamReplies(String authenticatedUser, String postId, int index, int count,
+                              Consumer<TimelineEntry> sink) {
+        List<String> replyIds = posts.replies(postId, index, count);
+        for (int from = 0; from < replyIds.size(); from += streamChunkSize) {
+            List<String> chunk = replyIds.subList(from, Math.min(replyIds.size(), from + streamChunkSize));
+            hydrate(authenticatedUser, chunk).forEach(sink);
+        }
+    }
+
+    /**
+     * The viewer's timeline version: entries ever pushed to their timelines
+     * plus posts ever recorded by the pull authors they follow. One counter
+     * read, plus one batched read when they follow pull authors. Edits,
+     * deletes and new blocks do not change it.
+     */
+    public long timelineVersion(String authenticatedUser) {
+        return timelineVersion(authenticatedUser, pulledAuthors(authenticatedUser));
+    }
+
+    private long timelineVersion(String authenticatedUser, List<String> pulled) {
+        long version = timelines.version(authenticatedUser);
+        return pulled.isEmpty() ? version : version + timelines.outboxVersion(pulled);
+    }
+
+    /**
+     * The viewer's timeline version, followed by a hash of the pull authors
+     * it counts when there are any ({@code "42"}, {@code "42.1f3a9c07"}).
+     * Following one pull author instead of another whose outbox holds as
+     * many posts leaves the version as it was but changes the hash, so a
+     * tag built on this one does not match across the swap.
+     */
+    public String timelineTag(String authenticatedUser) {
+        List<String> pulled = pulledAuthors(authenticatedUser);
+        long version = timelineVersion(authenticatedUser, pulled);
+        if (pulled.isEmpty()) return Long.toString(version);
+        List<String> sorted = new ArrayList<>(pulled);
+        sorted.sort(Comparator.naturalOrder());
+        return version + "." + Integer.toHexString(sorted.hashCode());
+    }
+
+    /** The current version and how many entries arrived after {@code since}. */
+    public TimelineUpdates updatesSince(String authenticatedUser, long since) {
+        long version = timelineVersion(authenticatedUser);
+        return new TimelineUpdates(version, Math.max(0, version - since));
+    }
+
     public TimelineEntry getPost(String authenticatedUser, String postId) {
-        TimelineEntry entry = generatePost(authenticatedUser, postId);
-        if (entry == null) {
+        List<TimelineEntry> entries = hydrate(authenticatedUser, List.of(postId));
+        if (entries.isEmpty()) {
             throw new com.intelligenta.socialgraph.exception.PostNotFoundException("Post not found");
         }
-        return entry;
+        return entries.getFirst();
     }
 
     public TimelineResponse getReplies(String authenticatedUser, String postId, int index, int count) {
         long startTime = System.currentTimeMillis();
         List<String> replyIds = posts.replies(postId, index, count);
 
-        List<TimelineEntry> entries = new ArrayList<>();
-        for (String replyId : replyIds) {
-            TimelineEntry entry = generatePost(authenticatedUser, replyId);
-            if (entry != null) entries.add(entry);
-        }
+        List<TimelineEntry> entries = hydrate(authenticatedUser, replyIds);
         return new TimelineResponse(entries, entries.size(), System.currentTimeMillis() - startTime);
     }
 
-    private TimelineEntry generatePost(String authenticatedUser, String postId) {
+    /**
+     * Up to {@code count} visible entries after {@code cursor}. Each read
+     * asks {@code read} for the shortfall scaled by the viewer's filter rate;
+     * reads continue after the last entry fetched until the page is full, the
+     * timeline runs out, or {@code timeline.fill.max-rounds} reads have been
+     * made. The next cursor resumes after the last entry returned, so
+     * over-fetched entries that did not fit open the next page.
+     */
+    private TimelineResponse fill(String viewer, TimelineCursor cursor, int count, long startTime,
+                                  BiFunction<TimelineCursor, Integer, Page> read) {
+        List<TimelineEntry> entries = new ArrayList<>(Math.max(0, count));
+        TimelineCursor next = fill(viewer, cursor, count, read, Integer.MAX_VALUE, entries::add);
+        TimelineResponse response = new TimelineResponse(entries, entries.size(),
+            System.currentTimeMillis() - startTime);
+        response.setNextCursor(encode(next));
+        return response;
+    }
+
+    /**
+     * The loop behind {@link #fill(String, TimelineCursor, int, long, BiFunction)}:
+     * hands each visible entry to {@code sink} as its chunk of
+     * {@code chunkSize} ids is hydrated, and stops hydrating once
+     * {@code count} have been sent. Returns the next cursor.
+     */
+    private TimelineCursor fill(String viewer, TimelineCursor cursor, int count,
+                                BiFunction<TimelineCursor, Integer, Page> read, int chunkSize,
+                                Consumer<TimelineEntry> sink) {
+        int sent = 0;
+        TimelineCursor next = count > 0 ? cursor : null;
+        for (int round = 0; round < maxFillRounds && next != null && sent < count; round++) {
+            Page page = read.apply(next, filterRates.fetchSize(viewer, count - sent));
+            List<String> ids = page.postIds();
+            int hydrated = 0;
+            int visible = 0;
+            boolean leftOver = false;
+            // Index in ids of the last entry sent. Hydration keeps the ids'
+            // order, so scanning forward finds it even when an id repeats.
+            int last = -1;
+            while (hydrated < ids.size() && sent < count) {
+                int to = ids.size() - hydrated <= chunkSize ? ids.size() : hydrated + chunkSize;
+                List<TimelineEntry> chunk = hydrate(viewer, ids.subList(hydrated, to));
+                int scan = hydrated;
+                hydrated = to;
+                visible += chunk.size();
+                for (TimelineEntry entry : chunk) {
+                    if (sent == count) {
+                        leftOver = true;
+                        break;
+                    }
+                    sink.accept(entry);
+                    sent++;
+                    while (scan < to - 1 && !ids.get(scan).equals(entry.getUuid())) scan++;
+                    last = scan++;
+                }
+            }
+            filterRates.record(viewer, hydrated, visible);
+
+            if (!leftOver && hydrated == ids.size()) {
+                next = page.more() ? page.after(ids.size() - 1) : null;
+            } else {
+                next = page.after(last);
+            }
+        }
+        return next;
+    }
+
+    private BiFunction<TimelineCursor, Integer, Page> timelineReader(String viewer, TimelineStore.Kind kind) {
+        List<String> pulled = pulledAuthors(viewer);
+        return (position, n) -> pageAfter(viewer, pulled, kind, position, n);
+    }
+
+    private BiFunction<TimelineCursor, Integer, Page> outboxReader(String authorUid) {
+        return (position, n) -> seekPage(position.isOffset() ? timelines.outbox(authorUid, position.offset(), n)
+            : timelines.outboxAfter(authorUid, position.after(), n), n);
+    }
+
+    private static String encode(TimelineCursor cursor) {
+        return cursor == null ? null : cursor.encode();
+    }
+
+    /**
+     * The {@code count} entries after {@code cursor}. The materialized
+     * timeline and, for FIFO, the outboxes of followed pull authors are each
+     * read with a seek and merged, costing O(log n + count) per source
+     * however deep the page. Ranked pages with pull authors are merged by
+     * offset (outbox entries all carry their author's score, so there is no
+     * position to seek to); their cursors carry the offset. A seek cursor
+     * that meets a ranked timeline which has since gained pull authors keeps
+     * seeking the materialized timeline alone.
+     */
+    private Page pageAfter(String viewer, List<String> pulled, TimelineStore.Kind kind,
+                           TimelineCursor cursor, int count) {
+        boolean ranked = kind != TimelineStore.Kind.FIFO;
+        if (cursor.isOffset() || (cursor.after() == null && ranked && !pulled.isEmpty())) {
+            List<String> ids = mergedRange(viewer, pulled, kind, cursor.offset(), count);
+            return new Page(ids, null, cursor.offset(), ids.size() >= count);
+        }
+
+        List<TimelineStore.Entry> entries = timelines.rangeAfter(viewer, kind, cursor.after(), count);
+        if (!ranked && !pulled.isEmpty()) {
+            List<List<TimelineStore.Entry>> sources = new ArrayList<>(pulled.size() + 1);
+            sources.add(entries);
+            for (String author : pulled) sources.add(timelines.outboxAfter(author, cursor.after(), count));
+            entries = mergeDescending(sources, count);
+        }
+        return seekPage(entries, count);
+    }
+
+    private static Page seekPage(List<TimelineStore.Entry> entries, int count) {
+        List<String> ids = new ArrayList<>(entries.size());
+        for (TimelineStore.Entry e : entries) ids.add(e.postId());
+        return new Page(ids, entries, 0, entries.size() >= count);
+    }
+
+    /**
+     * The first {@code count} entries of {@code sources} in
+     * {@link TimelineStore.Entry#DESCENDING} order, the order seeks resume
+     * in; a post present in several sources is kept at its first position.
+     */
+    static List<TimelineStore.Entry> mergeDescending(List<List<TimelineStore.Entry>> sources, int count) {
+        List<TimelineStore.Entry> all = new ArrayList<>();
+        for (List<TimelineStore.Entry> source : sources) all.addAll(source);
+        all.sort(TimelineStore.Entry.DESCENDING);
+        Set<String> seen = new HashSet<>();
+        List<TimelineStore.Entry> out = new ArrayList<>(Math.min(count, all.size()));
+        for (TimelineStore.Entry e : all) {
+            if (out.size() == count) break;
+            if (seen.add(e.postId())) out.add(e);
+        }
+        return out;
+    }
+
+    /**
+     * Page {@code [index, index + count)} of the viewer's timeline. Without
+     * followed pull authors this is a plain range read; otherwise the first
+     * {@code index + count} entries of the materialized timeline and of each
+     * pulled outbox are merged by score.
+     */
+    private List<String> mergedRange(String viewer, List<String> pulled, TimelineStore.Kind kind,
+                                     int index, int count) {
+        if (pulled.isEmpty()) return timelines.range(viewer, kind, index, count);
+
+        int window = index + count;
+        List<List<TimelineStore.Entry>> sources = new ArrayList<>(pulled.size() + 1);
+        sources.add(timelines.rangeWithScores(viewer, kind, 0, window));
+        for (String author : pulled) {
+            List<TimelineStore.Entry> outbox = timelines.outbox(author, 0, window);
+            if (outbox.isEmpty()) continue;
+            sources.add(kind == TimelineStore.Kind.FIFO ? outbox : rescore(outbox, outboxScore(viewer, author, kind)));
+        }
+        return merge(sources, index, count);
+    }
+
+    /**
+     * Pull authors the viewer follows and has not muted, checked against the
+     * viewer's relations in the store rather than by reading them.
+     */
+    private List<String> pulledAuthors(String viewer) {
+        Set<String> pullAuthors = pullAuthors();
+        if (pullAuthors.isEmpty()) return List.of();
+        return new ArrayList<>(userService.followedUnmuted(viewer, pullAuthors));
+    }
+
+    /**
+     * The pull-author registry, re-read at most every
+     * {@code timeline.pull.registry-refresh}. Registration is sticky and
+     * rare, so a read on another instance sees a new pull author that much
+     * later at worst.
+     */
+    private Set<String> pullAuthors() {
+        PullRegistry registry = pullRegistry;
+        long now = System.nanoTime();
+        if (registry == null || now - registry.readAt() >= pullRegistryRefreshNanos) {
+            registry = new PullRegistry(Set.copyOf(timelines.pullAuthors()), now);
+            pullRegistry = registry;
+        }
+        return registry.authors();
+    }
+
+    private double outboxScore(String viewer, String author, TimelineStore.Kind kind) {
+        return kind == TimelineStore.Kind.PERSONAL_IMPORTANCE
+            ? scores.edgeScore(author, viewer)
+            : scores.socialImportance(author);
+    }
+
+    private static List<TimelineStore.Entry> rescore(List<TimelineStore.Entry> entries, double score) {
+        List<TimelineStore.Entry> out = new ArrayList<>(entries.size());
+        for (TimelineStore.Entry e : entries) out.add(new TimelineStore.Entry(e.postId(), score));
+        return out;
+    }
+
+    /**
+     * K-way merge of score-descending sources. Ties go to the earlier source
+     * (the materialized timeline first); a post present in several sources is
+     * emitted once, at its first position.
+     */
+    static List<String> merge(List<List<TimelineStore.Entry>> sources, int index, int count) {
+        PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(1, sources.size()),
+            Comparator.<int[]>comparingDouble(c -> -sources.get(c[0]).get(c[1]).score())
+                .thenComparingInt(c -> c[0]));
+        for (int i = 0; i < sources.size(); i++) {
+            if (!sources.get(i).isEmpty()) heap.add(new int[]{i, 0});
+        }
+        Set<String> seen = new HashSet<>();
+        List<String> out = new ArrayList<>(count);
+        int skipped = 0;
+        while (!heap.isEmpty() && out.size() < count) {
+            int[] cursor = heap.poll();
+            List<TimelineStore.Entry> source = sources.get(cursor[0]);
+            String postId = source.get(cursor[1]).postId();
+            if (++cursor[1] < source.size()) heap.add(cursor);
+            if (!seen.add(postId)) continue;
+            if (skipped < index) skipped++;
+            else out.add(postId);
+        }
+        return out;
+    }
+
+    /**
+     * Builds the visible entries for {@code postIds}, in order: one
+     * {@link PostStore#getMany} for the page, then the viewer's block and
+     * image filters for the page's distinct authors and image hashes
+     * ({@link #pageFilter}), then one {@link PostStore#imagesMany} for the
+     * multi-image posts that survived them, then one
+     * {@link UserService#findProfiles} for their distinct authors. Missing
+     * and filtered posts are dropped. Each entry gets its post's fragment,
+     * rendered here on a cache miss.
+     */
+    private List<TimelineEntry> hydrate(String authenticatedUser, List<String> postIds) {
+        if (postIds.isEmpty()) return new ArrayList<>();
+        if (hydration.isParallel() && postIds.size() > 1) return hydrateParallel(authenticatedUser, postIds);
+        long fragmentStamp = fragments.stamp();
+        Map<String, Map<String, Object>> page = posts.getMany(postIds);
+        PageFilter filter = pageFilter(authenticatedUser, page.values());
+
+        List<TimelineEntry> entries = new ArrayList<>(postIds.size());
+        List<String> multiImage = new ArrayList<>();
+        for (String postId : postIds) {
+            TimelineEntry entry = generatePost(authenticatedUser, page.get(postId), filter);
+            if (entry == null) continue;
+            entries.add(entry);
+            if (hasImageList(page.get(postId))) multiImage.add(entry.getUuid());
+        }
+
+        if (!multiImage.isEmpty()) {
+            Map<String, List<String>> images = posts.imagesMany(multiImage);
+            for (TimelineEntry entry : entries) {
+                List<String> urls = images.get(entry.getUuid());
+                if (urls != null && !urls.isEmpty()) entry.setImageUrls(urls);
+            }
+        }
+        for (TimelineEntry entry : entries) entry.setFragment(fragments.fragment(entry, fragmentStamp));
+
+        List<String> actors = new ArrayList<>(entries.size());
+        for (TimelineEntry entry : entries) {
+            if (entry.getActorUid() != null) actors.add(entry.getActorUid());
+        }
+        Map<String, UserStore.Profile> profiles = userService.findProfiles(actors);
+        for (TimelineEntry entry : entries) {
+            UserStore.Profile profile = profiles.get(entry.getActorUid());
+            if (profile == null) continue;
+            entry.setActorUsername(profile.username());
+            entry.setActorFullname(profile.fullname());
+        }
+        return entries;
+    }
+
+    /**
+     * {@link #hydrate} with one virtual thread per post instead of batched
+     * reads. Each task reads its post, applies the viewer's filters, then
+     * reads its image list and author profile; at most
+     * {@code timeline.hydration.parallelism} run at once and the page gets
+     * {@code timeline.hydration.deadline} in total. Entries come back in
+     * {@code postIds} order. Entries still loading at the deadline are
+     * cancelled and left out like missing posts; a failed read fails the
+     * page, as it would in a batch.
+     */
+    private List<TimelineEntry> hydrateParallel(String authenticatedUser, List<String> postIds) {
+        long fragmentStamp = fragments.stamp();
+        Semaphore permits = new Semaphore(Math.max(1, hydration.getParallelism()));
+        List<Callable<TimelineEntry>> tasks = new ArrayList<>(postIds.size());
+        for (String postId : postIds) {
+            tasks.add(() -> {
+                permits.acquire();
+                try {
+                    return hydrateOne(authenticatedUser, postId, fragmentStamp);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        List<Future<TimelineEntry>> results;
+        ExecutorService scope = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("hydrate-", 0).factory());
+        try {
+            results = scope.invokeAll(tasks, hydration.getDeadline().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hydrating timeline", e);
+        } finally {
+            // Not close(): a store call that ignores interrupts must not hold the page past its deadline.
+            scope.shutdownNow();
+        }
+
+        List<TimelineEntry> entries = new ArrayList<>(postIds.size());
+        int late = 0;
+        for (Future<TimelineEntry> result : results) {
+            switch (result.state()) {
+                case SUCCESS -> {
+                    if (result.resultNow() != null) entries.add(result.resultNow());
+                }
+                case FAILED -> {
+                    Throwable cause = result.exceptionNow();
+                    if (cause instanceof RuntimeException re) throw re;
+                    throw new IllegalStateException("Timeline hydration failed", cause);
+                }
+                default -> late++;
+            }
+        }
+        if (late > 0) {
+            log.warn("Dropped {} of {} timeline entries for {} that missed the {} hydration deadline",
+                late, postIds.size(), authenticatedUser, hydration.getDeadline());
+        }
+        return entries;
+    }
+
+    /** One post's complete entry from single reads; null when missing or filtered. */
+    private TimelineEntry hydrateOne(String authenticatedUser, String postId, long fragmentStamp) {
         Map<String, Object> post = posts.get(postId).orElse(null);
+        if (post == null) return null;
+        TimelineEntry entry = generatePost(authenticatedUser, post, pageFilter(authenticatedUser, List.of(post)));
+        if (entry == null) return null;
+
+        if (hasImageList(post)) {
+            List<String> urls = posts.images(entry.getUuid());
+            if (urls != null && !urls.isEmpty()) entry.setImageUrls(urls);
+        }
+        entry.setFragment(fragments.fragment(entry, fragmentStamp));
+
+        if (entry.getActorUid() != null) {
+            UserStore.Profile profile = userService.findProfiles(List.of(entry.getActorUid())).get(entry.getActorUid());
+            if (profile != null) {
+                entry.setActorUsername(profile.username());
+                entry.setActorFullname(profile.fullname());
+            }
+        }
+        return entry;
+    }
+
+    private static boolean hasImageList(Map<String, Object> post) {
+        String imageCount = (String) post.get("imageCount");
+        return imageCount != null && Integer.parseInt(imageCount) > 0;
+    }
+
+    /** The authors and image hashes of one page that the viewer's blocks and image filters hide. */
+    private record PageFilter(Set<String> hiddenActors, Set<String> blockedImages) {}
+
+    /**
+     * The viewer's block and image filters for {@code page}: one
+     * {@link UserService#hiddenActors} for its distinct authors and one
+     * {@link UserService#blockedImages} for its distinct image hashes,
+     * rather than a check of each per post.
+     */
+    private PageFilter pageFilter(String authenticatedUser, Collection<Map<String, Object>> page) {
+        Set<String> authors = new HashSet<>();
+        Set<String> imageHashes = new HashSet<>();
+        for (Map<String, Object> post : page) {
+            if (post == null) continue;
+            String postUid = (String) post.get("uid");
+            if (postUid != null) authors.add(postUid);
+            String imageHash = imageHash(post);
+            if (imageHash != null && !imageHash.isBlank()) imageHashes.add(imageHash);
+        }
+        return new PageFilter(
+            authors.isEmpty() ? Set.of() : userService.hiddenActors(authenticatedUser, authors),
+            imageHashes.isEmpty() ? Set.of() : userService.blockedImages(authenticatedUser, imageHashes));
+    }
+
+    private static String imageHash(Map<String, Object> post) {
+        return post.containsKey("imageHash") ? (String) post.get("imageHash") : (String) post.get("md5");
+    }
+
+    /**
+     * The entry for one hydrated post, without its image list or actor names;
+     * null when missing or filtered for the viewer. {@code filter} holds the
+     * page's block and image checks; keywords are matched here, in memory.
+     */
+    private TimelineEntry generatePost(String authenticatedUser, Map<String, Object> post, PageFilter filter) {
         if (post == null || post.get("id") == null) return null;
 
         String postUid = (String) post.get("uid");
-        if (postUid != null && !userService.canViewContent(authenticatedUser, postUid)) return null;
+        if (postUid != null && filter.hiddenActors().contains(postUid)) return null;
 
         String content = (String) post.get("content");
-        if (userService.hasNegativeKeyword(authenticatedUser, ShareService.getWords(content))) return null;
+        Object terms = post.get(ShareService.TERMS_FIELD);
+        long[] termHashes = terms == null ? null : TermFingerprint.decode(String.valueOf(terms));
+        if (userService.hasNegativeKeyword(authenticatedUser, content, termHashes)) return null;
 
-        String imageHash = post.containsKey("imageHash")
-            ? (String) post.get("imageHash") : (String) post.get("md5");
-        if (userService.isImageBlocked(authenticatedUser, imageHash)) return null;
+        String imageHash = imageHash(post);
+        if (imageHash != null && filter.blockedImages().contains(imageHash)) return null;
 
         TimelineEntry entry = new TimelineEntry();
         entry.setUuid((String) post.get("id"));
@@ -110,24 +676,12 @@ public class TimelineService {
         entry.setParentUuid((String) post.get("parentId"));
         entry.setSharedPostUuid((String) post.get("sharedPostId"));
 
-        String imageCountStr = (String) post.get("imageCount");
-        if (imageCountStr != null) {
-            int c = Integer.parseInt(imageCountStr);
-            if (c > 0) {
-                List<String> urls = posts.images(entry.getUuid());
-                if (!urls.isEmpty()) entry.setImageUrls(urls);
-            }
-        } else if (entry.getUrl() != null) {
+        // Posts with an imageCount get their full list in hydrate's imagesMany batch.
+        if (post.get("imageCount") == null && entry.getUrl() != null) {
             entry.setImageUrls(List.of(entry.getUrl()));
         }
 
-        if (postUid != null) {
-            String username = userService.getUsername(postUid);
-            String fullname = userService.getUserField(postUid, "fullname");
-            entry.setActorUid(postUid);
-            entry.setActorUsername(username);
-            entry.setActorFullname(fullname);
-        }
+        entry.setActorUid(postUid);
         return entry;
     }
 }
@@ -11,6 +11,7 @@ import com.intelligenta.socialgraph.exception.UserNotFoundException;
 import com.intelligenta.socialgraph.model.AuthResponse;
 import com.intelligenta.socialgraph.model.MemberInfo;
 import com.intelligenta.socialgraph.persistence.ContentFilterStore;
+import com.intelligenta.socialgraph.persistence.CounterStore;
 import com.intelligenta.socialgraph.persistence.RelationStore;
 import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
 import com.intelligenta.socialgraph.persistence.TokenStore;
@@ -24,8 +25,11 @@ import org.springframework.stereotype.Service;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -45,18 +49,24 @@ public class UserService {
     private final UserStore users;
     private final RelationStore relations;
     private final ContentFilterStore filters;
+    private final NegativeKeywordMatcher keywordMatcher;
     private final TokenStore tokens;
+    private final CounterStore counters;
     private final AppProperties appProperties;
 
     public UserService(UserStore users,
                        RelationStore relations,
                        ContentFilterStore filters,
+                       NegativeKeywordMatcher keywordMatcher,
                        TokenStore tokens,
+                       CounterStore counters,
                        AppProperties appProperties) {
         this.users = users;
         this.relations = relations;
         this.filters = filters;
+        this.keywordMatcher = keywordMatcher;
         this.tokens = tokens;
+        this.counters = counters;
         this.appProperties = appProperties;
     }
 
@@ -177,16 +187,27 @@ public class UserService {
             ? getFriends(uid)
             : relations.members(uid, parseRelation(setType));
 
+        Map<String, UserStore.Profile> profiles = findProfiles(memberUids);
         List<MemberInfo> members = new ArrayList<>();
         for (String memberUid : memberUids) {
-            String username = getUsername(memberUid);
-            String fullname = username == null ? null : users.getField(username, "fullname").orElse(null);
-            members.add(new MemberInfo(memberUid, username, fullname));
+            UserStore.Profile profile = profiles.get(memberUid);
+            members.add(profile == null
+                ? new MemberInfo(memberUid, null, null)
+                : new MemberInfo(memberUid, profile.username(), profile.fullname()));
         }
         log.debug("getMembers({}, {}) took {}ms", uid, setType, System.currentTimeMillis() - startTime);
         return members;
     }
 
+    /**
+     * Display profiles for {@code uids}, each distinct uid looked up once,
+     * in a constant number of store round-trips. Unknown uids are absent.
+     */
+    public Map<String, UserStore.Profile> findProfiles(Collection<String> uids) {
+        if (uids.isEmpty()) return Map.of();
+        return users.findProfilesByUids(new LinkedHashSet<>(uids));
+    }
+
     public String getPublicRSAKey(String uid) {
         return users.getPublicRsaKey(uid).orElse(null);
     }
@@ -228,6 +249,10 @@ public class UserService {
         profile.put("created", getUserField(targetUid, "created"));
         profile.put("followers", String.valueOf(getCounter(targetUid, "followers")));
         profile.put("following", String.valueOf(getCounter(targetUid, "following")));
+        Map<CounterStore.Kind, Long> content = counters.getMany(targetUid, List.of(CounterStore.Kind.values()));
+        profile.put("posts", String.valueOf(content.getOrDefault(CounterStore.Kind.POSTS, 0L)));
+        profile.put("photos", String.valueOf(content.getOrDefault(CounterStore.Kind.PHOTOS, 0L)));
+        profile.put("videos", String.valueOf(content.getOrDefault(CounterStore.Kind.VIDEOS, 0L)));
         profile.put("isBlocked", viewerUid != null && hasBlocked(viewerUid, targetUid));
         profile.put("isMuted", viewerUid != null && hasMuted(viewerUid, targetUid));
         profile.put("blocksViewer", viewerUid != null && hasBlocked(targetUid, viewerUid));
@@ -316,14 +341,84 @@ public class UserService {
         return filters.isImageBlocked(ownerUid, imageHash);
     }
 
-    public boolean hasNegativeKeyword(String ownerUid, List<String> keywords) {
-        return filters.hasAnyNegativeKeyword(ownerUid, keywords);
+    /** The {@code imageHashes} the owner has blocked, in one read; for a timeline page's images. */
+    public Set<String> blockedImages(String ownerUid, Collection<String> imageHashes) {
+        return filters.blockedImages(ownerUid, imageHashes);
+    }
+
+    /**
+     * True when {@code content} contains one of the owner's negative keywords
+     * or phrases. {@code terms} is the post's stored term fingerprint, or null
+     * to compute it from {@code content}.
+     */
+    public boolean hasNegativeKeyword(String ownerUid, String content, long[] terms) {
+        return keywordMatcher.matches(ownerUid, content, terms);
+    }
+
+    public boolean addNegativeKeyword(String ownerUid, String keyword) {
+        boolean added = filters.addNegativeKeyword(ownerUid, keyword);
+        keywordMatcher.invalidate(ownerUid);
+        return added;
+    }
+
+    public boolean blockImage(String ownerUid, String imageHash) {
+        return filters.blockImage(ownerUid, imageHash);
+    }
+
+    /**
+     * Followers of {@code authorUid} that may receive the author's posts:
+     * {@code FOLLOWERS − BLOCKERS − BLOCKED − MUTERS}, one set difference in
+     * the store. Equivalent to {@link #canViewContent} plus {@link #hasMuted}
+     * for every follower.
+     */
+    public Set<String> deliverableFollowers(String authorUid) {
+        return relations.difference(authorUid, Relation.FOLLOWERS,
+            Relation.BLOCKERS, Relation.BLOCKED, Relation.MUTERS);
+    }
+
+    /**
+     * {@code recipients} minus those whose negative keywords or blocked
+     * images match the post. Only recipients that have a relevant filter at
+     * all (one bulk lookup) get a per-user check; keyword checks run in
+     * memory against {@code content} and its term fingerprint {@code terms}.
+     */
+    public List<String> withoutFilteredContent(List<String> recipients, String content, long[] terms,
+                                               String imageHash) {
+        boolean checkKeywords = content != null && !content.isBlank();
+        boolean checkImage = imageHash != null && !imageHash.isBlank();
+        if (recipients.isEmpty() || (!checkKeywords && !checkImage)) return recipients;
+
+        Set<String> withFilters = filters.usersWithFilters(recipients, checkKeywords, checkImage);
+        if (withFilters.isEmpty()) return recipients;
+        List<String> out = new ArrayList<>(recipients.size());
+        for (String uid : recipients) {
+            if (withFilters.contains(uid)
+                && ((checkKeywords && hasNegativeKeyword(uid, content, terms))
+                    || (checkImage && isImageBlocked(uid, imageHash)))) {
+                continue;
+            }
+            out.add(uid);
+        }
+        return out;
     }
 
     public boolean canViewContent(String viewerUid, String actorUid) {
         return !hasBlocked(viewerUid, actorUid) && !hasBlocked(actorUid, viewerUid);
     }
 
+    /**
+     * The {@code actorUids} whose content the viewer cannot see, as
+     * {@link #canViewContent} decides it: two membership checks of the
+     * viewer's {@code BLOCKED} and {@code BLOCKERS} sets however many
+     * actors a timeline page has.
+     */
+    public Set<String> hiddenActors(String viewerUid, Collection<String> actorUids) {
+        if (actorUids.isEmpty()) return Set.of();
+        Set<String> hidden = new HashSet<>(relations.retainMembers(viewerUid, Relation.BLOCKED, actorUids));
+        hidden.addAll(relations.retainMembers(viewerUid, Relation.BLOCKERS, actorUids));
+        return hidden;
+    }
+
     public void ensureAuthor(String authenticatedUid, String postUid) {
         if (!authenticatedUid.equals(postUid)) {
             throw new AccessDeniedException("Only the original author can modify this post");
@@ -335,6 +430,23 @@ public class UserService {
         return relations.members(uid, Relation.FOLLOWERS);
     }
 
+    /**
+     * The {@code candidates} that {@code uid} follows and has not muted: two
+     * membership checks in the store ({@code SMISMEMBER} on Redis) however
+     * large the following set. Used by TimelineService to find the pull
+     * authors a viewer reads.
+     */
+    public Set<String> followedUnmuted(String uid, Collection<String> candidates) {
+        if (candidates.isEmpty()) return Collections.emptySet();
+        Set<String> followed = new LinkedHashSet<>(relations.retainMembers(uid, Relation.FOLLOWING, candidates));
+        if (!followed.isEmpty()) followed.removeAll(relations.retainMembers(uid, Relation.MUTED, followed));
+        return followed;
+    }
+
+    public long followerCount(String uid) {
+        return getCounter(uid, "followers");
+    }
+
     private Relation parseRelation(String setType) {
         return switch (setType) {
             case "followers" -> Relation.FOLLOWERS;
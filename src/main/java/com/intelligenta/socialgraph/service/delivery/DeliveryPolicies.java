@@ -0,0 +1,67 @@
+package com.intelligenta.socialgraph.service.delivery;
+
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies every {@link DeliveryPolicy} bean to a fan-out chunk, in bean
+ * order, and counts what each one saved. A delivery to one recipient is
+ * {@value #WRITES_PER_DELIVERY} timeline writes (FIFO list, its timestamp
+ * index, and the two importance zsets), so that is what each dropped
+ * recipient saves. Counters are per instance and exposed through
+ * {@link #savings()}.
+ */
+@Component
+public class DeliveryPolicies {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryPolicies.class);
+
+    public static final int WRITES_PER_DELIVERY = 4;
+
+    public record Savings(String policy, long recipientsSkipped) {
+        public long writesSaved() {
+            return recipientsSkipped * WRITES_PER_DELIVERY;
+        }
+    }
+
+    private final List<DeliveryPolicy> policies;
+    private final List<LongAdder> skipped;
+
+    public DeliveryPolicies(List<DeliveryPolicy> policies) {
+        this.policies = List.copyOf(policies);
+        this.skipped = new ArrayList<>(policies.size());
+        for (int i = 0; i < policies.size(); i++) skipped.add(new LongAdder());
+    }
+
+    /** {@code recipients} minus everyone a policy that applies to {@code delivery} drops. */
+    public List<String> apply(FanoutPartitioner.Delivery delivery, List<String> recipients) {
+        List<String> out = recipients;
+        for (int i = 0; i < policies.size() && !out.isEmpty(); i++) {
+            DeliveryPolicy policy = policies.get(i);
+            if (!policy.appliesTo(delivery)) continue;
+            List<String> retained = policy.retain(delivery, out);
+            int dropped = out.size() - retained.size();
+            if (dropped > 0) {
+                skipped.get(i).add(dropped);
+                log.debug("Policy {} skipped {} of {} recipients of post {}",
+                    policy.name(), dropped, out.size(), delivery.postId());
+            }
+            out = retained;
+        }
+        return out;
+    }
+
+    public List<Savings> savings() {
+        List<Savings> out = new ArrayList<>(policies.size());
+        for (int i = 0; i < policies.size(); i++) {
+            out.add(new Savings(policies.get(i).name(), skipped.get(i).sum()));
+        }
+        return out;
+    }
+}
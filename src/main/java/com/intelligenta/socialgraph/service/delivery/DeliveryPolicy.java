@@ -0,0 +1,24 @@
+package com.intelligenta.socialgraph.service.delivery;
+
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner;
+
+import java.util.List;
+
+/**
+ * A rule that narrows who receives a post during fan-out. Policies run on
+ * the member that owns the recipients' timelines, once per chunk, before
+ * content filters and timeline writes; every recipient a policy drops is a
+ * timeline delivery that never happens. Implementations are Spring beans and
+ * are picked up by {@link DeliveryPolicies}.
+ */
+public interface DeliveryPolicy {
+
+    /** Short name used in logs and {@link DeliveryPolicies#savings()}. */
+    String name();
+
+    /** True when this policy has anything to say about {@code delivery}; cheap, no store calls. */
+    boolean appliesTo(FanoutPartitioner.Delivery delivery);
+
+    /** The subset of {@code recipients} that should still receive {@code delivery}, in order. */
+    List<String> retain(FanoutPartitioner.Delivery delivery, List<String> recipients);
+}
@@ -0,0 +1,53 @@
+package com.intelligenta.socialgraph.service.delivery;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner;
+import com.intelligenta.socialgraph.persistence.RelationStore;
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delivers a reply only to the replier's followers who also follow the
+ * parent post's author, i.e. those who have the conversation's context. The
+ * parent's author always gets it. One {@link RelationStore#retainMembers}
+ * call per chunk against the parent author's follower set.
+ *
+ * <p>Toggled with {@code timeline.policy.reply-audience}.
+ */
+@Component
+public class ReplyAudiencePolicy implements DeliveryPolicy {
+
+    private final RelationStore relations;
+    private final boolean enabled;
+
+    public ReplyAudiencePolicy(RelationStore relations, TimelineProperties timelineProperties) {
+        this.relations = relations;
+        this.enabled = timelineProperties.getPolicy().isReplyAudience();
+    }
+
+    @Override
+    public String name() {
+        return "reply-audience";
+    }
+
+    @Override
+    public boolean appliesTo(FanoutPartitioner.Delivery delivery) {
+        return enabled && delivery.parentAuthorUid() != null
+            && !delivery.parentAuthorUid().equals(delivery.authorUid());
+    }
+
+    @Override
+    public List<String> retain(FanoutPartitioner.Delivery delivery, List<String> recipients) {
+        String parentAuthor = delivery.parentAuthorUid();
+        Set<String> audience = relations.retainMembers(parentAuthor, Relation.FOLLOWERS, recipients);
+        List<String> out = new ArrayList<>(audience.size() + 1);
+        for (String uid : recipients) {
+            if (audience.contains(uid) || uid.equals(parentAuthor)) out.add(uid);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,52 @@
+package com.intelligenta.socialgraph.service.delivery;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner;
+import com.intelligenta.socialgraph.persistence.TimelineStore;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Skips a reshare for recipients whose timeline already holds the original
+ * post. Covers both forms: a plain reshare pushes the original's id again
+ * (which the FIFO list would otherwise hold twice), and a reshare with a
+ * comment pushes a new post pointing at an original the reader has already
+ * seen. One {@link TimelineStore#holding} batch per chunk.
+ *
+ * <p>Toggled with {@code timeline.policy.reshare-dedupe}.
+ */
+@Component
+public class ReshareDedupePolicy implements DeliveryPolicy {
+
+    private final TimelineStore timelines;
+    private final boolean enabled;
+
+    public ReshareDedupePolicy(TimelineStore timelines, TimelineProperties timelineProperties) {
+        this.timelines = timelines;
+        this.enabled = timelineProperties.getPolicy().isReshareDedupe();
+    }
+
+    @Override
+    public String name() {
+        return "reshare-dedupe";
+    }
+
+    @Override
+    public boolean appliesTo(FanoutPartitioner.Delivery delivery) {
+        return enabled && delivery.originalPostId() != null;
+    }
+
+    @Override
+    public List<String> retain(FanoutPartitioner.Delivery delivery, List<String> recipients) {
+        Set<String> seen = timelines.holding(recipients, delivery.originalPostId());
+        if (seen.isEmpty()) return recipients;
+        List<String> out = new ArrayList<>(recipients.size() - seen.size());
+        for (String uid : recipients) {
+            if (!seen.contains(uid)) out.add(uid);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,114 @@
+package com.intelligenta.socialgraph.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton over a fixed set of keywords and phrases. Compiled
+ * once, then {@link #matches} scans a text in a single pass regardless of how
+ * many keywords there are.
+ *
+ * <p>A keyword only matches whole words: the characters either side of a hit
+ * must not be letters or digits, so {@code "spoil"} does not match
+ * {@code "spoiler"} but {@code "season finale"} matches inside
+ * {@code "the season finale!"}. Matching is case-sensitive, like the stored
+ * keywords.
+ *
+ * <p>Instances are immutable and safe to share between threads.
+ */
+public final class KeywordAutomaton {
+
+    private static final int[] NO_OUTPUT = new int[0];
+
+    public static final KeywordAutomaton EMPTY = new KeywordAutomaton(new Node());
+
+    private final Node root;
+
+    private KeywordAutomaton(Node root) {
+        this.root = root;
+    }
+
+    /** Builds the automaton. Blank entries are ignored; surrounding whitespace is trimmed. */
+    public static KeywordAutomaton compile(Collection<String> keywords) {
+        Node root = new Node();
+        boolean any = false;
+        for (String keyword : keywords) {
+            if (keyword == null) continue;
+            String k = keyword.strip();
+            if (k.isEmpty()) continue;
+            Node node = root;
+            for (int i = 0; i < k.length(); i++) {
+                node = node.next.computeIfAbsent(k.charAt(i), c -> new Node());
+            }
+            node.output = new int[] { k.length() };
+            any = true;
+        }
+        if (!any) return EMPTY;
+
+        // Breadth-first: a node's failure link always points at a shallower node,
+        // so its output can be extended with the already-final output of that link.
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        for (Node child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Map.Entry<Character, Node> edge : node.next.entrySet()) {
+                char c = edge.getKey();
+                Node child = edge.getValue();
+                Node f = node.fail;
+                while (f != root && !f.next.containsKey(c)) f = f.fail;
+                Node target = f.next.get(c);
+                child.fail = target != null ? target : root;
+                child.output = concat(child.output, child.fail.output);
+                queue.add(child);
+            }
+        }
+        return new KeywordAutomaton(root);
+    }
+
+    public boolean isEmpty() {
+        return root.next.isEmpty();
+    }
+
+    /** True when any keyword occurs in {@code text} as a whole word or phrase. */
+    public boolean matches(CharSequence text) {
+        if (text == null || isEmpty()) return false;
+        Node node = root;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            Node next = node.next.get(c);
+            while (next == null && node != root) {
+                node = node.fail;
+                next = node.next.get(c);
+            }
+            node = next == null ? root : next;
+            if (node.output.length == 0) continue;
+            if (i + 1 < n && Character.isLetterOrDigit(text.charAt(i + 1))) continue;
+            for (int length : node.output) {
+                int start = i - length + 1;
+                if (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1))) return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (b.length == 0) return a;
+        if (a.length == 0) return b;
+        int[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    private static final class Node {
+        final Map<Character, Node> next = new HashMap<>();
+        Node fail;
+        int[] output = NO_OUTPUT;
+    }
+}
@@ -0,0 +1,111 @@
+package com.intelligenta.socialgraph.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Hashed term set of a piece of text: the 64-bit FNV-1a hashes of every
+ * maximal run of letters and digits, sorted and de-duplicated. Computed once
+ * when a post is written and stored with it (the {@code terms} field), so
+ * read-time keyword filtering is a merge-intersection of two sorted arrays
+ * instead of re-tokenizing the content.
+ *
+ * <p>Terms are the same units {@link KeywordAutomaton} treats as whole words,
+ * so a single-word keyword matches a post exactly when its {@link #hash}
+ * is in the post's fingerprint. Hashing is case-sensitive and works on the
+ * text's chars in place; the only allocations are the result array and its
+ * scratch buffer.
+ */
+public final class TermFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long[] EMPTY = new long[0];
+
+    private TermFingerprint() {
+    }
+
+    /** Sorted, distinct term hashes of {@code text}; empty for null or term-less text. */
+    public static long[] of(CharSequence text) {
+        if (text == null || text.isEmpty()) return EMPTY;
+        int n = text.length();
+        // Terms are separated by at least one char, so there are at most ceil(n / 2).
+        long[] hashes = new long[(n + 1) / 2];
+        int count = 0;
+        int i = 0;
+        while (i < n) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            long h = FNV_OFFSET;
+            while (i < n && Character.isLetterOrDigit(text.charAt(i))) {
+                h = mix(h, text.charAt(i++));
+            }
+            hashes[count++] = h;
+        }
+        if (count == 0) return EMPTY;
+        Arrays.sort(hashes, 0, count);
+        int distinct = 1;
+        for (int j = 1; j < count; j++) {
+            if (hashes[j] != hashes[distinct - 1]) hashes[distinct++] = hashes[j];
+        }
+        return Arrays.copyOf(hashes, distinct);
+    }
+
+    /** Hash of a single term, comparable with the entries of {@link #of}. */
+    public static long hash(CharSequence term) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < term.length(); i++) h = mix(h, term.charAt(i));
+        return h;
+    }
+
+    /** True when {@code keyword} is one term, i.e. non-empty and all letters or digits. */
+    public static boolean isSingleTerm(CharSequence keyword) {
+        if (keyword == null || keyword.isEmpty()) return false;
+        for (int i = 0; i < keyword.length(); i++) {
+            if (!Character.isLetterOrDigit(keyword.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /** True when the two sorted arrays share an element. */
+    public static boolean intersects(long[] a, long[] b) {
+        int i = 0, j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) return true;
+            if (a[i] < b[j]) i++;
+            else j++;
+        }
+        return false;
+    }
+
+    /** Base64 of the hashes, 8 big-endian bytes each. */
+    public static String encode(long[] hashes) {
+        ByteBuffer buf = ByteBuffer.allocate(hashes.length * Long.BYTES);
+        for (long h : hashes) buf.putLong(h);
+        return Base64.getEncoder().encodeToString(buf.array());
+    }
+
+    /** Inverse of {@link #encode}; null when {@code encoded} is null or malformed. */
+    public static long[] decode(String encoded) {
+        if (encoded == null) return null;
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(encoded);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length % Long.BYTES != 0) return null;
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        long[] hashes = new long[bytes.length / Long.BYTES];
+        for (int i = 0; i < hashes.length; i++) hashes[i] = buf.getLong();
+        return hashes;
+    }
+
+    private static long mix(long h, char c) {
+        h = (h ^ (c & 0xff)) * FNV_PRIME;
+        return (h ^ (c >>> 8)) * FNV_PRIME;
+    }
+}
@@ -98,6 +98,7 @@ class ApiSurfaceRegressionTest {
         assertTrue(routes.contains(route("PATCH", "/api/me")));
         assertTrue(routes.contains(route("GET", "/api/users/{uid}")));
         assertTrue(routes.contains(route("GET", "/api/users/search")));
+        assertTrue(routes.contains(route("GET", "/api/users/{uid}/posts")));
         assertTrue(routes.contains(route("POST", "/api/block")));
         assertTrue(routes.contains(route("POST", "/api/unblock")));
         assertTrue(routes.contains(route("POST", "/api/mute")));
@@ -106,6 +107,8 @@ class ApiSurfaceRegressionTest {
         assertTrue(routes.contains(route("GET", "/api/posts/{postId}/replies")));
         assertTrue(routes.contains(route("POST", "/api/posts/{postId}/reply")));
         assertTrue(routes.contains(route("POST", "/api/posts/{postId}/reshare")));
+        assertTrue(routes.contains(route("GET", "/api/posts/{postId}/fanout")));
+        assertTrue(routes.contains(route("GET", "/api/status/caches")));
         assertTrue(routes.contains(route("PATCH", "/api/posts/{postId}")));
         assertTrue(routes.contains(route("DELETE", "/api/posts/{postId}")));
         assertTrue(routes.contains(route("POST", "/api/search/question")));
@@ -0,0 +1,114 @@
+package com.intelligenta.socialgraph.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import com.intelligenta.socialgraph.persistence.TimelineStore;
+import com.intelligenta.socialgraph.persistence.infinispan.InfinispanRelationStore;
+import com.intelligenta.socialgraph.persistence.infinispan.InfinispanTimelineStore;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.context.Flag;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Three embedded cache managers built by {@link InfinispanConfig} with
+ * clustering enabled, joined over loopback TCP in one JVM (see
+ * {@code jgroups-in-jvm.xml}).
+ */
+class InfinispanClusterTopologyTest {
+
+    private final List<EmbeddedCacheManager> managers = new ArrayList<>();
+
+    @BeforeEach
+    void startCluster() {
+        for (int i = 0; i < 3; i++) managers.add(new InfinispanConfig.Native().embeddedCacheManager(properties()));
+        managers.forEach(m -> {
+            m.getCache("users");
+            m.getCache("tokens");
+        });
+        await().atMost(Duration.ofSeconds(30))
+            .until(() -> managers.stream().allMatch(m -> m.getMembers() != null && m.getMembers().size() == 3));
+    }
+
+    @AfterEach
+    void stopCluster() {
+        managers.forEach(EmbeddedCacheManager::stop);
+    }
+
+    @Test
+    void longLivedCachesAreDistributedWithTheConfiguredOwnersAndSegments() {
+        Configuration users = managers.getFirst().getCacheConfiguration("users");
+        assertThat(users.clustering().cacheMode()).isEqualTo(CacheMode.DIST_SYNC);
+        assertThat(users.clustering().hash().numOwners()).isEqualTo(2);
+        assertThat(users.clustering().hash().numSegments()).isEqualTo(32);
+
+        cache(0, "users").put("alice", "hash");
+
+        long holding = managers.stream()
+            .filter(m -> m.getCache("users").getAdvancedCache().withFlags(Flag.CACHE_MODE_LOCAL).get("alice") != null)
+            .count();
+        assertThat(holding).isEqualTo(2);
+        assertThat(cache(2, "users").get("alice")).isEqualTo("hash");
+    }
+
+    @Test
+    void ephemeralCachesAreReplicatedToEveryNode() {
+        assertThat(managers.getFirst().getCacheConfiguration("tokens").clustering().cacheMode())
+            .isEqualTo(CacheMode.REPL_SYNC);
+
+        cache(1, "tokens").put("token-1", "uid-1");
+
+        for (EmbeddedCacheManager m : managers) {
+            assertThat(m.getCache("tokens").getAdvancedCache().withFlags(Flag.CACHE_MODE_LOCAL).get("token-1"))
+                .isEqualTo("uid-1");
+        }
+    }
+
+    @Test
+    void storesOnDifferentNodesShareOneGraphAndTimeline() throws Exception {
+        List<InfinispanRelationStore> relations = managers.stream().map(InfinispanRelationStore::new).toList();
+        List<Thread> writers = new ArrayList<>();
+        for (int n = 0; n < relations.size(); n++) {
+            InfinispanRelationStore store = relations.get(n);
+            int node = n;
+            writers.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < 20; i++) store.add("star", Relation.FOLLOWERS, "fan-" + node + "-" + i);
+            }));
+        }
+        for (Thread writer : writers) writer.join();
+        assertThat(relations.get(1).members("star", Relation.FOLLOWERS)).hasSize(60);
+
+        TimelineProperties timelineProperties = new TimelineProperties();
+        InfinispanTimelineStore writer = new InfinispanTimelineStore(managers.get(0), timelineProperties);
+        InfinispanTimelineStore reader = new InfinispanTimelineStore(managers.get(2), timelineProperties);
+        writer.push("fan-0-0", "p1", 1, 0.5, 2);
+        writer.push("fan-0-0", "p2", 2, 0.9, 1);
+        assertThat(reader.range("fan-0-0", TimelineStore.Kind.PERSONAL_IMPORTANCE, 0, 10))
+            .containsExactly("p2", "p1");
+        assertThat(reader.version("fan-0-0")).isEqualTo(2);
+    }
+
+    private Cache<String, String> cache(int node, String name) {
+        return managers.get(node).getCache(name);
+    }
+
+    private static PersistenceProperties properties() {
+        PersistenceProperties props = new PersistenceProperties();
+        PersistenceProperties.Infinispan ispn = props.getInfinispan();
+        ispn.setClusterName("topology-test");
+        ispn.getCluster().setEnabled(true);
+        ispn.getCluster().setSegments(32);
+        ispn.getJgroups().setStackFile("jgroups-in-jvm.xml");
+        return props;
+    }
+}
@@ -0,0 +1,122 @@
+package com.intelligenta.socialgraph.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import com.intelligenta.socialgraph.persistence.TimelineStore;
+import com.intelligenta.socialgraph.persistence.infinispan.FieldHash;
+import com.intelligenta.socialgraph.persistence.infinispan.InfinispanTimelineStore;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.StorageType;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * LOCAL embedded cache managers built by {@link InfinispanConfig} with memory
+ * budgets and the file-store passivation tier under a temporary directory.
+ */
+class InfinispanFileStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private EmbeddedCacheManager manager;
+
+    @AfterEach
+    void stop() {
+        if (manager != null) manager.stop();
+    }
+
+    @Test
+    void budgetsPickHeapCountOrOffHeapBytes() {
+        manager = start(properties());
+
+        Configuration posts = manager.getCacheConfiguration("posts");
+        assertThat(posts.memory().storage()).isEqualTo(StorageType.OFF_HEAP);
+        assertThat(posts.memory().maxSizeBytes()).isEqualTo(DataSize.ofMegabytes(8).toBytes());
+        assertThat(posts.persistence().passivation()).isTrue();
+
+        Configuration personal = manager.getCacheConfiguration("timelines-personal");
+        assertThat(personal.memory().storage()).isEqualTo(StorageType.HEAP);
+        assertThat(personal.memory().maxCount()).isEqualTo(2);
+
+        assertThat(manager.getCacheConfiguration("users").memory().maxCount()).isEqualTo(-1);
+        assertThat(manager.getCacheConfiguration("tokens").persistence().stores()).isEmpty();
+    }
+
+    @Test
+    void evictedTimelinesPageOutAndAreReadBack() {
+        manager = start(properties());
+        InfinispanTimelineStore timelines = new InfinispanTimelineStore(manager, new TimelineProperties());
+        for (int i = 0; i < 10; i++) timelines.push("user-" + i, "p" + i, i, 0.5, 1);
+
+        Cache<String, ?> personal = manager.getCache("timelines-personal");
+        await().atMost(Duration.ofSeconds(10))
+            .until(() -> personal.getAdvancedCache().getDataContainer().size() <= 2);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(timelines.range("user-" + i, TimelineStore.Kind.PERSONAL_IMPORTANCE, 0, 10))
+                .containsExactly("p" + i);
+        }
+    }
+
+    @Test
+    void postsSurviveARestart() {
+        manager = start(properties());
+        Cache<String, FieldHash> posts = manager.getCache("posts");
+        for (int i = 0; i < 100; i++) posts.put("p" + i, new FieldHash(Map.of("text", "post " + i)));
+        manager.stop();
+
+        manager = start(properties());
+        Cache<String, FieldHash> reopened = manager.getCache("posts");
+        assertThat(reopened.size()).isEqualTo(100);
+        assertThat(reopened.get("p42")).containsEntry("text", "post 42");
+    }
+
+    @Test
+    void budgetWithoutFileStoreIsRejected() {
+        PersistenceProperties props = properties();
+        props.getInfinispan().getFileStore().setEnabled(false);
+
+        assertThatThrownBy(() -> start(props))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("file-store.enabled");
+    }
+
+    @Test
+    void budgetForAnUnknownCacheIsRejected() {
+        PersistenceProperties props = properties();
+        props.getInfinispan().getMemory().getCaches()
+            .put("timelines-personel", new PersistenceProperties.Infinispan.Memory.Budget(10, null));
+
+        assertThatThrownBy(() -> start(props))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("timelines-personel");
+    }
+
+    private static EmbeddedCacheManager start(PersistenceProperties props) {
+        return new InfinispanConfig.Native().embeddedCacheManager(props);
+    }
+
+    private PersistenceProperties properties() {
+        PersistenceProperties props = new PersistenceProperties();
+        PersistenceProperties.Infinispan ispn = props.getInfinispan();
+        ispn.setClusterName("file-store-test");
+        ispn.getFileStore().setEnabled(true);
+        ispn.getFileStore().setLocation(dir.toString());
+        ispn.getMemory().getCaches()
+            .put("posts", new PersistenceProperties.Infinispan.Memory.Budget(-1, DataSize.ofMegabytes(8)));
+        ispn.getMemory().getCaches()
+            .put("timelines-personal", new PersistenceProperties.Infinispan.Memory.Budget(2, null));
+        return props;
+    }
+}
@@ -0,0 +1,66 @@
+package com.intelligenta.socialgraph.config;
+
+import com.intelligenta.socialgraph.model.TimelineEntry;
+import com.intelligenta.socialgraph.model.TimelineResponse;
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.service.PostFragments;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimelineResponseConverterTest {
+
+    private final JsonMapper json = JsonMapper.builder().build();
+    private final TimelineResponseConverter converter = new TimelineResponseConverter(json);
+    private final PostFragments fragments = new PostFragments(
+        json, Mockito.mock(InvalidationBus.class), new TimelineProperties());
+
+    @Test
+    void fragmentPathWritesTheSameJsonAsJackson() throws IOException {
+        TimelineEntry withFragment = entry("p1", "photo", "caption with \"quotes\" and ünïcode");
+        withFragment.setImageUrls(List.of("https://cdn.example/a.png", "https://cdn.example/b.png"));
+        withFragment.setFragment(fragments.fragment(withFragment, fragments.stamp()));
+        TimelineEntry withoutFragment = entry("p2", "text", "plain");
+        withoutFragment.setActorFullname(null);
+        TimelineResponse response = new TimelineResponse(List.of(withFragment, withoutFragment), 2, 7);
+        response.setNextCursor("c3wxMDB8cDI");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.write(response, out);
+
+        assertEquals(json.readTree(json.writeValueAsBytes(response)), json.readTree(out.toByteArray()));
+    }
+
+    @Test
+    void actorNamesAreWrittenPerResponseNotCachedInTheFragment() throws IOException {
+        TimelineEntry first = entry("p3", "text", "hello");
+        first.setFragment(fragments.fragment(first, fragments.stamp()));
+        TimelineEntry renamed = entry("p3", "text", "hello");
+        renamed.setActorUsername("alice-renamed");
+        renamed.setFragment(fragments.fragment(renamed, fragments.stamp()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.write(new TimelineResponse(List.of(renamed), 1, 0), out);
+
+        assertEquals("alice-renamed",
+            json.readTree(out.toByteArray()).path("entities").get(0).path("actorUsername").asString());
+    }
+
+    private static TimelineEntry entry(String id, String type, String content) {
+        TimelineEntry e = new TimelineEntry();
+        e.setUuid(id);
+        e.setType(type);
+        e.setContent(content);
+        e.setCreated("1717171717");
+        e.setActorUid("u1");
+        e.setActorUsername("alice");
+        e.setActorFullname("Alice Smith");
+        return e;
+    }
+}
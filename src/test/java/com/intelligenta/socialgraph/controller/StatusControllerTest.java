@@ -1,10 +1,14 @@
 package com.intelligenta.socialgraph.controller;
 
 import com.intelligenta.socialgraph.config.EmbeddingProperties;
+import com.intelligenta.socialgraph.model.FanoutProgress;
 import com.intelligenta.socialgraph.model.TimelineEntry;
 import com.intelligenta.socialgraph.model.TimelineResponse;
+import com.intelligenta.socialgraph.persistence.cache.NearCache;
+import com.intelligenta.socialgraph.persistence.cache.NearCacheStores;
 import com.intelligenta.socialgraph.service.ShareService;
 import com.intelligenta.socialgraph.service.TimelineService;
+import com.intelligenta.socialgraph.service.UserService;
 import com.intelligenta.socialgraph.support.TestAuthenticatedUserResolver;
 import com.intelligenta.socialgraph.support.TestRequestPostProcessors;
 import org.springframework.mock.web.MockMultipartFile;
@@ -13,12 +17,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.SetOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -46,6 +50,9 @@ class StatusControllerTest {
     @Mock
     private TimelineService timelineService;
 
+    @Mock
+    private UserService userService;
+
     @Mock
     private StringRedisTemplate redisTemplate;
 
@@ -53,7 +60,7 @@ class StatusControllerTest {
     private SetOperations<String, String> setOperations;
 
     @Mock
-    private HashOperations<String, Object, Object> hashOperations;
+    private NearCacheStores nearCaches;
 
     private MockMvc mockMvc;
     private EmbeddingProperties embeddingProperties;
@@ -61,9 +68,8 @@ class StatusControllerTest {
     @BeforeEach
     void setUp() {
         lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
-        lenient().when(redisTemplate.opsForHash()).thenReturn(hashOperations);
         embeddingProperties = new EmbeddingProperties();
-        mockMvc = MockMvcBuilders.standaloneSetup(new StatusController(shareService, timelineService, redisTemplate, embeddingProperties))
+        mockMvc = MockMvcBuilders.standaloneSetup(new StatusController(shareService, timelineService, userService, redisTemplate, embeddingProperties, nearCaches))
             .setCustomArgumentResolvers(new TestAuthenticatedUserResolver())
             .build();
     }
@@ -166,12 +172,24 @@ class StatusControllerTest {
             .andExpect(jsonPath("$.deleted").value("true"));
     }
 
+    @Test
+    void fanoutProgressEndpointDelegatesToShareService() throws Exception {
+        when(shareService.getFanoutProgress("viewer-uid", "post-1")).thenReturn(new FanoutProgress(
+            "job-1", "post-1", "viewer-uid", "running", 1200, 500, 480, 20, 3, 1, 0, 1_000L, null, 40L));
+
+        mockMvc.perform(get("/api/posts/post-1/fanout").with(TestRequestPostProcessors.authenticatedUser("viewer-uid")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.state").value("running"))
+            .andExpect(jsonPath("$.delivered").value(480))
+            .andExpect(jsonPath("$.chunksTotal").value(3));
+    }
+
     @Test
     void deviceAndFilterEndpointsUseRedisState() throws Exception {
         when(setOperations.members("user:viewer-uid:devices")).thenReturn(Set.of("device-1", "device-2"));
-        when(hashOperations.putIfAbsent("user:viewer-uid:negative:keywords", "spoiler", "spoiler")).thenReturn(true);
+        when(userService.addNegativeKeyword("viewer-uid", "spoiler")).thenReturn(true);
         when(shareService.getPost("post-1")).thenReturn(Map.of("imageHash", "abc123"));
-        when(hashOperations.putIfAbsent("user:viewer-uid:images:blocked:md5", "abc123", "abc123")).thenReturn(false);
+        when(userService.blockImage("viewer-uid", "abc123")).thenReturn(false);
 
         mockMvc.perform(get("/api/devices/registered")
                 .param("index", "0")
@@ -249,4 +267,17 @@ class StatusControllerTest {
         javax.imageio.ImageIO.write(image, "png", out);
         return out.toByteArray();
     }
+
+    @Test
+    void cacheStatsListEveryNearCache() throws Exception {
+        when(nearCaches.stats()).thenReturn(List.of(new NearCache.Stats("posts", 3, 1, 2, 40)));
+
+        mockMvc.perform(get("/api/status/caches")
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-uid")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].name").value("posts"))
+            .andExpect(jsonPath("$[0].hits").value(3))
+            .andExpect(jsonPath("$[0].hitRatio").value(0.75))
+            .andExpect(jsonPath("$[0].size").value(40));
+    }
 }
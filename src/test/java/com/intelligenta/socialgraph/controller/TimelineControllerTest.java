@@ -1,6 +1,7 @@
 package com.intelligenta.socialgraph.controller;
 
 import com.intelligenta.socialgraph.model.TimelineResponse;
+import com.intelligenta.socialgraph.model.TimelineUpdates;
 import com.intelligenta.socialgraph.service.TimelineService;
 import com.intelligenta.socialgraph.support.TestAuthenticatedUserResolver;
 import com.intelligenta.socialgraph.support.TestRequestPostProcessors;
@@ -18,9 +19,17 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import java.util.List;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -69,6 +78,116 @@ class TimelineControllerTest {
         verify(timelineService).getSocialImportanceTimeline("viewer-2", 1, 3, importance);
     }
 
+    @Test
+    void userPostsEndpointReadsTheAuthorsOutbox() throws Exception {
+        when(timelineService.getUserPosts("viewer-3", "author-9", 0, 5))
+            .thenReturn(new TimelineResponse(List.of(), 0, 1));
+
+        mockMvc.perform(get("/api/users/author-9/posts")
+                .param("index", "0")
+                .param("count", "5")
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-3")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.count").value(0));
+
+        verify(timelineService).getUserPosts("viewer-3", "author-9", 0, 5);
+    }
+
+    @Test
+    void timelineWithoutAnIndexIsCursorPaged() throws Exception {
+        TimelineResponse page = new TimelineResponse(List.of(), 0, 2);
+        page.setNextCursor("next-page");
+        when(timelineService.getFifoTimeline("viewer-4", "this-page", 20)).thenReturn(page);
+
+        mockMvc.perform(get("/api/timeline")
+                .param("cursor", "this-page")
+                .param("count", "20")
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-4")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.nextCursor").value("next-page"));
+
+        verify(timelineService).getFifoTimeline("viewer-4", "this-page", 20);
+    }
+
+    @Test
+    void timelineCarriesItsVersionAndPageAsAWeakEtag() throws Exception {
+        when(timelineService.timelineTag("viewer-5")).thenReturn("42");
+        when(timelineService.getFifoTimeline("viewer-5", 0, 20)).thenReturn(new TimelineResponse(List.of(), 0, 1));
+
+        mockMvc.perform(get("/api/timeline")
+                .param("index", "0")
+                .param("count", "20")
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-5")))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", TimelineController.etagOf("42", "fifo", 0, null, 20)));
+    }
+
+    @Test
+    void unchangedTimelineIsNotModifiedWithoutBeingRead() throws Exception {
+        when(timelineService.timelineTag("viewer-6")).thenReturn("42");
+        String etag = TimelineController.etagOf("42", "everyone", null, null, 20);
+
+        mockMvc.perform(get("/api/timeline/everyone")
+                .param("count", "20")
+                .header("If-None-Match", etag)
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-6")))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", etag));
+
+        verify(timelineService, never()).getSocialImportanceTimeline(
+            anyString(), anyString(), anyInt(), any());
+    }
+
+    @Test
+    void aTagFromAnotherPageOrOrderingDoesNotMatch() throws Exception {
+        when(timelineService.timelineTag("viewer-8")).thenReturn("42");
+        when(timelineService.getSocialImportanceTimeline("viewer-8", "next", 20, TimelineService.Importance.PERSONAL))
+            .thenReturn(new TimelineResponse(List.of(), 0, 1));
+
+        mockMvc.perform(get("/api/timeline/personal")
+                .param("cursor", "next")
+                .param("count", "20")
+                .header("If-None-Match", TimelineController.etagOf("42", "personal", null, null, 20) + ", "
+                    + TimelineController.etagOf("42", "everyone", null, "next", 20))
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-8")))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", TimelineController.etagOf("42", "personal", null, "next", 20)));
+    }
+
+    @Test
+    void etagChangesWithEachPartOfTheRequest() {
+        String etag = TimelineController.etagOf("42", "fifo", 0, null, 20);
+
+        assertNotEquals(etag, TimelineController.etagOf("43", "fifo", 0, null, 20));
+        assertNotEquals(etag, TimelineController.etagOf("42.1f", "fifo", 0, null, 20));
+        assertNotEquals(etag, TimelineController.etagOf("42", "personal", 0, null, 20));
+        assertNotEquals(etag, TimelineController.etagOf("42", "fifo", 20, null, 20));
+        assertNotEquals(etag, TimelineController.etagOf("42", "fifo", 0, null, 10));
+        assertNotEquals(etag, TimelineController.etagOf("42", "fifo", null, "c1", 20));
+        assertTrue(etag.startsWith("W/\"42-"));
+    }
+
+    @Test
+    void updatesReportEntriesSinceTheGivenVersion() throws Exception {
+        when(timelineService.updatesSince("viewer-7", 40)).thenReturn(new TimelineUpdates(42, 2));
+
+        mockMvc.perform(get("/api/timeline/updates")
+                .param("since", "40")
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-7")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(42))
+            .andExpect(jsonPath("$.newEntries").value(2));
+    }
+
+    @Test
+    void ifNoneMatchComparesWeaklyAndAcceptsLists() {
+        assertTrue(TimelineController.matches("\"7\", W/\"42\"", "W/\"42\""));
+        assertTrue(TimelineController.matches("\"42\"", "W/\"42\""));
+        assertTrue(TimelineController.matches("*", "W/\"42\""));
+        assertFalse(TimelineController.matches("W/\"41\"", "W/\"42\""));
+        assertFalse(TimelineController.matches(null, "W/\"42\""));
+    }
+
     private static Stream<Arguments> importanceRoutes() {
         return Stream.of(
             Arguments.of("/api/timeline/personal", TimelineService.Importance.PERSONAL),
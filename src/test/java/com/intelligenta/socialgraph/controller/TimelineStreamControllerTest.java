@@ -0,0 +1,120 @@
+package com.intelligenta.socialgraph.controller;
+
+import com.intelligenta.socialgraph.config.TimelineResponseConverter;
+import com.intelligenta.socialgraph.exception.GlobalExceptionHandler;
+import com.intelligenta.socialgraph.model.TimelineEntry;
+import com.intelligenta.socialgraph.service.TimelineService;
+import com.intelligenta.socialgraph.support.TestAuthenticatedUserResolver;
+import com.intelligenta.socialgraph.support.TestRequestPostProcessors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class TimelineStreamControllerTest {
+
+    @Mock
+    private TimelineService timelineService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        JsonMapper json = JsonMapper.builder().build();
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new TimelineStreamController(timelineService, new TimelineResponseConverter(json), json))
+            .setCustomArgumentResolvers(new TestAuthenticatedUserResolver())
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+    }
+
+    @Test
+    void timelineStreamWritesOneLinePerEntryThenTheEnd() throws Exception {
+        when(timelineService.streamFifoTimeline(eq("viewer-1"), isNull(), eq(2), any())).thenAnswer(inv -> {
+            Consumer<TimelineEntry> sink = inv.getArgument(3);
+            sink.accept(entry("p2"));
+            sink.accept(entry("p1"));
+            return "next-page";
+        });
+
+        MvcResult started = mockMvc.perform(get("/api/timeline/stream")
+                .param("count", "2")
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-1")))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(TimelineStreamController.NDJSON_VALUE))
+            .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"uuid\":\"p2\""));
+        assertTrue(lines[1].contains("\"uuid\":\"p1\""));
+        assertTrue(lines[2].startsWith("{\"end\":true,\"count\":2,"));
+        assertTrue(lines[2].endsWith("\"nextCursor\":\"next-page\"}"));
+    }
+
+    @Test
+    void repliesStreamAsServerSentEventsWhenAccepted() throws Exception {
+        doAnswer(inv -> {
+            inv.<Consumer<TimelineEntry>>getArgument(4).accept(entry("reply-1"));
+            return null;
+        }).when(timelineService).streamReplies(eq("viewer-2"), eq("post-1"), eq(0), eq(10), any());
+
+        MvcResult started = mockMvc.perform(get("/api/posts/post-1/replies/stream")
+                .param("index", "0")
+                .param("count", "10")
+                .header("Accept", "text/event-stream")
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-2")))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        String[] events = body.split("\n\n");
+        assertEquals(2, events.length);
+        assertTrue(events[0].startsWith("event: entry\ndata: {"));
+        assertTrue(events[0].contains("\"uuid\":\"reply-1\""));
+        assertTrue(events[1].startsWith("event: end\ndata: {\"end\":true,\"count\":1,"));
+    }
+
+    @Test
+    void malformedCursorIsRejectedBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/api/timeline/everyone/stream")
+                .param("count", "2")
+                .param("cursor", "not a cursor")
+                .with(TestRequestPostProcessors.authenticatedUser("viewer-3")))
+            .andExpect(status().isBadRequest());
+    }
+
+    private static TimelineEntry entry(String postId) {
+        TimelineEntry entry = new TimelineEntry();
+        entry.setUuid(postId);
+        entry.setType("text");
+        entry.setActorUid("friend");
+        return entry;
+    }
+}
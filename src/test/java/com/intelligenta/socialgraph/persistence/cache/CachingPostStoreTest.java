@@ -0,0 +1,78 @@
+package com.intelligenta.socialgraph.persistence.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.persistence.PostStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingPostStoreTest {
+
+    @Mock private PostStore delegate;
+    @Mock private InvalidationBus bus;
+
+    private CachingPostStore store;
+    private Consumer<String> remoteInvalidation;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        store = new CachingPostStore(delegate, new NearCache<>("posts", 100, Duration.ofMinutes(1)), bus);
+        ArgumentCaptor<Consumer<String>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(bus).subscribe(eq("posts"), captor.capture());
+        remoteInvalidation = captor.getValue();
+    }
+
+    @Test
+    void pageReadsOnlyFetchPostsNotAlreadyCached() {
+        when(delegate.get("p1")).thenReturn(Optional.of(Map.of("content", "one")));
+        when(delegate.getMany(List.of("p2"))).thenReturn(Map.of("p2", Map.of("content", "two")));
+
+        store.get("p1");
+        Map<String, Map<String, Object>> page = store.getMany(List.of("p1", "p2"));
+        store.getMany(List.of("p1", "p2"));
+
+        assertEquals("one", page.get("p1").get("content"));
+        assertEquals("two", page.get("p2").get("content"));
+        verify(delegate, times(1)).getMany(List.of("p2"));
+    }
+
+    @Test
+    void updateInvalidatesLocallyAndPublishes() {
+        when(delegate.get("p1")).thenReturn(
+            Optional.of(Map.of("content", "one")), Optional.of(Map.of("content", "edited")));
+
+        store.get("p1");
+        store.update("p1", Map.of("content", "edited"));
+
+        assertEquals("edited", store.get("p1").orElseThrow().get("content"));
+        verify(bus).publish("posts", "p1");
+    }
+
+    @Test
+    void invalidationFromAnotherInstanceDropsTheEntry() {
+        when(delegate.get("p1")).thenReturn(Optional.of(Map.of("content", "one")));
+
+        store.get("p1");
+        remoteInvalidation.accept("p1");
+        store.get("p1");
+
+        verify(delegate, times(2)).get("p1");
+    }
+}
@@ -0,0 +1,99 @@
+package com.intelligenta.socialgraph.persistence.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.persistence.RelationStore;
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingRelationStoreTest {
+
+    @Mock private RelationStore delegate;
+    @Mock private InvalidationBus bus;
+
+    private CachingRelationStore store;
+    private Consumer<String> remoteInvalidation;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        store = new CachingRelationStore(delegate, new NearCache<>("relations", 100, Duration.ofMinutes(1)), bus);
+        ArgumentCaptor<Consumer<String>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(bus).subscribe(eq("relations"), captor.capture());
+        remoteInvalidation = captor.getValue();
+    }
+
+    @Test
+    void cachedSetAnswersMembershipChecks() {
+        when(delegate.members("alice", Relation.FOLLOWING)).thenReturn(Set.of("bob", "carol"));
+
+        store.members("alice", Relation.FOLLOWING);
+
+        assertTrue(store.contains("alice", Relation.FOLLOWING, "bob"));
+        assertFalse(store.contains("alice", Relation.FOLLOWING, "dave"));
+        assertEquals(Set.of("carol"), store.retainMembers("alice", Relation.FOLLOWING, List.of("carol", "dave")));
+        verify(delegate, never()).contains(anyString(), any(), anyString());
+        verify(delegate, never()).retainMembers(anyString(), any(), any());
+    }
+
+    @Test
+    void uncachedMembershipChecksGoToTheStoreWithoutReadingTheSet() {
+        when(delegate.contains("alice", Relation.MUTED, "bob")).thenReturn(true);
+        when(delegate.retainMembers("alice", Relation.FOLLOWING, List.of("bob"))).thenReturn(Set.of("bob"));
+
+        assertTrue(store.contains("alice", Relation.MUTED, "bob"));
+        assertEquals(Set.of("bob"), store.retainMembers("alice", Relation.FOLLOWING, List.of("bob")));
+        verify(delegate, never()).members(anyString(), any());
+    }
+
+    @Test
+    void writesDropEveryCachedSetOfTheUserAndPublish() {
+        when(delegate.members("alice", Relation.FOLLOWING)).thenReturn(Set.of("bob"), Set.of("bob", "carol"));
+        when(delegate.members("alice", Relation.MUTED)).thenReturn(Set.of());
+
+        store.members("alice", Relation.FOLLOWING);
+        store.members("alice", Relation.MUTED);
+        store.add("alice", Relation.FOLLOWING, "carol");
+        store.members("alice", Relation.MUTED);
+
+        assertEquals(Set.of("bob", "carol"), store.members("alice", Relation.FOLLOWING));
+        verify(delegate, times(2)).members("alice", Relation.MUTED);
+        verify(bus).publish("relations", "alice");
+    }
+
+    @Test
+    void invalidationFromAnotherInstanceDropsTheUsersSets() {
+        when(delegate.members("alice", Relation.FOLLOWING)).thenReturn(Set.of("bob"), Set.of());
+        when(delegate.members("bob", Relation.FOLLOWING)).thenReturn(Set.of("alice"));
+
+        store.members("alice", Relation.FOLLOWING);
+        store.members("bob", Relation.FOLLOWING);
+        remoteInvalidation.accept("alice");
+
+        assertEquals(Set.of(), store.members("alice", Relation.FOLLOWING));
+        assertEquals(Set.of("alice"), store.members("bob", Relation.FOLLOWING));
+        verify(delegate, times(1)).members("bob", Relation.FOLLOWING);
+        verify(bus, never()).publish(anyString(), anyString());
+    }
+}
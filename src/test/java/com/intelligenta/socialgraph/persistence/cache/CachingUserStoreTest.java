@@ -0,0 +1,115 @@
+package com.intelligenta.socialgraph.persistence.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import com.intelligenta.socialgraph.persistence.UserStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingUserStoreTest {
+
+    @Mock private UserStore delegate;
+    @Mock private InvalidationBus bus;
+
+    private CachingUserStore store;
+    private Consumer<String> remoteUserInvalidation;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        store = new CachingUserStore(delegate,
+            new NearCache<>("users", 100, Duration.ofMinutes(1)),
+            new NearCache<>("user-profiles", 100, Duration.ofMinutes(1)),
+            new NearCache<>("user-uid-index", 100, Duration.ofMinutes(1)), bus);
+        ArgumentCaptor<Consumer<String>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(bus).subscribe(eq("users"), captor.capture());
+        remoteUserInvalidation = captor.getValue();
+    }
+
+    @Test
+    void polyCountBumpsGoToTheStoreWithoutInvalidating() {
+        when(delegate.find("alice")).thenReturn(Optional.of(Map.of("fullname", "Alice", "polyCount", "3")));
+
+        store.getField("alice", "fullname");
+        store.incrementField("alice", "polyCount", 1);
+        store.getField("alice", "fullname");
+
+        verify(delegate).incrementField("alice", "polyCount", 1);
+        verify(delegate, times(1)).find("alice");
+        verify(bus, never()).publish(anyString(), anyString());
+    }
+
+    @Test
+    void polyCountIsReadFromTheStoreNotTheCachedHash() {
+        when(delegate.find("alice")).thenReturn(Optional.of(Map.of("fullname", "Alice", "polyCount", "3")));
+        when(delegate.getFields("alice", List.of("polyCount"))).thenReturn(List.of(Optional.of("9")));
+        when(delegate.getField("alice", "polyCount")).thenReturn(Optional.of("9"));
+
+        Map<String, String> user = store.find("alice").orElseThrow();
+
+        assertEquals("Alice", user.get("fullname"));
+        assertEquals("9", user.get("polyCount"));
+        assertEquals(Optional.of("9"), store.getField("alice", "polyCount"));
+    }
+
+    @Test
+    void otherWritesInvalidateLocallyAndPublish() {
+        when(delegate.find("alice")).thenReturn(
+            Optional.of(Map.of("fullname", "Alice")), Optional.of(Map.of("fullname", "Alice B")));
+
+        store.getField("alice", "fullname");
+        store.putField("alice", "fullname", "Alice B");
+
+        assertEquals(Optional.of("Alice B"), store.getField("alice", "fullname"));
+        verify(bus).publish("users", "alice");
+    }
+
+    @Test
+    void invalidationFromAnotherInstanceDropsTheEntry() {
+        when(delegate.find("alice")).thenReturn(Optional.of(Map.of("fullname", "Alice")));
+
+        store.getField("alice", "fullname");
+        remoteUserInvalidation.accept("alice");
+        assertFalse(store.getField("alice", "bio").isPresent());
+
+        verify(delegate, times(2)).find("alice");
+    }
+
+    @Test
+    void loadedProfilesAreServedFromTheCacheUntilTheUserChanges() {
+        when(delegate.findProfilesByUids(List.of("u1", "u2"))).thenReturn(Map.of(
+            "u1", new UserStore.Profile("alice", "Alice", "a.jpg"),
+            "u2", new UserStore.Profile("bob", "Bob", null)));
+        when(delegate.findProfilesByUids(List.of("u1"))).thenReturn(Map.of(
+            "u1", new UserStore.Profile("alice", "Alice B", "a.jpg")));
+
+        store.findProfilesByUids(List.of("u1", "u2"));
+        Map<String, UserStore.Profile> cached = store.findProfilesByUids(List.of("u2", "u1"));
+        remoteUserInvalidation.accept("alice");
+        Map<String, UserStore.Profile> reloaded = store.findProfilesByUids(List.of("u1", "u2"));
+
+        assertEquals("Alice", cached.get("u1").fullname());
+        assertEquals("Alice B", reloaded.get("u1").fullname());
+        assertEquals("Bob", reloaded.get("u2").fullname());
+        verify(delegate, times(1)).findProfilesByUids(List.of("u1", "u2"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.intelligenta.socialgraph.persistence.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NearCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final NearCache<String, String> cache =
+        new NearCache<>("test", 2, Duration.ofSeconds(10), now::get);
+
+    @Test
+    void secondReadIsAHitAndAbsentValuesAreNotCached() {
+        List<String> loads = new ArrayList<>();
+
+        assertEquals("A", cache.get("a", k -> { loads.add(k); return "A"; }));
+        assertEquals("A", cache.get("a", k -> { loads.add(k); return "A"; }));
+        assertNull(cache.get("x", k -> { loads.add(k); return null; }));
+        assertNull(cache.get("x", k -> { loads.add(k); return null; }));
+
+        assertEquals(List.of("a", "x", "x"), loads);
+        NearCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(3, stats.misses());
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() {
+        cache.get("a", k -> "A");
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedAtMaxSize() {
+        cache.get("a", k -> "A");
+        cache.get("b", k -> "B");
+        cache.getIfPresent("a");
+        cache.get("c", k -> "C");
+
+        assertEquals("A", cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals(2, cache.stats().size());
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotCached() {
+        assertEquals("old", cache.get("a", k -> {
+            cache.invalidate("a");
+            return "old";
+        }));
+
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void invalidatingAnotherKeyDoesNotDiscardALoad() {
+        assertEquals("A", cache.get("a", k -> {
+            cache.invalidate("b");
+            return "A";
+        }));
+
+        assertEquals("A", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void loadRacingAClearIsNotCached() {
+        cache.get("a", k -> {
+            cache.invalidateAll();
+            return "A";
+        });
+
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void getAllLoadsOnlyTheMissesInOneCall() {
+        cache.get("a", k -> "A");
+        List<List<String>> calls = new ArrayList<>();
+
+        Map<String, String> out = cache.getAll(List.of("a", "b", "b"), missing -> {
+            calls.add(missing);
+            return Map.of("b", "B");
+        });
+
+        assertEquals(Map.of("a", "A", "b", "B"), out);
+        assertEquals(List.of(List.of("b")), calls);
+        assertEquals("B", cache.getIfPresent("b"));
+    }
+}
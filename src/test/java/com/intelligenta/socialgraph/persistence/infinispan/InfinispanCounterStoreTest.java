@@ -0,0 +1,89 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.intelligenta.socialgraph.persistence.CounterStore.Kind;
+import org.infinispan.counter.api.CounterConfiguration;
+import org.infinispan.counter.api.CounterManager;
+import org.infinispan.counter.api.CounterType;
+import org.infinispan.counter.api.StrongCounter;
+import org.infinispan.counter.api.SyncStrongCounter;
+import org.infinispan.counter.api.SyncWeakCounter;
+import org.infinispan.counter.api.WeakCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InfinispanCounterStoreTest {
+
+    @Mock private CounterManager counters;
+    @Mock private WeakCounter weak;
+    @Mock private SyncWeakCounter weakSync;
+    @Mock private StrongCounter strong;
+    @Mock private SyncStrongCounter strongSync;
+
+    private InfinispanCounterStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InfinispanCounterStore(counters);
+    }
+
+    @Test
+    void postsAreAWeakCounterPerUserDefinedOnce() {
+        when(counters.getWeakCounter("posts:u1")).thenReturn(weak);
+        when(weak.sync()).thenReturn(weakSync);
+
+        store.increment(Kind.POSTS, "u1", 1);
+        store.increment(Kind.POSTS, "u1", 1);
+
+        ArgumentCaptor<CounterConfiguration> config = ArgumentCaptor.forClass(CounterConfiguration.class);
+        verify(counters, times(1)).defineCounter(eq("posts:u1"), config.capture());
+        assertThat(config.getValue().type()).isEqualTo(CounterType.WEAK);
+        verify(weakSync, times(2)).add(1);
+    }
+
+    @Test
+    void photosAreAStrongCounter() {
+        when(counters.getStrongCounter("photos:u1")).thenReturn(strong);
+        when(strong.sync()).thenReturn(strongSync);
+
+        store.increment(Kind.PHOTOS, "u1", 3);
+
+        ArgumentCaptor<CounterConfiguration> config = ArgumentCaptor.forClass(CounterConfiguration.class);
+        verify(counters).defineCounter(eq("photos:u1"), config.capture());
+        assertThat(config.getValue().type()).isEqualTo(CounterType.UNBOUNDED_STRONG);
+        verify(strongSync).addAndGet(3);
+    }
+
+    @Test
+    void getManyReadsDefinedCountersAndZeroesTheRest() {
+        when(counters.isDefined("posts:u1")).thenReturn(true);
+        when(counters.isDefined("photos:u1")).thenReturn(true);
+        when(counters.isDefined("videos:u1")).thenReturn(false);
+        when(counters.getWeakCounter("posts:u1")).thenReturn(weak);
+        when(weak.getValue()).thenReturn(12L);
+        when(counters.getStrongCounter("photos:u1")).thenReturn(strong);
+        when(strong.getValue()).thenReturn(CompletableFuture.completedFuture(4L));
+
+        assertThat(store.getMany("u1", List.of(Kind.values())))
+            .containsEntry(Kind.POSTS, 12L)
+            .containsEntry(Kind.PHOTOS, 4L)
+            .containsEntry(Kind.VIDEOS, 0L);
+        verify(counters, never()).defineCounter(anyString(), any());
+    }
+}
@@ -0,0 +1,125 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.distribution.LocalizedCacheTopology;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.remoting.transport.Address;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs three clustered embedded cache managers in one JVM (loopback JGroups,
+ * see {@code jgroups-in-jvm.xml}) and checks that each member's handler is
+ * given exactly the recipients whose timelines it owns.
+ */
+class InfinispanFanoutPartitionerTest {
+
+    private static final FanoutPartitioner.Delivery DELIVERY =
+        new FanoutPartitioner.Delivery("p1", "author", "hello", new long[]{7L, -3L}, null, null, null);
+
+    private final List<EmbeddedCacheManager> managers = new ArrayList<>();
+
+    @AfterEach
+    void stopManagers() {
+        managers.forEach(EmbeddedCacheManager::stop);
+    }
+
+    @Test
+    void eachMemberDeliversOnlyToTheRecipientsItOwns() {
+        EmbeddedCacheManager a = member("a");
+        EmbeddedCacheManager b = member("b");
+        EmbeddedCacheManager c = member("c");
+        managers.forEach(m -> m.getCache("timelines-fifo"));
+        await().atMost(Duration.ofSeconds(30))
+            .until(() -> managers.stream().allMatch(m -> topology(m).getMembers().size() == 3));
+
+        Map<Address, Set<String>> received = new ConcurrentHashMap<>();
+        List<FanoutPartitioner.Delivery> deliveries = new CopyOnWriteArrayList<>();
+        List<InfinispanFanoutPartitioner> partitioners = new ArrayList<>();
+        for (EmbeddedCacheManager m : managers) {
+            InfinispanFanoutPartitioner p = new InfinispanFanoutPartitioner(m);
+            p.register((delivery, group) -> {
+                deliveries.add(delivery);
+                received.computeIfAbsent(m.getAddress(), k -> ConcurrentHashMap.newKeySet()).addAll(group);
+                return group.size();
+            });
+            partitioners.add(p);
+        }
+        List<String> recipients = IntStream.range(0, 300).mapToObj(i -> "u" + i).toList();
+
+        int delivered = partitioners.getFirst().deliver(DELIVERY, recipients);
+
+        assertThat(delivered).isEqualTo(recipients.size());
+        LocalizedCacheTopology topology = topology(a);
+        for (EmbeddedCacheManager m : List.of(a, b, c)) {
+            Set<String> owned = recipients.stream()
+                .filter(uid -> topology.getDistribution(uid).primary().equals(m.getAddress()))
+                .collect(Collectors.toSet());
+            assertThat(owned).isNotEmpty();
+            assertThat(received.get(m.getAddress())).isEqualTo(owned);
+        }
+        Set<String> all = new HashSet<>();
+        received.values().forEach(all::addAll);
+        assertThat(all).containsExactlyInAnyOrderElementsOf(recipients);
+        // Two of the three arrived over the wire.
+        assertThat(deliveries).hasSize(3).allSatisfy(d -> {
+            assertThat(d.postId()).isEqualTo("p1");
+            assertThat(d.terms()).containsExactly(7L, -3L);
+        });
+        partitioners.forEach(InfinispanFanoutPartitioner::unregister);
+    }
+
+    @Test
+    void localCacheManagerDeliversEverythingInProcess() {
+        EmbeddedCacheManager local = new DefaultCacheManager();
+        managers.add(local);
+        local.defineConfiguration("timelines-fifo", new ConfigurationBuilder().build());
+        InfinispanFanoutPartitioner p = new InfinispanFanoutPartitioner(local);
+        List<List<String>> calls = new ArrayList<>();
+        p.register((delivery, group) -> {
+            calls.add(group);
+            return group.size();
+        });
+
+        assertThat(p.deliver(DELIVERY, List.of("u1", "u2"))).isEqualTo(2);
+        assertThat(calls).containsExactly(List.of("u1", "u2"));
+        p.unregister();
+    }
+
+    private EmbeddedCacheManager member(String name) {
+        GlobalConfigurationBuilder global = GlobalConfigurationBuilder.defaultClusteredBuilder();
+        global.transport()
+            .clusterName("fanout-partitioner-test")
+            .nodeName(name)
+            .addProperty("configurationFile", "jgroups-in-jvm.xml");
+        global.serialization().addContextInitializer(new SocialGraphSchemaImpl());
+        EmbeddedCacheManager manager = new DefaultCacheManager(global.build());
+        manager.defineConfiguration("timelines-fifo", new ConfigurationBuilder()
+            .clustering().cacheMode(CacheMode.DIST_SYNC).hash().numOwners(1)
+            .build());
+        managers.add(manager);
+        return manager;
+    }
+
+    private static LocalizedCacheTopology topology(EmbeddedCacheManager manager) {
+        return manager.getCache("timelines-fifo").getAdvancedCache().getDistributionManager().getCacheTopology();
+    }
+}
@@ -0,0 +1,102 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.FanoutQueue.Job;
+import com.intelligenta.socialgraph.support.InfinispanLocalIntegrationTest;
+import org.infinispan.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class InfinispanFanoutQueueTest extends InfinispanLocalIntegrationTest {
+
+    private static final Duration LEASE = Duration.ofMillis(300);
+
+    private InfinispanFanoutQueue queue;
+
+    @Override
+    protected List<String> caches() {
+        return List.of("fanout-jobs", "fanout-jobs-dlq");
+    }
+
+    @BeforeEach
+    void setUp() {
+        TimelineProperties props = new TimelineProperties();
+        props.getFanout().getQueue().setLease(LEASE);
+        props.getFanout().getQueue().setPollInterval(Duration.ofMillis(20));
+        props.getFanout().getQueue().setMaxAttempts(3);
+        queue = new InfinispanFanoutQueue(manager, props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.stop();
+    }
+
+    @Test
+    void jobsEnqueuedBeforeConsumingStartsAreRunAndRemoved() {
+        queue.enqueue("p1", "author");
+        queue.enqueue("p2", "author");
+        List<String> ran = new CopyOnWriteArrayList<>();
+
+        queue.consume(1, job -> ran.add(job.postId()));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> ran.size() == 2);
+        assertThat(ran).containsExactly("p1", "p2");
+        await().atMost(Duration.ofSeconds(5)).until(() -> jobs().isEmpty());
+    }
+
+    @Test
+    void failedJobIsReclaimedAfterTheLeaseAndResumesFromItsCheckpoint() {
+        List<Job> attempts = new CopyOnWriteArrayList<>();
+        List<Long> startedAt = new CopyOnWriteArrayList<>();
+        queue.consume(2, job -> {
+            attempts.add(job);
+            startedAt.add(System.currentTimeMillis());
+            if (job.attempts() == 1) {
+                queue.checkpoint(job, "uid-5");
+                throw new IllegalStateException("worker died");
+            }
+        });
+
+        queue.enqueue("p1", "author");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> attempts.size() == 2);
+        assertThat(attempts.get(0).cursor()).isEmpty();
+        assertThat(attempts.get(1).cursor()).isEqualTo("uid-5");
+        assertThat(attempts.get(1).attempts()).isEqualTo(2);
+        assertThat(startedAt.get(1) - startedAt.get(0)).isGreaterThanOrEqualTo(LEASE.toMillis());
+        await().atMost(Duration.ofSeconds(5)).until(() -> jobs().isEmpty());
+    }
+
+    @Test
+    void jobIsDeadLetteredAfterMaxAttempts() {
+        List<Job> attempts = new CopyOnWriteArrayList<>();
+        queue.consume(1, job -> {
+            attempts.add(job);
+            throw new IllegalStateException("boom");
+        });
+
+        queue.enqueue("p1", "author");
+
+        Cache<String, FieldHash> dlq = manager.getCache("fanout-jobs-dlq");
+        await().atMost(Duration.ofSeconds(5)).until(() -> dlq.size() == 1);
+        assertThat(attempts).extracting(Job::attempts).containsExactly(1, 2, 3);
+        assertThat(dlq.values().iterator().next())
+            .containsEntry("postId", "p1")
+            .containsEntry("attempts", "3")
+            .containsEntry("reason", "java.lang.IllegalStateException: boom");
+        assertThat(jobs()).isEmpty();
+    }
+
+    private Cache<String, FieldHash> jobs() {
+        return manager.getCache("fanout-jobs");
+    }
+}
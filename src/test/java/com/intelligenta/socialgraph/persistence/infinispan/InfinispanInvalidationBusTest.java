@@ -0,0 +1,115 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import com.intelligenta.socialgraph.persistence.cache.CachingRelationStore;
+import com.intelligenta.socialgraph.persistence.cache.NearCache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.distribution.LocalizedCacheTopology;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Two clustered embedded cache managers in one JVM (loopback JGroups, see
+ * {@code jgroups-in-jvm.xml}) with one owner per entry, so each member
+ * holds none of the entries the other owns.
+ */
+class InfinispanInvalidationBusTest {
+
+    private final List<EmbeddedCacheManager> managers = new ArrayList<>();
+    private EmbeddedCacheManager a;
+    private EmbeddedCacheManager b;
+
+    @BeforeEach
+    void startMembers() {
+        a = member("a");
+        b = member("b");
+        managers.forEach(m -> m.getCache("relations"));
+        await().atMost(Duration.ofSeconds(30))
+            .until(() -> managers.stream().allMatch(m -> topology(m).getMembers().size() == 2));
+    }
+
+    @AfterEach
+    void stopMembers() {
+        managers.forEach(EmbeddedCacheManager::stop);
+    }
+
+    @Test
+    void subscriberHearsEveryChangeToAnEntryItDoesNotOwn() {
+        String uid = ownedOnlyBy(a);
+        List<String> invalidated = new CopyOnWriteArrayList<>();
+        new InfinispanInvalidationBus(b).subscribe("relations", invalidated::add);
+        InfinispanRelationStore relations = new InfinispanRelationStore(a);
+
+        relations.add(uid, Relation.FOLLOWING, "bob");
+        relations.add(uid, Relation.FOLLOWING, "carol");
+        a.getCache("relations").remove(uid);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> invalidated.size() == 3);
+        assertThat(invalidated).containsOnly(uid);
+    }
+
+    @Test
+    void writeOnOneMemberInvalidatesTheOthersCachedSet() {
+        String uid = ownedOnlyBy(a);
+        CachingRelationStore onA = cachingRelations(a);
+        CachingRelationStore onB = cachingRelations(b);
+        // Cached while the entry does not exist yet, so its creation must invalidate too.
+        assertThat(onB.members(uid, Relation.FOLLOWING)).isEmpty();
+
+        onA.add(uid, Relation.FOLLOWING, "bob");
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+            assertThat(onB.members(uid, Relation.FOLLOWING)).isEqualTo(Set.of("bob")));
+
+        onA.add(uid, Relation.FOLLOWING, "carol");
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+            assertThat(onB.members(uid, Relation.FOLLOWING)).isEqualTo(Set.of("bob", "carol")));
+    }
+
+    private static CachingRelationStore cachingRelations(EmbeddedCacheManager manager) {
+        return new CachingRelationStore(new InfinispanRelationStore(manager),
+            new NearCache<>("relations", 100, Duration.ofMinutes(1)), new InfinispanInvalidationBus(manager));
+    }
+
+    private String ownedOnlyBy(EmbeddedCacheManager owner) {
+        LocalizedCacheTopology topology = topology(owner);
+        return IntStream.range(0, 1000).mapToObj(i -> "u" + i)
+            .filter(uid -> topology.getDistribution(uid).primary().equals(owner.getAddress()))
+            .findFirst().orElseThrow();
+    }
+
+    private EmbeddedCacheManager member(String name) {
+        GlobalConfigurationBuilder global = GlobalConfigurationBuilder.defaultClusteredBuilder();
+        global.transport()
+            .clusterName("invalidation-bus-test")
+            .nodeName(name)
+            .addProperty("configurationFile", "jgroups-in-jvm.xml");
+        global.serialization().addContextInitializer(new SocialGraphSchemaImpl());
+        EmbeddedCacheManager manager = new DefaultCacheManager(global.build());
+        manager.defineConfiguration("relations", new ConfigurationBuilder()
+            .clustering().cacheMode(CacheMode.DIST_SYNC).hash().numOwners(1)
+            .build());
+        managers.add(manager);
+        return manager;
+    }
+
+    private static LocalizedCacheTopology topology(EmbeddedCacheManager manager) {
+        return manager.getCache("relations").getAdvancedCache().getDistributionManager().getCacheTopology();
+    }
+}
@@ -0,0 +1,66 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.List;
+
+import com.intelligenta.socialgraph.Verbs;
+import com.intelligenta.socialgraph.support.InfinispanLocalIntegrationTest;
+import org.infinispan.functional.FunctionalMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InfinispanReactionStoreTest extends InfinispanLocalIntegrationTest {
+
+    private InfinispanReactionStore store;
+
+    @Override
+    protected List<String> caches() {
+        return List.of("reactions", "reaction-lookups");
+    }
+
+    @BeforeEach
+    void setUp() {
+        store = new InfinispanReactionStore(manager);
+    }
+
+    @Test
+    void actorsAreListedNewestFirstOnce() {
+        store.add(Verbs.Action.LIKE, "p1", "a");
+        store.add(Verbs.Action.LIKE, "p1", "b");
+        store.add(Verbs.Action.LIKE, "p1", "c");
+        store.add(Verbs.Action.LIKE, "p1", "a");
+
+        assertThat(store.listActors(Verbs.Action.LIKE, "p1", 0, 10)).containsExactly("c", "b", "a");
+        assertThat(store.listActors(Verbs.Action.LIKE, "p1", 1, 1)).containsExactly("b");
+        assertThat(store.listActors(Verbs.Action.LIKE, "p1", 3, 1)).isEmpty();
+        assertThat(store.listActors(Verbs.Action.LOVE, "p1", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void aRetriedListWriteReportsTheChangeItsFirstAttemptMade() {
+        FunctionalMap.ReadWriteMap<String, ActorList> lists =
+            FunctionalCaches.readWrite(manager.<String, ActorList>getCache("reactions"));
+        InfinispanReactionStore.Reaction like = new InfinispanReactionStore.Reaction("a", "like", 42L);
+
+        assertThat(lists.eval("p1:like", like, InfinispanReactionStore.ActorWrite.ADD).join()).isTrue();
+        assertThat(lists.eval("p1:like", like, InfinispanReactionStore.ActorWrite.ADD).join()).isTrue();
+        assertThat(manager.<String, ActorList>getCache("reactions").get("p1:like").slice(0, 10)).containsExactly("a");
+    }
+
+    @Test
+    void removeDropsOnlyThatVerb() {
+        store.add(Verbs.Action.LIKE, "p1", "a");
+        store.add(Verbs.Action.FAV, "p1", "a");
+        store.add(Verbs.Action.LIKE, "p1", "b");
+
+        store.remove(Verbs.Action.LIKE, "p1", "a");
+
+        assertThat(store.contains(Verbs.Action.LIKE, "p1", "a")).isFalse();
+        assertThat(store.contains(Verbs.Action.FAV, "p1", "a")).isTrue();
+        assertThat(store.listActors(Verbs.Action.LIKE, "p1", 0, 10)).containsExactly("b");
+
+        store.add(Verbs.Action.LIKE, "p1", "a");
+        assertThat(store.listActors(Verbs.Action.LIKE, "p1", 0, 10)).containsExactly("a", "b");
+    }
+}
@@ -0,0 +1,84 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import com.intelligenta.socialgraph.support.InfinispanLocalIntegrationTest;
+import org.infinispan.functional.FunctionalMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InfinispanRelationStoreTest extends InfinispanLocalIntegrationTest {
+
+    private InfinispanRelationStore store;
+
+    @Override
+    protected List<String> caches() {
+        return List.of("relations");
+    }
+
+    @BeforeEach
+    void setUp() {
+        store = new InfinispanRelationStore(manager);
+    }
+
+    @Test
+    void addAndRemoveReportWhetherTheSetChanged() {
+        assertThat(store.add("u1", Relation.FOLLOWING, "u2")).isTrue();
+        assertThat(store.add("u1", Relation.FOLLOWING, "u2")).isFalse();
+        assertThat(store.add("u1", Relation.MUTED, "u3")).isTrue();
+
+        assertThat(store.contains("u1", Relation.FOLLOWING, "u2")).isTrue();
+        assertThat(store.members("u1", Relation.MUTED)).containsExactly("u3");
+
+        assertThat(store.remove("u1", Relation.FOLLOWING, "u2")).isTrue();
+        assertThat(store.remove("u1", Relation.FOLLOWING, "u2")).isFalse();
+        assertThat(store.remove("nobody", Relation.FOLLOWING, "u2")).isFalse();
+        assertThat(store.members("u1", Relation.FOLLOWING)).isEmpty();
+    }
+
+    @Test
+    void aRetriedWriteReportsTheChangeItsFirstAttemptMade() {
+        FunctionalMap.ReadWriteMap<String, RelationSets> writes =
+            FunctionalCaches.readWrite(manager.<String, RelationSets>getCache("relations"));
+        InfinispanRelationStore.Member follow = new InfinispanRelationStore.Member(Relation.FOLLOWING, "u2", 42L);
+
+        assertThat(writes.eval("u1", follow, InfinispanRelationStore.RelationWrite.ADD).join()).isTrue();
+        assertThat(writes.eval("u1", follow, InfinispanRelationStore.RelationWrite.ADD).join()).isTrue();
+        assertThat(store.add("u1", Relation.FOLLOWING, "u2")).isFalse();
+
+        InfinispanRelationStore.Member unfollow = new InfinispanRelationStore.Member(Relation.FOLLOWING, "u2", 43L);
+        assertThat(writes.eval("u1", unfollow, InfinispanRelationStore.RelationWrite.REMOVE).join()).isTrue();
+        assertThat(writes.eval("u1", unfollow, InfinispanRelationStore.RelationWrite.REMOVE).join()).isTrue();
+        assertThat(store.members("u1", Relation.FOLLOWING)).isEmpty();
+    }
+
+    @Test
+    void differenceAndRetainMembersReadTheStoredSets() {
+        store.add("u1", Relation.FOLLOWING, "a");
+        store.add("u1", Relation.FOLLOWING, "b");
+        store.add("u1", Relation.FOLLOWING, "c");
+        store.add("u1", Relation.BLOCKED, "b");
+
+        assertThat(store.difference("u1", Relation.FOLLOWING, Relation.BLOCKED, Relation.MUTED))
+            .containsExactlyInAnyOrder("a", "c");
+        assertThat(store.retainMembers("u1", Relation.FOLLOWING, List.of("a", "x"))).containsExactly("a");
+    }
+
+    @Test
+    void concurrentAddsToOneUserAreAllKept() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 100;
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < 100; i++) store.add("u1", Relation.FOLLOWERS, "f" + (offset + i));
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertThat(store.members("u1", Relation.FOLLOWERS)).hasSize(800);
+    }
+}
@@ -0,0 +1,167 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.util.List;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.TimelineStore;
+import com.intelligenta.socialgraph.support.InfinispanLocalIntegrationTest;
+import org.infinispan.functional.FunctionalMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InfinispanTimelineStoreTest extends InfinispanLocalIntegrationTest {
+
+    private static final List<String> CACHES = List.of(
+        "timelines-fifo", "timelines-fifo-ts", "timelines-personal", "timelines-everyone",
+        "timelines-outbox", "timeline-pull-authors", "timelines-version", "timelines-outbox-version");
+
+    private final TimelineProperties properties = new TimelineProperties();
+    private InfinispanTimelineStore store;
+
+    @Override
+    protected List<String> caches() {
+        return CACHES;
+    }
+
+    @BeforeEach
+    void setUp() {
+        store = new InfinispanTimelineStore(manager, properties);
+    }
+
+    @Test
+    void versionCountsEveryPushIncludingTrimmedOnes() {
+        properties.getMaxLength().setFifo(1);
+        store = new InfinispanTimelineStore(manager, properties);
+
+        store.push("u1", "p1", 1, 1, 1);
+        store.pushMany(List.of("u1", "u2", "u1"), "p2", 2, new double[]{1, 1, 1}, 1);
+
+        assertThat(store.version("u1")).isEqualTo(3);
+        assertThat(store.version("u2")).isEqualTo(1);
+        assertThat(store.version("nobody")).isZero();
+        assertThat(store.range("u1", TimelineStore.Kind.FIFO, 0, 10)).hasSize(1);
+    }
+
+    @Test
+    void aRetriedVersionBumpIsCountedOnce() {
+        FunctionalMap.ReadWriteMap<String, Tally> versions =
+            FunctionalCaches.readWrite(manager.<String, Tally>getCache("timelines-version"));
+        store.push("u1", "p1", 1, 1, 1);
+        Tally.Delta bump = new Tally.Delta(42L, 2);
+
+        assertThat(versions.eval("u1", bump, InfinispanTimelineStore.VersionWrite.INCREMENT).join()).isEqualTo(3);
+        assertThat(versions.eval("u1", bump, InfinispanTimelineStore.VersionWrite.INCREMENT).join()).isEqualTo(3);
+        store.push("u1", "p2", 2, 1, 1);
+
+        assertThat(store.version("u1")).isEqualTo(4);
+    }
+
+    @Test
+    void outboxVersionSumsTheAuthors() {
+        store.pushOutbox("a", "p1", 1);
+        store.pushOutbox("a", "p2", 2);
+        store.pushOutbox("b", "p3", 3);
+
+        assertThat(store.outboxVersion(List.of("a", "b", "c"))).isEqualTo(3);
+        assertThat(store.outboxVersion(List.of())).isZero();
+    }
+
+    @Test
+    void rankedReadsComeBackInScoreOrderAndSeekPastTheCursor() {
+        store.push("u1", "p1", 1, 0.2, 5);
+        store.push("u1", "p2", 2, 0.9, 4);
+        store.push("u1", "p3", 3, 0.5, 6);
+
+        assertThat(store.range("u1", TimelineStore.Kind.PERSONAL_IMPORTANCE, 0, 10))
+            .containsExactly("p2", "p3", "p1");
+        assertThat(store.rangeWithScores("u1", TimelineStore.Kind.EVERYONE_IMPORTANCE, 1, 1))
+            .containsExactly(new TimelineStore.Entry("p1", 5));
+        assertThat(store.rangeAfter("u1", TimelineStore.Kind.FIFO, new TimelineStore.Entry("p3", 3), 10))
+            .containsExactly(new TimelineStore.Entry("p2", 2), new TimelineStore.Entry("p1", 1));
+        assertThat(store.holding(List.of("u1", "u2"), "p2")).containsExactly("u1");
+    }
+
+    @Test
+    void rankedTimelinesAreCappedOnPush() {
+        properties.getMaxLength().setPersonalImportance(2);
+        store = new InfinispanTimelineStore(manager, properties);
+
+        store.push("u1", "p1", 1, 0.9, 1);
+        store.push("u1", "p2", 2, 0.1, 1);
+        store.push("u1", "p3", 3, 0.5, 1);
+
+        assertThat(store.range("u1", TimelineStore.Kind.PERSONAL_IMPORTANCE, 0, 10))
+            .containsExactly("p1", "p3");
+        assertThat(store.range("u1", TimelineStore.Kind.FIFO, 0, 10)).containsExactly("p3", "p2", "p1");
+    }
+
+    @Test
+    void trimBackfillsFifoEntriesDeliveredBeforeTheTimestampIndex() {
+        manager.<String, IdList>getCache("timelines-fifo").put("u1", new IdList(List.of("old2", "old1")));
+        store.push("u1", "p1", 100, 1, 1);
+
+        assertThat(store.rangeAfter("u1", TimelineStore.Kind.FIFO, null, 10))
+            .extracting(TimelineStore.Entry::postId).containsExactly("p1");
+
+        store.trim("u1");
+
+        List<TimelineStore.Entry> page = store.rangeAfter("u1", TimelineStore.Kind.FIFO, null, 10);
+        assertThat(page).extracting(TimelineStore.Entry::postId).containsExactly("p1", "old2", "old1");
+        assertThat(store.rangeAfter("u1", TimelineStore.Kind.FIFO, page.get(1), 10))
+            .extracting(TimelineStore.Entry::postId).containsExactly("old1");
+        assertThat(page.get(0).score()).isEqualTo(100);
+    }
+
+    @Test
+    void repeatedDeliveryMovesThePostToTheFrontOfTheListAndTheIndex() {
+        properties.getMaxLength().setFifo(3);
+        store = new InfinispanTimelineStore(manager, properties);
+
+        store.push("u1", "p1", 1, 1, 1);
+        store.push("u1", "p2", 2, 1, 1);
+        store.push("u1", "p1", 3, 1, 1);
+        store.push("u1", "p1", 4, 1, 1);
+        // Were the repeats kept in the list, p2 would leave it here but stay indexed.
+        store.push("u1", "p3", 5, 1, 1);
+
+        assertThat(store.range("u1", TimelineStore.Kind.FIFO, 0, 10)).containsExactly("p3", "p1", "p2");
+        assertThat(store.rangeAfter("u1", TimelineStore.Kind.FIFO, null, 10))
+            .extracting(TimelineStore.Entry::postId).containsExactly("p3", "p1", "p2");
+    }
+
+    @Test
+    void trimDropsRepeatsFromTheListAndIndexEntriesItNoLongerHolds() {
+        properties.getMaxLength().setFifo(3);
+        store = new InfinispanTimelineStore(manager, properties);
+        manager.<String, IdList>getCache("timelines-fifo")
+            .put("u1", new IdList(List.of("p4", "p3", "p1", "p3", "p2")));
+        RankedTimeline index = new RankedTimeline();
+        for (int i = 0; i <= 4; i++) index.put("p" + i, i);
+        manager.<String, RankedTimeline>getCache("timelines-fifo-ts").put("u1", index);
+
+        // One repeat of p3, then p2 past the cap of 3; p0 and p2 leave the index uncounted.
+        assertThat(store.trim("u1")).isEqualTo(2);
+
+        assertThat(store.range("u1", TimelineStore.Kind.FIFO, 0, 10)).containsExactly("p4", "p3", "p1");
+        assertThat(store.rangeAfter("u1", TimelineStore.Kind.FIFO, null, 10))
+            .extracting(TimelineStore.Entry::postId).containsExactly("p4", "p3", "p1");
+    }
+
+    @Test
+    void outboxIsCappedOnWriteAndByTrim() {
+        store.pushOutbox("a", "p1", 1);
+        store.pushOutbox("a", "p2", 2);
+        store.pushOutbox("a", "p3", 3);
+        properties.getMaxLength().setOutbox(2);
+        store = new InfinispanTimelineStore(manager, properties);
+
+        store.push("a", "p3", 3, 1, 1);
+        assertThat(store.trim("a")).isEqualTo(1);
+        store.pushOutbox("a", "p4", 4);
+
+        assertThat(store.outbox("a", 0, 10)).extracting(TimelineStore.Entry::postId).containsExactly("p4", "p3");
+        assertThat(store.outboxVersion(List.of("a"))).isEqualTo(4);
+    }
+}
@@ -0,0 +1,100 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.intelligenta.socialgraph.support.InfinispanLocalIntegrationTest;
+import org.infinispan.functional.FunctionalMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InfinispanUserStoreTest extends InfinispanLocalIntegrationTest {
+
+    private InfinispanUserStore store;
+
+    @Override
+    protected List<String> caches() {
+        return List.of("users", "user-uid-index", "user-activity", "activations", "tokens");
+    }
+
+    @BeforeEach
+    void setUp() {
+        store = new InfinispanUserStore(manager);
+    }
+
+    @Test
+    void fieldWritesMergeIntoTheStoredHash() {
+        Map<String, String> hash = new HashMap<>();
+        hash.put("uuid", "uid-1");
+        hash.put("email", null);
+        store.register("alice", hash, "uid-1", "token-1", Duration.ofMinutes(5));
+
+        store.putField("alice", "activated", "true");
+        store.putAll("alice", Map.of("fullname", "Alice", "bio", "hi"));
+        store.incrementField("alice", "followers", 2);
+
+        Map<String, String> stored = store.find("alice").orElseThrow();
+        assertThat(stored).containsEntry("uuid", "uid-1")
+            .containsEntry("polyCount", "1")
+            .containsEntry("activated", "true")
+            .containsEntry("fullname", "Alice")
+            .containsEntry("followers", "2")
+            .doesNotContainKey("email");
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        store.register("bob", Map.of("uuid", "uid-2"), "uid-2", "token-2", Duration.ofMinutes(5));
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < 100; i++) store.incrementField("bob", "polyCount", 1);
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertThat(store.getField("bob", "polyCount")).contains("801");
+    }
+
+    @Test
+    void aRetriedIncrementIsCountedOnce() {
+        store.register("dave", Map.of("uuid", "uid-4"), "uid-4", "token-4", Duration.ofMinutes(5));
+        FunctionalMap.ReadWriteMap<String, FieldHash> users =
+            FunctionalCaches.readWrite(manager.<String, FieldHash>getCache("users"));
+        FunctionalMap.ReadWriteMap<String, Tally> activity =
+            FunctionalCaches.readWrite(manager.<String, Tally>getCache("user-activity"));
+        InfinispanUserStore.FieldUpdate follower =
+            new InfinispanUserStore.FieldUpdate(42L, new FieldHash(Map.of("followers", "1")));
+        Tally.Delta request = new Tally.Delta(43L, 1);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            users.eval("dave", follower, InfinispanUserStore.FieldWrite.INCREMENT).join();
+            activity.eval("dave", request, InfinispanUserStore.ActivityWrite.ADD).join();
+        }
+
+        assertThat(store.getFields("dave", List.of("followers", "polyCount"))).containsExactly(
+            Optional.of("1"), Optional.of("2"));
+    }
+
+    @Test
+    void requestCountsLeaveTheUserHashAlone() {
+        store.register("carol", Map.of("uuid", "uid-3"), "uid-3", "token-3", Duration.ofMinutes(5));
+
+        store.incrementField("carol", "polyCount", 1);
+        store.incrementField("carol", "polyCount", 1);
+
+        assertThat(manager.<String, FieldHash>getCache("users").get("carol")).containsEntry("polyCount", "1");
+        assertThat(store.find("carol").orElseThrow()).containsEntry("polyCount", "3");
+
+        store.putField("carol", "polyCount", "10");
+        assertThat(store.getFields("carol", List.of("uuid", "polyCount"))).containsExactly(
+            Optional.of("uid-3"), Optional.of("10"));
+    }
+}
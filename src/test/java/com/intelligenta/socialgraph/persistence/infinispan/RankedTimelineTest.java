@@ -0,0 +1,57 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import com.intelligenta.socialgraph.persistence.TimelineStore.Entry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankedTimelineTest {
+
+    @Test
+    void slicesInDescendingScoreOrderWithTiesByPostId() {
+        RankedTimeline t = new RankedTimeline();
+        t.put("a", 1);
+        t.put("b", 3);
+        t.put("c", 2);
+        t.put("d", 2);
+
+        assertThat(t.slice(0, 10)).containsExactly(
+            new Entry("b", 3), new Entry("d", 2), new Entry("c", 2), new Entry("a", 1));
+        assertThat(t.slice(1, 2)).containsExactly(new Entry("d", 2), new Entry("c", 2));
+        assertThat(t.slice(4, 2)).isEmpty();
+    }
+
+    @Test
+    void rescoringMovesTheEntry() {
+        RankedTimeline t = new RankedTimeline();
+        t.put("a", 1);
+        t.put("b", 2);
+        t.put("a", 5);
+
+        assertThat(t.size()).isEqualTo(2);
+        assertThat(t.slice(0, 10)).containsExactly(new Entry("a", 5), new Entry("b", 2));
+    }
+
+    @Test
+    void afterSeeksPastTheCursor() {
+        RankedTimeline t = new RankedTimeline();
+        for (int i = 1; i <= 5; i++) t.put("p" + i, i);
+
+        assertThat(t.after(null, 2)).containsExactly(new Entry("p5", 5), new Entry("p4", 4));
+        assertThat(t.after(new Entry("p4", 4), 2)).containsExactly(new Entry("p3", 3), new Entry("p2", 2));
+        // A cursor entry that has since been removed still positions the seek.
+        t.remove("p3");
+        assertThat(t.after(new Entry("p3", 3), 5)).containsExactly(new Entry("p2", 2), new Entry("p1", 1));
+    }
+
+    @Test
+    void capDropsTheLowestEntries() {
+        RankedTimeline t = new RankedTimeline();
+        for (int i = 1; i <= 5; i++) t.put("p" + i, i);
+
+        assertThat(t.cap(3)).isEqualTo(2);
+        assertThat(t.contains("p1")).isFalse();
+        assertThat(t.slice(0, 10)).extracting(Entry::postId).containsExactly("p5", "p4", "p3");
+        assertThat(t.cap(0)).isZero();
+    }
+}
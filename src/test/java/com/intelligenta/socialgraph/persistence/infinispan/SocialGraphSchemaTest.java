@@ -0,0 +1,161 @@
+package com.intelligenta.socialgraph.persistence.infinispan;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.intelligenta.socialgraph.persistence.FanoutPartitioner.Delivery;
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import com.intelligenta.socialgraph.persistence.TimelineStore.Entry;
+import org.infinispan.protostream.ProtobufUtil;
+import org.infinispan.protostream.SerializationContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SocialGraphSchemaTest {
+
+    private SerializationContext ctx;
+
+    @BeforeEach
+    void register() {
+        ctx = ProtobufUtil.newSerializationContext();
+        SocialGraphSchema schema = new SocialGraphSchemaImpl();
+        schema.registerSchema(ctx);
+        schema.registerMarshallers(ctx);
+    }
+
+    @Test
+    void rankedTimelineKeepsEntriesAndOrder() throws IOException {
+        RankedTimeline timeline = new RankedTimeline();
+        timeline.put("p1", 0.5);
+        timeline.put("p2", 0.9);
+        timeline.put("p3", 0.5);
+
+        RankedTimeline copy = roundTrip(timeline);
+
+        assertThat(copy.slice(0, 10)).containsExactly(
+            new Entry("p2", 0.9), new Entry("p3", 0.5), new Entry("p1", 0.5));
+        assertThat(copy.after(new Entry("p3", 0.5), 10)).containsExactly(new Entry("p1", 0.5));
+    }
+
+    @Test
+    void actorListKeepsNewestFirstAndKeepsCounting() throws IOException {
+        ActorList actors = new ActorList();
+        actors.addFirst("a");
+        actors.addFirst("b");
+        actors.addFirst("c");
+        actors.remove("b");
+
+        ActorList copy = roundTrip(actors);
+
+        assertThat(copy.slice(0, 10)).containsExactly("c", "a");
+        assertThat(copy.addFirst("a")).isFalse();
+        assertThat(copy.addFirst("d")).isTrue();
+        assertThat(copy.slice(0, 10)).containsExactly("d", "c", "a");
+    }
+
+    @Test
+    void relationSetsKeepEachRelation() throws IOException {
+        RelationSets sets = new RelationSets();
+        sets.members(Relation.FOLLOWERS).addAll(List.of("u1", "u2"));
+        sets.members(Relation.MUTERS).add("u3");
+
+        RelationSets copy = roundTrip(sets);
+
+        assertThat(copy).containsOnlyKeys(Relation.FOLLOWERS, Relation.MUTERS);
+        assertThat(copy.get(Relation.FOLLOWERS)).containsExactlyInAnyOrder("u1", "u2");
+        assertThat(copy.get(Relation.MUTERS)).containsExactly("u3");
+        assertThat(copy.members(Relation.FOLLOWERS).add("u4")).isTrue();
+    }
+
+    @Test
+    void hashesListsAndSetsRoundTrip() throws IOException {
+        FieldHash user = new FieldHash(Map.of("username", "alice", "polyCount", "3"));
+        KeyedSets verbs = new KeyedSets(Map.of("u1", Set.of("like", "love")));
+        IdList replies = new IdList(List.of("r3", "r2", "r1"));
+        IdSet devices = new IdSet(List.of("d1", "d2"));
+
+        assertThat(roundTrip(user)).isEqualTo(user);
+        assertThat(roundTrip(verbs)).isEqualTo(verbs);
+        assertThat(roundTrip(replies)).containsExactly("r3", "r2", "r1");
+        assertThat(roundTrip(devices)).isEqualTo(devices);
+    }
+
+    @Test
+    void writeFunctionsAndArgumentsRoundTrip() throws IOException {
+        assertThat(roundTrip(InfinispanRelationStore.RelationWrite.REMOVE))
+            .isSameAs(InfinispanRelationStore.RelationWrite.REMOVE);
+        assertThat(roundTrip(new InfinispanRelationStore.Member(Relation.BLOCKED, "u9", -7L)))
+            .isEqualTo(new InfinispanRelationStore.Member(Relation.BLOCKED, "u9", -7L));
+        assertThat(roundTrip(new InfinispanReactionStore.Reaction("u1", "like", 7L)))
+            .isEqualTo(new InfinispanReactionStore.Reaction("u1", "like", 7L));
+        assertThat(roundTrip(new InfinispanTimelineStore.TimelinePush("p1", 0.25, 800)))
+            .isEqualTo(new InfinispanTimelineStore.TimelinePush("p1", 0.25, 800));
+        assertThat(roundTrip(InfinispanTimelineStore.VersionWrite.INCREMENT))
+            .isSameAs(InfinispanTimelineStore.VersionWrite.INCREMENT);
+        assertThat(roundTrip(new Tally.Delta(Long.MIN_VALUE, 2)))
+            .isEqualTo(new Tally.Delta(Long.MIN_VALUE, 2));
+        assertThat(roundTrip(InfinispanUserStore.FieldWrite.INCREMENT))
+            .isSameAs(InfinispanUserStore.FieldWrite.INCREMENT);
+        InfinispanUserStore.FieldUpdate update = roundTrip(
+            new InfinispanUserStore.FieldUpdate(5L, new FieldHash(Map.of("followers", "1"))));
+        assertThat(update.writeId()).isEqualTo(5L);
+        assertThat(update.fields()).isEqualTo(Map.of("followers", "1"));
+    }
+
+    @Test
+    void deltaWriteTargetsKeepTheIdsOfTheWritesTheyApplied() throws IOException {
+        Tally tally = new Tally(0, List.of()).plus(new Tally.Delta(11L, 2)).plus(new Tally.Delta(-12L, 3));
+        FieldHash user = new FieldHash(Map.of("followers", "1"));
+        user.applied().add(13L);
+        RelationSets relations = new RelationSets();
+        relations.applied().add(14L);
+        ActorList actors = new ActorList();
+        actors.applied().add(15L);
+
+        Tally tallyCopy = roundTrip(tally);
+        assertThat(tallyCopy.value()).isEqualTo(5);
+        assertThat(tallyCopy.writeIds()).containsExactly(11L, -12L);
+        assertThat(tallyCopy.plus(new Tally.Delta(-12L, 3))).isSameAs(tallyCopy);
+        assertThat(roundTrip(user).applied().contains(13L)).isTrue();
+        assertThat(roundTrip(relations).applied().contains(14L)).isTrue();
+        assertThat(roundTrip(actors).applied().contains(15L)).isTrue();
+    }
+
+    @Test
+    void remoteDeliveryCarriesThePost() throws IOException {
+        Delivery delivery = new Delivery("p1", "author", "hello", new long[]{Long.MIN_VALUE, 42L}, "md5",
+            null, "p0");
+
+        InfinispanFanoutPartitioner.RemoteDelivery copy =
+            roundTrip(new InfinispanFanoutPartitioner.RemoteDelivery(delivery, List.of("u1", "u2")));
+
+        assertThat(copy.recipients()).containsExactly("u1", "u2");
+        assertThat(copy.delivery().postId()).isEqualTo("p1");
+        assertThat(copy.delivery().terms()).containsExactly(Long.MIN_VALUE, 42L);
+        assertThat(copy.delivery().imageHash()).isEqualTo("md5");
+        assertThat(copy.delivery().originalPostId()).isEqualTo("p0");
+    }
+
+    @Test
+    void payloadsCostTheirEntriesAndLittleElse() throws IOException {
+        RankedTimeline timeline = new RankedTimeline();
+        RelationSets relations = new RelationSets();
+        for (int i = 0; i < 1000; i++) {
+            timeline.put("post-" + i, i / 1000.0);
+            relations.members(Relation.FOLLOWERS).add("user-" + i);
+        }
+
+        // An entry is an id of at most 8 bytes and a double, each tagged, inside a
+        // length-delimited message: 21 bytes. A member is the tagged id: 10 bytes.
+        assertThat(ProtobufUtil.toWrappedByteArray(ctx, timeline)).hasSizeLessThanOrEqualTo(1000 * 21 + 64);
+        assertThat(ProtobufUtil.toWrappedByteArray(ctx, relations)).hasSizeLessThanOrEqualTo(1000 * 10 + 64);
+    }
+
+    private <T> T roundTrip(T value) throws IOException {
+        return ProtobufUtil.fromWrappedByteArray(ctx, ProtobufUtil.toWrappedByteArray(ctx, value));
+    }
+}
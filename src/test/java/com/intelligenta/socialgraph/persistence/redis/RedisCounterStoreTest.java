@@ -0,0 +1,36 @@
+package com.intelligenta.socialgraph.persistence.redis;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import com.intelligenta.socialgraph.persistence.CounterStore.Kind;
+import com.intelligenta.socialgraph.support.RedisStoreIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisCounterStoreTest extends RedisStoreIntegrationTest {
+
+    private RedisCounterStore counters;
+
+    @BeforeEach
+    void setUp() {
+        counters = new RedisCounterStore(redis);
+    }
+
+    @Test
+    void getManyReadsEachKindWithZeroForNeverIncremented() {
+        counters.increment(Kind.POSTS, "u1", 3);
+        counters.increment(Kind.PHOTOS, "u1", 1);
+        counters.increment(Kind.POSTS, "u2", 7);
+
+        Map<Kind, Long> counts = counters.getMany("u1", EnumSet.allOf(Kind.class));
+
+        assertThat(counts).containsExactlyInAnyOrderEntriesOf(Map.of(Kind.PHOTOS, 1L, Kind.VIDEOS, 0L, Kind.POSTS, 3L));
+        assertThat(counters.getMany("u2", List.of(Kind.POSTS))).containsExactlyEntriesOf(Map.of(Kind.POSTS, 7L));
+        assertThat(counters.getMany("u3", List.of(Kind.POSTS, Kind.VIDEOS)))
+            .containsExactlyInAnyOrderEntriesOf(Map.of(Kind.POSTS, 0L, Kind.VIDEOS, 0L));
+    }
+}
@@ -0,0 +1,101 @@
+package com.intelligenta.socialgraph.persistence.redis;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.intelligenta.socialgraph.config.PersistenceProperties;
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.FanoutQueue.Job;
+import com.intelligenta.socialgraph.support.RedisStoreIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class RedisFanoutQueueTest extends RedisStoreIntegrationTest {
+
+    private static final Duration LEASE = Duration.ofMillis(500);
+
+    private RedisFanoutQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        TimelineProperties props = new TimelineProperties();
+        props.getFanout().getQueue().setLease(LEASE);
+        props.getFanout().getQueue().setPollInterval(Duration.ofMillis(50));
+        props.getFanout().getQueue().setMaxAttempts(3);
+        PersistenceProperties persistence = new PersistenceProperties();
+        persistence.setProvider(PersistenceProperties.Provider.REDIS);
+        queue = new RedisFanoutQueue(redis, props, persistence);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.stop();
+    }
+
+    @Test
+    void completedJobsLeaveNothingBehind() {
+        List<String> ran = new CopyOnWriteArrayList<>();
+        queue.consume(1, job -> ran.add(job.postId()));
+
+        queue.enqueue("p1", "author");
+        queue.enqueue("p2", "author");
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> ran.size() == 2);
+        assertThat(ran).containsExactly("p1", "p2");
+        await().atMost(Duration.ofSeconds(10)).until(() -> streamLength(RedisFanoutQueue.STREAM) == 0);
+    }
+
+    @Test
+    void failedJobIsReclaimedAfterTheLeaseAndResumesFromItsCheckpoint() {
+        List<Job> attempts = new CopyOnWriteArrayList<>();
+        List<Long> startedAt = new CopyOnWriteArrayList<>();
+        queue.consume(2, job -> {
+            attempts.add(job);
+            startedAt.add(System.currentTimeMillis());
+            if (job.attempts() == 1) {
+                queue.checkpoint(job, "uid-5");
+                throw new IllegalStateException("worker died");
+            }
+        });
+
+        queue.enqueue("p1", "author");
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> attempts.size() == 2);
+        assertThat(attempts.get(0).cursor()).isEmpty();
+        assertThat(attempts.get(1).id()).isEqualTo(attempts.get(0).id());
+        assertThat(attempts.get(1).cursor()).isEqualTo("uid-5");
+        assertThat(attempts.get(1).attempts()).isEqualTo(2);
+        assertThat(startedAt.get(1) - startedAt.get(0)).isGreaterThanOrEqualTo(LEASE.toMillis());
+        await().atMost(Duration.ofSeconds(10)).until(() -> streamLength(RedisFanoutQueue.STREAM) == 0);
+        assertThat(redis.hasKey("fanout:job:" + attempts.get(0).id())).isFalse();
+    }
+
+    @Test
+    void jobIsDeadLetteredAfterMaxAttempts() {
+        List<Job> attempts = new CopyOnWriteArrayList<>();
+        queue.consume(1, job -> {
+            attempts.add(job);
+            throw new IllegalStateException("boom");
+        });
+
+        queue.enqueue("p1", "author");
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> streamLength(RedisFanoutQueue.DLQ_STREAM) == 1);
+        assertThat(attempts).extracting(Job::attempts).containsExactly(1, 2, 3);
+        assertThat(redis.opsForStream().range(RedisFanoutQueue.DLQ_STREAM, Range.unbounded()).get(0).getValue())
+            .containsEntry("postId", "p1")
+            .containsEntry("attempts", "3");
+        assertThat(streamLength(RedisFanoutQueue.STREAM)).isZero();
+    }
+
+    private long streamLength(String stream) {
+        Long size = redis.opsForStream().size(stream);
+        return size == null ? 0 : size;
+    }
+}
@@ -0,0 +1,90 @@
+package com.intelligenta.socialgraph.persistence.redis;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.intelligenta.socialgraph.persistence.RelationStore;
+import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
+import com.intelligenta.socialgraph.persistence.cache.CachingRelationStore;
+import com.intelligenta.socialgraph.persistence.cache.NearCache;
+import com.intelligenta.socialgraph.support.RedisStoreIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Two buses on separate connections stand in for two app instances sharing
+ * one Redis.
+ */
+class RedisInvalidationBusTest extends RedisStoreIntegrationTest {
+
+    private final List<RedisInvalidationBus> buses = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisInvalidationBus bus : buses) bus.stop();
+    }
+
+    @Test
+    void publishReachesSubscribersOfThatCacheOnOtherInstances() {
+        RedisInvalidationBus a = bus();
+        RedisInvalidationBus b = bus();
+        List<String> posts = new CopyOnWriteArrayList<>();
+        List<String> users = new CopyOnWriteArrayList<>();
+        b.subscribe("posts", posts::add);
+        b.subscribe("users", users::add);
+        awaitSubscribed(a, b);
+
+        a.publish("posts", "p1");
+        a.publish("users", "alice:with:colons");
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> posts.size() == 1 && users.size() == 1);
+        assertThat(posts).containsExactly("p1");
+        assertThat(users).containsExactly("alice:with:colons");
+    }
+
+    @Test
+    void writeOnOneInstanceInvalidatesTheOthersCachedSet() {
+        RelationStore relations = new RedisRelationStore(redis);
+        RedisInvalidationBus busA = bus();
+        RedisInvalidationBus busB = bus();
+        CachingRelationStore a = cachingRelations(relations, busA);
+        CachingRelationStore b = cachingRelations(relations, busB);
+        awaitSubscribed(busA, busB);
+        a.add("alice", Relation.FOLLOWING, "bob");
+        assertThat(b.members("alice", Relation.FOLLOWING)).containsExactly("bob");
+
+        a.add("alice", Relation.FOLLOWING, "carol");
+
+        await().atMost(Duration.ofSeconds(10)).pollInterval(Duration.ofMillis(50)).untilAsserted(() ->
+            assertThat(b.members("alice", Relation.FOLLOWING)).isEqualTo(Set.of("bob", "carol")));
+    }
+
+    /** The listener container subscribes in the background; ping until {@code to} hears {@code from}. */
+    private static void awaitSubscribed(RedisInvalidationBus from, RedisInvalidationBus to) {
+        List<String> pings = new CopyOnWriteArrayList<>();
+        to.subscribe("ping", pings::add);
+        await().atMost(Duration.ofSeconds(10)).pollInterval(Duration.ofMillis(100)).until(() -> {
+            from.publish("ping", "ping");
+            return !pings.isEmpty();
+        });
+    }
+
+    private static CachingRelationStore cachingRelations(RelationStore relations, RedisInvalidationBus bus) {
+        return new CachingRelationStore(relations, new NearCache<>("relations", 100, Duration.ofMinutes(1)), bus);
+    }
+
+    private RedisInvalidationBus bus() {
+        LettuceConnectionFactory factory = connect();
+        RedisInvalidationBus bus = new RedisInvalidationBus(new StringRedisTemplate(factory), factory);
+        buses.add(bus);
+        return bus;
+    }
+}
@@ -0,0 +1,43 @@
+package com.intelligenta.socialgraph.persistence.redis;
+
+import java.util.List;
+import java.util.Map;
+
+import com.intelligenta.socialgraph.support.RedisStoreIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisPostStoreTest extends RedisStoreIntegrationTest {
+
+    private RedisPostStore posts;
+
+    @BeforeEach
+    void setUp() {
+        posts = new RedisPostStore(redis);
+    }
+
+    @Test
+    void getManyReturnsTheStoredPostsAndSkipsMissingOnes() {
+        redis.opsForHash().putAll("post:p1", Map.of("id", "p1", "content", "one"));
+        redis.opsForHash().putAll("post:p2", Map.of("id", "p2", "content", "two"));
+
+        Map<String, Map<String, Object>> page = posts.getMany(List.of("p2", "gone", "p1"));
+
+        assertThat(page).containsOnlyKeys("p1", "p2");
+        assertThat(page.get("p1")).containsEntry("content", "one");
+        assertThat(page.get("p2")).containsEntry("content", "two");
+        assertThat(posts.getMany(List.of())).isEmpty();
+    }
+
+    @Test
+    void imagesManyReturnsEachPostsImagesInOrder() {
+        redis.opsForList().rightPushAll("post:p1:images", "a.jpg", "b.jpg");
+
+        Map<String, List<String>> images = posts.imagesMany(List.of("p1", "p2"));
+
+        assertThat(images).containsOnlyKeys("p1");
+        assertThat(images.get("p1")).containsExactly("a.jpg", "b.jpg");
+    }
+}
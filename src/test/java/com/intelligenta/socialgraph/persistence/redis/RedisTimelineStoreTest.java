@@ -0,0 +1,167 @@
+package com.intelligenta.socialgraph.persistence.redis;
+
+import java.util.List;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.TimelineStore.Entry;
+import com.intelligenta.socialgraph.persistence.TimelineStore.Kind;
+import com.intelligenta.socialgraph.support.RedisStoreIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisTimelineStoreTest extends RedisStoreIntegrationTest {
+
+    private RedisTimelineStore timelines;
+
+    @BeforeEach
+    void setUp() {
+        TimelineProperties props = new TimelineProperties();
+        props.setPipelineBatchSize(2);
+        props.getMaxLength().setFifo(3);
+        props.getMaxLength().setPersonalImportance(2);
+        props.getMaxLength().setEveryoneImportance(4);
+        props.getMaxLength().setOutbox(2);
+        timelines = new RedisTimelineStore(redis, props);
+    }
+
+    @Test
+    void pushManyDeliversToEveryRecipientAcrossPipelineBatches() {
+        List<String> recipients = List.of("u1", "u2", "u3", "u4", "u5");
+        double[] personal = {0.1, 0.2, 0.3, 0.4, 0.5};
+
+        timelines.pushMany(recipients, "p1", 100, personal, 0.9);
+
+        for (int i = 0; i < recipients.size(); i++) {
+            String uid = recipients.get(i);
+            assertThat(timelines.range(uid, Kind.FIFO, 0, 10)).containsExactly("p1");
+            assertThat(timelines.rangeAfter(uid, Kind.FIFO, null, 10)).containsExactly(new Entry("p1", 100));
+            assertThat(timelines.rangeWithScores(uid, Kind.PERSONAL_IMPORTANCE, 0, 10))
+                .containsExactly(new Entry("p1", personal[i]));
+            assertThat(timelines.rangeWithScores(uid, Kind.EVERYONE_IMPORTANCE, 0, 10))
+                .containsExactly(new Entry("p1", 0.9));
+            assertThat(timelines.version(uid)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void pushManyKeepsEachTimelineWithinItsCap() {
+        for (int i = 1; i <= 5; i++) {
+            timelines.pushMany(List.of("u1", "u2", "u3"), "p" + i, i, new double[]{i, i, i}, i);
+        }
+
+        for (String uid : List.of("u1", "u2", "u3")) {
+            assertThat(timelines.range(uid, Kind.FIFO, 0, 10)).containsExactly("p5", "p4", "p3");
+            assertThat(timelines.range(uid, Kind.PERSONAL_IMPORTANCE, 0, 10)).containsExactly("p5", "p4");
+            assertThat(timelines.range(uid, Kind.EVERYONE_IMPORTANCE, 0, 10)).containsExactly("p5", "p4", "p3", "p2");
+            assertThat(redis.opsForZSet().size("user:" + uid + ":timeline:fifo:ts")).isEqualTo(3);
+            assertThat(timelines.version(uid)).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void trimCountsWhatItRemovedFromEveryKindAndTheOutbox() {
+        for (int i = 1; i <= 5; i++) {
+            String postId = "p" + i;
+            redis.opsForList().leftPush("user:u1:timeline", postId);
+            redis.opsForZSet().add("user:u1:timeline:fifo:ts", postId, i);
+            redis.opsForZSet().add("user:u1:timeline:personal:importance", postId, i);
+            redis.opsForZSet().add("user:u1:timeline:everyone:importance", postId, i);
+            redis.opsForZSet().add("user:u1:outbox", postId, i);
+        }
+
+        // FIFO 5 -> 3, personal 5 -> 2, everyone 5 -> 4, outbox 5 -> 2.
+        assertThat(timelines.trim("u1")).isEqualTo(2 + 3 + 1 + 3);
+        assertThat(timelines.trim("u1")).isZero();
+
+        assertThat(timelines.range("u1", Kind.FIFO, 0, 10)).containsExactly("p5", "p4", "p3");
+        assertThat(redis.opsForZSet().size("user:u1:timeline:fifo:ts")).isEqualTo(3);
+        assertThat(timelines.range("u1", Kind.PERSONAL_IMPORTANCE, 0, 10)).containsExactly("p5", "p4");
+        assertThat(timelines.range("u1", Kind.EVERYONE_IMPORTANCE, 0, 10)).containsExactly("p5", "p4", "p3", "p2");
+        assertThat(timelines.outbox("u1", 0, 10)).extracting(Entry::postId).containsExactly("p5", "p4");
+    }
+
+    @Test
+    void repeatedDeliveryMovesThePostToTheFrontOfTheListAndTheIndex() {
+        timelines.push("u1", "p1", 1, 1, 1);
+        timelines.push("u1", "p2", 2, 1, 1);
+        timelines.push("u1", "p1", 3, 1, 1);
+        timelines.push("u1", "p1", 4, 1, 1);
+        // Were the repeats kept in the list, p2 would leave it here but stay indexed.
+        timelines.push("u1", "p3", 5, 1, 1);
+
+        assertThat(timelines.range("u1", Kind.FIFO, 0, 10)).containsExactly("p3", "p1", "p2");
+        assertThat(timelines.rangeAfter("u1", Kind.FIFO, null, 10)).extracting(Entry::postId)
+            .containsExactly("p3", "p1", "p2");
+    }
+
+    @Test
+    void trimDropsRepeatsFromTheListAndIndexEntriesItNoLongerHolds() {
+        for (String postId : List.of("p4", "p3", "p1", "p3", "p2")) redis.opsForList().rightPush("user:u1:timeline", postId);
+        for (int i = 0; i <= 4; i++) redis.opsForZSet().add("user:u1:timeline:fifo:ts", "p" + i, i);
+
+        // One repeat of p3, then p2 past the cap of 3; p0 and p2 leave the index uncounted.
+        assertThat(timelines.trim("u1")).isEqualTo(2);
+
+        assertThat(timelines.range("u1", Kind.FIFO, 0, 10)).containsExactly("p4", "p3", "p1");
+        assertThat(timelines.rangeAfter("u1", Kind.FIFO, null, 10)).extracting(Entry::postId)
+            .containsExactly("p4", "p3", "p1");
+    }
+
+    @Test
+    void trimBackfillsListEntriesMissingFromTheTimestampIndex() {
+        for (String postId : List.of("p1", "p2", "p3")) redis.opsForList().leftPush("user:u1:timeline", postId);
+        redis.opsForZSet().add("user:u1:timeline:fifo:ts", "p3", 30);
+
+        assertThat(timelines.trim("u1")).isZero();
+
+        List<Entry> indexed = timelines.rangeAfter("u1", Kind.FIFO, null, 10);
+        assertThat(indexed).extracting(Entry::postId).containsExactly("p3", "p2", "p1");
+        assertThat(indexed.get(0).score()).isEqualTo(30);
+        assertThat(indexed.get(1).score()).isLessThan(30);
+    }
+
+    @Test
+    void seekResumesByRankWhileTheCursorHoldsAndByScoreOnceItMoved() {
+        String key = "user:u1:timeline:everyone:importance";
+        redis.opsForZSet().add(key, "a", 5);
+        redis.opsForZSet().add(key, "b", 4);
+        redis.opsForZSet().add(key, "c", 4);
+        redis.opsForZSet().add(key, "d", 3);
+        redis.opsForZSet().add(key, "e", 2);
+        Entry cursor = new Entry("c", 4);
+
+        assertThat(timelines.rangeAfter("u1", Kind.EVERYONE_IMPORTANCE, null, 2))
+            .containsExactly(new Entry("a", 5), cursor);
+        // ZREVRANK: the tie with the cursor is kept.
+        assertThat(timelines.rangeAfter("u1", Kind.EVERYONE_IMPORTANCE, cursor, 2))
+            .containsExactly(new Entry("b", 4), new Entry("d", 3));
+
+        // Rescored: ZREVRANGEBYSCORE from just below the cursor's score, skipping its tie.
+        redis.opsForZSet().add(key, "c", 1);
+        assertThat(timelines.rangeAfter("u1", Kind.EVERYONE_IMPORTANCE, cursor, 2))
+            .containsExactly(new Entry("d", 3), new Entry("e", 2));
+
+        redis.opsForZSet().remove(key, "c");
+        assertThat(timelines.rangeAfter("u1", Kind.EVERYONE_IMPORTANCE, cursor, 5))
+            .containsExactly(new Entry("d", 3), new Entry("e", 2));
+    }
+
+    @Test
+    void outboxSeeksPastACursorAndEndsAtItsCap() {
+        for (int i = 1; i <= 3; i++) timelines.pushOutbox("author", "p" + i, i);
+
+        assertThat(timelines.outboxAfter("author", new Entry("p3", 3), 5)).containsExactly(new Entry("p2", 2));
+        assertThat(timelines.outboxAfter("author", new Entry("p1", 1), 5)).isEmpty();
+    }
+
+    @Test
+    void holdingFindsTheRecipientsWhoseTimelineHasThePost() {
+        timelines.pushMany(List.of("u1", "u3"), "p1", 100, new double[]{1, 1}, 1);
+        timelines.push("u2", "p2", 101, 1, 1);
+
+        assertThat(timelines.holding(List.of("u1", "u2", "u3", "u4"), "p1")).containsExactlyInAnyOrder("u1", "u3");
+        assertThat(timelines.holding(List.of(), "p1")).isEmpty();
+    }
+}
@@ -0,0 +1,37 @@
+package com.intelligenta.socialgraph.persistence.redis;
+
+import java.util.List;
+import java.util.Map;
+
+import com.intelligenta.socialgraph.persistence.UserStore.Profile;
+import com.intelligenta.socialgraph.support.RedisStoreIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisUserStoreTest extends RedisStoreIntegrationTest {
+
+    private RedisUserStore users;
+
+    @BeforeEach
+    void setUp() {
+        users = new RedisUserStore(redis);
+    }
+
+    @Test
+    void findProfilesByUidsResolvesUsernamesThenReadsTheirProfileFields() {
+        redis.opsForHash().putAll("user:uid", Map.of("u1", "alice", "u2", "bob", "u3", "carol"));
+        redis.opsForHash().putAll("user:alice", Map.of("fullname", "Alice", "profilePicture", "a.jpg", "bio", "hi"));
+        redis.opsForHash().putAll("user:bob", Map.of("fullname", "Bob"));
+
+        Map<String, Profile> profiles = users.findProfilesByUids(List.of("u1", "u2", "u3", "unknown"));
+
+        assertThat(profiles).containsOnlyKeys("u1", "u2", "u3");
+        assertThat(profiles.get("u1")).isEqualTo(new Profile("alice", "Alice", "a.jpg"));
+        assertThat(profiles.get("u2")).isEqualTo(new Profile("bob", "Bob", null));
+        // Indexed without a hash: the username is still known.
+        assertThat(profiles.get("u3")).isEqualTo(new Profile("carol", null, null));
+        assertThat(users.findProfilesByUids(List.of("unknown"))).isEmpty();
+    }
+}
@@ -1,12 +1,14 @@
 package com.intelligenta.socialgraph.service;
 
 import java.util.List;
+import java.util.Map;
 
 import com.intelligenta.socialgraph.Verbs;
 import com.intelligenta.socialgraph.exception.PostNotFoundException;
 import com.intelligenta.socialgraph.model.ActionResponse;
 import com.intelligenta.socialgraph.persistence.PostStore;
 import com.intelligenta.socialgraph.persistence.ReactionStore;
+import com.intelligenta.socialgraph.persistence.UserStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -58,8 +60,8 @@ class ActionServiceTest {
     void listActionsHydratesActorMetadata() {
         when(posts.exists("post")).thenReturn(true);
         when(reactions.listActors(Verbs.Action.LIKE, "post", 0, 2)).thenReturn(List.of("u1"));
-        when(userService.getUsername("u1")).thenReturn("alice");
-        when(userService.getUserField("u1", "fullname")).thenReturn("Alice");
+        when(userService.findProfiles(List.of("u1")))
+            .thenReturn(Map.of("u1", new UserStore.Profile("alice", "Alice", null)));
 
         ActionResponse r = actionService.listActions(Verbs.Action.LIKE, "post", 0, 2);
         assertEquals(1, r.getCount());
@@ -0,0 +1,140 @@
+package com.intelligenta.socialgraph.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.model.FanoutProgress;
+import org.junit.jupiter.api.Test;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FanoutServiceTest {
+
+    @Test
+    void synchronousModeDeliversEveryChunkBeforeReturning() {
+        FanoutService fanout = new FanoutService(props(false, 2, 4));
+        List<List<String>> seen = Collections.synchronizedList(new ArrayList<>());
+
+        FanoutProgress progress = fanout.submit("p1", "author", followers(5), chunk -> {
+            seen.add(chunk);
+            return chunk.size() - 1;
+        });
+
+        assertEquals("completed", progress.state());
+        assertEquals(3, progress.chunksTotal());
+        assertEquals(3, progress.chunksCompleted());
+        assertEquals(2, progress.delivered());
+        assertEquals(3, progress.skipped());
+        assertEquals(List.of(2, 2, 1), seen.stream().map(List::size).toList());
+    }
+
+    @Test
+    void asynchronousModeReturnsBeforeDeliveryAndCompletesInBackground() throws Exception {
+        FanoutService fanout = new FanoutService(props(true, 10, 2));
+        CountDownLatch release = new CountDownLatch(1);
+
+        FanoutProgress initial = fanout.submit("p2", "author", followers(35), chunk -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return chunk.size();
+        });
+
+        assertEquals("running", initial.state());
+        assertEquals(4, initial.chunksTotal());
+        release.countDown();
+
+        await().atMost(Duration.ofSeconds(5))
+            .until(() -> "completed".equals(fanout.progress("p2").orElseThrow().state()));
+        FanoutProgress done = fanout.progress("p2").orElseThrow();
+        assertEquals(35, done.delivered());
+        assertEquals(1, fanout.metrics().postsCompleted());
+        assertEquals(35, fanout.metrics().recipientsDelivered());
+        fanout.shutdown();
+    }
+
+    @Test
+    void failedChunkIsCountedAndDoesNotStopTheRest() {
+        FanoutService fanout = new FanoutService(props(false, 1, 1));
+
+        FanoutProgress progress = fanout.submit("p3", "author", followers(3), chunk -> {
+            if (chunk.contains("f1")) throw new IllegalStateException("store down");
+            return 1;
+        });
+
+        assertEquals("failed", progress.state());
+        assertEquals(2, progress.chunksCompleted());
+        assertEquals(1, progress.chunksFailed());
+        assertEquals(2, progress.delivered());
+        assertEquals(1, fanout.metrics().chunksFailed());
+    }
+
+    @Test
+    void deliverCheckpointsOnlyTheDeliveredPrefixOfChunks() {
+        FanoutService fanout = new FanoutService(props(false, 2, 1));
+        List<String> checkpoints = new ArrayList<>();
+
+        FanoutProgress progress = fanout.deliver("p4", "author", followers(7), chunk -> {
+            if (chunk.contains("f2")) throw new IllegalStateException("store down");
+            return chunk.size();
+        }, checkpoints::add);
+
+        assertEquals("failed", progress.state());
+        assertEquals(3, progress.chunksCompleted());
+        assertEquals(1, progress.chunksFailed());
+        assertEquals(List.of("f1"), checkpoints);
+    }
+
+    @Test
+    void reshareFanOutsOfOnePostAreTrackedAsSeparateJobs() {
+        FanoutService fanout = new FanoutService(props(false, 10, 1));
+
+        FanoutProgress original = fanout.submit("p5", "author", followers(3), chunk -> chunk.size());
+        FanoutProgress reshare = fanout.submit("p5", "resharer", followers(1), chunk -> {
+            throw new IllegalStateException("store down");
+        });
+
+        assertNotEquals(original.jobId(), reshare.jobId());
+        assertEquals(3, fanout.progress("p5", "author").orElseThrow().delivered());
+        assertEquals("completed", fanout.progress("p5", "author").orElseThrow().state());
+        assertEquals("failed", fanout.progress("p5", "resharer").orElseThrow().state());
+        assertEquals(reshare.jobId(), fanout.progress("p5").orElseThrow().jobId());
+        assertTrue(fanout.progress("p5", "someone-else").isEmpty());
+    }
+
+    @Test
+    void completedProgressIsRetainedUpToTheConfiguredLimit() {
+        TimelineProperties props = props(false, 10, 1);
+        props.getFanout().setProgressRetention(2);
+        FanoutService fanout = new FanoutService(props);
+
+        for (int i = 0; i < 3; i++) fanout.submit("p" + i, "author", followers(1), chunk -> 1);
+
+        assertTrue(fanout.progress("p0").isEmpty());
+        assertTrue(fanout.progress("p1").isPresent());
+        assertTrue(fanout.progress("p2").isPresent());
+    }
+
+    private static List<String> followers(int n) {
+        return IntStream.range(0, n).mapToObj(i -> "f" + i).toList();
+    }
+
+    private static TimelineProperties props(boolean async, int chunkSize, int maxConcurrency) {
+        TimelineProperties props = new TimelineProperties();
+        props.getFanout().setAsync(async);
+        props.getFanout().setChunkSize(chunkSize);
+        props.getFanout().setMaxConcurrency(maxConcurrency);
+        return props;
+    }
+}
@@ -0,0 +1,42 @@
+package com.intelligenta.socialgraph.service;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilterRatesTest {
+
+    private final TimelineProperties.Fill cfg = new TimelineProperties.Fill();
+
+    @Test
+    void unknownViewersReadExactlyWhatTheyNeed() {
+        assertEquals(20, new FilterRates(cfg).fetchSize("new", 20));
+    }
+
+    @Test
+    void overFetchFollowsTheSmoothedFilterRate() {
+        FilterRates rates = new FilterRates(cfg);
+        rates.record("v", 10, 5);
+        assertEquals(0.5, rates.rate("v"), 1e-9);
+        assertEquals(20, rates.fetchSize("v", 10));
+
+        rates.record("v", 10, 10);
+        assertEquals(0.5 * (1 - FilterRates.WEIGHT), rates.rate("v"), 1e-9);
+    }
+
+    @Test
+    void overFetchIsCapped() {
+        cfg.setMaxOverFetch(3.0);
+        FilterRates rates = new FilterRates(cfg);
+        rates.record("v", 10, 0);
+        assertEquals(30, rates.fetchSize("v", 10));
+    }
+
+    @Test
+    void emptyReadsLeaveTheRateAlone() {
+        FilterRates rates = new FilterRates(cfg);
+        rates.record("v", 0, 0);
+        assertEquals(0.0, rates.rate("v"), 1e-9);
+    }
+}
@@ -0,0 +1,64 @@
+package com.intelligenta.socialgraph.service;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.model.TimelineEntry;
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PostFragmentsTest {
+
+    @Mock private InvalidationBus bus;
+
+    @Test
+    void fragmentIsRenderedOnceAndReusedUntilInvalidated() {
+        PostFragments fragments = new PostFragments(JsonMapper.builder().build(), bus, new TimelineProperties());
+        TimelineEntry entry = entry("p1");
+
+        byte[] first = fragments.fragment(entry, fragments.stamp());
+        byte[] second = fragments.fragment(entry, fragments.stamp());
+        fragments.invalidate("p1");
+        byte[] third = fragments.fragment(entry, fragments.stamp());
+
+        assertSame(first, second);
+        assertNotSame(first, third);
+        verify(bus).publish("posts", "p1");
+    }
+
+    @Test
+    void fragmentRenderedFromAPostReadBeforeAnEditIsNotCached() {
+        PostFragments fragments = new PostFragments(JsonMapper.builder().build(), bus, new TimelineProperties());
+        long readBeforeEdit = fragments.stamp();
+        fragments.invalidate("p1");
+
+        byte[] stale = fragments.fragment(entry("p1"), readBeforeEdit);
+
+        assertNotSame(stale, fragments.fragment(entry("p1"), fragments.stamp()));
+    }
+
+    @Test
+    void disabledFragmentsAreNull() {
+        TimelineProperties properties = new TimelineProperties();
+        properties.getFragments().setEnabled(false);
+        PostFragments fragments = new PostFragments(JsonMapper.builder().build(), bus, properties);
+
+        assertNull(fragments.fragment(entry("p1"), fragments.stamp()));
+    }
+
+    private static TimelineEntry entry(String id) {
+        TimelineEntry e = new TimelineEntry();
+        e.setUuid(id);
+        e.setType("text");
+        e.setContent("hello");
+        return e;
+    }
+}
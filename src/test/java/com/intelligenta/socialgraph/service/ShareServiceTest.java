@@ -9,14 +9,23 @@ import com.intelligenta.socialgraph.ai.ContentModerator;
 import com.intelligenta.socialgraph.ai.moderation.NoopModerator;
 import com.intelligenta.socialgraph.config.EmbeddingProperties;
 import com.intelligenta.socialgraph.config.PersistenceProperties;
+import com.intelligenta.socialgraph.config.TimelineProperties;
 import com.intelligenta.socialgraph.exception.ContentBlockedException;
 import com.intelligenta.socialgraph.exception.PostNotFoundException;
+import com.intelligenta.socialgraph.model.FanoutProgress;
 import com.intelligenta.socialgraph.model.StoredObject;
 import com.intelligenta.socialgraph.model.moderation.ModerationDecision;
 import com.intelligenta.socialgraph.persistence.CounterStore;
+import com.intelligenta.socialgraph.persistence.FanoutQueue;
 import com.intelligenta.socialgraph.persistence.PostStore;
+import com.intelligenta.socialgraph.persistence.RelationStore;
 import com.intelligenta.socialgraph.persistence.TimelineStore;
+import com.intelligenta.socialgraph.persistence.redis.RedisFanoutPartitioner;
+import com.intelligenta.socialgraph.service.delivery.DeliveryPolicies;
+import com.intelligenta.socialgraph.service.delivery.ReplyAudiencePolicy;
+import com.intelligenta.socialgraph.service.delivery.ReshareDedupePolicy;
 import com.intelligenta.socialgraph.service.storage.ObjectStorageService;
+import com.intelligenta.socialgraph.util.TermFingerprint;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -28,7 +37,9 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.core.ZSetOperations;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
@@ -51,22 +62,38 @@ class ShareServiceTest {
     @Mock private StreamOperations streamOperations;
     @Mock private ObjectStorageService objectStorageService;
     @Mock private UserService userService;
+    @Mock private FanoutQueue fanoutQueue;
+    @Mock private RelationStore relationStore;
+    @Mock private PostFragments postFragments;
 
     private ShareService shareService;
     private EmbeddingProperties embeddingProperties;
     private ContentModerator moderator;
+    private FanoutService fanoutService;
+    private TimelineScores timelineScores;
+    private TimelineProperties timelineProperties;
+    private DeliveryPolicies deliveryPolicies;
 
     @BeforeEach
     void setUp() {
         lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
         lenient().when(redisTemplate.opsForStream()).thenReturn(streamOperations);
-        lenient().when(userService.followerUids(anyString())).thenReturn(Set.of());
+        lenient().when(userService.deliverableFollowers(anyString())).thenReturn(Set.of());
         embeddingProperties = new EmbeddingProperties();
         moderator = new NoopModerator();
+        timelineProperties = new TimelineProperties();
+        timelineProperties.getFanout().setAsync(false);
+        fanoutService = new FanoutService(timelineProperties);
+        timelineScores = new TimelineScores(redisTemplate);
+        deliveryPolicies = new DeliveryPolicies(List.of(
+            new ReplyAudiencePolicy(relationStore, timelineProperties),
+            new ReshareDedupePolicy(timelineStore, timelineProperties)));
         shareService = new ShareService(postStore, timelineStore, counterStore,
             redisTemplate, objectStorageService, userService,
-            embeddingProperties, moderator, new PersistenceProperties());
+            embeddingProperties, moderator, fanoutService, fanoutQueue, new RedisFanoutPartitioner(), deliveryPolicies, postFragments,
+            timelineScores, timelineProperties,
+            new PersistenceProperties());
     }
 
     @Test
@@ -78,6 +105,18 @@ class ShareServiceTest {
         verify(postStore).create(anyString(), any(), eq(null), eq("u1"), eq("text"));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void shareStoresTheTermFingerprintButDoesNotReturnIt() {
+        Map<String, String> post = shareService.shareText("u1", "hello hello world");
+
+        ArgumentCaptor<Map<String, String>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(postStore).create(anyString(), fields.capture(), eq(null), eq("u1"), eq("text"));
+        assertArrayEquals(TermFingerprint.of("world hello"),
+            TermFingerprint.decode(fields.getValue().get(ShareService.TERMS_FIELD)));
+        assertFalse(post.containsKey(ShareService.TERMS_FIELD));
+    }
+
     @Test
     void sharePhotoWithUrlRecordsPhotoType() {
         Map<String, String> post = shareService.sharePhoto("u1", "caption", "https://cdn/p.png");
@@ -105,19 +144,51 @@ class ShareServiceTest {
 
     @Test
     void replyToMissingPostThrows() {
-        when(postStore.exists("missing")).thenReturn(false);
+        when(postStore.get("missing")).thenReturn(Optional.empty());
         assertThrows(PostNotFoundException.class,
             () -> shareService.replyToPost("u1", "missing", "reply"));
     }
 
     @Test
     void replyToExistingPostRegistersReply() {
-        when(postStore.exists("parent")).thenReturn(true);
+        when(postStore.get("parent")).thenReturn(Optional.of(Map.of("id", "parent", "uid", "u2")));
         Map<String, String> result = shareService.replyToPost("u1", "parent", "reply");
         assertEquals("reply", result.get("type"));
         verify(postStore).addReply(eq("parent"), anyString());
     }
 
+    @Test
+    void replyFansOutOnlyToFollowersOfTheParentAuthorAndTheParentAuthor() {
+        when(postStore.get("parent")).thenReturn(Optional.of(Map.of("id", "parent", "uid", "u2")));
+        when(userService.deliverableFollowers("u1")).thenReturn(Set.of("f1", "f2", "u2"));
+        when(relationStore.retainMembers(eq("u2"), eq(RelationStore.Relation.FOLLOWERS), any()))
+            .thenReturn(Set.of("f2"));
+        when(userService.withoutFilteredContent(any(), any(), any(), any())).thenAnswer(inv -> inv.getArgument(0));
+
+        shareService.replyToPost("u1", "parent", "agreed");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> recipients = ArgumentCaptor.forClass(List.class);
+        verify(timelineStore).pushMany(recipients.capture(), anyString(), anyDouble(), any(), anyDouble());
+        assertEquals(Set.of("f2", "u2"), Set.copyOf(recipients.getValue()));
+        assertEquals(1, deliveryPolicies.savings().get(0).recipientsSkipped());
+    }
+
+    @Test
+    void reshareSkipsTimelinesThatAlreadyHoldTheOriginal() {
+        when(postStore.get("p1")).thenReturn(Optional.of(Map.of("id", "p1", "uid", "u2", "content", "hi")));
+        when(userService.deliverableFollowers("u1")).thenReturn(Set.of("f1", "f2"));
+        when(timelineStore.holding(any(), eq("p1"))).thenReturn(Set.of("f1"));
+        when(userService.withoutFilteredContent(any(), any(), any(), any())).thenAnswer(inv -> inv.getArgument(0));
+
+        shareService.reshare("u1", "p1");
+
+        verify(timelineStore).pushMany(eq(List.of("f2")), eq("p1"), anyDouble(), any(), anyDouble());
+        DeliveryPolicies.Savings dedupe = deliveryPolicies.savings().get(1);
+        assertEquals("reshare-dedupe", dedupe.policy());
+        assertEquals(DeliveryPolicies.WRITES_PER_DELIVERY, dedupe.writesSaved());
+    }
+
     @Test
     void getPostReturnsStoredFields() {
         when(postStore.get("p1")).thenReturn(Optional.of(Map.of("id", "p1", "type", "text")));
@@ -136,6 +207,7 @@ class ShareServiceTest {
         when(postStore.get("p1")).thenReturn(Optional.of(Map.of("id", "p1", "uid", "owner")));
         shareService.updatePost("owner", "p1", "new content");
         verify(postStore).update(eq("p1"), any());
+        verify(postFragments).invalidate("p1");
     }
 
     @Test
@@ -144,22 +216,125 @@ class ShareServiceTest {
         Map<String, String> r = shareService.deletePost("owner", "p1");
         assertEquals("true", r.get("deleted"));
         verify(postStore).delete("p1");
+        verify(postFragments).invalidate("p1");
     }
 
     @Test
     void fanOutPushesPostToFollowerTimelines() {
-        when(userService.followerUids("u1")).thenReturn(Set.of("f1", "f2"));
-        when(userService.canViewContent(anyString(), eq("u1"))).thenReturn(true);
-        when(userService.hasMuted(anyString(), eq("u1"))).thenReturn(false);
-        when(userService.hasNegativeKeyword(anyString(), any())).thenReturn(false);
-        when(userService.isImageBlocked(anyString(), any())).thenReturn(false);
+        when(userService.deliverableFollowers("u1")).thenReturn(Set.of("f1", "f2"));
+        when(userService.withoutFilteredContent(any(), any(), any(), any())).thenAnswer(inv -> inv.getArgument(0));
 
         shareService.shareText("u1", "hello followers");
 
-        // The author always gets a push + each follower.
+        // The author gets a single push; followers go through one batched pushMany.
         verify(timelineStore).push(eq("u1"), anyString(), anyDouble(), anyDouble(), anyDouble());
-        verify(timelineStore).push(eq("f1"), anyString(), anyDouble(), anyDouble(), anyDouble());
-        verify(timelineStore).push(eq("f2"), anyString(), anyDouble(), anyDouble(), anyDouble());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> recipients = ArgumentCaptor.forClass(List.class);
+        verify(timelineStore).pushMany(recipients.capture(), anyString(), anyDouble(), any(), anyDouble());
+        assertEquals(Set.of("f1", "f2"), Set.copyOf(recipients.getValue()));
+        verify(timelineStore, org.mockito.Mockito.never())
+            .push(eq("f1"), anyString(), anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void fanOutLooksUpEdgeScoresInOneBatchAndSkipsFilteredFollowers() {
+        when(userService.deliverableFollowers("u1")).thenReturn(Set.of("f1", "f2"));
+        when(userService.withoutFilteredContent(any(), any(), any(), any())).thenReturn(List.of("f1"));
+        when(valueOperations.multiGet(List.of("user:u1:connection:edgescore:f1")))
+            .thenReturn(List.of("2.5"));
+        when(zSetOperations.score("user:social:importance", "u1")).thenReturn(7.0);
+
+        shareService.shareText("u1", "hello followers");
+
+        ArgumentCaptor<double[]> personal = ArgumentCaptor.forClass(double[].class);
+        verify(timelineStore).pushMany(eq(List.of("f1")), anyString(), anyDouble(),
+            personal.capture(), eq(7.0));
+        assertEquals(2.5, personal.getValue()[0]);
+    }
+
+    @Test
+    void fanOutRecordsProgressVisibleToTheAuthorOnly() {
+        when(userService.deliverableFollowers("u1")).thenReturn(Set.of("f1", "f2"));
+        when(userService.withoutFilteredContent(any(), any(), any(), any())).thenReturn(List.of("f1"));
+
+        String postId = shareService.shareText("u1", "hello followers").get("id");
+
+        FanoutProgress progress = shareService.getFanoutProgress("u1", postId);
+        assertEquals("completed", progress.state());
+        assertEquals(2, progress.totalRecipients());
+        assertEquals(1, progress.delivered());
+        assertEquals(1, progress.skipped());
+
+        org.mockito.Mockito.doThrow(new org.springframework.security.access.AccessDeniedException("no"))
+            .when(userService).ensureAuthor("someone-else", "u1");
+        assertThrows(org.springframework.security.access.AccessDeniedException.class,
+            () -> shareService.getFanoutProgress("someone-else", postId));
+    }
+
+    @Test
+    void highFollowerAuthorIsSwitchedToPullAndNotFannedOut() {
+        when(userService.followerCount("celeb")).thenReturn(10_000L);
+
+        String postId = shareService.shareText("celeb", "hello world").get("id");
+
+        verify(timelineStore).pushOutbox(eq("celeb"), eq(postId), anyDouble());
+        verify(timelineStore).markPullAuthor("celeb");
+        verify(userService, org.mockito.Mockito.never()).deliverableFollowers("celeb");
+        verify(timelineStore, org.mockito.Mockito.never())
+            .pushMany(any(), anyString(), anyDouble(), any(), anyDouble());
+    }
+
+    @Test
+    void registeredPullAuthorSkipsTheFollowerCountCheck() {
+        when(timelineStore.isPullAuthor("celeb")).thenReturn(true);
+
+        shareService.shareText("celeb", "again");
+
+        verify(userService, org.mockito.Mockito.never()).followerCount("celeb");
+        verify(userService, org.mockito.Mockito.never()).deliverableFollowers("celeb");
+    }
+
+    @Test
+    void durableQueueEnqueuesTheJobInsteadOfDeliveringInline() {
+        when(fanoutQueue.enabled()).thenReturn(true);
+        timelineProperties.getFanout().getQueue().setEnabled(true);
+        ShareService svc = new ShareService(postStore, timelineStore, counterStore,
+            redisTemplate, objectStorageService, userService,
+            embeddingProperties, moderator, fanoutService, fanoutQueue, new RedisFanoutPartitioner(), deliveryPolicies, postFragments,
+            timelineScores, timelineProperties,
+            new PersistenceProperties());
+
+        String postId = svc.shareText("u1", "hello followers").get("id");
+
+        verify(fanoutQueue).enqueue(postId, "u1");
+        verify(userService, org.mockito.Mockito.never()).deliverableFollowers("u1");
+    }
+
+    @Test
+    void resumeFanoutDeliversOnlyFollowersAfterTheCursorAndCheckpoints() {
+        timelineProperties.getFanout().setChunkSize(1);
+        when(postStore.get("p1")).thenReturn(Optional.of(Map.of("id", "p1", "content", "hi")));
+        when(userService.deliverableFollowers("u1")).thenReturn(Set.of("f4", "f1", "f3", "f2"));
+        when(userService.withoutFilteredContent(any(), any(), any(), any())).thenAnswer(inv -> inv.getArgument(0));
+        List<String> checkpoints = new java.util.ArrayList<>();
+
+        FanoutProgress progress = shareService.resumeFanout(
+            new FanoutQueue.Job("j1", "p1", "u1", "f2", 2), checkpoints::add);
+
+        assertEquals(2, progress.delivered());
+        assertEquals(List.of("f3", "f4"), checkpoints);
+        verify(timelineStore).pushMany(eq(List.of("f3")), eq("p1"), anyDouble(), any(), anyDouble());
+        verify(timelineStore).pushMany(eq(List.of("f4")), eq("p1"), anyDouble(), any(), anyDouble());
+    }
+
+    @Test
+    void resumeFanoutThrowsWhenAChunkFailsSoTheQueueRetries() {
+        when(postStore.get("p1")).thenReturn(Optional.of(Map.of("id", "p1")));
+        when(userService.deliverableFollowers("u1")).thenReturn(Set.of("f1"));
+        when(userService.withoutFilteredContent(any(), any(), any(), any())).thenThrow(new IllegalStateException("down"));
+
+        assertThrows(IllegalStateException.class,
+            () -> shareService.resumeFanout(new FanoutQueue.Job("j1", "p1", "u1", "", 1), cursor -> { }));
     }
 
     @Test
@@ -173,7 +348,9 @@ class ShareServiceTest {
         };
         ShareService svc = new ShareService(postStore, timelineStore, counterStore,
             redisTemplate, objectStorageService, userService,
-            embeddingProperties, flagging, new PersistenceProperties());
+            embeddingProperties, flagging, fanoutService, fanoutQueue, new RedisFanoutPartitioner(), deliveryPolicies, postFragments,
+            timelineScores, timelineProperties,
+            new PersistenceProperties());
 
         assertThrows(ContentBlockedException.class, () -> svc.shareText("u1", "bad"));
     }
@@ -184,7 +361,8 @@ class ShareServiceTest {
         props.setProvider(PersistenceProperties.Provider.INFINISPAN);
         ShareService svc = new ShareService(postStore, timelineStore, counterStore,
             redisTemplate, objectStorageService, userService,
-            embeddingProperties, moderator, props);
+            embeddingProperties, moderator, fanoutService, fanoutQueue, new RedisFanoutPartitioner(), deliveryPolicies, postFragments,
+            timelineScores, timelineProperties, props);
 
         svc.shareText("u1", "hello");
         verify(streamOperations, org.mockito.Mockito.never()).add(any());
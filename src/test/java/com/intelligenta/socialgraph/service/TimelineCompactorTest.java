@@ -0,0 +1,39 @@
+package com.intelligenta.socialgraph.service;
+
+import java.util.stream.Stream;
+
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.persistence.TimelineStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TimelineCompactorTest {
+
+    @Mock private TimelineStore timelines;
+
+    @Test
+    void compactTrimsEveryOwnerAndTotalsTheResult() {
+        when(timelines.timelineOwners()).thenReturn(Stream.of("u1", "u2", "u3", "u4"));
+        when(timelines.trim("u1")).thenReturn(0L);
+        when(timelines.trim("u2")).thenReturn(12L);
+        when(timelines.trim("u3")).thenReturn(3L);
+        when(timelines.trim("u4")).thenThrow(new IllegalStateException("store down"));
+        TimelineProperties props = new TimelineProperties();
+        props.getCompaction().setParallelism(2);
+
+        TimelineCompactor.Result result = new TimelineCompactor(timelines, props).compact();
+
+        assertEquals(4, result.timelines());
+        assertEquals(2, result.trimmed());
+        assertEquals(15, result.entriesRemoved());
+        assertEquals(1, result.failed());
+        verify(timelines).trim("u1");
+    }
+}
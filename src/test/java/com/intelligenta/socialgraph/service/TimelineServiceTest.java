@@ -1,12 +1,18 @@
 package com.intelligenta.socialgraph.service;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import com.intelligenta.socialgraph.config.TimelineProperties;
+import com.intelligenta.socialgraph.model.TimelineEntry;
 import com.intelligenta.socialgraph.model.TimelineResponse;
 import com.intelligenta.socialgraph.persistence.PostStore;
 import com.intelligenta.socialgraph.persistence.TimelineStore;
+import com.intelligenta.socialgraph.persistence.UserStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,7 +20,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -24,11 +39,24 @@ class TimelineServiceTest {
     @Mock private TimelineStore timelines;
     @Mock private PostStore posts;
     @Mock private UserService userService;
+    @Mock private TimelineScores scores;
+    @Mock private PostFragments fragments;
 
     private TimelineService timelineService;
+    private final TimelineProperties properties = new TimelineProperties();
+    private final Map<String, Map<String, Object>> stored = new HashMap<>();
 
     @BeforeEach
-    void setUp() { timelineService = new TimelineService(timelines, posts, userService); }
+    void setUp() {
+        timelineService = new TimelineService(timelines, posts, userService, scores, fragments, properties);
+        lenient().when(posts.getMany(any())).thenAnswer(inv -> {
+            Map<String, Map<String, Object>> page = new HashMap<>();
+            for (String id : inv.<List<String>>getArgument(0)) {
+                if (stored.containsKey(id)) page.put(id, stored.get(id));
+            }
+            return page;
+        });
+    }
 
     @Test
     void socialImportanceTimelineFiltersBlockedImages() {
@@ -38,10 +66,9 @@ class TimelineServiceTest {
 
         when(timelines.range("viewer-1", TimelineStore.Kind.EVERYONE_IMPORTANCE, 0, 10))
             .thenReturn(List.of("post-1"));
-        when(posts.get("post-1")).thenReturn(Optional.of(post));
-        when(userService.canViewContent("viewer-1", "actor-1")).thenReturn(true);
-        when(userService.hasNegativeKeyword("viewer-1", ShareService.getWords("hello world"))).thenReturn(false);
-        when(userService.isImageBlocked("viewer-1", "hash-1")).thenReturn(true);
+        stored.put("post-1", post);
+        when(userService.hasNegativeKeyword("viewer-1", "hello world", null)).thenReturn(false);
+        when(userService.blockedImages("viewer-1", Set.of("hash-1"))).thenReturn(Set.of("hash-1"));
 
         TimelineResponse r = timelineService.getSocialImportanceTimeline(
             "viewer-1", 0, 10, TimelineService.Importance.EVERYONE);
@@ -57,12 +84,10 @@ class TimelineServiceTest {
             "content", "visible content", "created", "100");
 
         when(timelines.range("viewer-2", TimelineStore.Kind.FIFO, 0, 1)).thenReturn(List.of("post-2"));
-        when(posts.get("post-2")).thenReturn(Optional.of(post));
-        when(userService.canViewContent("viewer-2", "actor-2")).thenReturn(true);
-        when(userService.hasNegativeKeyword("viewer-2", ShareService.getWords("visible content"))).thenReturn(false);
-        when(userService.isImageBlocked("viewer-2", null)).thenReturn(false);
-        when(userService.getUsername("actor-2")).thenReturn("actor");
-        when(userService.getUserField("actor-2", "fullname")).thenReturn("Actor User");
+        stored.put("post-2", post);
+        when(userService.hasNegativeKeyword("viewer-2", "visible content", null)).thenReturn(false);
+        when(userService.findProfiles(List.of("actor-2")))
+            .thenReturn(Map.of("actor-2", new UserStore.Profile("actor", "Actor User", null)));
 
         TimelineResponse r = timelineService.getFifoTimeline("viewer-2", 0, 1);
         assertEquals(1, r.getCount());
@@ -72,7 +97,6 @@ class TimelineServiceTest {
 
     @Test
     void getPostThrowsWhenMissing() {
-        when(posts.get("missing")).thenReturn(Optional.empty());
         assertThrows(com.intelligenta.socialgraph.exception.PostNotFoundException.class,
             () -> timelineService.getPost("viewer", "missing"));
     }
@@ -84,14 +108,12 @@ class TimelineServiceTest {
             "content", "three pics", "url", "https://cdn.example/a.png", "imageCount", "3");
 
         when(timelines.range("viewer-m", TimelineStore.Kind.FIFO, 0, 1)).thenReturn(List.of("post-multi"));
-        when(posts.get("post-multi")).thenReturn(Optional.of(post));
-        when(posts.images("post-multi")).thenReturn(List.of(
-            "https://cdn.example/a.png", "https://cdn.example/b.png", "https://cdn.example/c.png"));
-        when(userService.canViewContent("viewer-m", "actor-m")).thenReturn(true);
-        when(userService.hasNegativeKeyword("viewer-m", ShareService.getWords("three pics"))).thenReturn(false);
-        when(userService.isImageBlocked("viewer-m", null)).thenReturn(false);
-        when(userService.getUsername("actor-m")).thenReturn("actor-m");
-        when(userService.getUserField("actor-m", "fullname")).thenReturn("Actor M");
+        stored.put("post-multi", post);
+        when(posts.imagesMany(List.of("post-multi"))).thenReturn(Map.of("post-multi", List.of(
+            "https://cdn.example/a.png", "https://cdn.example/b.png", "https://cdn.example/c.png")));
+        when(userService.hasNegativeKeyword("viewer-m", "three pics", null)).thenReturn(false);
+        when(userService.findProfiles(List.of("actor-m")))
+            .thenReturn(Map.of("actor-m", new UserStore.Profile("actor-m", "Actor M", null)));
 
         TimelineResponse r = timelineService.getFifoTimeline("viewer-m", 0, 1);
         var entry = r.getEntities().getFirst();
@@ -107,12 +129,10 @@ class TimelineServiceTest {
             "content", "legacy", "url", "https://cdn.example/legacy.jpg");
 
         when(timelines.range("viewer-l", TimelineStore.Kind.FIFO, 0, 1)).thenReturn(List.of("post-legacy"));
-        when(posts.get("post-legacy")).thenReturn(Optional.of(post));
-        when(userService.canViewContent("viewer-l", "actor-l")).thenReturn(true);
-        when(userService.hasNegativeKeyword("viewer-l", ShareService.getWords("legacy"))).thenReturn(false);
-        when(userService.isImageBlocked("viewer-l", null)).thenReturn(false);
-        when(userService.getUsername("actor-l")).thenReturn("actor-l");
-        when(userService.getUserField("actor-l", "fullname")).thenReturn("Actor L");
+        stored.put("post-legacy", post);
+        when(userService.hasNegativeKeyword("viewer-l", "legacy", null)).thenReturn(false);
+        when(userService.findProfiles(List.of("actor-l")))
+            .thenReturn(Map.of("actor-l", new UserStore.Profile("actor-l", "Actor L", null)));
 
         TimelineResponse r = timelineService.getFifoTimeline("viewer-l", 0, 1);
         assertEquals(List.of("https://cdn.example/legacy.jpg"), r.getEntities().getFirst().getImageUrls());
@@ -124,15 +144,315 @@ class TimelineServiceTest {
             "id", "reply-1", "uid", "actor-3", "type", "reply", "content", "reply body");
 
         when(posts.replies("post-3", 0, 2)).thenReturn(List.of("reply-1"));
-        when(posts.get("reply-1")).thenReturn(Optional.of(reply));
-        when(userService.canViewContent("viewer-3", "actor-3")).thenReturn(true);
-        when(userService.hasNegativeKeyword("viewer-3", ShareService.getWords("reply body"))).thenReturn(false);
-        when(userService.isImageBlocked("viewer-3", null)).thenReturn(false);
-        when(userService.getUsername("actor-3")).thenReturn("reply-user");
-        when(userService.getUserField("actor-3", "fullname")).thenReturn("Reply User");
+        stored.put("reply-1", reply);
+        when(userService.hasNegativeKeyword("viewer-3", "reply body", null)).thenReturn(false);
+        when(userService.findProfiles(List.of("actor-3")))
+            .thenReturn(Map.of("actor-3", new UserStore.Profile("reply-user", "Reply User", null)));
 
         TimelineResponse r = timelineService.getReplies("viewer-3", "post-3", 0, 2);
         assertEquals(1, r.getCount());
         assertEquals("reply-1", r.getEntities().getFirst().getUuid());
     }
+
+    @Test
+    void pageIsHydratedWithOneBatchedReadAndNoPerPostLookups() {
+        when(timelines.range("viewer-b", TimelineStore.Kind.FIFO, 0, 3)).thenReturn(List.of("b1", "gone", "b2"));
+        stubNoFilters("viewer-b");
+        stubVisiblePost("b1", "actor-b");
+        stubVisiblePost("b2", "actor-b");
+
+        TimelineResponse r = timelineService.getFifoTimeline("viewer-b", 0, 3);
+
+        assertEquals(List.of("b1", "b2"), r.getEntities().stream().map(TimelineEntry::getUuid).toList());
+        verify(posts).getMany(List.of("b1", "gone", "b2"));
+        verify(posts, never()).get(any());
+        verify(posts, never()).imagesMany(any());
+        verify(userService).findProfiles(List.of("actor-b", "actor-b"));
+        verify(userService, never()).getUsername(any());
+        verify(userService).hiddenActors("viewer-b", Set.of("actor-b"));
+        verify(userService, never()).canViewContent(any(), any());
+        verify(userService, never()).blockedImages(any(), any());
+    }
+
+    @Test
+    void pageChecksBlocksAndImagesOnceForItsDistinctAuthorsAndHashes() {
+        when(timelines.range("viewer-i", TimelineStore.Kind.FIFO, 0, 4)).thenReturn(List.of("i1", "i2", "i3", "i4"));
+        stubNoFilters("viewer-i");
+        stored.put("i1", Map.of("id", "i1", "uid", "friend", "type", "photo", "imageHash", "cat"));
+        stored.put("i2", Map.of("id", "i2", "uid", "friend", "type", "photo", "imageHash", "gore"));
+        stored.put("i3", Map.of("id", "i3", "uid", "enemy", "type", "photo", "imageHash", "cat"));
+        stored.put("i4", Map.of("id", "i4", "uid", "pal", "type", "photo", "md5", "gore"));
+        when(userService.hiddenActors("viewer-i", Set.of("friend", "enemy", "pal"))).thenReturn(Set.of("enemy"));
+        when(userService.blockedImages("viewer-i", Set.of("cat", "gore"))).thenReturn(Set.of("gore"));
+
+        TimelineResponse r = timelineService.getFifoTimeline("viewer-i", 0, 4);
+
+        assertEquals(List.of("i1"), r.getEntities().stream().map(TimelineEntry::getUuid).toList());
+        verify(userService, never()).canViewContent(any(), any());
+        verify(userService, never()).isImageBlocked(any(), any());
+    }
+
+    @Test
+    void fifoTimelineMergesOutboxesOfFollowedPullAuthors() {
+        when(timelines.pullAuthors()).thenReturn(Set.of("celeb", "other-celeb"));
+        when(userService.followedUnmuted("viewer-p", Set.of("celeb", "other-celeb"))).thenReturn(Set.of("celeb"));
+        when(timelines.rangeWithScores("viewer-p", TimelineStore.Kind.FIFO, 0, 3)).thenReturn(List.of(
+            new TimelineStore.Entry("own-3", 300), new TimelineStore.Entry("own-1", 100)));
+        when(timelines.outbox("celeb", 0, 3)).thenReturn(List.of(
+            new TimelineStore.Entry("celeb-2", 200), new TimelineStore.Entry("celeb-0", 50)));
+        stubNoFilters("viewer-p");
+        stubVisiblePost("celeb-2", "celeb");
+        stubVisiblePost("own-1", "friend");
+
+        TimelineResponse r = timelineService.getFifoTimeline("viewer-p", 1, 2);
+
+        assertEquals(List.of("celeb-2", "own-1"), r.getEntities().stream().map(TimelineEntry::getUuid).toList());
+    }
+
+    @Test
+    void importanceTimelineScoresPulledPostsAtReadTime() {
+        when(timelines.pullAuthors()).thenReturn(Set.of("celeb"));
+        when(userService.followedUnmuted("viewer-q", Set.of("celeb"))).thenReturn(Set.of("celeb"));
+        when(timelines.rangeWithScores("viewer-q", TimelineStore.Kind.PERSONAL_IMPORTANCE, 0, 1))
+            .thenReturn(List.of(new TimelineStore.Entry("own", 1.0)));
+        when(timelines.outbox("celeb", 0, 1)).thenReturn(List.of(new TimelineStore.Entry("celeb-post", 999)));
+        when(scores.edgeScore("celeb", "viewer-q")).thenReturn(5.0);
+        stubNoFilters("viewer-q");
+        stubVisiblePost("celeb-post", "celeb");
+
+        TimelineResponse r = timelineService.getSocialImportanceTimeline(
+            "viewer-q", 0, 1, TimelineService.Importance.PERSONAL);
+
+        assertEquals("celeb-post", r.getEntities().getFirst().getUuid());
+    }
+
+    @Test
+    void mergeDeduplicatesAndAppliesOffsetAcrossSources() {
+        List<String> page = TimelineService.merge(List.of(
+            List.of(new TimelineStore.Entry("a", 9), new TimelineStore.Entry("c", 5)),
+            List.of(new TimelineStore.Entry("b", 7), new TimelineStore.Entry("a", 6), new TimelineStore.Entry("d", 1))),
+            1, 3);
+
+        assertEquals(List.of("b", "c", "d"), page);
+    }
+
+    @Test
+    void userPostsAreReadFromTheOutbox() {
+        when(timelines.outbox("author-u", 0, 5)).thenReturn(List.of(new TimelineStore.Entry("mine", 10)));
+        stubNoFilters("viewer-u");
+        stubVisiblePost("mine", "author-u");
+
+        TimelineResponse r = timelineService.getUserPosts("viewer-u", "author-u", 0, 5);
+
+        assertEquals(1, r.getCount());
+        assertEquals("mine", r.getEntities().getFirst().getUuid());
+    }
+
+    @Test
+    void cursorPagesSeekPastTheLastEntryAndEndWithoutACursor() {
+        TimelineStore.Entry newest = new TimelineStore.Entry("p3", 300);
+        TimelineStore.Entry middle = new TimelineStore.Entry("p2", 200);
+        when(timelines.rangeAfter("viewer-c", TimelineStore.Kind.FIFO, null, 2)).thenReturn(List.of(newest, middle));
+        when(timelines.rangeAfter("viewer-c", TimelineStore.Kind.FIFO, middle, 2))
+            .thenReturn(List.of(new TimelineStore.Entry("p1", 100)));
+        stubNoFilters("viewer-c");
+        stubVisiblePost("p3", "friend");
+        stored.put("p2", Map.of("id", "p2", "uid", "friend", "type", "text"));
+        stored.put("p1", Map.of("id", "p1", "uid", "friend", "type", "text"));
+
+        TimelineResponse first = timelineService.getFifoTimeline("viewer-c", (String) null, 2);
+        TimelineResponse second = timelineService.getFifoTimeline("viewer-c", first.getNextCursor(), 2);
+
+        assertEquals(List.of("p3", "p2"), first.getEntities().stream().map(TimelineEntry::getUuid).toList());
+        assertEquals(List.of("p1"), second.getEntities().stream().map(TimelineEntry::getUuid).toList());
+        assertNull(second.getNextCursor());
+        verify(timelines, never()).range(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void fifoCursorPageSeeksEachPulledOutboxFromTheSamePosition() {
+        TimelineStore.Entry position = new TimelineStore.Entry("seen", 500);
+        when(timelines.pullAuthors()).thenReturn(Set.of("celeb"));
+        when(userService.followedUnmuted("viewer-s", Set.of("celeb"))).thenReturn(Set.of("celeb"));
+        when(timelines.rangeAfter("viewer-s", TimelineStore.Kind.FIFO, position, 2)).thenReturn(List.of(
+            new TimelineStore.Entry("own-4", 400), new TimelineStore.Entry("own-1", 100)));
+        when(timelines.outboxAfter("celeb", position, 2)).thenReturn(List.of(
+            new TimelineStore.Entry("celeb-3", 300), new TimelineStore.Entry("celeb-2", 200)));
+        stubNoFilters("viewer-s");
+        stubVisiblePost("own-4", "friend");
+        stubVisiblePost("celeb-3", "celeb");
+
+        TimelineResponse r = timelineService.getFifoTimeline(
+            "viewer-s", TimelineCursor.after(position).encode(), 2);
+
+        assertEquals(List.of("own-4", "celeb-3"), r.getEntities().stream().map(TimelineEntry::getUuid).toList());
+        assertEquals(new TimelineStore.Entry("celeb-3", 300), TimelineCursor.decode(r.getNextCursor()).after());
+    }
+
+    @Test
+    void rankedCursorPagesWithPullAuthorsFallBackToOffsets() {
+        when(timelines.pullAuthors()).thenReturn(Set.of("celeb"));
+        when(userService.followedUnmuted("viewer-o", Set.of("celeb"))).thenReturn(Set.of("celeb"));
+        when(timelines.rangeWithScores("viewer-o", TimelineStore.Kind.EVERYONE_IMPORTANCE, 0, 1))
+            .thenReturn(List.of(new TimelineStore.Entry("own", 1.0)));
+        when(timelines.outbox("celeb", 0, 1)).thenReturn(List.of());
+        stubNoFilters("viewer-o");
+        stubVisiblePost("own", "friend");
+
+        TimelineResponse r = timelineService.getSocialImportanceTimeline(
+            "viewer-o", (String) null, 1, TimelineService.Importance.EVERYONE);
+
+        assertEquals(1, TimelineCursor.decode(r.getNextCursor()).offset());
+    }
+
+    @Test
+    void cursorPagesReadOnUntilFilteredEntriesAreMadeUp() {
+        TimelineStore.Entry blocked = new TimelineStore.Entry("blocked", 400);
+        TimelineStore.Entry p3 = new TimelineStore.Entry("p3", 300);
+        TimelineStore.Entry p2 = new TimelineStore.Entry("p2", 200);
+        when(timelines.rangeAfter("viewer-f", TimelineStore.Kind.FIFO, null, 2)).thenReturn(List.of(blocked, p3));
+        // Half of the first read was filtered, so the shortfall of one is read twice over.
+        when(timelines.rangeAfter("viewer-f", TimelineStore.Kind.FIFO, p3, 2))
+            .thenReturn(List.of(p2, new TimelineStore.Entry("p1", 100)));
+        stubNoFilters("viewer-f");
+        stored.put("blocked", Map.of("id", "blocked", "uid", "enemy", "type", "text"));
+        when(userService.hiddenActors(eq("viewer-f"), any())).thenReturn(Set.of("enemy"));
+        stubVisiblePost("p3", "friend");
+        stored.put("p2", Map.of("id", "p2", "uid", "friend", "type", "text"));
+        stored.put("p1", Map.of("id", "p1", "uid", "friend", "type", "text"));
+
+        TimelineResponse r = timelineService.getFifoTimeline("viewer-f", (String) null, 2);
+
+        assertEquals(List.of("p3", "p2"), r.getEntities().stream().map(TimelineEntry::getUuid).toList());
+        assertEquals(p2, TimelineCursor.decode(r.getNextCursor()).after());
+    }
+
+    @Test
+    void offsetCursorAfterARepeatedIdResumesPastTheOccurrenceSent() {
+        // A first page with half its entries gone teaches the viewer's filter rate,
+        // so the next page reads twice what it needs.
+        when(timelines.range("viewer-d", TimelineStore.Kind.FIFO, 1, 2)).thenReturn(List.of("gone", "a"));
+        when(timelines.range("viewer-d", TimelineStore.Kind.FIFO, 3, 2)).thenReturn(List.of());
+        stubNoFilters("viewer-d");
+        stubVisiblePost("a", "friend");
+        timelineService.getFifoTimeline("viewer-d", TimelineCursor.at(1).encode(), 2);
+
+        when(timelines.range("viewer-d", TimelineStore.Kind.FIFO, 1, 6))
+            .thenReturn(List.of("a", "b", "a", "c", "d", "e"));
+        for (String id : List.of("b", "c", "d", "e")) stored.put(id, Map.of("id", id, "uid", "friend", "type", "text"));
+
+        TimelineResponse r = timelineService.getFifoTimeline("viewer-d", TimelineCursor.at(1).encode(), 3);
+
+        assertEquals(List.of("a", "b", "a"), r.getEntities().stream().map(TimelineEntry::getUuid).toList());
+        assertEquals(4, TimelineCursor.decode(r.getNextCursor()).offset());
+    }
+
+    @Test
+    void fillStopsAfterMaxRoundsWithACursorPastWhatWasRead() {
+        properties.getFill().setMaxRounds(1);
+        timelineService = new TimelineService(timelines, posts, userService, scores, fragments, properties);
+        TimelineStore.Entry gone = new TimelineStore.Entry("gone", 200);
+        when(timelines.rangeAfter("viewer-m", TimelineStore.Kind.FIFO, null, 2))
+            .thenReturn(List.of(new TimelineStore.Entry("p3", 300), gone));
+        stubNoFilters("viewer-m");
+        stubVisiblePost("p3", "friend");
+
+        TimelineResponse r = timelineService.getFifoTimeline("viewer-m", (String) null, 2);
+
+        assertEquals(1, r.getCount());
+        assertEquals(gone, TimelineCursor.decode(r.getNextCursor()).after());
+    }
+
+    @Test
+    void parallelHydrationReadsEachPostAloneAndKeepsPageOrder() {
+        properties.getHydration().setParallel(true);
+        timelineService = new TimelineService(timelines, posts, userService, scores, fragments, properties);
+        when(timelines.range("viewer-p", TimelineStore.Kind.FIFO, 0, 3)).thenReturn(List.of("p3", "hidden", "p1"));
+        stubNoFilters("viewer-p");
+        when(posts.get(any())).thenAnswer(inv -> Optional.ofNullable(stored.get(inv.<String>getArgument(0))));
+        stubVisiblePost("p3", "friend");
+        stored.put("p1", Map.of("id", "p1", "uid", "friend", "type", "text"));
+        stored.put("hidden", Map.of("id", "hidden", "uid", "enemy", "type", "text"));
+        when(userService.hiddenActors(eq("viewer-p"), any())).thenReturn(Set.of("enemy"));
+        when(userService.findProfiles(List.of("friend")))
+            .thenReturn(Map.of("friend", new UserStore.Profile("pal", "Pal", null)));
+
+        TimelineResponse r = timelineService.getFifoTimeline("viewer-p", 0, 3);
+
+        assertEquals(List.of("p3", "p1"), r.getEntities().stream().map(TimelineEntry::getUuid).toList());
+        assertEquals("pal", r.getEntities().get(1).getActorUsername());
+        verify(posts, never()).getMany(any());
+    }
+
+    @Test
+    void parallelHydrationLeavesOutEntriesThatMissTheDeadline() {
+        properties.getHydration().setParallel(true);
+        properties.getHydration().setDeadline(Duration.ofMillis(100));
+        timelineService = new TimelineService(timelines, posts, userService, scores, fragments, properties);
+        when(timelines.range("viewer-d", TimelineStore.Kind.FIFO, 0, 2)).thenReturn(List.of("slow", "fast"));
+        stubNoFilters("viewer-d");
+        stubVisiblePost("fast", "friend");
+        when(posts.get("fast")).thenReturn(Optional.of(stored.get("fast")));
+        when(posts.get("slow")).thenAnswer(inv -> {
+            Thread.sleep(10_000);
+            return Optional.empty();
+        });
+
+        TimelineResponse r = timelineService.getFifoTimeline("viewer-d", 0, 2);
+
+        assertEquals(List.of("fast"), r.getEntities().stream().map(TimelineEntry::getUuid).toList());
+    }
+
+    @Test
+    void timelineVersionAddsTheFollowedPullAuthorsOutboxes() {
+        when(timelines.version("viewer-v")).thenReturn(10L);
+        when(timelines.pullAuthors()).thenReturn(Set.of("celeb"));
+        when(userService.followedUnmuted("viewer-v", Set.of("celeb"))).thenReturn(Set.of("celeb"));
+        when(timelines.outboxVersion(List.of("celeb"))).thenReturn(5L);
+
+        assertEquals(15, timelineService.timelineVersion("viewer-v"));
+        assertEquals(3, timelineService.updatesSince("viewer-v", 12).newEntries());
+        assertEquals(0, timelineService.updatesSince("viewer-v", 20).newEntries());
+        verify(posts, never()).getMany(any());
+        verify(timelines, times(1)).pullAuthors();
+    }
+
+    @Test
+    void timelineTagChangesWhenOnePullAuthorIsSwappedForAnother() {
+        when(timelines.version("viewer-s")).thenReturn(10L);
+        when(timelines.pullAuthors()).thenReturn(Set.of("celeb-a", "celeb-b"));
+        when(userService.followedUnmuted("viewer-s", Set.of("celeb-a", "celeb-b")))
+            .thenReturn(Set.of("celeb-a"), Set.of("celeb-b"));
+        when(timelines.outboxVersion(any())).thenReturn(5L);
+
+        String before = timelineService.timelineTag("viewer-s");
+        String after = timelineService.timelineTag("viewer-s");
+
+        assertTrue(before.startsWith("15."));
+        assertTrue(after.startsWith("15."));
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(com.intelligenta.socialgraph.exception.SocialGraphException.class,
+            () -> timelineService.getFifoTimeline("viewer", "not a cursor", 10));
+    }
+
+    @Test
+    void mergeDescendingBreaksScoreTiesByPostIdLikeTheStores() {
+        List<TimelineStore.Entry> page = TimelineService.mergeDescending(List.of(
+            List.of(new TimelineStore.Entry("a", 5), new TimelineStore.Entry("x", 1)),
+            List.of(new TimelineStore.Entry("b", 5), new TimelineStore.Entry("a", 5))), 2);
+
+        assertEquals(List.of(new TimelineStore.Entry("b", 5), new TimelineStore.Entry("a", 5)), page);
+    }
+
+    private void stubVisiblePost(String postId, String authorUid) {
+        stored.put(postId, Map.of("id", postId, "uid", authorUid, "type", "text"));
+    }
+
+    private void stubNoFilters(String viewer) {
+        when(userService.hasNegativeKeyword(viewer, null, null)).thenReturn(false);
+    }
 }
@@ -4,20 +4,26 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.intelligenta.socialgraph.config.AppProperties;
+import com.intelligenta.socialgraph.config.TimelineProperties;
 import com.intelligenta.socialgraph.exception.CannotFollowSelfException;
 import com.intelligenta.socialgraph.exception.InvalidCredentialsException;
 import com.intelligenta.socialgraph.exception.UserNotFoundException;
 import com.intelligenta.socialgraph.model.MemberInfo;
 import com.intelligenta.socialgraph.persistence.ContentFilterStore;
+import com.intelligenta.socialgraph.persistence.CounterStore;
+import com.intelligenta.socialgraph.persistence.InvalidationBus;
 import com.intelligenta.socialgraph.persistence.RelationStore;
 import com.intelligenta.socialgraph.persistence.RelationStore.Relation;
 import com.intelligenta.socialgraph.persistence.TokenStore;
 import com.intelligenta.socialgraph.persistence.UserStore;
+import com.intelligenta.socialgraph.util.TermFingerprint;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -25,8 +31,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,12 +46,20 @@ class UserServiceTest {
     @Mock private RelationStore relations;
     @Mock private ContentFilterStore filters;
     @Mock private TokenStore tokens;
+    @Mock private CounterStore counters;
+    @Mock private InvalidationBus bus;
 
     private UserService userService;
+    private Consumer<String> remoteKeywordInvalidation;
 
     @BeforeEach
+    @SuppressWarnings("unchecked")
     void setUp() {
-        userService = new UserService(users, relations, filters, tokens, new AppProperties());
+        userService = new UserService(users, relations, filters,
+            new NegativeKeywordMatcher(filters, bus, new TimelineProperties()), tokens, counters, new AppProperties());
+        ArgumentCaptor<Consumer<String>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(bus).subscribe(eq("content-filters"), captor.capture());
+        remoteKeywordInvalidation = captor.getValue();
     }
 
     @Test
@@ -97,14 +115,87 @@ class UserServiceTest {
         when(relations.contains("viewer-uid", Relation.BLOCKED, "target-uid")).thenReturn(true);
         when(relations.contains("viewer-uid", Relation.MUTED, "target-uid")).thenReturn(false);
         when(relations.contains("target-uid", Relation.BLOCKED, "viewer-uid")).thenReturn(true);
+        when(counters.getMany("target-uid", List.of(CounterStore.Kind.values())))
+            .thenReturn(Map.of(CounterStore.Kind.POSTS, 7L, CounterStore.Kind.PHOTOS, 2L));
 
         Map<String, Object> profile = userService.getProfile("target-uid", "viewer-uid");
         assertEquals("target-user", profile.get("username"));
         assertEquals("10", profile.get("followers"));
+        assertEquals("7", profile.get("posts"));
+        assertEquals("2", profile.get("photos"));
+        assertEquals("0", profile.get("videos"));
         assertEquals(true, profile.get("isBlocked"));
         assertEquals(true, profile.get("blocksViewer"));
     }
 
+    @Test
+    void deliverableFollowersSubtractsBlockAndMuteSetsInOneDifference() {
+        when(relations.difference("author", Relation.FOLLOWERS,
+            Relation.BLOCKERS, Relation.BLOCKED, Relation.MUTERS)).thenReturn(Set.of("f1", "f3"));
+
+        assertEquals(Set.of("f1", "f3"), userService.deliverableFollowers("author"));
+    }
+
+    @Test
+    void followedUnmutedChecksMembershipInsteadOfReadingTheSets() {
+        List<String> pullAuthors = List.of("celeb", "muted-celeb", "stranger");
+        when(relations.retainMembers("viewer", Relation.FOLLOWING, pullAuthors))
+            .thenReturn(Set.of("celeb", "muted-celeb"));
+        when(relations.retainMembers("viewer", Relation.MUTED, Set.of("celeb", "muted-celeb")))
+            .thenReturn(Set.of("muted-celeb"));
+
+        assertEquals(Set.of("celeb"), userService.followedUnmuted("viewer", pullAuthors));
+        verify(relations, never()).members("viewer", Relation.FOLLOWING);
+    }
+
+    @Test
+    void withoutFilteredContentChecksOnlyRecipientsThatHaveFilters() {
+        String content = "big spoiler ahead";
+        when(filters.usersWithFilters(List.of("f1", "f2", "f3"), true, true)).thenReturn(Set.of("f2", "f3"));
+        when(filters.negativeKeywords("f2")).thenReturn(Set.of("spoiler"));
+        when(filters.negativeKeywords("f3")).thenReturn(Set.of("spoil"));
+        when(filters.isImageBlocked("f3", "md5")).thenReturn(false);
+
+        List<String> kept = userService.withoutFilteredContent(
+            List.of("f1", "f2", "f3"), content, TermFingerprint.of(content), "md5");
+
+        assertEquals(List.of("f1", "f3"), kept);
+        verify(filters, never()).negativeKeywords("f1");
+    }
+
+    @Test
+    void negativeKeywordsAreCompiledOnceAndReloadedAfterAnAdd() {
+        when(filters.negativeKeywords("u1")).thenReturn(Set.of("season finale"), Set.of("season finale", "cliffhanger"));
+
+        assertTrue(userService.hasNegativeKeyword("u1", "Watched the season finale!", null));
+        assertFalse(userService.hasNegativeKeyword("u1", "what a cliffhanger", null));
+        userService.addNegativeKeyword("u1", "cliffhanger");
+        assertTrue(userService.hasNegativeKeyword("u1", "what a cliffhanger", null));
+
+        verify(filters, org.mockito.Mockito.times(2)).negativeKeywords("u1");
+        verify(bus).publish("content-filters", "u1");
+    }
+
+    @Test
+    void keywordAddedOnAnotherInstanceIsPickedUpOnItsInvalidation() {
+        when(filters.negativeKeywords("u1")).thenReturn(Set.of("spoiler"), Set.of("spoiler", "leak"));
+
+        assertFalse(userService.hasNegativeKeyword("u1", "a leak", null));
+        assertFalse(userService.hasNegativeKeyword("u1", "a leak", null));
+        remoteKeywordInvalidation.accept("u1");
+        assertTrue(userService.hasNegativeKeyword("u1", "a leak", null));
+
+        verify(filters, org.mockito.Mockito.times(2)).negativeKeywords("u1");
+    }
+
+    @Test
+    void withoutFilteredContentSkipsLookupsForPostsWithNothingToFilter() {
+        List<String> recipients = List.of("f1", "f2");
+
+        assertEquals(recipients, userService.withoutFilteredContent(recipients, " ", null, null));
+        verifyNoInteractions(filters);
+    }
+
     @Test
     void searchUsersFiltersAndPaginatesByUsernameAndFullname() {
         when(users.allUidToUsername()).thenReturn(Map.of("u1", "alice", "u2", "bob"));
@@ -119,6 +210,30 @@ class UserServiceTest {
         assertEquals("Alice Smith", results.getFirst().getFullname());
     }
 
+    @Test
+    void getMembersHydratesProfilesInOneBatchedLookup() {
+        when(relations.members("owner", Relation.FOLLOWERS)).thenReturn(Set.of("u1", "ghost"));
+        when(users.findProfilesByUids(Set.of("u1", "ghost")))
+            .thenReturn(Map.of("u1", new UserStore.Profile("alice", "Alice Smith", null)));
+
+        List<MemberInfo> members = userService.getMembers("owner", "followers");
+
+        assertEquals(2, members.size());
+        MemberInfo alice = members.stream().filter(m -> m.getUid().equals("u1")).findFirst().orElseThrow();
+        assertEquals("alice", alice.getUsername());
+        assertEquals("Alice Smith", alice.getFullname());
+        verify(users, never()).findUsernameByUid(org.mockito.ArgumentMatchers.anyString());
+    }
+
+    @Test
+    void findProfilesLooksUpEachDistinctUidOnce() {
+        when(users.findProfilesByUids(Set.of("u1", "u2"))).thenReturn(Map.of());
+
+        userService.findProfiles(List.of("u1", "u2", "u1", "u1"));
+
+        verify(users).findProfilesByUids(new java.util.LinkedHashSet<>(List.of("u1", "u2")));
+    }
+
     @Test
     void searchUsersReturnsEmptyPageWhenIndexIsOutOfBounds() {
         when(users.allUidToUsername()).thenReturn(Map.of("u1", "alice"));
@@ -139,6 +254,16 @@ class UserServiceTest {
         assertFalse(userService.canViewContent("viewer", "actor"));
     }
 
+    @Test
+    void hiddenActorsChecksBothBlockDirectionsOnceForAllActors() {
+        List<String> actors = List.of("a", "b", "c");
+        when(relations.retainMembers("viewer", Relation.BLOCKED, actors)).thenReturn(Set.of("a"));
+        when(relations.retainMembers("viewer", Relation.BLOCKERS, actors)).thenReturn(Set.of("c"));
+
+        assertEquals(Set.of("a", "c"), userService.hiddenActors("viewer", actors));
+        verify(relations, never()).contains(any(), any(), any());
+    }
+
     @Test
     void updateProfileRejectsUnknownUsers() {
         when(users.findUsernameByUid("missing")).thenReturn(Optional.empty());
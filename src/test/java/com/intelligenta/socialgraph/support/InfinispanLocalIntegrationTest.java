@@ -0,0 +1,37 @@
+package com.intelligenta.socialgraph.support;
+
+import java.util.List;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Base class for store tests against a non-clustered embedded cache
+ * manager. Each test gets a fresh {@link #manager} with {@link #caches()}
+ * defined as LOCAL caches; it is stopped afterwards.
+ */
+public abstract class InfinispanLocalIntegrationTest {
+
+    protected EmbeddedCacheManager manager;
+
+    /** The caches the store under test reads and writes. */
+    protected abstract List<String> caches();
+
+    @BeforeEach
+    void startManager() {
+        manager = new DefaultCacheManager(new GlobalConfigurationBuilder().nonClusteredDefault().build());
+        Configuration local = new ConfigurationBuilder().clustering().cacheMode(CacheMode.LOCAL).build();
+        caches().forEach(name -> manager.defineConfiguration(name, local));
+    }
+
+    @AfterEach
+    void stopManager() {
+        manager.stop();
+    }
+}
@@ -0,0 +1,46 @@
+package com.intelligenta.socialgraph.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Base class for store tests against the shared Redis Stack container
+ * without a Spring context. Each test gets {@link #redis} on a fresh
+ * connection to an emptied server; the connection is closed afterwards.
+ * Kept apart from {@link RedisStackIntegrationTest} so the Spring Boot
+ * tests, whose context creates search indexes at startup, are not flushed.
+ */
+public abstract class RedisStoreIntegrationTest extends RedisStackIntegrationTest {
+
+    private final List<LettuceConnectionFactory> connections = new ArrayList<>();
+
+    protected StringRedisTemplate redis;
+
+    @BeforeEach
+    void connectAndFlush() {
+        redis = new StringRedisTemplate(connect());
+        redis.execute(conn -> { conn.serverCommands().flushAll(); return null; }, true);
+    }
+
+    @AfterEach
+    void disconnect() {
+        connections.forEach(LettuceConnectionFactory::destroy);
+        connections.clear();
+    }
+
+    /** Another connection to the container, for tests that stand in for several instances. */
+    protected LettuceConnectionFactory connect() {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(
+            new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        factory.afterPropertiesSet();
+        factory.start();
+        connections.add(factory);
+        return factory;
+    }
+}
@@ -0,0 +1,40 @@
+package com.intelligenta.socialgraph.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeywordAutomatonTest {
+
+    @Test
+    void matchesWholeWordsAndPhrasesOnly() {
+        KeywordAutomaton automaton = KeywordAutomaton.compile(List.of("spoil", "season finale", "he"));
+
+        assertTrue(automaton.matches("no spoil, please"));
+        assertTrue(automaton.matches("the season finale!"));
+        assertTrue(automaton.matches("he said"));
+        assertFalse(automaton.matches("spoilers ahead"));
+        assertFalse(automaton.matches("the seasons finale"));
+        assertFalse(automaton.matches("then she left"));
+    }
+
+    @Test
+    void followsFailureLinksIntoAnOverlappingPhrase() {
+        KeywordAutomaton automaton = KeywordAutomaton.compile(List.of("new york times", "york city"));
+
+        assertTrue(automaton.matches("moving to new york city"));
+        assertFalse(automaton.matches("new york timestamp"));
+    }
+
+    @Test
+    void blankKeywordsCompileToTheEmptyAutomaton() {
+        KeywordAutomaton automaton = KeywordAutomaton.compile(List.of(" ", ""));
+
+        assertSame(KeywordAutomaton.EMPTY, automaton);
+        assertFalse(automaton.matches("anything at all"));
+    }
+}
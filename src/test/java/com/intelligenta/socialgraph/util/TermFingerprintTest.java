@@ -0,0 +1,47 @@
+package com.intelligenta.socialgraph.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TermFingerprintTest {
+
+    @Test
+    void fingerprintIsTheSortedDistinctHashesOfEachTerm() {
+        long[] terms = TermFingerprint.of("Big news: big, BIG news!");
+
+        assertEquals(4, terms.length);
+        assertArrayEquals(TermFingerprint.of("news BIG big Big"), terms);
+        for (int i = 1; i < terms.length; i++) assertTrue(terms[i - 1] < terms[i]);
+        assertTrue(TermFingerprint.intersects(terms, new long[] { TermFingerprint.hash("news") }));
+        assertFalse(TermFingerprint.intersects(terms, new long[] { TermFingerprint.hash("new") }));
+    }
+
+    @Test
+    void textWithoutTermsHasAnEmptyFingerprint() {
+        assertEquals(0, TermFingerprint.of(null).length);
+        assertEquals(0, TermFingerprint.of(" -- !! ").length);
+    }
+
+    @Test
+    void encodeRoundTripsAndRejectsMalformedInput() {
+        long[] terms = TermFingerprint.of("round trip through the post hash");
+
+        assertArrayEquals(terms, TermFingerprint.decode(TermFingerprint.encode(terms)));
+        assertArrayEquals(new long[0], TermFingerprint.decode(""));
+        assertNull(TermFingerprint.decode("not base64!"));
+        assertNull(TermFingerprint.decode("AAAA"));
+    }
+
+    @Test
+    void singleTermsAreLettersAndDigitsOnly() {
+        assertTrue(TermFingerprint.isSingleTerm("spoiler2"));
+        assertFalse(TermFingerprint.isSingleTerm("season finale"));
+        assertFalse(TermFingerprint.isSingleTerm("don't"));
+        assertFalse(TermFingerprint.isSingleTerm(""));
+    }
+}